@@ -42,6 +42,7 @@ import java.util.List;
  * The new tables in OpenCms 8 are:
  * <ul>
  * <li><code>CMS_LOG</code></li>
+ * <li><code>CMS_SCHEDULER_EXECUTIONS</code></li>
  * </ul>
  *
  * @since 8.0.0
@@ -73,6 +74,7 @@ public class CmsUpdateDBNewTables extends A_CmsUpdateDBPart {
 
         List<String> elements = new ArrayList<String>();
         elements.add("CMS_LOG");
+        elements.add("CMS_SCHEDULER_EXECUTIONS");
 
         for (Iterator<String> it = elements.iterator(); it.hasNext();) {
             String table = it.next();
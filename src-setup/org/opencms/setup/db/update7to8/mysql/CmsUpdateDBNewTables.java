@@ -42,6 +42,7 @@ import java.util.Map;
  * The new tables in OpenCms 8 are:
  * <ul>
  * <li><code>CMS_LOG</code></li>
+ * <li><code>CMS_SCHEDULER_EXECUTIONS</code></li>
  * </ul>
  *
  * @since 8.0.0
@@ -81,7 +82,8 @@ public class CmsUpdateDBNewTables extends org.opencms.setup.db.update7to8.CmsUpd
                 "CMS_SUBSCRIPTION_VISIT",
                 "CMS_ALIASES",
                 "CMS_REWRITES",
-                "CMS_USER_PUBLISH_LIST"});
+                "CMS_USER_PUBLISH_LIST",
+                "CMS_SCHEDULER_EXECUTIONS"});
 
         Map<String, String> replacer = Collections.singletonMap("${tableEngine}", m_poolData.get("engine"));
         for (String table : elements) {
@@ -43,6 +43,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
 
@@ -51,6 +53,13 @@ import com.google.common.collect.Maps;
 /**
  * An immutable object which represents the complete ADE configuration (sitemap and module configurations)
  * at a certain instant in time.<p>
+ *
+ * Besides the configurations themselves, the state keeps a few indexes derived from them: the sitemap
+ * configurations by base path, the own detail pages of the sitemap configurations by type, and the folder types
+ * contributed by each sitemap configuration. When a state is updated with
+ * {@link #createUpdatedCopy(Map, List, Map, boolean)}, the unchanged parts of these indexes are shared with the
+ * previous state, and only the entries of the changed sitemap configurations (and, for the folder types, of the
+ * sitemap configurations below them) are computed again.<p>
  */
 public class CmsADEConfigCacheState {
 
@@ -60,26 +69,32 @@ public class CmsADEConfigCacheState {
     /** The CMS context used for VFS operations. */
     private CmsObject m_cms;
 
-    /** Cached detail page types. */
-    private volatile Set<String> m_detailPageTypes;
+    /** The own detail pages of the sitemap configurations, by type name and base path of the configuration. */
+    private Map<String, Map<String, List<CmsDetailPageInfo>>> m_detailPagesByType;
+
+    /** The available element views. */
+    private Map<CmsUUID, CmsElementView> m_elementViews;
 
     /** The cached content types for folders. */
     private Map<String, String> m_folderTypes = new HashMap<String, String>();
 
+    /** The content types for folders contributed by the sitemap configurations, by base path of the configuration. */
+    private Map<String, Map<String, String>> m_folderTypesByConfig;
+
     /** The merged configuration from all the modules. */
     private CmsADEConfigData m_moduleConfiguration;
 
     /** The list of module configurations. */
     private List<CmsADEConfigDataInternal> m_moduleConfigurations;
 
+    /** The content types for folders contributed by the module configuration. */
+    private Map<String, String> m_moduleFolderTypes;
+
     /** The map of sitemap configurations by structure id. */
     private Map<CmsUUID, CmsADEConfigDataInternal> m_siteConfigurations = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
 
-    /** The configurations from the sitemap / VFS. */
-    private Map<String, CmsADEConfigDataInternal> m_siteConfigurationsByPath = new HashMap<String, CmsADEConfigDataInternal>();
-
-    /** The available element views. */
-    private Map<CmsUUID, CmsElementView> m_elementViews;
+    /** The configurations from the sitemap / VFS, sorted by base path. */
+    private SortedMap<String, CmsADEConfigDataInternal> m_siteConfigurationsByPath = new TreeMap<String, CmsADEConfigDataInternal>();
 
     /**
      * Creates a new configuration cache state.<p>
@@ -99,21 +114,109 @@ public class CmsADEConfigCacheState {
         m_siteConfigurations = siteConfigurations;
         m_moduleConfigurations = moduleConfigs;
         m_elementViews = elementViews;
+        m_detailPagesByType = new HashMap<String, Map<String, List<CmsDetailPageInfo>>>();
         for (CmsADEConfigDataInternal data : siteConfigurations.values()) {
-            if (data.getBasePath() != null) {
-                // In theory, the base path should never be null
-                m_siteConfigurationsByPath.put(data.getBasePath(), data);
-            } else {
-                LOG.warn("Empty base path for sitemap configuration!");
-            }
+            addSiteConfiguration(data);
         }
         m_moduleConfiguration = wrap(mergeConfigurations(moduleConfigs));
-        try {
-            m_folderTypes = computeFolderTypes();
-        } catch (Exception e) {
-            m_folderTypes = Maps.newHashMap();
-            LOG.error(e.getLocalizedMessage(), e);
+        m_moduleFolderTypes = computeModuleFolderTypes();
+        m_folderTypesByConfig = new HashMap<String, Map<String, String>>();
+        for (CmsADEConfigDataInternal data : m_siteConfigurationsByPath.values()) {
+            m_folderTypesByConfig.put(data.getBasePath(), computeFolderTypes(data));
         }
+        m_folderTypes = mergeFolderTypes();
+    }
+
+    /**
+     * Creates a new configuration cache state from a previous state and some sitemap configuration updates.<p>
+     *
+     * The module configuration is taken over from the previous state.<p>
+     *
+     * @param previous the previous configuration cache state
+     * @param siteConfigurations the map of all sitemap configuration beans by structure id, with the updates applied
+     * @param sitemapUpdates the changed sitemap configurations by structure id (null values for removed configurations)
+     * @param elementViews the available element views
+     * @param updateFolderTypes if true, the folder types of all configurations are computed again
+     */
+    private CmsADEConfigCacheState(
+        CmsADEConfigCacheState previous,
+        Map<CmsUUID, CmsADEConfigDataInternal> siteConfigurations,
+        Map<CmsUUID, CmsADEConfigDataInternal> sitemapUpdates,
+        Map<CmsUUID, CmsElementView> elementViews,
+        boolean updateFolderTypes) {
+
+        m_cms = previous.m_cms;
+        m_siteConfigurations = siteConfigurations;
+        m_moduleConfigurations = previous.m_moduleConfigurations;
+        m_elementViews = elementViews;
+        // wrap the module configuration again, so the new state does not keep a reference to the previous one
+        m_moduleConfiguration = wrap(previous.m_moduleConfiguration.m_data);
+        m_siteConfigurationsByPath = new TreeMap<String, CmsADEConfigDataInternal>(
+            previous.m_siteConfigurationsByPath);
+
+        List<CmsADEConfigDataInternal> oldConfigs = new ArrayList<CmsADEConfigDataInternal>();
+        List<CmsADEConfigDataInternal> newConfigs = new ArrayList<CmsADEConfigDataInternal>();
+        Set<String> changedTypes = new HashSet<String>();
+        Set<String> changedPaths = new HashSet<String>();
+        for (CmsUUID id : sitemapUpdates.keySet()) {
+            CmsADEConfigDataInternal oldConfig = previous.m_siteConfigurations.get(id);
+            if ((oldConfig != null) && (oldConfig.getBasePath() != null)) {
+                oldConfigs.add(oldConfig);
+                changedPaths.add(oldConfig.getBasePath());
+                changedTypes.addAll(getOwnDetailPageTypes(oldConfig));
+            }
+            CmsADEConfigDataInternal newConfig = siteConfigurations.get(id);
+            if (newConfig != null) {
+                newConfigs.add(newConfig);
+                if (newConfig.getBasePath() != null) {
+                    changedPaths.add(newConfig.getBasePath());
+                    CmsADEConfigDataInternal replaced = m_siteConfigurationsByPath.get(newConfig.getBasePath());
+                    if (replaced != null) {
+                        changedTypes.addAll(getOwnDetailPageTypes(replaced));
+                    }
+                }
+                changedTypes.addAll(getOwnDetailPageTypes(newConfig));
+            }
+        }
+
+        // share the detail pages of all types not touched by the update with the previous state
+        m_detailPagesByType = new HashMap<String, Map<String, List<CmsDetailPageInfo>>>(
+            previous.m_detailPagesByType);
+        for (String type : changedTypes) {
+            Map<String, List<CmsDetailPageInfo>> pagesByPath = m_detailPagesByType.get(type);
+            if (pagesByPath != null) {
+                m_detailPagesByType.put(type, new HashMap<String, List<CmsDetailPageInfo>>(pagesByPath));
+            }
+        }
+        for (CmsADEConfigDataInternal oldConfig : oldConfigs) {
+            removeSiteConfiguration(oldConfig);
+        }
+        for (CmsADEConfigDataInternal newConfig : newConfigs) {
+            addSiteConfiguration(newConfig);
+        }
+
+        if (updateFolderTypes) {
+            m_moduleFolderTypes = computeModuleFolderTypes();
+            m_folderTypesByConfig = new HashMap<String, Map<String, String>>();
+            for (CmsADEConfigDataInternal data : m_siteConfigurationsByPath.values()) {
+                m_folderTypesByConfig.put(data.getBasePath(), computeFolderTypes(data));
+            }
+        } else {
+            m_moduleFolderTypes = previous.m_moduleFolderTypes;
+            m_folderTypesByConfig = new HashMap<String, Map<String, String>>(previous.m_folderTypesByConfig);
+            for (String path : changedPaths) {
+                m_folderTypesByConfig.remove(path);
+                // the folder types depend on the inherited resource types, so sub-sitemaps have to be updated, too
+                for (Map.Entry<String, CmsADEConfigDataInternal> entry : m_siteConfigurationsByPath.tailMap(
+                    path).entrySet()) {
+                    if (!entry.getKey().startsWith(path)) {
+                        break;
+                    }
+                    m_folderTypesByConfig.put(entry.getKey(), computeFolderTypes(entry.getValue()));
+                }
+            }
+        }
+        m_folderTypes = mergeFolderTypes();
     }
 
     /**
@@ -158,16 +261,21 @@ public class CmsADEConfigCacheState {
      * Creates a new object which represents the changed configuration state given some updates, without
      * changing the current configuration state (this object instance).
      *
+     * Unless the module configurations are updated, the new state is derived incrementally from this state,
+     * i.e. only the index entries of the changed sitemap configurations are computed again.<p>
+     *
      * @param sitemapUpdates a map containing changed sitemap configurations indexed by structure id (the map values are null if the corresponding sitemap configuration is not valid or could not be found)
      * @param moduleUpdates the list of *all* module configurations, or null if no module configuration update is needed
      * @param elementViewUpdates the updated element views, or null if no update needed
+     * @param updateFolderTypes if true, the folder types of all configurations are computed again, e.g. because a content folder has been changed
      *
      * @return the new configuration state
      */
     public CmsADEConfigCacheState createUpdatedCopy(
         Map<CmsUUID, CmsADEConfigDataInternal> sitemapUpdates,
         List<CmsADEConfigDataInternal> moduleUpdates,
-        Map<CmsUUID, CmsElementView> elementViewUpdates) {
+        Map<CmsUUID, CmsElementView> elementViewUpdates,
+        boolean updateFolderTypes) {
 
         Map<CmsUUID, CmsADEConfigDataInternal> newSitemapConfigs = Maps.newHashMap(m_siteConfigurations);
         if (sitemapUpdates != null) {
@@ -181,16 +289,20 @@ public class CmsADEConfigCacheState {
                 }
             }
         }
-        List<CmsADEConfigDataInternal> newModuleConfigs = m_moduleConfigurations;
-        if (moduleUpdates != null) {
-            newModuleConfigs = moduleUpdates;
-        }
         Map<CmsUUID, CmsElementView> newElementViews = m_elementViews;
         if (elementViewUpdates != null) {
             newElementViews = elementViewUpdates;
         }
-
-        return new CmsADEConfigCacheState(m_cms, newSitemapConfigs, newModuleConfigs, newElementViews);
+        if (moduleUpdates != null) {
+            // the module configuration is inherited by all sitemap configurations, so everything has to be rebuilt
+            return new CmsADEConfigCacheState(m_cms, newSitemapConfigs, moduleUpdates, newElementViews);
+        }
+        return new CmsADEConfigCacheState(
+            this,
+            newSitemapConfigs,
+            sitemapUpdates != null ? sitemapUpdates : Collections.<CmsUUID, CmsADEConfigDataInternal> emptyMap(),
+            newElementViews,
+            updateFolderTypes);
     }
 
     /**
@@ -200,18 +312,7 @@ public class CmsADEConfigCacheState {
      */
     public Set<String> getDetailPageTypes() {
 
-        if (m_detailPageTypes != null) {
-            return m_detailPageTypes;
-        }
-        Set<String> result = new HashSet<String>();
-        for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
-            List<CmsDetailPageInfo> detailPageInfos = configData.getOwnDetailPages();
-            for (CmsDetailPageInfo info : detailPageInfos) {
-                result.add(info.getType());
-            }
-        }
-        m_detailPageTypes = result;
-        return result;
+        return Collections.unmodifiableSet(m_detailPagesByType.keySet());
     }
 
     /**
@@ -299,11 +400,7 @@ public class CmsADEConfigCacheState {
      */
     protected List<CmsDetailPageInfo> getAllDetailPages() {
 
-        List<CmsDetailPageInfo> result = new ArrayList<CmsDetailPageInfo>();
-        for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
-            result.addAll(wrap(configData).getAllDetailPages(true));
-        }
-        return result;
+        return collectDetailPages(null);
     }
 
     /**
@@ -326,10 +423,8 @@ public class CmsADEConfigCacheState {
     protected List<String> getDetailPages(String type) {
 
         List<String> result = new ArrayList<String>();
-        for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
-            for (CmsDetailPageInfo pageInfo : wrap(configData).getDetailPagesForType(type)) {
-                result.add(pageInfo.getUri());
-            }
+        for (CmsDetailPageInfo pageInfo : collectDetailPages(type)) {
+            result.add(pageInfo.getUri());
         }
         return result;
     }
@@ -360,29 +455,16 @@ public class CmsADEConfigCacheState {
         if (path == null) {
             return null;
         }
-        String normalizedPath = CmsStringUtil.joinPaths("/", path, "/");
-        List<String> prefixes = new ArrayList<String>();
-
-        List<String> parents = new ArrayList<String>();
-        String currentPath = normalizedPath;
+        // walk up from the path itself, so the first match is the longest configured prefix
+        String currentPath = CmsStringUtil.joinPaths("/", path, "/");
         while (currentPath != null) {
-            parents.add(currentPath);
-            currentPath = CmsResource.getParentFolder(currentPath);
-        }
-
-        for (String parent : parents) {
-            if (m_siteConfigurationsByPath.containsKey(parent)) {
-                prefixes.add(parent);
+            CmsADEConfigDataInternal result = m_siteConfigurationsByPath.get(currentPath);
+            if (result != null) {
+                return result;
             }
+            currentPath = CmsResource.getParentFolder(currentPath);
         }
-
-        if (prefixes.size() == 0) {
-            return null;
-        }
-        Collections.sort(prefixes);
-        // for any two prefixes of a string, one is a prefix of the other. so the alphabetically last
-        // prefix is the longest prefix of all.
-        return m_siteConfigurationsByPath.get(prefixes.get(prefixes.size() - 1));
+        return null;
     }
 
     /**
@@ -409,12 +491,8 @@ public class CmsADEConfigCacheState {
         } else {
             folder = resource;
         }
-        List<CmsDetailPageInfo> allDetailPages = new ArrayList<CmsDetailPageInfo>();
         // First collect all detail page infos
-        for (CmsADEConfigDataInternal configData : m_siteConfigurationsByPath.values()) {
-            List<CmsDetailPageInfo> detailPageInfos = wrap(configData).getAllDetailPages();
-            allDetailPages.addAll(detailPageInfos);
-        }
+        List<CmsDetailPageInfo> allDetailPages = getAllDetailPages();
         // First pass: check if the structure id or path directly match one of the configured detail pages.
         for (CmsDetailPageInfo info : allDetailPages) {
             if (folder.getStructureId().equals(info.getId())
@@ -463,4 +541,176 @@ public class CmsADEConfigCacheState {
         return result;
     }
 
+    /**
+     * Adds a sitemap configuration to the path index and to the detail page index.<p>
+     *
+     * A configuration with the same base path is replaced.<p>
+     *
+     * @param data the sitemap configuration to add
+     */
+    private void addSiteConfiguration(CmsADEConfigDataInternal data) {
+
+        String basePath = data.getBasePath();
+        if (basePath == null) {
+            // In theory, the base path should never be null
+            LOG.warn("Empty base path for sitemap configuration!");
+            return;
+        }
+        CmsADEConfigDataInternal replaced = m_siteConfigurationsByPath.put(basePath, data);
+        if (replaced != null) {
+            removeDetailPages(replaced);
+        }
+        for (CmsDetailPageInfo info : data.getOwnDetailPages()) {
+            Map<String, List<CmsDetailPageInfo>> pagesByPath = m_detailPagesByType.get(info.getType());
+            if (pagesByPath == null) {
+                pagesByPath = new HashMap<String, List<CmsDetailPageInfo>>();
+                m_detailPagesByType.put(info.getType(), pagesByPath);
+            }
+            List<CmsDetailPageInfo> pages = pagesByPath.get(basePath);
+            if (pages == null) {
+                pages = new ArrayList<CmsDetailPageInfo>();
+                pagesByPath.put(basePath, pages);
+            }
+            pages.add(info);
+        }
+    }
+
+    /**
+     * Collects the detail pages defined anywhere in the configuration from the detail page index.<p>
+     *
+     * Since the detail pages of a sitemap configuration replace the inherited ones per type, these are exactly
+     * the own detail pages of all configurations. The detail pages of the module configuration are inherited by the
+     * top level sitemaps, so they are included as soon as there is any sitemap configuration.<p>
+     *
+     * @param type the type name, or null to collect the detail pages of all types
+     *
+     * @return the detail pages, with the URIs updated for moved detail pages
+     */
+    private List<CmsDetailPageInfo> collectDetailPages(String type) {
+
+        List<CmsDetailPageInfo> result = new ArrayList<CmsDetailPageInfo>();
+        if (m_siteConfigurationsByPath.isEmpty()) {
+            return result;
+        }
+        for (CmsDetailPageInfo info : m_moduleConfiguration.m_data.getOwnDetailPages()) {
+            if ((type == null) || type.equals(info.getType())) {
+                result.add(info);
+            }
+        }
+        if (type == null) {
+            for (Map<String, List<CmsDetailPageInfo>> pagesByPath : m_detailPagesByType.values()) {
+                for (List<CmsDetailPageInfo> pages : pagesByPath.values()) {
+                    result.addAll(pages);
+                }
+            }
+        } else {
+            Map<String, List<CmsDetailPageInfo>> pagesByPath = m_detailPagesByType.get(type);
+            if (pagesByPath != null) {
+                for (List<CmsDetailPageInfo> pages : pagesByPath.values()) {
+                    result.addAll(pages);
+                }
+            }
+        }
+        return m_moduleConfiguration.updateUris(result);
+    }
+
+    /**
+     * Computes the folder types contributed by a single sitemap configuration.<p>
+     *
+     * @param data the sitemap configuration
+     *
+     * @return the map of content types by folder root paths
+     */
+    private Map<String, String> computeFolderTypes(CmsADEConfigDataInternal data) {
+
+        try {
+            return wrap(data).getFolderTypes();
+        } catch (Exception e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Computes the folder types contributed by the module configuration.<p>
+     *
+     * @return the map of content types by folder root paths
+     */
+    private Map<String, String> computeModuleFolderTypes() {
+
+        try {
+            return m_moduleConfiguration.getFolderTypes();
+        } catch (Exception e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Returns the names of the types for which a sitemap configuration defines its own detail pages.<p>
+     *
+     * @param data the sitemap configuration
+     *
+     * @return the set of type names
+     */
+    private Set<String> getOwnDetailPageTypes(CmsADEConfigDataInternal data) {
+
+        Set<String> result = new HashSet<String>();
+        for (CmsDetailPageInfo info : data.getOwnDetailPages()) {
+            result.add(info.getType());
+        }
+        return result;
+    }
+
+    /**
+     * Merges the folder types of the module configuration and the sitemap configurations.<p>
+     *
+     * @return the map of content types by folder root paths
+     */
+    private Map<String, String> mergeFolderTypes() {
+
+        Map<String, String> folderTypes = Maps.newHashMap();
+        // do this first, since folder types from modules should be overwritten by folder types from sitemaps
+        folderTypes.putAll(m_moduleFolderTypes);
+        for (String basePath : m_siteConfigurationsByPath.keySet()) {
+            Map<String, String> configFolderTypes = m_folderTypesByConfig.get(basePath);
+            if (configFolderTypes != null) {
+                folderTypes.putAll(configFolderTypes);
+            }
+        }
+        return folderTypes;
+    }
+
+    /**
+     * Removes the detail pages of a sitemap configuration from the detail page index.<p>
+     *
+     * @param data the sitemap configuration
+     */
+    private void removeDetailPages(CmsADEConfigDataInternal data) {
+
+        for (String type : getOwnDetailPageTypes(data)) {
+            Map<String, List<CmsDetailPageInfo>> pagesByPath = m_detailPagesByType.get(type);
+            if (pagesByPath != null) {
+                pagesByPath.remove(data.getBasePath());
+                if (pagesByPath.isEmpty()) {
+                    m_detailPagesByType.remove(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a sitemap configuration from the path index and from the detail page index.<p>
+     *
+     * Nothing is removed if the configuration has already been replaced by another one with the same base path.<p>
+     *
+     * @param data the sitemap configuration to remove
+     */
+    private void removeSiteConfiguration(CmsADEConfigDataInternal data) {
+
+        if (m_siteConfigurationsByPath.get(data.getBasePath()) == data) {
+            m_siteConfigurationsByPath.remove(data.getBasePath());
+            removeDetailPages(data);
+        }
+    }
 }
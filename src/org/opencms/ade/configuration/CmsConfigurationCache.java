@@ -486,7 +486,8 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
                 } else {
                     boolean updateModules = updateIds.remove(ID_UPDATE_MODULES);
                     boolean updateElementViews = updateIds.remove(ID_UPDATE_ELEMENT_VIEWS);
-                    updateIds.remove(ID_UPDATE_FOLDERTYPES); // folder types are always updated when the update set is not empty, so at this point we don't care whether the id for folder type updates actually is in the update set
+                    // the folder types of changed sitemap configurations are always updated, all others only if requested
+                    boolean updateFolderTypes = updateIds.remove(ID_UPDATE_FOLDERTYPES);
                     Map<CmsUUID, CmsADEConfigDataInternal> updateMap = Maps.newHashMap();
                     for (CmsUUID structureId : updateIds) {
                         CmsADEConfigDataInternal sitemapConfig = parseSitemapConfiguration(structureId);
@@ -501,7 +502,11 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
                     if (updateElementViews) {
                         elementViews = loadElementViews();
                     }
-                    m_state = oldState.createUpdatedCopy(updateMap, moduleConfigs, elementViews);
+                    m_state = oldState.createUpdatedCopy(
+                        updateMap,
+                        moduleConfigs,
+                        elementViews,
+                        updateFolderTypes);
                 }
             }
         } catch (Exception e) {
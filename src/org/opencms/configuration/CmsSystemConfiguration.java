@@ -109,6 +109,15 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The "exclusive" attribute. */
     public static final String A_EXCLUSIVE = "exclusive";
 
+    /** The "maxattempts" attribute. */
+    public static final String A_MAXATTEMPTS = "maxattempts";
+
+    /** The "maxpendingvisits" attribute. */
+    public static final String A_MAXPENDINGVISITS = "maxpendingvisits";
+
+    /** The "maxpersecond" attribute. */
+    public static final String A_MAXPERSECOND = "maxpersecond";
+
     /** The "maxvisited" attribute. */
     public static final String A_MAXVISITED = "maxvisited";
 
@@ -124,18 +133,30 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The "online" attribute. */
     public static final String A_ONLINE = "online";
 
+    /** The "persistent" attribute. */
+    public static final String A_PERSISTENT = "persistent";
+
     /** The "poolname" attribute. */
     public static final String A_POOLNAME = "poolname";
 
     /** The "position" attribute. */
     public static final String A_POSITION = "position";
 
+    /** The "retrydelay" attribute. */
+    public static final String A_RETRYDELAY = "retrydelay";
+
     /** The "server" attribute. */
     public static final String A_SERVER = "server";
 
+    /** The "threads" attribute. */
+    public static final String A_THREADS = "threads";
+
     /** The "title" attribute. */
     public static final String A_TITLE = "title";
 
+    /** The "visitflushinterval" attribute. */
+    public static final String A_VISITFLUSHINTERVAL = "visitflushinterval";
+
     /** The "webserver" attribute. */
     public static final String A_WEBSERVER = "webserver";
 
@@ -304,6 +325,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the mail configuration. */
     public static final String N_MAIL = "mail";
 
+    /** The node name for the "mail delivery" node. */
+    public static final String N_MAILDELIVERY = "maildelivery";
+
     /** The node name for the "mail from" node. */
     public static final String N_MAILFROM = "mailfrom";
 
@@ -331,6 +355,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the login message text. */
     public static final String N_MESSAGE = "message";
 
+    /** The node name for the job misfire policy. */
+    public static final String N_MISFIRE = "misfire";
+
     /** The duration after which responsibles will be notified about out-dated content. */
     public static final String N_NOTIFICATION_PROJECT = "notification-project";
 
@@ -638,6 +665,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The configured schedule manager. */
     private CmsScheduleManager m_scheduleManager;
 
+    /** Indicates if the scheduler records the job executions in the database. */
+    private boolean m_schedulerPersistent;
+
     /** The configured session storage provider class name. */
     private String m_sessionStorageProvider;
 
@@ -775,6 +805,7 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     public void addScheduleManager() {
 
         m_scheduleManager = new CmsScheduleManager(m_configuredJobs);
+        m_scheduleManager.setPersistent(m_schedulerPersistent);
     }
 
     /**
@@ -828,8 +859,18 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_MAIL + "/" + N_MAILHOST, 4, A_USER);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_MAIL + "/" + N_MAILHOST, 5, A_PASSWORD);
 
+        // add mail delivery configuration rule
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_MAIL + "/" + N_MAILDELIVERY, "setDelivery", 4);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_MAIL + "/" + N_MAILDELIVERY, 0, A_THREADS);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_MAIL + "/" + N_MAILDELIVERY, 1, A_MAXPERSECOND);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_MAIL + "/" + N_MAILDELIVERY, 2, A_MAXATTEMPTS);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_MAIL + "/" + N_MAILDELIVERY, 3, A_RETRYDELAY);
+
         // add scheduler creation rule
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_SCHEDULER, "addScheduleManager");
+        // the rule is only called if the attribute is present, and before the schedule manager is created
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_SCHEDULER, "setSchedulerPersistent", 1);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_SCHEDULER, 0, A_PERSISTENT);
 
         // add scheduler job creation rule
         digester.addObjectCreate("*/" + N_SYSTEM + "/" + N_SCHEDULER + "/" + N_JOB, CmsScheduledJobInfo.class);
@@ -842,6 +883,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             "*/" + N_SYSTEM + "/" + N_SCHEDULER + "/" + N_JOB + "/" + N_REUSEINSTANCE,
             "reuseInstance");
         digester.addBeanPropertySetter("*/" + N_SYSTEM + "/" + N_SCHEDULER + "/" + N_JOB + "/" + N_ACTIVE, "active");
+        digester.addBeanPropertySetter(
+            "*/" + N_SYSTEM + "/" + N_SCHEDULER + "/" + N_JOB + "/" + N_MISFIRE,
+            "misfirePolicy");
         digester.addSetNext("*/" + N_SYSTEM + "/" + N_SCHEDULER + "/" + N_JOB, "addJobFromConfiguration");
 
         // add job context creation rule
@@ -1174,6 +1218,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, 0, A_POOLNAME);
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, "setMaxVisitedCount", 1);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, 0, A_MAXVISITED);
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, "setMaxPendingVisits", 1);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, 0, A_MAXPENDINGVISITS);
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, "setVisitFlushInterval", 1);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, 0, A_VISITFLUSHINTERVAL);
         digester.addSetNext("*/" + N_SYSTEM + "/" + N_SUBSCRIPTIONMANAGER, "setSubscriptionManager");
 
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_PUBLISH_LIST_REMOVE_MODE, "setPublishListRemoveMode", 1);
@@ -1256,9 +1304,21 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
                 hostElement.addAttribute(A_USER, host.getUsername()).addAttribute(A_PASSWORD, host.getPassword());
             }
         }
+        mailElement.addElement(N_MAILDELIVERY).addAttribute(
+            A_THREADS,
+            String.valueOf(m_mailSettings.getDeliveryThreads())).addAttribute(
+                A_MAXPERSECOND,
+                String.valueOf(m_mailSettings.getDeliveryMaxPerSecond())).addAttribute(
+                    A_MAXATTEMPTS,
+                    String.valueOf(m_mailSettings.getDeliveryMaxAttempts())).addAttribute(
+                        A_RETRYDELAY,
+                        String.valueOf(m_mailSettings.getDeliveryRetryDelay()));
 
         // scheduler node
         Element schedulerElement = systemElement.addElement(N_SCHEDULER);
+        if ((m_scheduleManager != null) && m_scheduleManager.isPersistent()) {
+            schedulerElement.addAttribute(A_PERSISTENT, Boolean.TRUE.toString());
+        }
         Iterator<CmsScheduledJobInfo> jobs = m_configuredJobs.iterator();
         while (jobs.hasNext()) {
             CmsScheduledJobInfo jobInfo = jobs.next();
@@ -1268,6 +1328,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             jobElement.addElement(N_REUSEINSTANCE).addText(String.valueOf(jobInfo.isReuseInstance()));
             jobElement.addElement(N_ACTIVE).addText(String.valueOf(jobInfo.isActive()));
             jobElement.addElement(N_CRONEXPRESSION).addCDATA(jobInfo.getCronExpression());
+            if (!CmsScheduledJobInfo.MISFIRE_POLICY_IGNORE.equals(jobInfo.getMisfirePolicy())) {
+                jobElement.addElement(N_MISFIRE).addText(jobInfo.getMisfirePolicy());
+            }
             Element contextElement = jobElement.addElement(N_CONTEXT);
             contextElement.addElement(N_USERNAME).setText(jobInfo.getContextInfo().getUserName());
             contextElement.addElement(N_PROJECT).setText(jobInfo.getContextInfo().getProjectName());
@@ -1626,6 +1689,12 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             subscrManElem.addAttribute(A_ENABLED, Boolean.toString(getSubscriptionManager().isEnabled()));
             subscrManElem.addAttribute(A_POOLNAME, getSubscriptionManager().getPoolName());
             subscrManElem.addAttribute(A_MAXVISITED, String.valueOf(getSubscriptionManager().getMaxVisitedCount()));
+            subscrManElem.addAttribute(
+                A_MAXPENDINGVISITS,
+                String.valueOf(getSubscriptionManager().getMaxPendingVisits()));
+            subscrManElem.addAttribute(
+                A_VISITFLUSHINTERVAL,
+                String.valueOf(getSubscriptionManager().getVisitFlushInterval()));
         }
 
         I_CmsWorkflowManager workflowMan = getWorkflowManager();
@@ -2586,6 +2655,16 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
 
     }
 
+    /**
+     * Sets if the scheduler records the job executions in the database.<p>
+     *
+     * @param persistent the value to set
+     */
+    public void setSchedulerPersistent(String persistent) {
+
+        m_schedulerPersistent = Boolean.valueOf(persistent).booleanValue();
+    }
+
     /**
      * Sets the servlet container settings configuration mode.<p>
      *
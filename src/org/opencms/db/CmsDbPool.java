@@ -36,7 +36,9 @@ import org.opencms.util.CmsStringUtil;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.dbcp.ConnectionFactory;
 import org.apache.commons.dbcp.DriverManagerConnectionFactory;
@@ -132,6 +134,12 @@ public final class CmsDbPool {
     /** Key for pooling flag. */
     public static final String KEY_POOLING = "pooling";
 
+    /** Key for the time in milliseconds the replicas of a pool are allowed to lag behind. */
+    public static final String KEY_REPLICA_LAG = "replicaLag";
+
+    /** Key for the keys of the replica pools of a pool. */
+    public static final String KEY_REPLICAS = "replicas";
+
     /** Key for test on borrow flag. */
     public static final String KEY_TEST_ON_BORROW = "testOnBorrow";
 
@@ -159,6 +167,10 @@ public final class CmsDbPool {
     /** The prefix used for opencms JDBC pools. */
     public static final String OPENCMS_URL_PREFIX = "opencms:";
 
+    /** The replica routers of the pools with replicas, keyed by the JDBC URL of the primary pool. */
+    private static final Map<String, CmsDbReplicaRouter> REPLICA_ROUTERS = new ConcurrentHashMap<String, CmsDbReplicaRouter>(
+        4);
+
     /**
      * Default constructor.<p>
      *
@@ -260,7 +272,7 @@ public final class CmsDbPool {
         Class.forName(jdbcDriver).newInstance();
 
         // initialize a keyed object pool to store connections
-        GenericObjectPool connectionPool = new GenericObjectPool(null);
+        GenericObjectPool connectionPool = new CmsMonitoredObjectPool(null);
 
         /* Abandoned pool configuration:
          *
@@ -321,6 +333,29 @@ public final class CmsDbPool {
         PoolingDriver driver = new PoolingDriver();
         driver.registerPool(poolUrl, connectionPool);
 
+        // route the online reads to the replicas of the pool, if there are any
+        List<String> replicaKeys = config.getList(KEY_DATABASE_POOL + '.' + key + '.' + KEY_REPLICAS);
+        if (replicaKeys.isEmpty()) {
+            REPLICA_ROUTERS.remove(DBCP_JDBC_URL_PREFIX + poolUrl);
+        } else {
+            List<String> replicaUrls = new ArrayList<String>(replicaKeys.size());
+            for (String replicaKey : replicaKeys) {
+                replicaUrls.add(DBCP_JDBC_URL_PREFIX + getDbPoolName(config, replicaKey));
+            }
+            int replicaLag = config.getInteger(KEY_DATABASE_POOL + '.' + key + '.' + KEY_REPLICA_LAG, 5000);
+            REPLICA_ROUTERS.put(
+                DBCP_JDBC_URL_PREFIX + poolUrl,
+                new CmsDbReplicaRouter(DBCP_JDBC_URL_PREFIX + poolUrl, replicaUrls, replicaLag));
+            if (CmsLog.INIT.isInfoEnabled()) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(
+                        Messages.INIT_JDBC_POOL_REPLICAS_3,
+                        poolUrl,
+                        CmsStringUtil.listAsString(replicaKeys, ", "),
+                        new Integer(replicaLag)));
+            }
+        }
+
         Connection con = null;
         boolean connect = false;
         int connectionTests = 0;
@@ -391,6 +426,18 @@ public final class CmsDbPool {
         return dbPoolNames;
     }
 
+    /**
+     * Returns the replica router of a pool.<p>
+     *
+     * @param poolUrl the JDBC URL of the pool, including the DBCP pool URL prefix
+     *
+     * @return the replica router of the pool, or <code>null</code> if the pool has no replicas
+     */
+    public static CmsDbReplicaRouter getReplicaRouter(String poolUrl) {
+
+        return REPLICA_ROUTERS.get(poolUrl);
+    }
+
     /**
      * Returns the name of the default database connection pool.<p>
      *
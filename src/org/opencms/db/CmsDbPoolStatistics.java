@@ -0,0 +1,191 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+/**
+ * A snapshot of the usage statistics of a database connection pool.<p>
+ *
+ * The statistics are collected by the {@link CmsMonitoredObjectPool} since the pool has been created,
+ * and can be obtained with {@link org.opencms.db.CmsSqlManager#getPoolStatistics(String)}.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsDbPoolStatistics {
+
+    /** The number of connections which have been borrowed from the pool. */
+    private long m_borrowCount;
+
+    /** The number of failed attempts to borrow a connection from the pool. */
+    private long m_borrowFailures;
+
+    /** The maximum time spent waiting for a connection, in milliseconds. */
+    private long m_maxWaitTime;
+
+    /** The number of active connections. */
+    private int m_numActive;
+
+    /** The number of idle connections. */
+    private int m_numIdle;
+
+    /** The URL of the pool. */
+    private String m_poolUrl;
+
+    /** The total time spent waiting for connections, in milliseconds. */
+    private long m_totalWaitTime;
+
+    /**
+     * Creates a new statistics snapshot.<p>
+     *
+     * @param poolUrl the URL of the pool
+     * @param numActive the number of active connections
+     * @param numIdle the number of idle connections
+     * @param borrowCount the number of connections which have been borrowed from the pool
+     * @param borrowFailures the number of failed attempts to borrow a connection from the pool
+     * @param totalWaitTime the total time spent waiting for connections, in milliseconds
+     * @param maxWaitTime the maximum time spent waiting for a connection, in milliseconds
+     */
+    public CmsDbPoolStatistics(
+        String poolUrl,
+        int numActive,
+        int numIdle,
+        long borrowCount,
+        long borrowFailures,
+        long totalWaitTime,
+        long maxWaitTime) {
+
+        m_poolUrl = poolUrl;
+        m_numActive = numActive;
+        m_numIdle = numIdle;
+        m_borrowCount = borrowCount;
+        m_borrowFailures = borrowFailures;
+        m_totalWaitTime = totalWaitTime;
+        m_maxWaitTime = maxWaitTime;
+    }
+
+    /**
+     * Returns the average time spent waiting for a connection, in milliseconds.<p>
+     *
+     * @return the average time spent waiting for a connection
+     */
+    public long getAverageWaitTime() {
+
+        long attempts = m_borrowCount + m_borrowFailures;
+        return (attempts > 0) ? (m_totalWaitTime / attempts) : 0;
+    }
+
+    /**
+     * Returns the number of connections which have been borrowed from the pool.<p>
+     *
+     * @return the number of connections which have been borrowed from the pool
+     */
+    public long getBorrowCount() {
+
+        return m_borrowCount;
+    }
+
+    /**
+     * Returns the number of failed attempts to borrow a connection from the pool.<p>
+     *
+     * This includes attempts which failed because the pool was exhausted, as well as
+     * attempts which failed because no new connection to the database could be opened.<p>
+     *
+     * @return the number of failed attempts to borrow a connection from the pool
+     */
+    public long getBorrowFailures() {
+
+        return m_borrowFailures;
+    }
+
+    /**
+     * Returns the maximum time spent waiting for a connection, in milliseconds.<p>
+     *
+     * @return the maximum time spent waiting for a connection
+     */
+    public long getMaxWaitTime() {
+
+        return m_maxWaitTime;
+    }
+
+    /**
+     * Returns the number of active connections.<p>
+     *
+     * @return the number of active connections
+     */
+    public int getNumActive() {
+
+        return m_numActive;
+    }
+
+    /**
+     * Returns the number of idle connections.<p>
+     *
+     * @return the number of idle connections
+     */
+    public int getNumIdle() {
+
+        return m_numIdle;
+    }
+
+    /**
+     * Returns the URL of the pool.<p>
+     *
+     * @return the URL of the pool
+     */
+    public String getPoolUrl() {
+
+        return m_poolUrl;
+    }
+
+    /**
+     * Returns the total time spent waiting for connections, in milliseconds.<p>
+     *
+     * @return the total time spent waiting for connections
+     */
+    public long getTotalWaitTime() {
+
+        return m_totalWaitTime;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(128);
+        result.append("[pool:").append(m_poolUrl);
+        result.append(", active:").append(m_numActive);
+        result.append(", idle:").append(m_numIdle);
+        result.append(", borrowed:").append(m_borrowCount);
+        result.append(", failed:").append(m_borrowFailures);
+        result.append(", averageWait:").append(getAverageWaitTime());
+        result.append(", maxWait:").append(m_maxWaitTime);
+        result.append("]");
+        return result.toString();
+    }
+}
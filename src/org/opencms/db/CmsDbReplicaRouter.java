@@ -0,0 +1,173 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which database pool is used to read data of the online project.<p>
+ *
+ * A router is created by {@link CmsDbPool} for each pool that has replica pools configured,
+ * with the <code>db.pool.&lt;key&gt;.replicas</code> property. Online reads are distributed
+ * over the replica pools in turn, unless data in the online tables has been written through
+ * the primary pool within the allowed replication lag, configured with the
+ * <code>db.pool.&lt;key&gt;.replicaLag</code> property. During that time all reads stay
+ * on the primary pool, so a replica which has not caught up yet can not return outdated data.<p>
+ *
+ * The allowed lag starts when a statement writing to the online tables is prepared, and again when the
+ * connection used for it is released, after the write has been committed. So a long running transaction
+ * does not use up the allowed lag before its data even reaches the replicas.<p>
+ *
+ * The guard is based on the wall-clock time of this server and only knows about the writes made
+ * through this server. In a cluster, the other servers continue to read from the replicas,
+ * and changes of the system clock shorten or extend the time the reads stay on the primary pool.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsDbReplicaRouter {
+
+    /** The time in milliseconds a replica is allowed to lag behind the primary pool. */
+    private long m_allowedLag;
+
+    /** The time of the last write to the online tables through the primary pool. */
+    private volatile long m_lastWrite;
+
+    /** The counter used to distribute the reads over the replicas. */
+    private AtomicInteger m_next;
+
+    /** The connections which have been used to write to the online tables and have not been released yet. */
+    private Map<Connection, Boolean> m_pendingWrites;
+
+    /** The JDBC URL of the primary pool. */
+    private String m_primaryPoolUrl;
+
+    /** The JDBC URLs of the replica pools. */
+    private List<String> m_replicaPoolUrls;
+
+    /**
+     * Creates a new replica router.<p>
+     *
+     * @param primaryPoolUrl the JDBC URL of the primary pool
+     * @param replicaPoolUrls the JDBC URLs of the replica pools
+     * @param allowedLag the time in milliseconds a replica is allowed to lag behind the primary pool
+     */
+    public CmsDbReplicaRouter(String primaryPoolUrl, List<String> replicaPoolUrls, long allowedLag) {
+
+        m_primaryPoolUrl = primaryPoolUrl;
+        m_replicaPoolUrls = Collections.unmodifiableList(replicaPoolUrls);
+        m_allowedLag = allowedLag;
+        m_next = new AtomicInteger();
+        m_pendingWrites = Collections.synchronizedMap(new WeakHashMap<Connection, Boolean>());
+    }
+
+    /**
+     * Returns the time in milliseconds a replica is allowed to lag behind the primary pool.<p>
+     *
+     * @return the allowed replication lag
+     */
+    public long getAllowedLag() {
+
+        return m_allowedLag;
+    }
+
+    /**
+     * Returns the JDBC URL of the primary pool.<p>
+     *
+     * @return the JDBC URL of the primary pool
+     */
+    public String getPrimaryPoolUrl() {
+
+        return m_primaryPoolUrl;
+    }
+
+    /**
+     * Returns the JDBC URL of the pool to read online data from.<p>
+     *
+     * @return the JDBC URL of the next replica pool, or the URL of the primary pool
+     *      if data has been written within the allowed replication lag
+     */
+    public String getReadPoolUrl() {
+
+        if (m_replicaPoolUrls.isEmpty() || isWithinLag()) {
+            return m_primaryPoolUrl;
+        }
+        int index = (m_next.getAndIncrement() & Integer.MAX_VALUE) % m_replicaPoolUrls.size();
+        return m_replicaPoolUrls.get(index);
+    }
+
+    /**
+     * Returns the JDBC URLs of the replica pools.<p>
+     *
+     * @return the JDBC URLs of the replica pools
+     */
+    public List<String> getReplicaPoolUrls() {
+
+        return m_replicaPoolUrls;
+    }
+
+    /**
+     * Checks if data has been written to the online tables within the allowed replication lag.<p>
+     *
+     * @return <code>true</code> if the replicas may not have caught up with the primary pool yet
+     */
+    public boolean isWithinLag() {
+
+        return (System.currentTimeMillis() - m_lastWrite) < m_allowedLag;
+    }
+
+    /**
+     * Records that a connection which has been used to write to the online tables has been released.<p>
+     *
+     * The write has been committed at this time, so the allowed replication lag starts again.
+     * Nothing happens if the connection has not been used to write to the online tables.<p>
+     *
+     * @param con the released connection
+     */
+    public void markReleased(Connection con) {
+
+        if (m_pendingWrites.remove(con) != null) {
+            m_lastWrite = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records that data is written to the online tables through the primary pool.<p>
+     *
+     * @param con the connection used for writing
+     */
+    public void markWrite(Connection con) {
+
+        m_pendingWrites.put(con, Boolean.TRUE);
+        m_lastWrite = System.currentTimeMillis();
+    }
+}
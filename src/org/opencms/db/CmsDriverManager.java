@@ -96,16 +96,20 @@ import org.opencms.relations.CmsRelationType;
 import org.opencms.relations.I_CmsLinkParseable;
 import org.opencms.report.CmsLogReport;
 import org.opencms.report.I_CmsReport;
+import org.opencms.scheduler.CmsScheduledJobExecution;
 import org.opencms.security.CmsAccessControlEntry;
 import org.opencms.security.CmsAccessControlList;
 import org.opencms.security.CmsAuthentificationException;
+import org.opencms.security.CmsDefaultPasswordHandler;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.security.CmsPasswordEncryptionException;
 import org.opencms.security.CmsPermissionSet;
 import org.opencms.security.CmsPermissionSetCustom;
+import org.opencms.security.CmsPrincipalSet;
 import org.opencms.security.CmsPrincipal;
 import org.opencms.security.CmsRole;
 import org.opencms.security.CmsSecurityException;
+import org.opencms.security.I_CmsPasswordHandler;
 import org.opencms.security.I_CmsPermissionHandler;
 import org.opencms.security.I_CmsPrincipal;
 import org.opencms.util.CmsFileUtil;
@@ -182,9 +186,24 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
     }
 
+    /** Name of the configuration parameter for the maximum number of logins waiting for a password verification. */
+    public static final String PARAM_LOGIN_VERIFICATION_QUEUE = "login.verification.queue";
+
+    /** Name of the configuration parameter for the maximum number of waiting logins from the same remote address. */
+    public static final String PARAM_LOGIN_VERIFICATION_QUEUE_SOURCE = "login.verification.queue.source";
+
+    /** Name of the configuration parameter for the number of password verifications running at the same time. */
+    public static final String PARAM_LOGIN_VERIFICATION_SLOTS = "login.verification.slots";
+
+    /** Name of the configuration parameter for the time in milliseconds a login waits for a password verification. */
+    public static final String PARAM_LOGIN_VERIFICATION_TIMEOUT = "login.verification.timeout";
+
     /** Name of the configuration parameter to enable/disable logging to the CMS_LOG table. */
     public static final String PARAM_LOG_TABLE_ENABLED = "log.table.enabled";
 
+    /** Attribute to write only the last login time of a user, without the additional infos. */
+    public static final String ATTRIBUTE_LASTLOGIN = "A_LASTLOGIN";
+
     /** Attribute login. */
     public static final String ATTRIBUTE_LOGIN = "A_LOGIN";
 
@@ -339,9 +358,15 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** The log entry cache. */
     private List<CmsLogEntry> m_log = new ArrayList<CmsLogEntry>();
 
+    /** Limits the number of password verifications running at the same time. */
+    private CmsLoginVerificationGate m_loginVerificationGate;
+
     /** Local reference to the memory monitor to avoid multiple lookups through the OpenCms singleton. */
     private CmsMemoryMonitor m_monitor;
 
+    /** The users whose last login time has not been written yet, by their id. */
+    private Map<CmsUUID, CmsUser> m_pendingLastLogins = new HashMap<CmsUUID, CmsUser>();
+
     /** The project driver. */
     private I_CmsProjectDriver m_projectDriver;
 
@@ -433,6 +458,13 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // store the configuration
         driverManager.m_propertyConfiguration = config;
 
+        // limit the number of password verifications running at the same time
+        driverManager.m_loginVerificationGate = new CmsLoginVerificationGate(
+            config.getInteger(PARAM_LOGIN_VERIFICATION_SLOTS, Runtime.getRuntime().availableProcessors()),
+            config.getInteger(PARAM_LOGIN_VERIFICATION_QUEUE, 100),
+            config.getInteger(PARAM_LOGIN_VERIFICATION_QUEUE_SOURCE, 5),
+            config.getInteger(PARAM_LOGIN_VERIFICATION_TIMEOUT, 10000));
+
         // set the security manager
         driverManager.m_securityManager = securityManager;
 
@@ -1058,7 +1090,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlListCache(dbc, destination);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -2007,6 +2039,22 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return createResource(dbc, targetName, newResource, content, properties, false);
     }
 
+    /**
+     * Inserts an entry for an execution of a scheduled job, unless another server has already done so.<p>
+     *
+     * @param dbc the current database context
+     * @param execution the job execution to insert
+     *
+     * @return <code>true</code> if the entry has been inserted, <code>false</code> if it already existed
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public boolean createScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution)
+    throws CmsException {
+
+        return getProjectDriver(dbc).createScheduledJobExecution(dbc, execution);
+    }
+
     /**
      * Creates a new sibling of the source resource.<p>
      *
@@ -2399,6 +2447,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
      *
      * if the <code>cleanUp</code> option is set, additionally versions of deleted resources will be removed.<p>
      *
+     * Consecutive versions of a file with the same content are merged to share a single content entry.<p>
+     *
      * @param dbc the current database context
      * @param versionsToKeep number of versions to keep, is ignored if negative
      * @param versionsDeleted number of versions to keep for deleted resources, is ignored if negative
@@ -2444,6 +2494,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
                 try {
                     int deleted = getHistoryDriver(dbc).deleteEntries(dbc, histResource, versionsToKeep, -1);
+                    if (histResource.isFile()) {
+                        // let consecutive versions with the same content share a single content entry
+                        getHistoryDriver(dbc).mergeContents(dbc, histResource.getResourceId());
+                    }
 
                     report.print(
                         Messages.get().container(Messages.RPT_VERSION_DELETING_1, new Integer(deleted)),
@@ -3061,6 +3115,19 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 Collections.<String, Object> singletonMap(I_CmsEventListener.KEY_RESOURCES, resources)));
     }
 
+    /**
+     * Deletes all entries for executions of scheduled jobs which were scheduled to fire before the given time.<p>
+     *
+     * @param dbc the current database context
+     * @param fireTimeBefore the fire time before which the entries are deleted
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void deleteScheduledJobExecutions(CmsDbContext dbc, long fireTimeBefore) throws CmsException {
+
+        getProjectDriver(dbc).deleteScheduledJobExecutions(dbc, fireTimeBefore);
+    }
+
     /**
      * Deletes an entry in the published resource table.<p>
      *
@@ -4262,7 +4329,153 @@ public final class CmsDriverManager implements I_CmsEventListener {
     throws CmsException {
 
         CmsAccessControlList acList = getAccessControlList(dbc, resource, false);
-        return acList.getPermissions(user, getGroupsOfUser(dbc, user.getName(), false), getRolesForUser(dbc, user));
+        return acList.getPermissions(getPrincipalSet(dbc, user));
+    }
+
+    /**
+     * Returns the sets of permissions of a user for a list of resources.<p>
+     *
+     * The result is the same as calling {@link #getPermissions(CmsDbContext, CmsResource, CmsUser)}
+     * for each resource, but the principal set of the user is read only once, the parent folders of
+     * all resources without a cached access control list are read with a single query, and the inherited
+     * access control list of each parent folder is resolved only once.<p>
+     *
+     * @param dbc the current database context
+     * @param resources the resources
+     * @param user the user
+     *
+     * @return the permissions of the user, in the same order as the given resources
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsPermissionSetCustom> getPermissions(CmsDbContext dbc, List<CmsResource> resources, CmsUser user)
+    throws CmsException {
+
+        CmsPrincipalSet principals = getPrincipalSet(dbc, user);
+        boolean useCache = dbc.getProjectId().isNullUUID();
+
+        // collect the cached access control lists, and the parent folders of the resources without one
+        CmsAccessControlList[] acls = new CmsAccessControlList[resources.size()];
+        String[] cacheKeys = new String[resources.size()];
+        Set<String> parentPaths = new HashSet<String>();
+        for (int i = 0; i < resources.size(); i++) {
+            CmsResource resource = resources.get(i);
+            cacheKeys[i] = getAccessControlListCacheKey(dbc, resource, false, resource.isFolder(), 0);
+            if (useCache) {
+                acls[i] = m_monitor.getCachedACL(cacheKeys[i]);
+            }
+            if (acls[i] == null) {
+                String parentPath = CmsResource.getParentFolder(resource.getRootPath());
+                if (parentPath != null) {
+                    parentPaths.add(parentPath);
+                }
+            }
+        }
+        Map<String, CmsResource> parents = new HashMap<String, CmsResource>();
+        if (!parentPaths.isEmpty()) {
+            List<CmsResource> parentFolders = getVfsDriver(dbc).readResourcesByPaths(
+                dbc,
+                dbc.currentProject().getUuid(),
+                new ArrayList<String>(parentPaths),
+                true);
+            for (CmsResource parent : parentFolders) {
+                parents.put(parent.getRootPath(), parent);
+            }
+        }
+
+        // the inherited access control lists of the parent folders, for files and folders
+        Map<String, CmsAccessControlList> parentAcls = new HashMap<String, CmsAccessControlList>();
+        List<CmsPermissionSetCustom> result = new ArrayList<CmsPermissionSetCustom>(resources.size());
+        for (int i = 0; i < resources.size(); i++) {
+            CmsResource resource = resources.get(i);
+            CmsAccessControlList acl = acls[i];
+            if (acl == null) {
+                String parentPath = CmsResource.getParentFolder(resource.getRootPath());
+                CmsResource parent = (parentPath != null) ? parents.get(parentPath) : null;
+                if ((parentPath != null) && (parent == null)) {
+                    // parent folder not found by path, use the lookup by id
+                    acl = getAccessControlList(dbc, resource, false);
+                } else {
+                    List<CmsAccessControlEntry> aces = getUserDriver(dbc).readAccessControlEntries(
+                        dbc,
+                        dbc.currentProject(),
+                        resource.getResourceId(),
+                        false);
+                    boolean overwriteAll = sortAceList(aces);
+                    if (!overwriteAll && (parent != null)) {
+                        String parentKey = (resource.isFolder() ? "+" : "-") + parentPath;
+                        CmsAccessControlList parentAcl = parentAcls.get(parentKey);
+                        if (parentAcl == null) {
+                            parentAcl = getAccessControlList(dbc, parent, false, resource.isFolder(), 1);
+                            parentAcls.put(parentKey, parentAcl);
+                        }
+                        acl = (CmsAccessControlList)parentAcl.clone();
+                    } else {
+                        acl = new CmsAccessControlList();
+                    }
+                    addAccessControlEntries(acl, aces, false);
+                    if (useCache) {
+                        m_monitor.cacheACL(cacheKeys[i], acl);
+                    }
+                }
+            }
+            result.add(acl.getPermissions(principals));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the usage statistics of a pool.<p>
+     *
+     * @param dbPoolUrl the url of a pool
+     *
+     * @return the usage statistics of the pool
+     *
+     * @throws CmsDbException if something goes wrong
+     */
+    public CmsDbPoolStatistics getPoolStatistics(String dbPoolUrl) throws CmsDbException {
+
+        try {
+            for (PoolingDriver d : m_connectionPools) {
+                ObjectPool p = d.getConnectionPool(dbPoolUrl);
+                if (p instanceof CmsMonitoredObjectPool) {
+                    return ((CmsMonitoredObjectPool)p).getStatistics(dbPoolUrl);
+                }
+                return new CmsDbPoolStatistics(dbPoolUrl, p.getNumActive(), p.getNumIdle(), 0, 0, 0, 0);
+            }
+        } catch (Exception exc) {
+            CmsMessageContainer message = Messages.get().container(Messages.ERR_ACCESSING_POOL_1, dbPoolUrl);
+            throw new CmsDbException(message, exc);
+        }
+
+        CmsMessageContainer message = Messages.get().container(Messages.ERR_UNKNOWN_POOL_URL_1, dbPoolUrl);
+        throw new CmsDbException(message);
+    }
+
+    /**
+     * Returns the principal set of a user, that is the user with its groups and roles.<p>
+     *
+     * @param dbc the current database context
+     * @param user the user
+     *
+     * @return the principal set of the user
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public CmsPrincipalSet getPrincipalSet(CmsDbContext dbc, CmsUser user) throws CmsException {
+
+        String cacheKey = m_keyGenerator.getCacheKeyForUserGroups("principals", dbc, user);
+        CmsPrincipalSet principals = m_monitor.getCachedPrincipalSet(cacheKey);
+        if (principals == null) {
+            principals = new CmsPrincipalSet(
+                user,
+                getGroupsOfUser(dbc, user.getName(), false),
+                getRolesForUser(dbc, user));
+            if (dbc.getProjectId().isNullUUID()) {
+                m_monitor.cachePrincipalSet(cacheKey, principals);
+            }
+        }
+        return principals;
     }
 
     /**
@@ -4479,6 +4692,29 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return getVfsDriver(dbc).readRelations(dbc, projectId, resource, filter);
     }
 
+    /**
+     * Returns all relations for the given resources matching the given filter, read with few queries.<p>
+     *
+     * @param dbc the current db context
+     * @param resources the resources to retrieve the relations for
+     * @param filter the filter to match the relation
+     *
+     * @return the relations matching the given filter, keyed by the structure id of the resource
+     *      they have been read for
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see #getRelationsForResource(CmsDbContext, CmsResource, CmsRelationFilter)
+     */
+    public Map<CmsUUID, List<CmsRelation>> getRelationsForResources(
+        CmsDbContext dbc,
+        List<CmsResource> resources,
+        CmsRelationFilter filter) throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        return getVfsDriver(dbc).readRelationsForResources(dbc, projectId, resources, filter);
+    }
+
     /**
      * Returns the list of organizational units the given resource belongs to.<p>
      *
@@ -4971,7 +5207,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         while (i.hasNext()) {
             userDriver.writeAccessControlEntry(dbc, dbc.currentProject(), i.next());
         }
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlListCache(dbc, resource);
     }
 
     /**
@@ -5451,10 +5687,26 @@ public final class CmsDriverManager implements I_CmsEventListener {
         if (CmsStringUtil.isEmptyOrWhitespaceOnly(password)) {
             throw new CmsDbEntryNotFoundException(Messages.get().container(Messages.ERR_UNKNOWN_USER_1, userName));
         }
+        if (dbc.currentUser().isGuestUser()) {
+            // do not verify the password if this account is temporarily disabled for the remote address
+            OpenCms.getLoginManager().checkInvalidLogins(userName, remoteAddress);
+        }
         CmsUser newUser;
         try {
-            // read the user from the driver to avoid the cache
-            newUser = getUserDriver(dbc).readUser(dbc, userName, password, remoteAddress);
+            // verifying the password is expensive, only a limited number of verifications may run at the same time
+            if (!m_loginVerificationGate.acquire(remoteAddress)) {
+                throw new CmsAuthentificationException(
+                    org.opencms.security.Messages.get().container(
+                        org.opencms.security.Messages.ERR_LOGIN_FAILED_OVERLOADED_2,
+                        userName,
+                        remoteAddress));
+            }
+            try {
+                // read the user from the driver to avoid the cache
+                newUser = getUserDriver(dbc).readUser(dbc, userName, password, remoteAddress);
+            } finally {
+                m_loginVerificationGate.release();
+            }
         } catch (CmsDbEntryNotFoundException e) {
             // this indicates that the username / password combination does not exist
             // any other exception indicates database issues, these are not catched here
@@ -5526,25 +5778,40 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // set the last login time to the current time
         newUser.setLastlogin(System.currentTimeMillis());
         dbc.setAttribute(ATTRIBUTE_LOGIN, newUser.getName());
-        // write the changed user object back to the user driver
         Map<String, Object> additionalInfosForRepositories = OpenCms.getRepositoryManager().getAdditionalInfoForLogin(
             newUser.getName(),
             password);
-        newUser.getAdditionalInfo().putAll(additionalInfosForRepositories);
-        getUserDriver(dbc).writeUser(dbc, newUser);
+        boolean additionalInfosChanged = false;
+        for (Map.Entry<String, Object> entry : additionalInfosForRepositories.entrySet()) {
+            Object value = newUser.getAdditionalInfo().get(entry.getKey());
+            if ((value == null) || !value.equals(entry.getValue())) {
+                additionalInfosChanged = true;
+            }
+        }
+        if (additionalInfosChanged) {
+            // write the changed user object back to the user driver
+            newUser.getAdditionalInfo().putAll(additionalInfosForRepositories);
+            getUserDriver(dbc).writeUser(dbc, newUser);
+            synchronized (m_pendingLastLogins) {
+                m_pendingLastLogins.remove(newUser.getId());
+            }
+        } else {
+            // only the last login time has changed, it is written later together with other last login times
+            synchronized (m_pendingLastLogins) {
+                m_pendingLastLogins.put(newUser.getId(), newUser);
+            }
+        }
         // check if we need to update the password
-        if (!OpenCms.getPasswordHandler().checkPassword(password, newUser.getPassword(), false)
-            && OpenCms.getPasswordHandler().checkPassword(password, newUser.getPassword(), true)) {
-            // the password does not check with the current hash algorithm but with the fall back, update the password
-            getUserDriver(dbc).writePassword(dbc, userName, password, password);
+        if (isPasswordRehashNeeded(password, newUser.getPassword())) {
+            // the password has been verified already, so the old password is not checked again
+            getUserDriver(dbc).writePassword(dbc, userName, null, password);
         }
 
         // update cache
         m_monitor.cacheUser(newUser);
 
-        // invalidate all user dependent caches
+        // invalidate all user dependent caches, access control lists do not depend on the user
         m_monitor.flushCache(
-            CmsMemoryMonitor.CacheType.ACL,
             CmsMemoryMonitor.CacheType.GROUP,
             CmsMemoryMonitor.CacheType.ORG_UNIT,
             CmsMemoryMonitor.CacheType.USERGROUPS,
@@ -5641,6 +5908,22 @@ public final class CmsDriverManager implements I_CmsEventListener {
         getSubscriptionDriver().markResourceAsVisitedBy(dbc, poolName, resource, user);
     }
 
+    /**
+     * Marks the resources of the given visits as visited by the user, with the dates of the visits.<p>
+     *
+     * @param dbc the database context
+     * @param poolName the name of the database pool to use
+     * @param user the user that visited the resources
+     * @param visits the visits of the user
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void markResourcesAsVisitedBy(CmsDbContext dbc, String poolName, CmsUser user, List<CmsVisitEntry> visits)
+    throws CmsException {
+
+        getSubscriptionDriver().markResourcesAsVisitedBy(dbc, poolName, user, visits);
+    }
+
     /**
      * Moves a resource.<p>
      *
@@ -7647,6 +7930,68 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return updateContextDates(dbc, resourceList, filter);
     }
 
+    /**
+     * Reads the resources with the given structure IDs, using the specified resource filter.<p>
+     *
+     * The resources are read with a minimal number of queries. Resources that do not exist,
+     * that are not readable by the current user or that do not match the filter are not contained in the result.<p>
+     *
+     * @param dbc the current database context
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given structure IDs
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readResources(List, CmsResourceFilter)
+     */
+    public List<CmsResource> readResources(CmsDbContext dbc, List<CmsUUID> structureIds, CmsResourceFilter filter)
+    throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        List<CmsResource> resourceList = getVfsDriver(dbc).readResources(
+            dbc,
+            projectId,
+            structureIds,
+            filter.includeDeleted());
+        resourceList = filterPermissions(dbc, resourceList, filter);
+        // we must always apply the result filter and update the context dates
+        return updateContextDates(dbc, resourceList, filter);
+    }
+
+    /**
+     * Reads the resources with the given root paths, using the specified resource filter.<p>
+     *
+     * The resources are read with a minimal number of queries. Resources that do not exist,
+     * that are not readable by the current user or that do not match the filter are not contained in the result.<p>
+     *
+     * @param dbc the current database context
+     * @param resourcePaths the root paths of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given paths
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readResourcesByPaths(List, CmsResourceFilter)
+     */
+    public List<CmsResource> readResourcesByPaths(
+        CmsDbContext dbc,
+        List<String> resourcePaths,
+        CmsResourceFilter filter) throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        List<CmsResource> resourceList = getVfsDriver(dbc).readResourcesByPaths(
+            dbc,
+            projectId,
+            resourcePaths,
+            filter.includeDeleted());
+        resourceList = filterPermissions(dbc, resourceList, filter);
+        // we must always apply the result filter and update the context dates
+        return updateContextDates(dbc, resourceList, filter);
+    }
+
     /**
      * Returns the resources that were visited by a user set in the filter.<p>
      *
@@ -7791,6 +8136,23 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Reads the latest executions of a scheduled job, ordered by descending fire time.<p>
+     *
+     * @param dbc the current database context
+     * @param jobKey the key of the scheduled job
+     * @param maxCount the maximum number of executions to read
+     *
+     * @return the latest executions of the scheduled job
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsScheduledJobExecution> readScheduledJobExecutions(CmsDbContext dbc, String jobKey, int maxCount)
+    throws CmsException {
+
+        return getProjectDriver(dbc).readScheduledJobExecutions(dbc, jobKey, maxCount);
+    }
+
     /**
      * Returns a List of all siblings of the specified resource,
      * the specified resource being always part of the result set.<p>
@@ -8071,7 +8433,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         setDateLastModified(dbc, resource, resource.getDateLastModified());
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlListCache(dbc, resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9462,7 +9824,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         setDateLastModified(dbc, resource, resource.getDateLastModified());
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlListCache(dbc, resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9707,6 +10069,47 @@ public final class CmsDriverManager implements I_CmsEventListener {
         getHistoryDriver(dbc).writeProject(dbc, publishTag, publishDate);
     }
 
+    /**
+     * Writes the last login times of the users which have logged in since the last call of this method.<p>
+     *
+     * The last login time of a user is not written during the login, in order to avoid a database write
+     * for each login. Several logins of the same user are written only once.<p>
+     *
+     * @param dbc the current database context
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    public void writeLastLogins(CmsDbContext dbc) throws CmsDataAccessException {
+
+        List<CmsUser> users;
+        synchronized (m_pendingLastLogins) {
+            if (m_pendingLastLogins.isEmpty()) {
+                return;
+            }
+            users = new ArrayList<CmsUser>(m_pendingLastLogins.values());
+            m_pendingLastLogins.clear();
+        }
+        dbc.setAttribute(ATTRIBUTE_LASTLOGIN, Boolean.TRUE);
+        int written = 0;
+        try {
+            for (CmsUser user : users) {
+                getUserDriver(dbc).writeUser(dbc, user);
+                written++;
+            }
+        } finally {
+            if (written < users.size()) {
+                // keep the last login times which have not been written for the next attempt
+                synchronized (m_pendingLastLogins) {
+                    for (CmsUser user : users.subList(written, users.size())) {
+                        if (!m_pendingLastLogins.containsKey(user.getId())) {
+                            m_pendingLastLogins.put(user.getId(), user);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Writes the locks that are currently stored in-memory to the database to allow restoring them
      * in future server startups.<p>
@@ -9995,6 +10398,19 @@ public final class CmsDriverManager implements I_CmsEventListener {
         OpenCms.fireCmsEvent(new CmsEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, data));
     }
 
+    /**
+     * Updates the entry for an execution of a scheduled job.<p>
+     *
+     * @param dbc the current database context
+     * @param execution the job execution to write
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void writeScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution) throws CmsException {
+
+        getProjectDriver(dbc).writeScheduledJobExecution(dbc, execution);
+    }
+
     /**
      * Inserts an entry in the published resource table.<p>
      *
@@ -10455,6 +10871,35 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return getUserDriver(dbc).countUsers(dbc, searchParams);
     }
 
+    /**
+     * Adds the given access control entries to an access control list.<p>
+     *
+     * @param acl the access control list to extend
+     * @param aces the sorted access control entries to add
+     * @param inherited if the entries should be marked as inherited
+     */
+    private void addAccessControlEntries(
+        CmsAccessControlList acl,
+        List<CmsAccessControlEntry> aces,
+        boolean inherited) {
+
+        Iterator<CmsAccessControlEntry> itAces = aces.iterator();
+        while (itAces.hasNext()) {
+            CmsAccessControlEntry acEntry = itAces.next();
+            if (inherited) {
+                acEntry.setFlags(CmsAccessControlEntry.ACCESS_FLAGS_INHERITED);
+            }
+
+            acl.add(acEntry);
+
+            // if the overwrite flag is set, reset the allowed permissions to the permissions of this entry
+            // denied permissions are kept or extended
+            if ((acEntry.getFlags() & CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE) > 0) {
+                acl.setAllowedPermissions(acEntry);
+            }
+        }
+    }
+
     /**
      * Adds all sub-resources of the given resource to the publish list.<p>
      *
@@ -10649,6 +11094,30 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return false;
     }
 
+    /**
+     * Clears the cached access control lists after the access control entries of a resource have changed.<p>
+     *
+     * Only the access control lists of the resource and its sub resources are removed. For files, the
+     * access control lists of all siblings are removed, since the siblings share their access control entries.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the resource with changed access control entries
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private void clearAccessControlListCache(CmsDbContext dbc, CmsResource resource) throws CmsException {
+
+        if (resource.isFolder()) {
+            m_monitor.flushACLs(resource.getRootPath());
+        } else {
+            for (CmsResource sibling : readSiblings(dbc, resource, CmsResourceFilter.ALL)) {
+                m_monitor.flushACLs(sibling.getRootPath());
+            }
+        }
+        m_monitor.flushCache(CmsMemoryMonitor.CacheType.PERMISSION);
+        m_monitor.clearResourceCache();
+    }
+
     /**
      * Copies all relations from the source resource to the target resource.<p>
      *
@@ -10703,22 +11172,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
             // never check time range here - this must be done later in #updateContextDates(...)
             filter = filter.addExcludeTimerange();
         }
-        ArrayList<CmsResource> result = new ArrayList<CmsResource>(resourceList.size());
-        for (int i = 0; i < resourceList.size(); i++) {
-            // check the permission of all resources
-            CmsResource currentResource = resourceList.get(i);
-            if (m_securityManager.hasPermissions(
-                dbc,
-                currentResource,
-                CmsPermissionSet.ACCESS_READ,
-                true,
-                filter).isAllowed()) {
-                // only return resources where permission was granted
-                result.add(currentResource);
-            }
-        }
-        // return the result
-        return result;
+        // check the permissions of all resources at once
+        return m_securityManager.filterReadable(dbc, resourceList, CmsPermissionSet.ACCESS_READ, filter);
     }
 
     /**
@@ -10858,6 +11313,40 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Returns the cache key for the access control list of a resource.<p>
+     *
+     * The key ends with the root path of the resource, so the access control lists of a
+     * sub tree can be removed from the cache with {@link CmsMemoryMonitor#flushACLs(String)}.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the resource
+     * @param inheritedOnly flag indicates to collect inherited permissions only
+     * @param forFolder should be true if resource is a folder
+     * @param depth the depth to include non-inherited access entries
+     *
+     * @return the cache key, or an empty String if the access control list must not be cached
+     */
+    private String getAccessControlListCacheKey(
+        CmsDbContext dbc,
+        CmsResource resource,
+        boolean inheritedOnly,
+        boolean forFolder,
+        int depth) {
+
+        String cacheKey = getCacheKey(
+            new String[] {
+                inheritedOnly ? "+" : "-",
+                forFolder ? "+" : "-",
+                Integer.toString(depth),
+                resource.getStructureId().toString()},
+            dbc);
+        if (cacheKey.length() == 0) {
+            return cacheKey;
+        }
+        return cacheKey + CmsMemoryMonitor.ACL_KEY_PATH_SEPARATOR + resource.getRootPath();
+    }
+
     /**
      * Returns the access control list of a given resource.<p>
      *
@@ -10878,13 +11367,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         boolean forFolder,
         int depth) throws CmsException {
 
-        String cacheKey = getCacheKey(
-            new String[] {
-                inheritedOnly ? "+" : "-",
-                forFolder ? "+" : "-",
-                Integer.toString(depth),
-                resource.getStructureId().toString()},
-            dbc);
+        String cacheKey = getAccessControlListCacheKey(dbc, resource, inheritedOnly, forFolder, depth);
 
         CmsAccessControlList acl = m_monitor.getCachedACL(cacheKey);
 
@@ -10933,21 +11416,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
 
         if (!((depth == 0) && inheritedOnly)) {
-            Iterator<CmsAccessControlEntry> itAces = aces.iterator();
-            while (itAces.hasNext()) {
-                CmsAccessControlEntry acEntry = itAces.next();
-                if (depth > 0) {
-                    acEntry.setFlags(CmsAccessControlEntry.ACCESS_FLAGS_INHERITED);
-                }
-
-                acl.add(acEntry);
-
-                // if the overwrite flag is set, reset the allowed permissions to the permissions of this entry
-                // denied permissions are kept or extended
-                if ((acEntry.getFlags() & CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE) > 0) {
-                    acl.setAllowedPermissions(acEntry);
-                }
-            }
+            addAccessControlEntries(acl, aces, depth > 0);
         }
         if (dbc.getProjectId().isNullUUID()) {
             m_monitor.cacheACL(cacheKey, acl);
@@ -11124,6 +11593,29 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return groups;
     }
 
+    /**
+     * Checks if the digest of a password should be replaced with a new digest after a successful login.<p>
+     *
+     * With the default password handler, this is decided from the stored digest, so the password is only verified
+     * again if the digest has been created with the fall back algorithm or with other cost parameters.<p>
+     *
+     * @param password the plain password which has been verified
+     * @param digestedPassword the stored digest of the password
+     *
+     * @return <code>true</code> if the digest of the password should be replaced
+     */
+    private boolean isPasswordRehashNeeded(String password, String digestedPassword) {
+
+        I_CmsPasswordHandler passwordHandler = OpenCms.getPasswordHandler();
+        if (passwordHandler instanceof CmsDefaultPasswordHandler) {
+            return !((CmsDefaultPasswordHandler)passwordHandler).isCurrentDigest(digestedPassword)
+                && passwordHandler.checkPassword(password, digestedPassword, true);
+        }
+        // the password does not check with the current hash algorithm but with the fall back
+        return !passwordHandler.checkPassword(password, digestedPassword, false)
+            && passwordHandler.checkPassword(password, digestedPassword, true);
+    }
+
     /**
      * Returns a list of users in a group.<p>
      *
@@ -0,0 +1,206 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Limits the number of password verifications that run at the same time.<p>
+ *
+ * Verifying a password against a scrypt digest takes a lot of CPU time and memory on purpose. Without a limit,
+ * a burst of login requests occupies all request threads with password verifications, so that no other
+ * requests are answered anymore.<p>
+ *
+ * A verification has to acquire one of a fixed number of slots before it runs. If all slots are in use,
+ * the requesting thread waits in a queue for the source of the login, usually the remote address.
+ * Free slots are granted to the waiting sources in turn, so a single source that sends many login requests
+ * can not starve the logins from other sources. A login is rejected at once if the queue of its source
+ * or the total number of waiting logins is full, and also if no slot becomes free within the configured
+ * waiting time.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsLoginVerificationGate {
+
+    /**
+     * A login waiting for a free slot.<p>
+     */
+    private static class CmsWaitingLogin {
+
+        /** Indicates if a slot has been granted to the login. */
+        boolean m_granted;
+
+        /**
+         * Creates a new waiting login.<p>
+         */
+        CmsWaitingLogin() {
+
+            // noop
+        }
+    }
+
+    /** The number of slots in use. */
+    private int m_active;
+
+    /** The maximum number of logins waiting for a slot. */
+    private int m_maxQueued;
+
+    /** The maximum number of logins from the same source waiting for a slot. */
+    private int m_maxQueuedPerSource;
+
+    /** The maximum time in milliseconds a login waits for a slot. */
+    private long m_maxWait;
+
+    /** The number of logins waiting for a slot. */
+    private int m_queued;
+
+    /** The waiting logins by source, in the order in which the sources are served. */
+    private Map<String, LinkedList<CmsWaitingLogin>> m_queues;
+
+    /** The number of slots. */
+    private int m_slots;
+
+    /**
+     * Creates a new verification gate.<p>
+     *
+     * @param slots the number of verifications that may run at the same time
+     * @param maxQueued the maximum number of logins waiting for a slot
+     * @param maxQueuedPerSource the maximum number of logins from the same source waiting for a slot
+     * @param maxWait the maximum time in milliseconds a login waits for a slot
+     */
+    public CmsLoginVerificationGate(int slots, int maxQueued, int maxQueuedPerSource, long maxWait) {
+
+        m_slots = Math.max(1, slots);
+        m_maxQueued = Math.max(0, maxQueued);
+        m_maxQueuedPerSource = Math.max(0, maxQueuedPerSource);
+        m_maxWait = Math.max(0, maxWait);
+        m_queues = new LinkedHashMap<String, LinkedList<CmsWaitingLogin>>();
+    }
+
+    /**
+     * Acquires a slot for a password verification.<p>
+     *
+     * If <code>true</code> is returned, the slot must be released with {@link #release()}
+     * when the verification has finished.<p>
+     *
+     * @param source the source of the login, usually the remote address
+     *
+     * @return <code>true</code> if a slot has been acquired, <code>false</code> if the login is rejected
+     */
+    public synchronized boolean acquire(String source) {
+
+        if ((m_active < m_slots) && (m_queued == 0)) {
+            m_active++;
+            return true;
+        }
+        String key = (source == null) ? "" : source;
+        LinkedList<CmsWaitingLogin> queue = m_queues.get(key);
+        if ((m_queued >= m_maxQueued) || ((queue != null) && (queue.size() >= m_maxQueuedPerSource))) {
+            return false;
+        }
+        if (queue == null) {
+            queue = new LinkedList<CmsWaitingLogin>();
+            m_queues.put(key, queue);
+        }
+        CmsWaitingLogin login = new CmsWaitingLogin();
+        queue.add(login);
+        m_queued++;
+        long deadline = System.currentTimeMillis() + m_maxWait;
+        try {
+            while (!login.m_granted) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (login.m_granted) {
+                release();
+                return false;
+            }
+        }
+        if (!login.m_granted) {
+            // timed out or interrupted, leave the queue
+            queue.remove(login);
+            m_queued--;
+            if (queue.isEmpty() && (m_queues.get(key) == queue)) {
+                m_queues.remove(key);
+            }
+        }
+        return login.m_granted;
+    }
+
+    /**
+     * Returns the number of password verifications running at the moment.<p>
+     *
+     * @return the number of password verifications running at the moment
+     */
+    public synchronized int getActiveCount() {
+
+        return m_active;
+    }
+
+    /**
+     * Returns the number of logins waiting for a slot.<p>
+     *
+     * @return the number of logins waiting for a slot
+     */
+    public synchronized int getQueuedCount() {
+
+        return m_queued;
+    }
+
+    /**
+     * Releases a slot acquired with {@link #acquire(String)}.<p>
+     */
+    public synchronized void release() {
+
+        m_active--;
+        Iterator<Map.Entry<String, LinkedList<CmsWaitingLogin>>> sources = m_queues.entrySet().iterator();
+        while ((m_active < m_slots) && sources.hasNext()) {
+            Map.Entry<String, LinkedList<CmsWaitingLogin>> entry = sources.next();
+            sources.remove();
+            LinkedList<CmsWaitingLogin> queue = entry.getValue();
+            CmsWaitingLogin login = queue.removeFirst();
+            login.m_granted = true;
+            m_queued--;
+            m_active++;
+            if (!queue.isEmpty()) {
+                // the source is served again after all other waiting sources
+                m_queues.put(entry.getKey(), queue);
+                sources = m_queues.entrySet().iterator();
+            }
+        }
+        notifyAll();
+    }
+}
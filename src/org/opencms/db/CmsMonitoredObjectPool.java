@@ -0,0 +1,118 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericObjectPool;
+
+/**
+ * A generic object pool which keeps track of the time spent waiting for objects
+ * and of the failed attempts to borrow an object.<p>
+ *
+ * Used by {@link CmsDbPool} as connection pool, so the usage of each database pool
+ * can be monitored.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsMonitoredObjectPool extends GenericObjectPool {
+
+    /** The number of objects which have been borrowed from the pool. */
+    private AtomicLong m_borrowCount;
+
+    /** The number of failed attempts to borrow an object from the pool. */
+    private AtomicLong m_borrowFailures;
+
+    /** The maximum time spent waiting for an object, in nanoseconds. */
+    private AtomicLong m_maxWaitTime;
+
+    /** The total time spent waiting for objects, in nanoseconds. */
+    private AtomicLong m_totalWaitTime;
+
+    /**
+     * Creates a new monitored pool.<p>
+     *
+     * @param factory the factory to create the pooled objects with
+     */
+    public CmsMonitoredObjectPool(PoolableObjectFactory factory) {
+
+        super(factory);
+        m_borrowCount = new AtomicLong();
+        m_borrowFailures = new AtomicLong();
+        m_maxWaitTime = new AtomicLong();
+        m_totalWaitTime = new AtomicLong();
+    }
+
+    /**
+     * @see org.apache.commons.pool.impl.GenericObjectPool#borrowObject()
+     */
+    @Override
+    public Object borrowObject() throws Exception {
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = super.borrowObject();
+            success = true;
+            return result;
+        } finally {
+            long waitTime = System.nanoTime() - start;
+            m_totalWaitTime.addAndGet(waitTime);
+            long maxWaitTime = m_maxWaitTime.get();
+            while ((waitTime > maxWaitTime) && !m_maxWaitTime.compareAndSet(maxWaitTime, waitTime)) {
+                maxWaitTime = m_maxWaitTime.get();
+            }
+            if (success) {
+                m_borrowCount.incrementAndGet();
+            } else {
+                m_borrowFailures.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the usage statistics of this pool.<p>
+     *
+     * @param poolUrl the URL this pool is registered with
+     *
+     * @return a snapshot of the usage statistics
+     */
+    public CmsDbPoolStatistics getStatistics(String poolUrl) {
+
+        return new CmsDbPoolStatistics(
+            poolUrl,
+            getNumActive(),
+            getNumIdle(),
+            m_borrowCount.get(),
+            m_borrowFailures.get(),
+            TimeUnit.NANOSECONDS.toMillis(m_totalWaitTime.get()),
+            TimeUnit.NANOSECONDS.toMillis(m_maxWaitTime.get()));
+    }
+}
@@ -768,17 +768,13 @@ public class CmsPublishList implements Externalizable {
      */
     private List<CmsResource> internalReadResourceList(CmsObject cms, List<CmsUUID> uuidList) {
 
-        List<CmsResource> resList = new ArrayList<CmsResource>(uuidList.size());
-        for (Iterator<CmsUUID> i = uuidList.iterator(); i.hasNext();) {
-            try {
-                CmsResource res = cms.readResource(i.next(), CmsResourceFilter.ALL);
-                resList.add(res);
-            } catch (CmsException exc) {
-                LOG.error(exc.getLocalizedMessage(), exc);
-            }
+        try {
+            // read all resources at once instead of issuing one query per resource
+            return new ArrayList<CmsResource>(cms.readResources(uuidList, CmsResourceFilter.ALL));
+        } catch (CmsException exc) {
+            LOG.error(exc.getLocalizedMessage(), exc);
+            return new ArrayList<CmsResource>();
         }
-
-        return resList;
     }
 
     /**
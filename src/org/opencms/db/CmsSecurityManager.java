@@ -75,6 +75,7 @@ import org.opencms.relations.CmsRelation;
 import org.opencms.relations.CmsRelationFilter;
 import org.opencms.relations.CmsRelationType;
 import org.opencms.report.I_CmsReport;
+import org.opencms.scheduler.CmsScheduledJobExecution;
 import org.opencms.security.CmsAccessControlEntry;
 import org.opencms.security.CmsAccessControlList;
 import org.opencms.security.CmsDefaultPermissionHandler;
@@ -1128,6 +1129,34 @@ public final class CmsSecurityManager {
         return newResource;
     }
 
+    /**
+     * Inserts an entry for an execution of a scheduled job, unless another server has already done so.<p>
+     *
+     * @param context the current request context
+     * @param execution the job execution to insert
+     *
+     * @return <code>true</code> if the entry has been inserted, <code>false</code> if it already existed
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public boolean createScheduledJobExecution(CmsRequestContext context, CmsScheduledJobExecution execution)
+    throws CmsException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        boolean result = false;
+        try {
+            result = m_driverManager.createScheduledJobExecution(dbc, execution);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_CREATE_SCHEDULED_JOB_EXECUTION_1, execution.getJobName()),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Creates a new sibling of the source resource.<p>
      *
@@ -1595,6 +1624,26 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Deletes all entries for executions of scheduled jobs which were scheduled to fire before the given time.<p>
+     *
+     * @param context the current request context
+     * @param fireTimeBefore the fire time before which the entries are deleted
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void deleteScheduledJobExecutions(CmsRequestContext context, long fireTimeBefore) throws CmsException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            m_driverManager.deleteScheduledJobExecutions(dbc, fireTimeBefore);
+        } catch (Exception e) {
+            dbc.report(null, Messages.get().container(Messages.ERR_DELETE_SCHEDULED_JOB_EXECUTIONS_0), e);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Deletes an entry in the published resource table.<p>
      *
@@ -1693,6 +1742,13 @@ public final class CmsSecurityManager {
                         }
                     }
                 }
+                try {
+                    writeLastLogins();
+                } catch (Throwable t) {
+                    if (LOG.isErrorEnabled()) {
+                        LOG.error(Messages.get().getBundle().key(Messages.LOG_ERR_WRITE_LAST_LOGINS_0), t);
+                    }
+                }
                 m_driverManager.destroy();
             }
         } catch (Throwable t) {
@@ -1836,6 +1892,40 @@ public final class CmsSecurityManager {
         return publishList;
     }
 
+    /**
+     * Filters a list of resources, keeping only the resources the current user has the required permissions on.<p>
+     *
+     * The result is the same as checking each resource with
+     * {@link #hasPermissions(CmsRequestContext, CmsResource, CmsPermissionSet, boolean, CmsResourceFilter)}
+     * with lock checking enabled, but read permissions on many resources are evaluated at once.<p>
+     *
+     * @param context the current request context
+     * @param resources the resources to filter
+     * @param requiredPermissions the set of permissions required for each resource
+     * @param filter the resource filter to use
+     *
+     * @return the resources with sufficient permissions, in the order of the given list
+     *
+     * @throws CmsException in case of i/o errors (NOT because of insufficient permissions)
+     *
+     * @see #filterReadable(CmsDbContext, List, CmsPermissionSet, CmsResourceFilter)
+     */
+    public List<CmsResource> filterReadable(
+        CmsRequestContext context,
+        List<CmsResource> resources,
+        CmsPermissionSet requiredPermissions,
+        CmsResourceFilter filter) throws CmsException {
+
+        List<CmsResource> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = filterReadable(dbc, resources, requiredPermissions, filter);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns the list of access control entries of a resource given its name.<p>
      *
@@ -3163,6 +3253,42 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Replaces the relations defined in the content of the given resource and its siblings
+     * by the relations to the internal targets of the given links.<p>
+     *
+     * Access is granted, if:<p>
+     * <ul>
+     * <li>the current project is not the online project</li>
+     * <li>the current user has write permission on the resource</li>
+     * <li>the resource is locked by the current user</li>
+     * </ul><p>
+     *
+     * @param context the current request context
+     * @param resource the resource to import the relations for
+     * @param links the links parsed from the content of the resource
+     *
+     * @throws CmsException if something goes wrong
+     * @throws CmsSecurityException if the required permissions are not satisfied
+     */
+    public void importContentRelations(CmsRequestContext context, CmsResource resource, List<CmsLink> links)
+    throws CmsException, CmsSecurityException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            checkOfflineProject(dbc);
+            checkPermissions(dbc, resource, CmsPermissionSet.ACCESS_WRITE, true, CmsResourceFilter.ALL);
+            m_driverManager.updateRelationsForResource(dbc, resource, links);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_UPDATE_RELATIONS_1, dbc.removeSiteRoot(resource.getRootPath())),
+                e);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Creates a new resource with the provided content and properties.<p>
      *
@@ -3616,6 +3742,38 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Marks the resources of the given visits as visited by the user, with the dates of the visits.<p>
+     *
+     * @param context the request context
+     * @param poolName the name of the database pool to use
+     * @param user the user that visited the resources
+     * @param visits the visits of the user
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void markResourcesAsVisitedBy(
+        CmsRequestContext context,
+        String poolName,
+        CmsUser user,
+        List<CmsVisitEntry> visits) throws CmsException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            m_driverManager.markResourcesAsVisitedBy(dbc, poolName, user, visits);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(
+                    Messages.ERR_MARK_RESOURCES_AS_VISITED_2,
+                    Integer.valueOf(visits.size()),
+                    user.getName()),
+                e);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Returns a new publish list that contains all resources of both given publish lists.<p>
      *
@@ -5019,6 +5177,78 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads the resources with the given structure IDs, using the specified resource filter.<p>
+     *
+     * Resources that do not exist, that are not readable by the current user or that do not
+     * match the filter are not contained in the result.<p>
+     *
+     * @param context the current request context
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given structure IDs
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readResources(List, CmsResourceFilter)
+     */
+    public List<CmsResource> readResources(
+        CmsRequestContext context,
+        List<CmsUUID> structureIds,
+        CmsResourceFilter filter) throws CmsException {
+
+        List<CmsResource> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = m_driverManager.readResources(dbc, structureIds, filter);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_READ_RESOURCES_FOR_IDS_1, Integer.valueOf(structureIds.size())),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
+    /**
+     * Reads the resources with the given root paths, using the specified resource filter.<p>
+     *
+     * Resources that do not exist, that are not readable by the current user or that do not
+     * match the filter are not contained in the result.<p>
+     *
+     * @param context the current request context
+     * @param resourcePaths the root paths of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given paths
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readResourcesByPaths(List, CmsResourceFilter)
+     */
+    public List<CmsResource> readResourcesByPaths(
+        CmsRequestContext context,
+        List<String> resourcePaths,
+        CmsResourceFilter filter) throws CmsException {
+
+        List<CmsResource> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = m_driverManager.readResourcesByPaths(dbc, resourcePaths, filter);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_READ_RESOURCES_FOR_PATHS_1, Integer.valueOf(resourcePaths.size())),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns the resources that were visited by a user set in the filter.<p>
      *
@@ -5148,6 +5378,34 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads the latest executions of a scheduled job, ordered by descending fire time.<p>
+     *
+     * @param context the current request context
+     * @param jobKey the key of the scheduled job
+     * @param maxCount the maximum number of executions to read
+     *
+     * @return the latest executions of the scheduled job
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsScheduledJobExecution> readScheduledJobExecutions(
+        CmsRequestContext context,
+        String jobKey,
+        int maxCount) throws CmsException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        List<CmsScheduledJobExecution> result = null;
+        try {
+            result = m_driverManager.readScheduledJobExecutions(dbc, jobKey, maxCount);
+        } catch (Exception e) {
+            dbc.report(null, Messages.get().container(Messages.ERR_READ_SCHEDULED_JOB_EXECUTIONS_1, jobKey), e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns a List of all siblings of the specified resource,
      * the specified resource being always part of the result set.<p>
@@ -6577,6 +6835,27 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Writes the last login times of the users which have logged in since the last call of this method.<p>
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsDriverManager#writeLastLogins(CmsDbContext)
+     */
+    public void writeLastLogins() throws CmsException {
+
+        if (m_dbContextFactory == null) {
+            // already shutdown
+            return;
+        }
+        CmsDbContext dbc = m_dbContextFactory.getDbContext();
+        try {
+            m_driverManager.writeLastLogins(dbc);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Writes the locks that are currently stored in-memory to the database to allow restoring them in
      * later startups.<p>
@@ -6769,6 +7048,30 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Updates the entry for an execution of a scheduled job.<p>
+     *
+     * @param context the current request context
+     * @param execution the job execution to write
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void writeScheduledJobExecution(CmsRequestContext context, CmsScheduledJobExecution execution)
+    throws CmsException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            m_driverManager.writeScheduledJobExecution(dbc, execution);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_WRITE_SCHEDULED_JOB_EXECUTION_1, execution.getJobName()),
+                e);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Inserts an entry in the published resource table.<p>
      *
@@ -7089,6 +7392,45 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Filters a list of resources, keeping only the resources the current user has the required permissions on.<p>
+     *
+     * If the default permission handler is used, the groups and roles of the current user are read once,
+     * and the inherited access control list of each distinct parent folder is resolved once for the whole list.
+     * Other permission handlers check each resource with
+     * {@link I_CmsPermissionHandler#hasPermissions(CmsDbContext, CmsResource, CmsPermissionSet, boolean, CmsResourceFilter)}.<p>
+     *
+     * @param dbc the current database context
+     * @param resources the resources to filter
+     * @param requiredPermissions the set of permissions required for each resource
+     * @param filter the resource filter to use
+     *
+     * @return the resources with sufficient permissions, in the order of the given list
+     *
+     * @throws CmsException in case of i/o errors (NOT because of insufficient permissions)
+     */
+    protected List<CmsResource> filterReadable(
+        CmsDbContext dbc,
+        List<CmsResource> resources,
+        CmsPermissionSet requiredPermissions,
+        CmsResourceFilter filter) throws CmsException {
+
+        if (m_permissionHandler instanceof CmsDefaultPermissionHandler) {
+            return ((CmsDefaultPermissionHandler)m_permissionHandler).filterPermissions(
+                dbc,
+                resources,
+                requiredPermissions,
+                filter);
+        }
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        for (CmsResource resource : resources) {
+            if (m_permissionHandler.hasPermissions(dbc, resource, requiredPermissions, true, filter).isAllowed()) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns all resources of organizational units for which the current user has
      * the given role role.<p>
@@ -127,4 +127,17 @@ public class CmsSqlManager {
 
         return m_driverManager.getIdleConnections(dbPoolUrl);
     }
+
+    /**
+     * Returns the usage statistics of a pool, like the number of active and idle connections,
+     * the time spent waiting for connections and the number of failed attempts to get a connection.<p>
+     *
+     * @param dbPoolUrl the url of a pool
+     * @return the usage statistics of the pool
+     * @throws CmsDbException if something goes wrong
+     */
+    public CmsDbPoolStatistics getPoolStatistics(String dbPoolUrl) throws CmsDbException {
+
+        return m_driverManager.getPoolStatistics(dbPoolUrl);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.util.CmsDataTypeUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The additional info of a user in the form it is stored in the database.<p>
+ *
+ * The user drivers compare the additional infos to write with their stored form, so only the
+ * infos which have been added, changed or removed are written, with a single statement per info.<p>
+ *
+ * Since the stored form is compared, stored infos in an outdated encoding are detected as changed
+ * and are written again in the current encoding the next time the additional infos of the user are written.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsStoredUserInfo {
+
+    /** The stored data. */
+    private byte[] m_data;
+
+    /** The stored type. */
+    private String m_type;
+
+    /**
+     * Creates a new stored info.<p>
+     *
+     * @param data the stored data
+     * @param type the stored type
+     */
+    public CmsStoredUserInfo(byte[] data, String type) {
+
+        m_data = data;
+        m_type = type;
+    }
+
+    /**
+     * Creates the stored info for the given value.<p>
+     *
+     * @param value the value of the additional info
+     *
+     * @return the stored info for the given value
+     *
+     * @throws IOException if the value can not be serialized
+     */
+    public static CmsStoredUserInfo valueOf(Object value) throws IOException {
+
+        return new CmsStoredUserInfo(CmsDataTypeUtil.dataSerialize(value), value.getClass().getName());
+    }
+
+    /**
+     * Returns the stored data.<p>
+     *
+     * @return the stored data
+     */
+    public byte[] getData() {
+
+        return m_data;
+    }
+
+    /**
+     * Returns the stored type.<p>
+     *
+     * @return the stored type
+     */
+    public String getType() {
+
+        return m_type;
+    }
+
+    /**
+     * Checks if the given value is stored unchanged in this info, in the current encoding.<p>
+     *
+     * @param value the value to check
+     *
+     * @return <code>true</code> if the given value is stored unchanged in the current encoding
+     */
+    public boolean isStored(Object value) {
+
+        if (!value.getClass().getName().equals(m_type)) {
+            return false;
+        }
+        try {
+            byte[] data = CmsDataTypeUtil.dataSerialize(value);
+            if (Arrays.equals(data, m_data)) {
+                return true;
+            }
+            if (CmsDataTypeUtil.isParseable(value.getClass())
+                || (CmsDataTypeUtil.isSerialized(data) != CmsDataTypeUtil.isSerialized(m_data))) {
+                // the value has changed, or it is stored in an outdated encoding
+                return false;
+            }
+            // the encoding of maps is not necessarily stable, so compare the values
+            return value.equals(CmsDataTypeUtil.dataDeserialize(m_data, m_type));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -32,48 +32,170 @@ import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.CmsUser;
+import org.opencms.file.CmsVfsResourceNotFoundException;
 import org.opencms.file.history.I_CmsHistoryResource;
 import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
 import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
+import org.opencms.security.CmsPermissionViolationException;
 import org.opencms.security.CmsPrincipal;
 import org.opencms.security.CmsRole;
-import org.opencms.security.CmsRoleViolationException;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
 
 /**
  * Manager that provides methods to subscribe resources to users, read subscribed or unvisited resources and more.<p>
  *
+ * Visits are not written to the database when a resource is marked as visited. They are kept in a bounded buffer,
+ * where repeated visits of a user to the same resource are combined, and written in the background.
+ * When the buffer is full, writing it is started in the background at once, and the visits of a user are written
+ * before subscribed resources are read by visit state. Reading visited resources and visit dates takes the buffered
+ * visits into account.<p>
+ *
+ * If writing the visits fails, the buffer is written again after the flush interval at the earliest. In the meantime
+ * it may grow to twice its size, then the oldest visits are dropped.<p>
+ *
  * @since 8.0
  */
 public class CmsSubscriptionManager {
 
+    /**
+     * A visit that has not been written to the database yet.<p>
+     */
+    private static class CmsPendingVisit {
+
+        /** The date of the visit. */
+        private long m_date;
+
+        /** The visited resource. */
+        private CmsResource m_resource;
+
+        /** The visiting user. */
+        private CmsUser m_user;
+
+        /**
+         * Creates a new pending visit.<p>
+         *
+         * @param user the visiting user
+         * @param resource the visited resource
+         * @param date the date of the visit
+         */
+        CmsPendingVisit(CmsUser user, CmsResource resource, long date) {
+
+            m_user = user;
+            m_resource = resource;
+            m_date = date;
+        }
+
+        /**
+         * Returns the date of the visit.<p>
+         *
+         * @return the date of the visit
+         */
+        long getDate() {
+
+            return m_date;
+        }
+
+        /**
+         * Returns the visited resource.<p>
+         *
+         * @return the visited resource
+         */
+        CmsResource getResource() {
+
+            return m_resource;
+        }
+
+        /**
+         * Returns the visiting user.<p>
+         *
+         * @return the visiting user
+         */
+        CmsUser getUser() {
+
+            return m_user;
+        }
+    }
+
+    /** The default maximum number of visits kept in memory before they are written. */
+    private static final int DEFAULT_MAX_PENDING_VISITS = 1000;
+
     /** The default maximum number of visited resources to store per user. */
     private static final int DEFAULT_MAX_VISITEDCOUNT = 1000;
 
+    /** The default interval in milliseconds in which the pending visits are written. */
+    private static final long DEFAULT_VISIT_FLUSH_INTERVAL = 10000;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSubscriptionManager.class);
+
     /** The security manager to access the cms. */
     protected CmsSecurityManager m_securityManager;
 
+    /** The admin context used to write the pending visits in the background. */
+    private CmsObject m_adminCms;
+
+    /** Indicates if pending visits are dropped because they can not be written. */
+    private boolean m_droppingVisits;
+
     /** Indicates if the subscription functionality is enabled. */
     private boolean m_enabled;
 
+    /** Indicates if writing the pending visits has been started in the background because the buffer is full. */
+    private boolean m_flushRequested;
+
+    /** The task writing the pending visits in the background. */
+    private ScheduledFuture<?> m_flushTask;
+
     /** Indicates if the configuration can be modified. */
     private boolean m_frozen;
 
+    /** The time writing the pending visits has failed the last time, 0 if the last write has been successful. */
+    private volatile long m_lastWriteFailure;
+
+    /** The maximum number of visits kept in memory before they are written, 0 to write each visit at once. */
+    private int m_maxPendingVisits;
+
     /** The maximum number of visited resources to store per user. */
     private int m_maxVisitedCount;
 
+    /** The visits not written yet, by user and resource. */
+    private Map<String, CmsPendingVisit> m_pendingVisits;
+
     /** The name of the database pool to use. */
     private String m_poolName;
 
+    /** The interval in milliseconds in which the pending visits are written. */
+    private long m_visitFlushInterval;
+
+    /** Lock to write the pending visits one after another. */
+    private Object m_writeLock;
+
     /**
      * Initializes a new CmsSubscriptionManager, called from the configuration.<p>
      */
     public CmsSubscriptionManager() {
 
         m_frozen = false;
+        m_maxPendingVisits = DEFAULT_MAX_PENDING_VISITS;
+        m_visitFlushInterval = DEFAULT_VISIT_FLUSH_INTERVAL;
+        m_pendingVisits = new LinkedHashMap<String, CmsPendingVisit>();
+        m_writeLock = new Object();
     }
 
     /**
@@ -89,6 +211,14 @@ public class CmsSubscriptionManager {
      */
     public long getDateLastVisitedBy(CmsObject cms, CmsUser user, CmsResource resource) throws CmsException {
 
+        CmsPendingVisit visit;
+        synchronized (m_pendingVisits) {
+            visit = m_pendingVisits.get(getVisitKey(user.getId(), resource.getStructureId()));
+        }
+        if (visit != null) {
+            // a pending visit is always the latest visit
+            return visit.getDate();
+        }
         return m_securityManager.getDateLastVisitedBy(cms.getRequestContext(), getPoolName(), user, resource);
     }
 
@@ -106,7 +236,17 @@ public class CmsSubscriptionManager {
     public long getDateLastVisitedBy(CmsObject cms, CmsUser user, String resourcePath) throws CmsException {
 
         CmsResource resource = cms.readResource(resourcePath, CmsResourceFilter.ALL);
-        return m_securityManager.getDateLastVisitedBy(cms.getRequestContext(), getPoolName(), user, resource);
+        return getDateLastVisitedBy(cms, user, resource);
+    }
+
+    /**
+     * Returns the maximum number of visits kept in memory before they are written to the database.<p>
+     *
+     * @return the maximum number of visits kept in memory, 0 if each visit is written at once
+     */
+    public int getMaxPendingVisits() {
+
+        return m_maxPendingVisits;
     }
 
     /**
@@ -136,17 +276,53 @@ public class CmsSubscriptionManager {
         return m_poolName;
     }
 
+    /**
+     * Returns the number of visits which have not been written to the database yet.<p>
+     *
+     * @return the number of visits which have not been written to the database yet
+     */
+    public int getPendingVisitCount() {
+
+        synchronized (m_pendingVisits) {
+            return m_pendingVisits.size();
+        }
+    }
+
+    /**
+     * Returns the interval in milliseconds in which the pending visits are written to the database.<p>
+     *
+     * @return the interval in milliseconds in which the pending visits are written
+     */
+    public long getVisitFlushInterval() {
+
+        return m_visitFlushInterval;
+    }
+
     /**
      * Initializes this subscription manager with the OpenCms system configuration.<p>
      *
      * @param cms an OpenCms context object that must have been initialized with "Admin" permissions
      *
-     * @throws CmsRoleViolationException in case the given opencms object does not have <code>{@link CmsRole#ROOT_ADMIN}</code> permissions
+     * @throws CmsException in case the given opencms object does not have <code>{@link CmsRole#ROOT_ADMIN}</code> permissions
      */
-    public void initialize(CmsObject cms) throws CmsRoleViolationException {
+    public void initialize(CmsObject cms) throws CmsException {
 
         OpenCms.getRoleManager().checkRole(cms, CmsRole.ROOT_ADMIN);
+        m_adminCms = OpenCms.initCmsObject(cms);
         m_frozen = true;
+        if (isEnabled() && (m_maxPendingVisits > 0)) {
+            m_flushTask = OpenCms.getExecutor().scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+
+                    try {
+                        writeVisits();
+                    } catch (Throwable t) {
+                        LOG.error(Messages.get().getBundle().key(Messages.LOG_ERR_WRITE_VISITS_0), t);
+                    }
+                }
+            }, m_visitFlushInterval, m_visitFlushInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -173,7 +349,57 @@ public class CmsSubscriptionManager {
         if (!isEnabled()) {
             throw new CmsRuntimeException(Messages.get().container(Messages.ERR_SUBSCRIPTION_MANAGER_DISABLED_0));
         }
-        m_securityManager.markResourceAsVisitedBy(cms.getRequestContext(), getPoolName(), resource, user);
+        if (m_maxPendingVisits < 1) {
+            m_securityManager.markResourceAsVisitedBy(cms.getRequestContext(), getPoolName(), resource, user);
+            return;
+        }
+        String key = getVisitKey(user.getId(), resource.getStructureId());
+        boolean flush = false;
+        synchronized (m_pendingVisits) {
+            if (!m_pendingVisits.containsKey(key) && (m_pendingVisits.size() >= (2 * m_maxPendingVisits))) {
+                // the visits can not be written at the moment, drop the oldest one to limit the memory used
+                Iterator<String> it = m_pendingVisits.keySet().iterator();
+                it.next();
+                it.remove();
+                if (!m_droppingVisits) {
+                    // warn only once until the visits have been written again
+                    m_droppingVisits = true;
+                    LOG.warn(Messages.get().getBundle().key(Messages.LOG_WARN_VISIT_DROPPED_0));
+                }
+            }
+            m_pendingVisits.put(key, new CmsPendingVisit(user, resource, System.currentTimeMillis()));
+            if (!m_flushRequested
+                && (m_pendingVisits.size() >= m_maxPendingVisits)
+                && ((System.currentTimeMillis() - m_lastWriteFailure) >= m_visitFlushInterval)) {
+                m_flushRequested = true;
+                flush = true;
+            }
+        }
+        if (flush) {
+            // the buffer is full, write it in the background
+            try {
+                OpenCms.getExecutor().execute(new Runnable() {
+
+                    public void run() {
+
+                        try {
+                            writeVisits();
+                        } catch (Throwable t) {
+                            LOG.error(Messages.get().getBundle().key(Messages.LOG_ERR_WRITE_VISITS_0), t);
+                        } finally {
+                            synchronized (m_pendingVisits) {
+                                m_flushRequested = false;
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the executor has been shut down, the visits are written by the shutdown of this manager
+                synchronized (m_pendingVisits) {
+                    m_flushRequested = false;
+                }
+            }
+        }
     }
 
     /**
@@ -218,7 +444,50 @@ public class CmsSubscriptionManager {
      */
     public List<CmsResource> readResourcesVisitedBy(CmsObject cms, CmsVisitedByFilter filter) throws CmsException {
 
-        return m_securityManager.readResourcesVisitedBy(cms.getRequestContext(), getPoolName(), filter);
+        List<CmsResource> result = m_securityManager.readResourcesVisitedBy(
+            cms.getRequestContext(),
+            getPoolName(),
+            filter);
+        Map<CmsUUID, CmsPendingVisit> visits = new HashMap<CmsUUID, CmsPendingVisit>();
+        synchronized (m_pendingVisits) {
+            for (CmsPendingVisit visit : m_pendingVisits.values()) {
+                if (visit.getUser().getId().equals(filter.getUser().getId())) {
+                    visits.put(visit.getResource().getStructureId(), visit);
+                }
+            }
+        }
+        if (visits.isEmpty()) {
+            return result;
+        }
+        // a pending visit replaces the stored visit of the resource
+        Iterator<CmsResource> it = result.iterator();
+        while (it.hasNext()) {
+            CmsPendingVisit visit = visits.remove(it.next().getStructureId());
+            if ((visit != null) && !isInDateRange(visit, filter)) {
+                it.remove();
+            }
+        }
+        for (CmsPendingVisit visit : visits.values()) {
+            if (!isInDateRange(visit, filter)) {
+                continue;
+            }
+            try {
+                // read the resource like the visited resources read from the database are filtered
+                CmsResource resource = cms.readResource(
+                    visit.getResource().getStructureId(),
+                    CmsResourceFilter.DEFAULT);
+                if (isInParentFolder(resource, filter)) {
+                    result.add(resource);
+                }
+            } catch (CmsVfsResourceNotFoundException e) {
+                // the visited resource has been deleted in the meantime, or does not match the filter
+                LOG.debug(e.getLocalizedMessage(), e);
+            } catch (CmsPermissionViolationException e) {
+                // the visited resource can not be read by the current user
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        return result;
     }
 
     /**
@@ -277,6 +546,10 @@ public class CmsSubscriptionManager {
      */
     public List<CmsResource> readSubscribedResources(CmsObject cms, CmsSubscriptionFilter filter) throws CmsException {
 
+        if (!filter.getMode().isAll() && (filter.getUser() != null)) {
+            // the visit state is read from the database, so the pending visits of the user have to be written first
+            writeVisits(cms, filter.getUser().getId());
+        }
         return m_securityManager.readSubscribedResources(cms.getRequestContext(), getPoolName(), filter);
     }
 
@@ -306,6 +579,24 @@ public class CmsSubscriptionManager {
         m_enabled = Boolean.valueOf(enabled).booleanValue();
     }
 
+    /**
+     * Sets the maximum number of visits kept in memory before they are written to the database.<p>
+     *
+     * @param maxPendingVisits the maximum number of visits kept in memory, 0 to write each visit at once
+     */
+    public void setMaxPendingVisits(String maxPendingVisits) {
+
+        if (m_frozen) {
+            throw new CmsRuntimeException(Messages.get().container(Messages.ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0));
+        }
+        try {
+            m_maxPendingVisits = Math.max(0, Integer.parseInt(maxPendingVisits));
+        } catch (NumberFormatException e) {
+            // use default value
+            m_maxPendingVisits = DEFAULT_MAX_PENDING_VISITS;
+        }
+    }
+
     /**
      * Sets the maximum number of visited resources to store per user.<p>
      *
@@ -367,6 +658,41 @@ public class CmsSubscriptionManager {
         m_securityManager.setSubscribedResourceAsDeleted(cms.getRequestContext(), getPoolName(), resource);
     }
 
+    /**
+     * Sets the interval in milliseconds in which the pending visits are written to the database.<p>
+     *
+     * @param visitFlushInterval the interval in milliseconds in which the pending visits are written
+     */
+    public void setVisitFlushInterval(String visitFlushInterval) {
+
+        if (m_frozen) {
+            throw new CmsRuntimeException(Messages.get().container(Messages.ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0));
+        }
+        try {
+            long longValue = Long.parseLong(visitFlushInterval);
+            m_visitFlushInterval = (longValue > 0) ? longValue : DEFAULT_VISIT_FLUSH_INTERVAL;
+        } catch (NumberFormatException e) {
+            // use default value
+            m_visitFlushInterval = DEFAULT_VISIT_FLUSH_INTERVAL;
+        }
+    }
+
+    /**
+     * Stops writing the pending visits in the background and writes the remaining visits.<p>
+     */
+    public void shutDown() {
+
+        if (m_flushTask != null) {
+            m_flushTask.cancel(false);
+            m_flushTask = null;
+        }
+        try {
+            writeVisits();
+        } catch (CmsException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_ERR_WRITE_VISITS_0), e);
+        }
+    }
+
     /**
      * Subscribes the user or group to the resource.<p>
      *
@@ -494,4 +820,117 @@ public class CmsSubscriptionManager {
         unsubscribeResourceForAll(cms, resource);
     }
 
+    /**
+     * Writes all pending visits to the database.<p>
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void writeVisits() throws CmsException {
+
+        if (m_adminCms != null) {
+            writeVisits(m_adminCms, null);
+        }
+    }
+
+    /**
+     * Returns the key of a visit in the pending visits.<p>
+     *
+     * @param userId the id of the visiting user
+     * @param structureId the structure id of the visited resource
+     *
+     * @return the key of the visit
+     */
+    private String getVisitKey(CmsUUID userId, CmsUUID structureId) {
+
+        return userId.toString() + structureId.toString();
+    }
+
+    /**
+     * Checks if the date of the given visit is in the date range of the filter.<p>
+     *
+     * @param visit the visit to check
+     * @param filter the filter
+     *
+     * @return <code>true</code> if the date of the visit is in the date range of the filter
+     */
+    private boolean isInDateRange(CmsPendingVisit visit, CmsVisitedByFilter filter) {
+
+        return (visit.getDate() > filter.getFromDate()) && (visit.getDate() < filter.getToDate());
+    }
+
+    /**
+     * Checks if the given resource is in the parent folder of the filter.<p>
+     *
+     * @param resource the resource to check
+     * @param filter the filter
+     *
+     * @return <code>true</code> if the given resource is in the parent folder of the filter
+     */
+    private boolean isInParentFolder(CmsResource resource, CmsVisitedByFilter filter) {
+
+        if (CmsStringUtil.isEmpty(filter.getParentPath())) {
+            return true;
+        }
+        String folder = CmsFileUtil.addTrailingSeparator(filter.getParentPath());
+        if (filter.isIncludeSubFolders()) {
+            return resource.getRootPath().startsWith(folder);
+        }
+        return folder.equals(CmsResource.getParentFolder(resource.getRootPath()));
+    }
+
+    /**
+     * Writes pending visits to the database.<p>
+     *
+     * The visits stay pending until they are written, so they are never missed when visited resources are read.<p>
+     *
+     * @param cms the context to write the visits with
+     * @param userId the id of the user to write the visits for, or <code>null</code> to write all pending visits
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private void writeVisits(CmsObject cms, CmsUUID userId) throws CmsException {
+
+        synchronized (m_writeLock) {
+            Map<CmsUUID, List<CmsPendingVisit>> visitsByUser = new LinkedHashMap<CmsUUID, List<CmsPendingVisit>>();
+            synchronized (m_pendingVisits) {
+                for (CmsPendingVisit visit : m_pendingVisits.values()) {
+                    CmsUUID visitUserId = visit.getUser().getId();
+                    if ((userId != null) && !userId.equals(visitUserId)) {
+                        continue;
+                    }
+                    List<CmsPendingVisit> visits = visitsByUser.get(visitUserId);
+                    if (visits == null) {
+                        visits = new ArrayList<CmsPendingVisit>();
+                        visitsByUser.put(visitUserId, visits);
+                    }
+                    visits.add(visit);
+                }
+            }
+            for (List<CmsPendingVisit> visits : visitsByUser.values()) {
+                CmsUser user = visits.get(0).getUser();
+                List<CmsVisitEntry> entries = new ArrayList<CmsVisitEntry>(visits.size());
+                for (CmsPendingVisit visit : visits) {
+                    entries.add(new CmsVisitEntry(user.getId(), visit.getDate(), visit.getResource().getStructureId()));
+                }
+                try {
+                    m_securityManager.markResourcesAsVisitedBy(cms.getRequestContext(), getPoolName(), user, entries);
+                } catch (CmsException e) {
+                    m_lastWriteFailure = System.currentTimeMillis();
+                    throw e;
+                }
+                m_lastWriteFailure = 0;
+                synchronized (m_pendingVisits) {
+                    m_droppingVisits = false;
+                    for (CmsPendingVisit visit : visits) {
+                        String key = getVisitKey(user.getId(), visit.getResource().getStructureId());
+                        // keep the visit pending if the resource has been visited again in the meantime
+                        if (m_pendingVisits.get(key) == visit) {
+                            m_pendingVisits.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
 }
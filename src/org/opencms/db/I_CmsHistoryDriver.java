@@ -141,6 +141,21 @@ public interface I_CmsHistoryDriver {
      */
     CmsSqlManager initSqlManager(String classname);
 
+    /**
+     * Merges consecutive historical content entries of a resource which have the same content.<p>
+     *
+     * Of each run of identical content entries only a single entry is kept, with a publish tag range
+     * covering all entries of the run, so the content of every historical version can still be read.<p>
+     *
+     * @param dbc the current database context
+     * @param resourceId the resource id of the resource to merge the content entries for
+     *
+     * @return the number of removed content entries
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    int mergeContents(CmsDbContext dbc, CmsUUID resourceId) throws CmsDataAccessException;
+
     /**
      * Reads all file headers of the resource with the given structure id.<p>
      *
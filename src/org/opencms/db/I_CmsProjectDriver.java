@@ -42,6 +42,7 @@ import org.opencms.lock.CmsLock;
 import org.opencms.main.CmsException;
 import org.opencms.publish.CmsPublishJobInfoBean;
 import org.opencms.report.I_CmsReport;
+import org.opencms.scheduler.CmsScheduledJobExecution;
 import org.opencms.util.CmsUUID;
 
 import java.util.List;
@@ -112,6 +113,23 @@ public interface I_CmsProjectDriver {
      */
     void createPublishJob(CmsDbContext dbc, CmsPublishJobInfoBean publishJob) throws CmsDataAccessException;
 
+    /**
+     * Inserts an entry for an execution of a scheduled job, unless an entry with the same job key
+     * and fire time already exists.<p>
+     *
+     * Since the job key and the fire time form the primary key of the execution entries,
+     * only one of several concurrent calls for the same firing can succeed.<p>
+     *
+     * @param dbc the current database context
+     * @param execution the job execution to insert
+     *
+     * @return <code>true</code> if the entry has been inserted, <code>false</code> if it already existed
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    boolean createScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution)
+    throws CmsDataAccessException;
+
     /**
      * Deletes all entries in the published resource table.<p>
      *
@@ -205,6 +223,16 @@ public interface I_CmsProjectDriver {
      */
     void deletePublishList(CmsDbContext dbc, CmsUUID publishHistoryId) throws CmsDataAccessException;
 
+    /**
+     * Deletes all entries for executions of scheduled jobs which were scheduled to fire before the given time.<p>
+     *
+     * @param dbc the current database context
+     * @param fireTimeBefore the fire time before which the entries are deleted
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    void deleteScheduledJobExecutions(CmsDbContext dbc, long fireTimeBefore) throws CmsDataAccessException;
+
     /**
      * Deletes an entry in the published resource table.<p>
      *
@@ -586,6 +614,20 @@ public interface I_CmsProjectDriver {
      */
     byte[] readPublishReportContents(CmsDbContext dbc, CmsUUID publishHistoryId) throws CmsDataAccessException;
 
+    /**
+     * Reads the latest executions of a scheduled job, ordered by descending fire time.<p>
+     *
+     * @param dbc the current database context
+     * @param jobKey the key of the scheduled job
+     * @param maxCount the maximum number of executions to read
+     *
+     * @return the latest executions of the scheduled job
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    List<CmsScheduledJobExecution> readScheduledJobExecutions(CmsDbContext dbc, String jobKey, int maxCount)
+    throws CmsDataAccessException;
+
     /**
      * Returns the parameters of a resource in the table of all published template resources.<p>
      *
@@ -698,6 +740,17 @@ public interface I_CmsProjectDriver {
      */
     void writePublishReport(CmsDbContext dbc, CmsUUID publishId, byte[] content) throws CmsDataAccessException;
 
+    /**
+     * Updates the entry for an execution of a scheduled job.<p>
+     *
+     * @param dbc the current database context
+     * @param execution the job execution to write
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    void writeScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution)
+    throws CmsDataAccessException;
+
     /**
      * Inserts an entry in the published resource table.<p>
      *
@@ -105,6 +105,21 @@ public interface I_CmsSubscriptionDriver {
     void markResourceAsVisitedBy(CmsDbContext dbc, String poolName, CmsResource resource, CmsUser user)
     throws CmsDataAccessException;
 
+    /**
+     * Marks the resources of the given visits as visited by the user, with the dates of the visits.<p>
+     *
+     * The maximum number of visited resources stored for the user is checked only once for all visits.<p>
+     *
+     * @param dbc the database context
+     * @param poolName the name of the database pool to use
+     * @param user the user that visited the resources
+     * @param visits the visits of the user
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    void markResourcesAsVisitedBy(CmsDbContext dbc, String poolName, CmsUser user, List<CmsVisitEntry> visits)
+    throws CmsDataAccessException;
+
     /**
      * Returns all resources subscribed by the given user or group.<p>
      *
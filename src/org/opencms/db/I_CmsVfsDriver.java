@@ -585,6 +585,30 @@ public interface I_CmsVfsDriver {
     List<CmsRelation> readRelations(CmsDbContext dbc, CmsUUID projectId, CmsResource resource, CmsRelationFilter filter)
     throws CmsDataAccessException;
 
+    /**
+     * Reads all relations with the given filter for the given resources
+     * with a minimal number of queries.<p>
+     *
+     * The relations of each resource are the same as the ones returned by
+     * {@link #readRelations(CmsDbContext, CmsUUID, CmsResource, CmsRelationFilter)}
+     * for this resource, in the same order.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project to execute the query in
+     * @param resources the resources to read the relations for
+     * @param filter the filter to restrict the relations to retrieve
+     *
+     * @return the read relations, keyed by the structure ID of the resource they have been read for,
+     *      resources without relations are not contained
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    Map<CmsUUID, List<CmsRelation>> readRelationsForResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsResource> resources,
+        CmsRelationFilter filter) throws CmsDataAccessException;
+
     /**
      * Reads a resource specified by it's structure ID.<p>
      *
@@ -613,6 +637,26 @@ public interface I_CmsVfsDriver {
     CmsResource readResource(CmsDbContext dbc, CmsUUID projectId, String filename, boolean includeDeleted)
     throws CmsDataAccessException;
 
+    /**
+     * Reads the resources with the given structure IDs with a minimal number of queries.<p>
+     *
+     * Structure IDs of resources that do not exist are ignored, the result contains
+     * the found resources in the order of the given IDs.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the Id of the project
+     * @param structureIds the structure IDs of the resources to read
+     * @param includeDeleted true if already deleted files are included
+     *
+     * @return the resources that were read
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    List<CmsResource> readResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsUUID> structureIds,
+        boolean includeDeleted) throws CmsDataAccessException;
+
     /**
      * Reads all resources inside a given project and with a given state.<p>
      *
@@ -627,6 +671,26 @@ public interface I_CmsVfsDriver {
     List<CmsResource> readResources(CmsDbContext dbc, CmsUUID currentProject, CmsResourceState state, int mode)
     throws CmsDataAccessException;
 
+    /**
+     * Reads the resources with the given root paths with a minimal number of queries.<p>
+     *
+     * Paths of resources that do not exist are ignored, the result contains
+     * the found resources in the order of the given paths.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the Id of the project
+     * @param paths the root paths of the resources to read
+     * @param includeDeleted true if already deleted files are included
+     *
+     * @return the resources that were read
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    List<CmsResource> readResourcesByPaths(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<String> paths,
+        boolean includeDeleted) throws CmsDataAccessException;
+
     /**
      * Returns all resources associated to a given principal via an ACE.<p>
      *
@@ -177,6 +177,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CREATE_RESOURCE_PARENT_LOCK_1 = "ERR_CREATE_RESOURCE_PARENT_LOCK_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CREATE_SCHEDULED_JOB_EXECUTION_1 = "ERR_CREATE_SCHEDULED_JOB_EXECUTION_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CREATE_SIBLING_1 = "ERR_CREATE_SIBLING_1";
 
@@ -222,6 +225,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_DELETE_ROLE_GROUP_1 = "ERR_DELETE_ROLE_GROUP_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_DELETE_SCHEDULED_JOB_EXECUTIONS_0 = "ERR_DELETE_SCHEDULED_JOB_EXECUTIONS_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_DELETE_STATEXP_PUBLISHED_RESOURCES_0 = "ERR_DELETE_STATEXP_PUBLISHED_RESOURCES_0";
 
@@ -354,6 +360,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_LOGIN_MESSAGE_FROZEN_0 = "ERR_LOGIN_MESSAGE_FROZEN_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_MARK_RESOURCES_AS_VISITED_2 = "ERR_MARK_RESOURCES_AS_VISITED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_MARK_RESOURCE_AS_VISITED_2 = "ERR_MARK_RESOURCE_AS_VISITED_2";
 
@@ -531,6 +540,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_RESOURCES_1 = "ERR_READ_RESOURCES_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_RESOURCES_FOR_IDS_1 = "ERR_READ_RESOURCES_FOR_IDS_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_RESOURCES_FOR_PATHS_1 = "ERR_READ_RESOURCES_FOR_PATHS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_RESOURCES_FOR_PRINCIPAL_LOG_1 = "ERR_READ_RESOURCES_FOR_PRINCIPAL_LOG_1";
 
@@ -546,6 +561,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_RESPONSIBLE_USERS_1 = "ERR_READ_RESPONSIBLE_USERS_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_SCHEDULED_JOB_EXECUTIONS_1 = "ERR_READ_SCHEDULED_JOB_EXECUTIONS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_SIBLINGS_1 = "ERR_READ_SIBLINGS_1";
 
@@ -774,6 +792,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_WRITE_RESOURCE_1 = "ERR_WRITE_RESOURCE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_WRITE_SCHEDULED_JOB_EXECUTION_1 = "ERR_WRITE_SCHEDULED_JOB_EXECUTION_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_WRITE_STATEXP_PUBLISHED_RESOURCES_3 = "ERR_WRITE_STATEXP_PUBLISHED_RESOURCES_3";
 
@@ -837,6 +858,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JDBC_POOL_2 = "INIT_JDBC_POOL_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_JDBC_POOL_REPLICAS_3 = "INIT_JDBC_POOL_REPLICAS_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SECURITY_MANAGER_INIT_0 = "INIT_SECURITY_MANAGER_INIT_0";
 
@@ -870,6 +894,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERR_DRIVER_MANAGER_START_0 = "LOG_ERR_DRIVER_MANAGER_START_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERR_WRITE_LAST_LOGINS_0 = "LOG_ERR_WRITE_LAST_LOGINS_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERR_WRITE_VISITS_0 = "LOG_ERR_WRITE_VISITS_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_GET_TIMESTAMP_2 = "LOG_GET_TIMESTAMP_2";
 
@@ -879,6 +909,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_UPDATE_EXORT_POINTS_ERROR_0 = "LOG_UPDATE_EXORT_POINTS_ERROR_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_WARN_VISIT_DROPPED_0 = "LOG_WARN_VISIT_DROPPED_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WRITE_EXPORT_POINT_1 = "LOG_WRITE_EXPORT_POINT_1";
 
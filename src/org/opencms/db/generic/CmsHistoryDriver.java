@@ -32,6 +32,7 @@ import org.opencms.configuration.CmsParameterConfiguration;
 import org.opencms.db.CmsDbConsistencyException;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDbEntryNotFoundException;
+import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsResourceState;
@@ -58,11 +59,16 @@ import org.opencms.security.I_CmsPrincipal;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -451,6 +457,101 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return CmsSqlManager.getInstance(classname);
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#mergeContents(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID)
+     */
+    public int mergeContents(CmsDbContext dbc, CmsUUID resourceId) throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+
+        // the publish tags of the content entries to remove
+        List<Integer> obsoleteTags = new ArrayList<Integer>();
+        // the first publish tag, the last publish tag and the online flag of each run of identical entries
+        List<int[]> mergedRanges = new ArrayList<int[]>();
+        try {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is always available
+                throw new RuntimeException(e);
+            }
+            byte[] buffer = new byte[8192];
+            byte[] lastHash = null;
+            int[] range = null;
+
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_CONTENT_HISTORY_READ_ALL");
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+            while (res.next()) {
+                int tagFrom = res.getInt(1);
+                int tagTo = res.getInt(2);
+                int onlineFlag = res.getInt(3);
+                // the entries are compared by a hash of the streamed content, so only one entry is in memory
+                InputStream in = res.getBinaryStream(4);
+                if (in != null) {
+                    try {
+                        int len;
+                        while ((len = in.read(buffer)) != -1) {
+                            digest.update(buffer, 0, len);
+                        }
+                    } finally {
+                        in.close();
+                    }
+                }
+                byte[] hash = digest.digest();
+                if ((range != null) && Arrays.equals(hash, lastHash)) {
+                    // the first entry of the run is kept and extended to cover this entry
+                    obsoleteTags.add(Integer.valueOf(tagFrom));
+                    if (range[1] == -1) {
+                        mergedRanges.add(range);
+                    }
+                    range[1] = tagTo;
+                    range[2] = onlineFlag;
+                } else {
+                    range = new int[] {tagFrom, -1, onlineFlag};
+                }
+                lastHash = hash;
+            }
+            m_sqlManager.closeAll(dbc, null, stmt, res);
+            res = null;
+
+            if (!obsoleteTags.isEmpty()) {
+                // the obsolete entries must be removed first, since the publish tag range end is unique
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_CONTENT_HISTORY_DELETE_VERSION");
+                for (Integer tag : obsoleteTags) {
+                    stmt.setString(1, resourceId.toString());
+                    stmt.setInt(2, tag.intValue());
+                    stmt.executeUpdate();
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, null);
+
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_CONTENT_HISTORY_MERGE");
+                for (int[] mergedRange : mergedRanges) {
+                    stmt.setInt(1, mergedRange[1]);
+                    stmt.setInt(2, mergedRange[2]);
+                    stmt.setString(3, resourceId.toString());
+                    stmt.setInt(4, mergedRange[0]);
+                    stmt.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } catch (IOException e) {
+            throw new CmsDbIoException(
+                Messages.get().container(Messages.ERR_READ_CONTENT_WITH_RESOURCE_ID_2, resourceId, Boolean.FALSE),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return obsoleteTags.size();
+    }
+
     /**
      * @see org.opencms.db.I_CmsHistoryDriver#readAllAvailableVersions(CmsDbContext, CmsUUID)
      */
@@ -75,6 +75,7 @@ import org.opencms.main.OpenCms;
 import org.opencms.publish.CmsPublishJobInfoBean;
 import org.opencms.relations.CmsRelationFilter;
 import org.opencms.report.I_CmsReport;
+import org.opencms.scheduler.CmsScheduledJobExecution;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.security.I_CmsPrincipal;
 import org.opencms.staticexport.CmsStaticExportManager;
@@ -368,6 +369,44 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#createScheduledJobExecution(org.opencms.db.CmsDbContext, org.opencms.scheduler.CmsScheduledJobExecution)
+     */
+    public boolean createScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution)
+    throws CmsDataAccessException {
+
+        if (internalExistsScheduledJobExecution(dbc, execution.getJobKey(), execution.getFireTime())) {
+            return false;
+        }
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_SCHEDULER_EXECUTION_CREATE_8");
+            stmt.setString(1, execution.getJobKey());
+            stmt.setLong(2, execution.getFireTime());
+            stmt.setString(3, execution.getJobName());
+            stmt.setString(4, execution.getServerName());
+            stmt.setLong(5, execution.getDateStarted());
+            stmt.setLong(6, execution.getDateFinished());
+            stmt.setString(7, execution.getState().name());
+            stmt.setString(8, execution.getResult());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            // another server may have inserted the same execution concurrently
+            if (internalExistsScheduledJobExecution(dbc, execution.getJobKey(), execution.getFireTime())) {
+                return false;
+            }
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+        return true;
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#deleteAllStaticExportPublishedResources(org.opencms.db.CmsDbContext, int)
      */
@@ -597,6 +636,28 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#deleteScheduledJobExecutions(org.opencms.db.CmsDbContext, long)
+     */
+    public void deleteScheduledJobExecutions(CmsDbContext dbc, long fireTimeBefore) throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_SCHEDULER_EXECUTIONS_DELETE_1");
+            stmt.setLong(1, fireTimeBefore);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#deleteStaticExportPublishedResource(org.opencms.db.CmsDbContext, java.lang.String, int, java.lang.String)
      */
@@ -2548,6 +2609,37 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         return bytes;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#readScheduledJobExecutions(org.opencms.db.CmsDbContext, java.lang.String, int)
+     */
+    public List<CmsScheduledJobExecution> readScheduledJobExecutions(CmsDbContext dbc, String jobKey, int maxCount)
+    throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+
+        List<CmsScheduledJobExecution> result = new ArrayList<CmsScheduledJobExecution>();
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_SCHEDULER_EXECUTIONS_READ_1");
+            stmt.setString(1, jobKey);
+            // only fetch the latest executions, e.g. a single row when checking for a missed execution
+            stmt.setMaxRows(maxCount);
+            res = stmt.executeQuery();
+            while ((result.size() < maxCount) && res.next()) {
+                result.add(internalReadScheduledJobExecution(res));
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#readStaticExportPublishedResourceParameters(org.opencms.db.CmsDbContext, java.lang.String)
      */
@@ -2835,6 +2927,36 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#writeScheduledJobExecution(org.opencms.db.CmsDbContext, org.opencms.scheduler.CmsScheduledJobExecution)
+     */
+    public void writeScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution)
+    throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_SCHEDULER_EXECUTION_WRITE_8");
+            stmt.setString(1, execution.getJobName());
+            stmt.setString(2, execution.getServerName());
+            stmt.setLong(3, execution.getDateStarted());
+            stmt.setLong(4, execution.getDateFinished());
+            stmt.setString(5, execution.getState().name());
+            stmt.setString(6, execution.getResult());
+            stmt.setString(7, execution.getJobKey());
+            stmt.setLong(8, execution.getFireTime());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#writeStaticExportPublishedResource(org.opencms.db.CmsDbContext, java.lang.String, int, java.lang.String, long)
      */
@@ -3122,6 +3244,44 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         return (CmsPublishList)oin.readObject();
     }
 
+    /**
+     * Checks if an entry for the execution of a scheduled job with the given key and fire time exists.<p>
+     *
+     * @param dbc the current database context
+     * @param jobKey the key of the scheduled job
+     * @param fireTime the time the job was scheduled to fire
+     *
+     * @return <code>true</code> if the entry exists
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected boolean internalExistsScheduledJobExecution(CmsDbContext dbc, String jobKey, long fireTime)
+    throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+
+        boolean result = false;
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_SCHEDULER_EXECUTION_READ_2");
+            stmt.setString(1, jobKey);
+            stmt.setLong(2, fireTime);
+            res = stmt.executeQuery();
+            while (res.next()) {
+                result = true;
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
     /**
      * Creates a new {@link CmsLogEntry} object from the given result set entry.<p>
      *
@@ -3141,6 +3301,28 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         return new CmsLogEntry(userId, date, structureId, type, data);
     }
 
+    /**
+     * Creates a new {@link CmsScheduledJobExecution} object from the given result set entry.<p>
+     *
+     * @param res the result set
+     *
+     * @return the new {@link CmsScheduledJobExecution} object
+     *
+     * @throws SQLException if something goes wrong
+     */
+    protected CmsScheduledJobExecution internalReadScheduledJobExecution(ResultSet res) throws SQLException {
+
+        return new CmsScheduledJobExecution(
+            res.getString("JOB_KEY"),
+            res.getLong("FIRE_TIME"),
+            res.getString("JOB_NAME"),
+            res.getString("SERVER_NAME"),
+            res.getLong("DATE_STARTED"),
+            res.getLong("DATE_FINISHED"),
+            CmsScheduledJobExecution.State.valueOf(res.getString("EXECUTION_STATE")),
+            res.getString("EXECUTION_RESULT"));
+    }
+
     /**
      * Resets the state to UNCHANGED for a specified resource.<p>
      *
@@ -29,6 +29,7 @@ package org.opencms.db.generic;
 
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDbPool;
+import org.opencms.db.CmsDbReplicaRouter;
 import org.opencms.file.CmsProject;
 import org.opencms.main.CmsLog;
 import org.opencms.main.CmsRuntimeException;
@@ -115,6 +116,28 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
 
     }
 
+    /**
+     * Checks if the given SQL query writes data to the online tables.<p>
+     *
+     * These are the tables read from the replica pools, which are written
+     * when publishing and when working in the online project.<p>
+     *
+     * @param query the SQL query
+     *
+     * @return <code>true</code> if the SQL query writes data to the online tables
+     */
+    protected static boolean isOnlineWrite(String query) {
+
+        String sql = query.trim();
+        if (!sql.regionMatches(true, 0, "INSERT", 0, 6)
+            && !sql.regionMatches(true, 0, "UPDATE", 0, 6)
+            && !sql.regionMatches(true, 0, "DELETE", 0, 6)) {
+            return false;
+        }
+        // the online content table is the only online table without "ONLINE" in its name
+        return (sql.indexOf("CMS_ONLINE_") >= 0) || (sql.indexOf("CMS_CONTENTS") >= 0);
+    }
+
     /**
      * Replaces the project search pattern in SQL queries by the pattern _ONLINE_ or _OFFLINE_ depending on the
      * specified project ID.<p>
@@ -176,6 +199,8 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
         try {
             // close the connection
             if ((con != null) && !con.isClosed()) {
+                // the pooled connection can not be identified any more once it is closed
+                markReleased(con);
                 con.close();
             }
         } catch (SQLException e) {
@@ -286,11 +311,53 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
      */
     public PreparedStatement getPreparedStatementForSql(Connection con, String query) throws SQLException {
 
+        CmsDbReplicaRouter router = CmsDbPool.getReplicaRouter(m_poolUrl);
+        if ((router != null) && isOnlineWrite(query)) {
+            // keep reading from the primary pool until the replicas have caught up
+            router.markWrite(con);
+        }
         // unfortunately, this wrapper is essential, because some JDBC driver
         // implementations don't accept the delegated objects of DBCP's connection pool.
         return con.prepareStatement(query);
     }
 
+    /**
+     * Returns a JDBC connection from the connection pool to read data of the given project.<p>
+     *
+     * If replica pools are configured for the pool of this SQL manager, data of the online project
+     * is read from the replicas, as long as the current project of the database context is the online project
+     * and no data has been written to the online tables within the allowed replication lag.
+     * All other reads, in particular the reads while publishing, use the primary pool.
+     * The allowed lag is measured with the clock of this server and only covers the writes made through
+     * this server, see {@link CmsDbReplicaRouter}.<p>
+     *
+     * Use this method only for connections that do not write any data.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project to read the data of
+     *
+     * @return a JDBC connection
+     *
+     * @throws SQLException if no connection could be obtained
+     */
+    public Connection getReadConnection(CmsDbContext dbc, CmsUUID projectId) throws SQLException {
+
+        CmsDbReplicaRouter router = CmsDbPool.getReplicaRouter(m_poolUrl);
+        if ((router != null) && isReplicaRead(dbc, projectId)) {
+            String poolUrl = router.getReadPoolUrl();
+            if (!poolUrl.equals(m_poolUrl)) {
+                try {
+                    return getConnectionByUrl(poolUrl);
+                } catch (SQLException e) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(Messages.LOG_REPLICA_CONNECTION_FAILED_2, poolUrl, m_poolUrl),
+                        e);
+                }
+            }
+        }
+        return getConnection(dbc);
+    }
+
     /**
      * Initializes this SQL manager.<p>
      *
@@ -308,6 +375,22 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
 
     }
 
+    /**
+     * Records that a JDBC connection of this SQL manager has been released.<p>
+     *
+     * If the connection has been used to write to the online tables, the write has been committed now,
+     * and online data is read from the primary pool again for the allowed replication lag.<p>
+     *
+     * @param con the released connection, may be <code>null</code>
+     */
+    public void markReleased(Connection con) {
+
+        CmsDbReplicaRouter router = CmsDbPool.getReplicaRouter(m_poolUrl);
+        if ((router != null) && (con != null)) {
+            router.markReleased(con);
+        }
+    }
+
     /**
      * Searches for the SQL query with the specified key and CmsProject.<p>
      *
@@ -429,6 +512,24 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
         return " ";
     }
 
+    /**
+     * Checks if data of the given project may be read from a replica pool in the given database context.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project to read the data of
+     *
+     * @return <code>true</code> if the data may be read from a replica pool
+     */
+    protected boolean isReplicaRead(CmsDbContext dbc, CmsUUID projectId) {
+
+        if ((dbc == null) || (dbc.getRequestContext() == null) || !CmsProject.ONLINE_PROJECT_ID.equals(projectId)) {
+            return false;
+        }
+        // a project id is set in the database context while publishing
+        boolean publishing = (dbc.getProjectId() != null) && !dbc.getProjectId().isNullUUID();
+        return !publishing && dbc.currentProject().isOnlineProject();
+    }
+
     /**
      * Loads a Java properties hash containing SQL queries.<p>
      *
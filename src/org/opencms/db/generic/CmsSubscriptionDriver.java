@@ -62,6 +62,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -197,20 +198,31 @@ public class CmsSubscriptionDriver implements I_CmsDriver, I_CmsSubscriptionDriv
     public void markResourceAsVisitedBy(CmsDbContext dbc, String poolName, CmsResource resource, CmsUser user)
     throws CmsDataAccessException {
 
-        boolean entryExists = false;
-        CmsVisitEntryFilter filter = CmsVisitEntryFilter.ALL.filterResource(resource.getStructureId()).filterUser(
-            user.getId());
-        // delete existing visited entry for the resource
-        if (readVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter).size() > 0) {
-            entryExists = true;
-            deleteVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter);
-        }
-
         CmsVisitEntry entry = new CmsVisitEntry(user.getId(), System.currentTimeMillis(), resource.getStructureId());
-        addVisit(dbc, poolName, entry);
+        markResourcesAsVisitedBy(dbc, poolName, user, Collections.singletonList(entry));
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsSubscriptionDriver#markResourcesAsVisitedBy(org.opencms.db.CmsDbContext, java.lang.String, org.opencms.file.CmsUser, java.util.List)
+     */
+    public void markResourcesAsVisitedBy(CmsDbContext dbc, String poolName, CmsUser user, List<CmsVisitEntry> visits)
+    throws CmsDataAccessException {
+
+        boolean newEntries = false;
+        CmsVisitEntryFilter filter;
+        for (CmsVisitEntry entry : visits) {
+            filter = CmsVisitEntryFilter.ALL.filterResource(entry.getStructureId()).filterUser(user.getId());
+            // delete existing visited entry for the resource
+            if (readVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter).size() > 0) {
+                deleteVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter);
+            } else {
+                newEntries = true;
+            }
+            addVisit(dbc, poolName, entry);
+        }
 
-        if (!entryExists) {
-            // new entry, check if maximum number of stored visited resources is exceeded
+        if (newEntries) {
+            // new entries, check if maximum number of stored visited resources is exceeded
             PreparedStatement stmt = null;
             Connection conn = null;
             ResultSet res = null;
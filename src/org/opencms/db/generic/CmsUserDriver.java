@@ -36,6 +36,7 @@ import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDbUtil;
 import org.opencms.db.CmsDriverManager;
+import org.opencms.db.CmsStoredUserInfo;
 import org.opencms.db.CmsUserSettings;
 import org.opencms.db.CmsVisitEntryFilter;
 import org.opencms.db.I_CmsProjectDriver;
@@ -1486,62 +1487,43 @@ public class CmsUserDriver implements I_CmsUserDriver {
      */
     public Map<String, Object> readUserInfos(CmsDbContext dbc, CmsUUID userId) throws CmsDataAccessException {
 
+        Map<String, CmsStoredUserInfo> storedInfos = internalReadStoredUserInfos(dbc, userId);
         Map<String, Object> infos = new HashMap<String, Object>();
+        for (Entry<String, CmsStoredUserInfo> entry : storedInfos.entrySet()) {
+            String key = entry.getKey();
+            String type = entry.getValue().getType();
+            byte[] value = entry.getValue().getData();
+            // deserialize
+            Object data = null;
+            try {
 
-        ResultSet res = null;
-        PreparedStatement stmt = null;
-        Connection conn = null;
-        try {
-            // create statement
-            conn = m_sqlManager.getConnection(dbc);
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_USERDATA_READ_1");
-
-            stmt.setString(1, userId.toString());
-            res = stmt.executeQuery();
-            // read the infos
-            while (res.next()) {
-                String key = res.getString(m_sqlManager.readQuery("C_USERDATA_KEY_0"));
-                String type = res.getString(m_sqlManager.readQuery("C_USERDATA_TYPE_0"));
-                byte[] value = m_sqlManager.getBytes(res, m_sqlManager.readQuery("C_USERDATA_VALUE_0"));
-                // deserialize
-                Object data = null;
-                try {
-
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_READUSERINFO_2, key, type));
-                        if (value != null) {
-                            try {
-                                LOG.debug(
-                                    Messages.get().getBundle().key(
-                                        Messages.LOG_DBG_READUSERINFO_VALUE_1,
-                                        new String(value)));
-                            } catch (Exception e) {
-                                // noop
-                            }
-                        } else {
-                            LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_READUSERINFO_VALUE_1, null));
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_READUSERINFO_2, key, type));
+                    if (value != null) {
+                        try {
+                            LOG.debug(
+                                Messages.get().getBundle().key(
+                                    Messages.LOG_DBG_READUSERINFO_VALUE_1,
+                                    new String(value)));
+                        } catch (Exception e) {
+                            // noop
                         }
+                    } else {
+                        LOG.debug(Messages.get().getBundle().key(Messages.LOG_DBG_READUSERINFO_VALUE_1, null));
                     }
+                }
 
-                    data = CmsDataTypeUtil.dataDeserialize(value, type);
+                data = CmsDataTypeUtil.dataDeserialize(value, type);
 
-                } catch (Exception e) {
-                    LOG.error(
-                        Messages.get().container(Messages.ERR_READING_ADDITIONAL_INFO_1, userId.toString()).key(),
-                        e);
-                }
-                if ((key != null) && (data != null)) {
-                    infos.put(key, data);
-                }
+            } catch (Exception e) {
+                LOG.error(
+                    Messages.get().container(Messages.ERR_READING_ADDITIONAL_INFO_1, userId.toString()).key(),
+                    e);
+            }
+            if ((key != null) && (data != null)) {
+                infos.put(key, data);
             }
-        } catch (SQLException e) {
-            throw new CmsDbSqlException(
-                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
-                e);
-        } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, res);
         }
-
         return infos;
     }
 
@@ -2016,13 +1998,14 @@ public class CmsUserDriver implements I_CmsUserDriver {
 
         // get the login attribute
         String att_login = (String)dbc.getAttribute(CmsDriverManager.ATTRIBUTE_LOGIN);
+        boolean lastLoginOnly = dbc.getAttribute(CmsDriverManager.ATTRIBUTE_LASTLOGIN) != null;
 
         PreparedStatement stmt = null;
         Connection conn = null;
 
         // if the login attribute is set, do only update the last login information of this user
         // otherwise write the complete user data
-        if (CmsStringUtil.isNotEmpty(att_login)) {
+        if (CmsStringUtil.isNotEmpty(att_login) || lastLoginOnly) {
 
             try {
                 conn = getSqlManager().getConnection(dbc);
@@ -2038,8 +2021,10 @@ public class CmsUserDriver implements I_CmsUserDriver {
             } finally {
                 m_sqlManager.closeAll(dbc, conn, stmt, null);
             }
-            // store user info values which may have been modified by the login code
-            internalWriteUserInfos(dbc, user.getId(), user.getAdditionalInfo());
+            if (!lastLoginOnly) {
+                // store user info values which may have been modified by the login code
+                internalWriteUserInfos(dbc, user.getId(), user.getAdditionalInfo());
+            }
         } else {
 
             try {
@@ -2712,6 +2697,48 @@ public class CmsUserDriver implements I_CmsUserDriver {
         }
     }
 
+    /**
+     * Reads the additional infos of a user as they are stored, without deserializing them.<p>
+     *
+     * @param dbc the current database context
+     * @param userId the id of the user
+     *
+     * @return the stored additional infos of the user
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected Map<String, CmsStoredUserInfo> internalReadStoredUserInfos(CmsDbContext dbc, CmsUUID userId)
+    throws CmsDataAccessException {
+
+        Map<String, CmsStoredUserInfo> infos = new HashMap<String, CmsStoredUserInfo>();
+
+        ResultSet res = null;
+        PreparedStatement stmt = null;
+        Connection conn = null;
+        try {
+            // create statement
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_USERDATA_READ_1");
+
+            stmt.setString(1, userId.toString());
+            res = stmt.executeQuery();
+            // read the infos
+            while (res.next()) {
+                String key = res.getString(m_sqlManager.readQuery("C_USERDATA_KEY_0"));
+                String type = res.getString(m_sqlManager.readQuery("C_USERDATA_TYPE_0"));
+                byte[] value = m_sqlManager.getBytes(res, m_sqlManager.readQuery("C_USERDATA_VALUE_0"));
+                infos.put(key, new CmsStoredUserInfo(value, type));
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return infos;
+    }
+
     /**
      * Returns the list of root paths associated to the organizational unit represented by the given resource.<p>
      *
@@ -2979,6 +3006,9 @@ public class CmsUserDriver implements I_CmsUserDriver {
     /**
      * Updates the user additional information map.<p>
      *
+     * The given infos are compared with the infos currently stored in the database, without deserializing
+     * the stored infos. Only the infos which have been added, changed or removed are written.<p>
+     *
      * @param dbc the current database context
      * @param userId the id of the user to update
      * @param additionalInfo the info to write
@@ -2989,25 +3019,14 @@ public class CmsUserDriver implements I_CmsUserDriver {
     throws CmsDataAccessException {
 
         // get the map of existing additional infos to compare it new additional infos
-        Map<String, Object> existingInfos = readUserInfos(dbc, userId);
+        Map<String, CmsStoredUserInfo> storedInfos = internalReadStoredUserInfos(dbc, userId);
 
         // loop over all entries of the existing additional infos
-        Iterator<Entry<String, Object>> itEntries = existingInfos.entrySet().iterator();
-        while (itEntries.hasNext()) {
-            Entry<String, Object> entry = itEntries.next();
-            if ((entry.getKey() != null) && (entry.getValue() != null)) {
-                // entry does not exist in new additional infos -> delete it
-                if (!additionalInfo.containsKey(entry.getKey())) {
-                    dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_DELETE);
-                    writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
-                } else {
-                    Object newValue = additionalInfo.get(entry.getKey());
-                    // entry does exist but has different value -> update it
-                    if ((newValue != null) && !newValue.equals(entry.getValue())) {
-                        dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_UPDATE);
-                        writeUserInfo(dbc, userId, entry.getKey(), newValue);
-                    }
-                }
+        for (String key : storedInfos.keySet()) {
+            // entry does not exist in new additional infos -> delete it
+            if (additionalInfo.get(key) == null) {
+                dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_DELETE);
+                writeUserInfo(dbc, userId, key, null);
             }
         }
 
@@ -3016,10 +3035,15 @@ public class CmsUserDriver implements I_CmsUserDriver {
         while (itNewEntries.hasNext()) {
             Entry<String, Object> entry = itNewEntries.next();
             if ((entry.getKey() != null) && (entry.getValue() != null)) {
-                // entry doews not exist in the existing additional infos -> create a new one
-                if (!existingInfos.containsKey(entry.getKey())) {
+                CmsStoredUserInfo storedInfo = storedInfos.get(entry.getKey());
+                if (storedInfo == null) {
+                    // entry does not exist in the existing additional infos -> create a new one
                     dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_INSERT);
                     writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
+                } else if (!storedInfo.isStored(entry.getValue())) {
+                    // entry does exist but has different value or an outdated encoding -> update it
+                    dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_UPDATE);
+                    writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
                 }
             }
         }
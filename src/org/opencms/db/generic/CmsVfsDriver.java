@@ -34,6 +34,7 @@ import org.opencms.db.CmsAliasFilter;
 import org.opencms.db.CmsDbConsistencyException;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDbEntryNotFoundException;
+import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDbUtil;
 import org.opencms.db.CmsDriverManager;
@@ -80,6 +81,8 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -90,6 +93,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -103,6 +107,9 @@ import org.apache.commons.logging.Log;
  */
 public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
+    /** The maximum number of values in a single IN clause used for reading resources in batches. */
+    protected static final int BATCH_READ_SIZE = 500;
+
     /** Contains the macro replacement value for the offline project. */
     protected static final String OFFLINE = "OFFLINE";
 
@@ -468,11 +475,16 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         Connection conn = null;
         PreparedStatement stmt = null;
 
+        boolean dbcHasProjectId = (dbc.getProjectId() != null) && !dbc.getProjectId().isNullUUID();
+        boolean storeContent = needToUpdateContent;
+        if (storeContent && !dbcHasProjectId && OpenCms.getSystemInfo().isHistoryEnabled()) {
+            // if the content is unchanged, the new version shares the content entry with the previous version
+            storeContent = !internalIsOnlineContent(dbc, resourceId, contents);
+        }
+
         try {
             conn = m_sqlManager.getConnection(dbc);
-            boolean dbcHasProjectId = (dbc.getProjectId() != null) && !dbc.getProjectId().isNullUUID();
-
-            if (needToUpdateContent || dbcHasProjectId) {
+            if (storeContent || dbcHasProjectId) {
                 if (dbcHasProjectId || !OpenCms.getSystemInfo().isHistoryEnabled()) {
                     // remove the online content for this resource id
                     stmt = m_sqlManager.getPreparedStatement(conn, "C_ONLINE_CONTENTS_DELETE");
@@ -1792,7 +1804,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         PreparedStatement stmt = null;
         ResultSet res = null;
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatementForSql(conn, query.toString());
             stmt.setString(1, resource.getStructureId().toString());
             res = stmt.executeQuery();
@@ -1829,7 +1841,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         byte[] byteRes = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             if (projectId.equals(CmsProject.ONLINE_PROJECT_ID)) {
                 stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_ONLINE_FILES_CONTENT");
             } else {
@@ -1872,7 +1884,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         Connection conn = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_RESOURCES_READBYID");
             stmt.setString(1, folderId.toString());
             res = stmt.executeQuery();
@@ -1909,7 +1921,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
         folderPath = CmsFileUtil.removeTrailingSeparator(folderPath);
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_RESOURCES_READ");
 
             stmt.setString(1, folderPath);
@@ -2063,7 +2075,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         int resultSize = 0;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_READ");
 
             stmt.setString(1, key);
@@ -2136,7 +2148,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         CmsProperty property;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_READALL");
             stmt.setString(1, resource.getStructureId().toString());
             stmt.setString(2, resource.getResourceId().toString());
@@ -2202,7 +2214,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         ResultSet res = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             if (filter.isSource()) {
                 List<Object> params = new ArrayList<Object>(7);
 
@@ -2265,6 +2277,47 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return result;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readRelationsForResources(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, org.opencms.relations.CmsRelationFilter)
+     */
+    public Map<CmsUUID, List<CmsRelation>> readRelationsForResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsResource> resources,
+        CmsRelationFilter filter) throws CmsDataAccessException {
+
+        if (filter.isIncludeSubresources()) {
+            // the relations are selected by the path of each resource, which can not be done in one query
+            Map<CmsUUID, List<CmsRelation>> result = new HashMap<CmsUUID, List<CmsRelation>>(resources.size());
+            for (CmsResource resource : resources) {
+                List<CmsRelation> resourceRelations = readRelations(dbc, projectId, resource, filter);
+                if (!resourceRelations.isEmpty()) {
+                    result.put(resource.getStructureId(), resourceRelations);
+                }
+            }
+            return result;
+        }
+        Set<String> ids = new LinkedHashSet<String>();
+        for (CmsResource resource : resources) {
+            ids.add(resource.getStructureId().toString());
+        }
+        Map<CmsUUID, Set<CmsRelation>> relations = new HashMap<CmsUUID, Set<CmsRelation>>();
+        if (filter.isSource()) {
+            internalReadRelations(dbc, projectId, filter, ids, true, relations);
+        }
+        if (filter.isTarget()) {
+            internalReadRelations(dbc, projectId, filter, ids, false, relations);
+        }
+
+        Map<CmsUUID, List<CmsRelation>> result = new HashMap<CmsUUID, List<CmsRelation>>(relations.size());
+        for (Map.Entry<CmsUUID, Set<CmsRelation>> entry : relations.entrySet()) {
+            List<CmsRelation> resourceRelations = new ArrayList<CmsRelation>(entry.getValue());
+            Collections.sort(resourceRelations, CmsRelation.COMPARATOR);
+            result.put(entry.getKey(), resourceRelations);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResource(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID, boolean)
      */
@@ -2277,7 +2330,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         Connection conn = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_RESOURCES_READBYID");
 
             stmt.setString(1, structureId.toString());
@@ -2328,7 +2381,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         boolean endsWithSlash = (len != path.length());
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_RESOURCES_READ");
 
             stmt.setString(1, path);
@@ -2369,6 +2422,30 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return resource;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readResources(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, boolean)
+     */
+    public List<CmsResource> readResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsUUID> structureIds,
+        boolean includeDeleted) throws CmsDataAccessException {
+
+        Set<String> ids = new LinkedHashSet<String>();
+        for (CmsUUID structureId : structureIds) {
+            ids.add(structureId.toString());
+        }
+        Map<String, CmsResource> resources = internalReadResources(dbc, projectId, "C_RESOURCES_READ_BY_IDS", ids);
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        for (String id : ids) {
+            CmsResource resource = resources.get(id);
+            if ((resource != null) && (includeDeleted || !resource.getState().isDeleted())) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResources(org.opencms.db.CmsDbContext, CmsUUID, CmsResourceState, int)
      */
@@ -2382,7 +2459,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         Connection conn = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             if (mode == CmsDriverManager.READMODE_MATCHSTATE) {
                 stmt = m_sqlManager.getPreparedStatement(
                     conn,
@@ -2425,6 +2502,39 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return result;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readResourcesByPaths(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, boolean)
+     */
+    public List<CmsResource> readResourcesByPaths(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<String> paths,
+        boolean includeDeleted) throws CmsDataAccessException {
+
+        Set<String> queryPaths = new LinkedHashSet<String>();
+        for (String path : paths) {
+            // must remove trailing slash
+            queryPaths.add(CmsFileUtil.removeTrailingSeparator(path));
+        }
+        Map<String, CmsResource> resources = internalReadResources(dbc, projectId, "C_RESOURCES_READ_BY_PATHS", queryPaths);
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        Set<CmsUUID> added = new HashSet<CmsUUID>();
+        for (String path : paths) {
+            CmsResource resource = resources.get(CmsFileUtil.removeTrailingSeparator(path));
+            if ((resource == null) || (!includeDeleted && resource.getState().isDeleted())) {
+                continue;
+            }
+            if (resource.isFile() && path.endsWith("/")) {
+                // a file is not allowed to end with a "/"
+                continue;
+            }
+            if (added.add(resource.getStructureId())) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResourcesForPrincipalACE(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, org.opencms.util.CmsUUID)
      */
@@ -2582,7 +2692,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         Connection conn = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             StringBuffer queryBuf = new StringBuffer(256);
             queryBuf.append(m_sqlManager.readQuery(projectId, "C_RESOURCES_READ_TREE"));
             queryBuf.append(conditions);
@@ -2676,7 +2786,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         List<CmsResource> vfsLinks = new ArrayList<CmsResource>();
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
 
             if (includeDeleted) {
                 stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_SELECT_VFS_SIBLINGS");
@@ -3731,6 +3841,56 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * Checks if the online content entry of a resource has exactly the given content.<p>
+     *
+     * The stored content is streamed and compared byte by byte, the comparison stops at the first difference.<p>
+     *
+     * @param dbc the current database context
+     * @param resourceId the id of the resource
+     * @param contents the content to compare the online content with
+     *
+     * @return <code>true</code> if an online content entry with the given content exists
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected boolean internalIsOnlineContent(CmsDbContext dbc, CmsUUID resourceId, byte[] contents)
+    throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        boolean result = false;
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_ONLINE_CONTENTS_READ");
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+            if (res.next()) {
+                InputStream stored = res.getBinaryStream(1);
+                if (stored != null) {
+                    try {
+                        result = CmsFileUtil.equalsContent(stored, contents);
+                    } finally {
+                        stored.close();
+                    }
+                }
+                while (res.next()) {
+                    // do nothing only move through all rows because of mssql odbc driver
+                }
+            }
+        } catch (SQLException e) {
+            throw wrapException(stmt, e);
+        } catch (IOException e) {
+            throw new CmsDbIoException(
+                Messages.get().container(Messages.ERR_READ_CONTENT_WITH_RESOURCE_ID_2, resourceId, Boolean.TRUE),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
     /**
      * Helper method to create an alias object from a result set.<p>
      *
@@ -3854,6 +4014,174 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new CmsRelation(sourceId, sourcePath, targetId, targetPath, CmsRelationType.valueOf(type));
     }
 
+    /**
+     * Reads the relations of many resources in batches of at most {@link #BATCH_READ_SIZE} resources per query.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param filter the filter to restrict the relations to retrieve
+     * @param structureIds the structure ids of the resources
+     * @param checkSource if <code>true</code> the relations with the resources as target are read,
+     *      otherwise the relations with the resources as source
+     * @param relations the map to add the read relations to, keyed by the structure id of the resource
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalReadRelations(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        CmsRelationFilter filter,
+        Collection<String> structureIds,
+        boolean checkSource,
+        Map<CmsUUID, Set<CmsRelation>> relations) throws CmsDataAccessException {
+
+        if (structureIds.isEmpty()) {
+            return;
+        }
+        List<String> allIds = new ArrayList<String>(structureIds);
+        List<Object> params = new ArrayList<Object>(7);
+        String conditions = prepareRelationConditions(projectId, filter, null, params, checkSource);
+        StringBuffer baseQuery = new StringBuffer(256);
+        baseQuery.append(m_sqlManager.readQuery(projectId, "C_READ_RELATIONS"));
+        baseQuery.append(conditions);
+        baseQuery.append(conditions.length() == 0 ? BEGIN_CONDITION : BEGIN_INCLUDE_CONDITION);
+        String idQuery = checkSource ? "C_RELATION_FILTER_TARGET_IDS" : "C_RELATION_FILTER_SOURCE_IDS";
+        baseQuery.append(m_sqlManager.readQuery(projectId, idQuery));
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+
+        try {
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
+            for (int start = 0; start < allIds.size(); start += BATCH_READ_SIZE) {
+                List<String> batch = allIds.subList(start, Math.min(start + BATCH_READ_SIZE, allIds.size()));
+                StringBuffer queryBuf = new StringBuffer(baseQuery.length() + (3 * batch.size()) + 8);
+                queryBuf.append(baseQuery);
+                queryBuf.append(BEGIN_CONDITION);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        queryBuf.append(", ");
+                    }
+                    queryBuf.append("?");
+                }
+                queryBuf.append(END_CONDITION);
+                queryBuf.append(END_CONDITION);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(queryBuf.toString());
+                }
+
+                stmt = m_sqlManager.getPreparedStatementForSql(conn, queryBuf.toString());
+                for (int i = 0; i < params.size(); i++) {
+                    if (params.get(i) instanceof Integer) {
+                        stmt.setInt(i + 1, ((Integer)params.get(i)).intValue());
+                    } else {
+                        stmt.setString(i + 1, (String)params.get(i));
+                    }
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setString(params.size() + i + 1, batch.get(i));
+                }
+                res = stmt.executeQuery();
+                while (res.next()) {
+                    CmsRelation relation = internalReadRelation(res);
+                    CmsUUID key = checkSource ? relation.getTargetId() : relation.getSourceId();
+                    Set<CmsRelation> resourceRelations = relations.get(key);
+                    if (resourceRelations == null) {
+                        resourceRelations = new HashSet<CmsRelation>();
+                        relations.put(key, resourceRelations);
+                    }
+                    resourceRelations.add(relation);
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, res);
+                stmt = null;
+                res = null;
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+    }
+
+    /**
+     * Reads resources in batches of at most {@link #BATCH_READ_SIZE} values per query.<p>
+     *
+     * The given query must end with an IN operator, the parameter list is appended for each batch.
+     * If more than one resource matches a value, the resource with the lowest state is used.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param queryKey the key of the query to use
+     * @param values the structure ids or paths (without trailing slash) to read
+     *
+     * @return the resources read, keyed by structure id or by path without trailing slash
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected Map<String, CmsResource> internalReadResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        String queryKey,
+        Collection<String> values) throws CmsDataAccessException {
+
+        Map<String, CmsResource> result = new HashMap<String, CmsResource>();
+        if (values.isEmpty()) {
+            return result;
+        }
+        boolean byId = "C_RESOURCES_READ_BY_IDS".equals(queryKey);
+        List<String> allValues = new ArrayList<String>(values);
+        String baseQuery = m_sqlManager.readQuery(projectId, queryKey);
+        ResultSet res = null;
+        PreparedStatement stmt = null;
+        Connection conn = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            for (int start = 0; start < allValues.size(); start += BATCH_READ_SIZE) {
+                List<String> batch = allValues.subList(start, Math.min(start + BATCH_READ_SIZE, allValues.size()));
+                StringBuffer queryBuf = new StringBuffer(baseQuery.length() + (3 * batch.size()) + 4);
+                queryBuf.append(baseQuery);
+                queryBuf.append(BEGIN_CONDITION);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        queryBuf.append(", ");
+                    }
+                    queryBuf.append("?");
+                }
+                queryBuf.append(END_CONDITION);
+                stmt = m_sqlManager.getPreparedStatementForSql(conn, queryBuf.toString());
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setString(i + 1, batch.get(i));
+                }
+                res = stmt.executeQuery();
+                while (res.next()) {
+                    CmsResource resource = createResource(res, projectId);
+                    String key = byId
+                    ? resource.getStructureId().toString()
+                    : CmsFileUtil.removeTrailingSeparator(resource.getRootPath());
+                    CmsResource existing = result.get(key);
+                    if ((existing == null) || (existing.getState().getState() > resource.getState().getState())) {
+                        // same as in the single read, prefer the lowest structure state
+                        result.put(key, resource);
+                    }
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, res);
+                stmt = null;
+                res = null;
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
     /**
      * Returns the resource state of the given resource.<p>
      *
@@ -69,13 +69,17 @@ import org.opencms.util.CmsDataTypeUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceException;
 import javax.persistence.Query;
@@ -92,6 +96,15 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
     /** Query key. */
     private static final String C_CONTENT_HISTORY_DELETE = "C_CONTENT_HISTORY_DELETE";
 
+    /** Query key. */
+    private static final String C_CONTENT_HISTORY_DELETE_VERSION = "C_CONTENT_HISTORY_DELETE_VERSION";
+
+    /** Query key. */
+    private static final String C_CONTENT_HISTORY_MERGE = "C_CONTENT_HISTORY_MERGE";
+
+    /** Query key. */
+    private static final String C_CONTENT_HISTORY_READ_TAGS = "C_CONTENT_HISTORY_READ_TAGS";
+
     /** Query key. */
     private static final String C_CONTENT_PUBLISH_MAXTAG = "C_CONTENT_PUBLISH_MAXTAG";
 
@@ -506,6 +519,85 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return CmsSqlManager.getInstance(classname);
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#mergeContents(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID)
+     */
+    public int mergeContents(CmsDbContext dbc, CmsUUID resourceId) throws CmsDataAccessException {
+
+        // the publish tags of the content entries to remove
+        List<Integer> obsoleteTags = new ArrayList<Integer>();
+        // the first publish tag, the last publish tag and the online flag of each run of identical entries
+        List<int[]> mergedRanges = new ArrayList<int[]>();
+        try {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is always available
+                throw new RuntimeException(e);
+            }
+            byte[] lastHash = null;
+            int[] range = null;
+
+            // read the publish tags first, and then the contents one by one, so only one content is in memory
+            Query q = m_sqlManager.createQuery(dbc, C_CONTENT_HISTORY_READ_TAGS);
+            q.setParameter(1, resourceId.toString());
+            @SuppressWarnings("unchecked")
+            List<Object[]> entries = q.getResultList();
+            EntityManager em = m_sqlManager.getEntityManager(dbc);
+            for (Object[] entry : entries) {
+                int tagFrom = ((Number)entry[0]).intValue();
+                int tagTo = ((Number)entry[1]).intValue();
+                int onlineFlag = ((Number)entry[2]).intValue();
+                CmsDAOContents.CmsDAOContentsPK key = new CmsDAOContents.CmsDAOContentsPK();
+                key.m_resourceId = resourceId.toString();
+                key.m_publishTagFrom = tagFrom;
+                CmsDAOContents c = m_sqlManager.find(dbc, CmsDAOContents.class, key);
+                if (c == null) {
+                    continue;
+                }
+                byte[] content = c.getFileContent();
+                // release the content, the entity has been flushed by the query and is not changed here
+                em.detach(c);
+                if (content != null) {
+                    digest.update(content);
+                }
+                byte[] hash = digest.digest();
+                if ((range != null) && Arrays.equals(hash, lastHash)) {
+                    // the first entry of the run is kept and extended to cover this entry
+                    obsoleteTags.add(Integer.valueOf(tagFrom));
+                    if (range[1] == -1) {
+                        mergedRanges.add(range);
+                    }
+                    range[1] = tagTo;
+                    range[2] = onlineFlag;
+                } else {
+                    range = new int[] {tagFrom, -1, onlineFlag};
+                }
+                lastHash = hash;
+            }
+
+            // the obsolete entries must be removed first, since the publish tag range end is unique
+            for (Integer tag : obsoleteTags) {
+                q = m_sqlManager.createQuery(dbc, C_CONTENT_HISTORY_DELETE_VERSION);
+                q.setParameter(1, resourceId.toString());
+                q.setParameter(2, tag);
+                q.executeUpdate();
+            }
+            for (int[] mergedRange : mergedRanges) {
+                q = m_sqlManager.createQuery(dbc, C_CONTENT_HISTORY_MERGE);
+                q.setParameter(1, Integer.valueOf(mergedRange[1]));
+                q.setParameter(2, Integer.valueOf(mergedRange[2]));
+                q.setParameter(3, resourceId.toString());
+                q.setParameter(4, Integer.valueOf(mergedRange[0]));
+                q.executeUpdate();
+            }
+            return obsoleteTags.size();
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1), e);
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsHistoryDriver#readAllAvailableVersions(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID)
      */
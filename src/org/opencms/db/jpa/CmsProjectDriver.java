@@ -52,6 +52,7 @@ import org.opencms.db.jpa.persistence.CmsDAOProjects;
 import org.opencms.db.jpa.persistence.CmsDAOPublishHistory;
 import org.opencms.db.jpa.persistence.CmsDAOPublishJobs;
 import org.opencms.db.jpa.persistence.CmsDAOResourceLocks;
+import org.opencms.db.jpa.persistence.CmsDAOScheduledJobExecutions;
 import org.opencms.db.jpa.persistence.CmsDAOStaticExportLinks;
 import org.opencms.db.jpa.persistence.CmsDAOUserPublishListEntry;
 import org.opencms.db.jpa.utils.CmsQueryIntParameter;
@@ -86,6 +87,7 @@ import org.opencms.main.OpenCms;
 import org.opencms.publish.CmsPublishJobInfoBean;
 import org.opencms.relations.CmsRelationFilter;
 import org.opencms.report.I_CmsReport;
+import org.opencms.scheduler.CmsScheduledJobExecution;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.security.I_CmsPrincipal;
 import org.opencms.staticexport.CmsStaticExportManager;
@@ -213,6 +215,12 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
     /** Query key. */
     private static final String C_RESOURCES_UNMARK = "C_RESOURCES_UNMARK";
 
+    /** Query key. */
+    private static final String C_SCHEDULER_EXECUTIONS_DELETE_1 = "C_SCHEDULER_EXECUTIONS_DELETE_1";
+
+    /** Query key. */
+    private static final String C_SCHEDULER_EXECUTIONS_READ_1 = "C_SCHEDULER_EXECUTIONS_READ_1";
+
     /** Query key. */
     private static final String C_SELECT_PUBLISHED_RESOURCES = "C_SELECT_PUBLISHED_RESOURCES";
 
@@ -380,6 +388,57 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#createScheduledJobExecution(org.opencms.db.CmsDbContext, org.opencms.scheduler.CmsScheduledJobExecution)
+     */
+    public boolean createScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution)
+    throws CmsDataAccessException {
+
+        CmsDAOScheduledJobExecutions.PK pk = new CmsDAOScheduledJobExecutions.PK(
+            execution.getJobKey(),
+            execution.getFireTime());
+        try {
+            if (m_sqlManager.find(dbc, CmsDAOScheduledJobExecutions.class, pk) != null) {
+                return false;
+            }
+            CmsDAOScheduledJobExecutions se = new CmsDAOScheduledJobExecutions(
+                execution.getJobKey(),
+                execution.getFireTime());
+            internalWriteScheduledJobExecution(se, execution);
+
+            // the execution is committed on its own, since another server may insert the same execution
+            // concurrently, and the failed insert must only roll back the claim
+            EntityManager em = m_sqlManager.getEntityManager(dbc);
+            em.getTransaction().commit();
+            em.getTransaction().begin();
+            em.persist(se);
+            RuntimeException failure = null;
+            try {
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                failure = e;
+                if ((em.getTransaction() != null) && em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+            } finally {
+                em.clear();
+                em.getTransaction().begin();
+            }
+            if (failure != null) {
+                if (m_sqlManager.find(dbc, CmsDAOScheduledJobExecutions.class, pk) != null) {
+                    // the execution has been claimed by another server
+                    return false;
+                }
+                throw new CmsDataAccessException(
+                    Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, failure),
+                    failure);
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+        return true;
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#deleteAllStaticExportPublishedResources(org.opencms.db.CmsDbContext, int)
      */
@@ -558,6 +617,20 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#deleteScheduledJobExecutions(org.opencms.db.CmsDbContext, long)
+     */
+    public void deleteScheduledJobExecutions(CmsDbContext dbc, long fireTimeBefore) throws CmsDataAccessException {
+
+        try {
+            Query q = m_sqlManager.createQuery(dbc, C_SCHEDULER_EXECUTIONS_DELETE_1);
+            q.setParameter(1, Long.valueOf(fireTimeBefore));
+            q.executeUpdate();
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#deleteStaticExportPublishedResource(org.opencms.db.CmsDbContext, java.lang.String, int, java.lang.String)
      */
@@ -2308,6 +2381,36 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         return bytes;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#readScheduledJobExecutions(org.opencms.db.CmsDbContext, java.lang.String, int)
+     */
+    public List<CmsScheduledJobExecution> readScheduledJobExecutions(CmsDbContext dbc, String jobKey, int maxCount)
+    throws CmsDataAccessException {
+
+        List<CmsScheduledJobExecution> result = new ArrayList<CmsScheduledJobExecution>();
+        try {
+            Query q = m_sqlManager.createQuery(dbc, C_SCHEDULER_EXECUTIONS_READ_1);
+            q.setParameter(1, jobKey);
+            q.setMaxResults(maxCount);
+            List<CmsDAOScheduledJobExecutions> res = q.getResultList();
+            for (CmsDAOScheduledJobExecutions se : res) {
+                result.add(
+                    new CmsScheduledJobExecution(
+                        se.getJobKey(),
+                        se.getFireTime(),
+                        se.getJobName(),
+                        se.getServerName(),
+                        se.getDateStarted(),
+                        se.getDateFinished(),
+                        CmsScheduledJobExecution.State.valueOf(se.getExecutionState()),
+                        se.getExecutionResult()));
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#readStaticExportPublishedResourceParameters(org.opencms.db.CmsDbContext, java.lang.String)
      */
@@ -2549,6 +2652,25 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsProjectDriver#writeScheduledJobExecution(org.opencms.db.CmsDbContext, org.opencms.scheduler.CmsScheduledJobExecution)
+     */
+    public void writeScheduledJobExecution(CmsDbContext dbc, CmsScheduledJobExecution execution)
+    throws CmsDataAccessException {
+
+        try {
+            CmsDAOScheduledJobExecutions se = m_sqlManager.find(
+                dbc,
+                CmsDAOScheduledJobExecutions.class,
+                new CmsDAOScheduledJobExecutions.PK(execution.getJobKey(), execution.getFireTime()));
+            if (se != null) {
+                internalWriteScheduledJobExecution(se, execution);
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsProjectDriver#writeStaticExportPublishedResource(org.opencms.db.CmsDbContext, java.lang.String, int, java.lang.String, long)
      */
@@ -2879,6 +3001,24 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * Copies the data of a scheduled job execution to its persistence object.<p>
+     *
+     * @param se the persistence object
+     * @param execution the scheduled job execution
+     */
+    protected void internalWriteScheduledJobExecution(
+        CmsDAOScheduledJobExecutions se,
+        CmsScheduledJobExecution execution) {
+
+        se.setJobName(execution.getJobName());
+        se.setServerName(execution.getServerName());
+        se.setDateStarted(execution.getDateStarted());
+        se.setDateFinished(execution.getDateFinished());
+        se.setExecutionState(execution.getState().name());
+        se.setExecutionResult(execution.getResult());
+    }
+
     /**
      * Build the whole WHERE SQL statement part for the given log entry filter.<p>
      *
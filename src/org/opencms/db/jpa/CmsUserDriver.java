@@ -35,6 +35,7 @@ import org.opencms.db.CmsDbEntryNotFoundException;
 import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDriverManager;
+import org.opencms.db.CmsStoredUserInfo;
 import org.opencms.db.CmsUserSettings;
 import org.opencms.db.CmsVisitEntryFilter;
 import org.opencms.db.I_CmsProjectDriver;
@@ -1415,58 +1416,49 @@ public class CmsUserDriver implements I_CmsUserDriver {
      */
     public Map<String, Object> readUserInfos(CmsDbContext dbc, CmsUUID userId) throws CmsDataAccessException {
 
+        Map<String, CmsStoredUserInfo> storedInfos = internalReadStoredUserInfos(dbc, userId);
         Map<String, Object> infos = new HashMap<String, Object>();
+        for (Map.Entry<String, CmsStoredUserInfo> entry : storedInfos.entrySet()) {
+            String key = entry.getKey();
+            String type = entry.getValue().getType();
+            byte[] value = entry.getValue().getData();
+            // deserialize
+            Object data = null;
+            try {
 
-        try {
-            Query q = m_sqlManager.createQuery(dbc, C_USERDATA_READ_1);
-
-            q.setParameter(1, userId.toString());
-            List<CmsDAOUserData> res = q.getResultList();
-            // read the infos
-            for (CmsDAOUserData ud : res) {
-                String key = ud.getDataKey();
-                String type = ud.getDataType();
-                byte[] value = ud.getDataValue();
-                // deserialize
-                Object data = null;
-                try {
-
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug(
-                            org.opencms.db.generic.Messages.get().getBundle().key(
-                                org.opencms.db.generic.Messages.LOG_DBG_READUSERINFO_2,
-                                key,
-                                type));
-                        if (value != null) {
-                            try {
-                                LOG.debug(
-                                    org.opencms.db.generic.Messages.get().getBundle().key(
-                                        org.opencms.db.generic.Messages.LOG_DBG_READUSERINFO_VALUE_1,
-                                        new String(value)));
-                            } catch (Exception e) {
-                                // noop
-                            }
-                        } else {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        org.opencms.db.generic.Messages.get().getBundle().key(
+                            org.opencms.db.generic.Messages.LOG_DBG_READUSERINFO_2,
+                            key,
+                            type));
+                    if (value != null) {
+                        try {
                             LOG.debug(
                                 org.opencms.db.generic.Messages.get().getBundle().key(
                                     org.opencms.db.generic.Messages.LOG_DBG_READUSERINFO_VALUE_1,
-                                    null));
+                                    new String(value)));
+                        } catch (Exception e) {
+                            // noop
                         }
+                    } else {
+                        LOG.debug(
+                            org.opencms.db.generic.Messages.get().getBundle().key(
+                                org.opencms.db.generic.Messages.LOG_DBG_READUSERINFO_VALUE_1,
+                                null));
                     }
-
-                    data = CmsDataTypeUtil.dataDeserialize(value, type);
-                } catch (Exception e) {
-                    LOG.warn(
-                        Messages.get().container(Messages.ERR_READING_ADDITIONAL_INFO_1, userId.toString()).key(),
-                        e);
                 }
 
-                if (key != null) {
-                    infos.put(key, data);
-                }
+                data = CmsDataTypeUtil.dataDeserialize(value, type);
+            } catch (Exception e) {
+                LOG.warn(
+                    Messages.get().container(Messages.ERR_READING_ADDITIONAL_INFO_1, userId.toString()).key(),
+                    e);
+            }
+
+            if (key != null) {
+                infos.put(key, data);
             }
-        } catch (PersistenceException e) {
-            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
         }
 
         return infos;
@@ -1865,10 +1857,11 @@ public class CmsUserDriver implements I_CmsUserDriver {
 
         // get the login attribute
         String att_login = (String)dbc.getAttribute(CmsDriverManager.ATTRIBUTE_LOGIN);
+        boolean lastLoginOnly = dbc.getAttribute(CmsDriverManager.ATTRIBUTE_LASTLOGIN) != null;
 
         // if the login attribute is set, do only update the last login information of this user
         // otherweise write the complete user data
-        if (CmsStringUtil.isNotEmpty(att_login)) {
+        if (CmsStringUtil.isNotEmpty(att_login) || lastLoginOnly) {
             try {
                 Query q = m_sqlManager.createQuery(dbc, C_USERS_WRITE_2);
                 // write data to database
@@ -1896,7 +1889,9 @@ public class CmsUserDriver implements I_CmsUserDriver {
                 throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
             }
         }
-        internalWriteUserInfos(dbc, user.getId(), user.getAdditionalInfo());
+        if (!lastLoginOnly) {
+            internalWriteUserInfos(dbc, user.getId(), user.getAdditionalInfo());
+        }
     }
 
     /**
@@ -2467,6 +2462,35 @@ public class CmsUserDriver implements I_CmsUserDriver {
         }
     }
 
+    /**
+     * Reads the additional infos of a user as they are stored, without deserializing them.<p>
+     *
+     * @param dbc the current database context
+     * @param userId the id of the user
+     *
+     * @return the stored additional infos of the user
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected Map<String, CmsStoredUserInfo> internalReadStoredUserInfos(CmsDbContext dbc, CmsUUID userId)
+    throws CmsDataAccessException {
+
+        Map<String, CmsStoredUserInfo> infos = new HashMap<String, CmsStoredUserInfo>();
+        try {
+            Query q = m_sqlManager.createQuery(dbc, C_USERDATA_READ_1);
+
+            q.setParameter(1, userId.toString());
+            List<CmsDAOUserData> res = q.getResultList();
+            // read the infos
+            for (CmsDAOUserData ud : res) {
+                infos.put(ud.getDataKey(), new CmsStoredUserInfo(ud.getDataValue(), ud.getDataType()));
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+        return infos;
+    }
+
     /**
      * Returns the list of root paths associated to the organizational unit represented by the given resource.<p>
      *
@@ -2701,6 +2725,9 @@ public class CmsUserDriver implements I_CmsUserDriver {
     /**
      * Updates the user additional information map.<p>
      *
+     * The given infos are compared with the infos currently stored in the database, without deserializing
+     * the stored infos. Only the infos which have been added, changed or removed are written.<p>
+     *
      * @param dbc the current database context
      * @param userId the id of the user to update
      * @param additionalInfo the info to write
@@ -2711,33 +2738,29 @@ public class CmsUserDriver implements I_CmsUserDriver {
     throws CmsDataAccessException {
 
         // get the map of existing additional infos to compare it new additional infos
-        Map<String, Object> existingInfos = readUserInfos(dbc, userId);
+        Map<String, CmsStoredUserInfo> storedInfos = internalReadStoredUserInfos(dbc, userId);
 
         // loop over all entries of the existing additional infos
-        for (Map.Entry<String, Object> entry : existingInfos.entrySet()) {
-            if ((entry.getKey() != null) && (entry.getValue() != null)) {
-                // entry does not exist in new additional infos -> delete it
-                if (!additionalInfo.containsKey(entry.getKey())) {
-                    dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_DELETE);
-                    writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
-                } else {
-                    Object newValue = additionalInfo.get(entry.getKey());
-                    // entry does exist but has different value -> update it
-                    if ((newValue != null) && !newValue.equals(entry.getValue())) {
-                        dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_UPDATE);
-                        writeUserInfo(dbc, userId, entry.getKey(), newValue);
-                    }
-                }
+        for (String key : storedInfos.keySet()) {
+            // entry does not exist in new additional infos -> delete it
+            if (additionalInfo.get(key) == null) {
+                dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_DELETE);
+                writeUserInfo(dbc, userId, key, null);
             }
         }
 
         // loop over all entries of the new additional infos
         for (Map.Entry<String, Object> entry : additionalInfo.entrySet()) {
             if ((entry.getKey() != null) && (entry.getValue() != null)) {
-                // entry does not exist in the existing additional infos -> create a new one
-                if (!existingInfos.containsKey(entry.getKey())) {
+                CmsStoredUserInfo storedInfo = storedInfos.get(entry.getKey());
+                if (storedInfo == null) {
+                    // entry does not exist in the existing additional infos -> create a new one
                     dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_INSERT);
                     writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
+                } else if (!storedInfo.isStored(entry.getValue())) {
+                    // entry does exist but has different value or an outdated encoding -> update it
+                    dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_UPDATE);
+                    writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
                 }
             }
         }
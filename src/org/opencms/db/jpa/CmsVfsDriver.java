@@ -105,11 +105,13 @@ import org.opencms.util.CmsUUID;
 
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -157,6 +159,9 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /** Query key. */
     private static final String C_ONLINE_CONTENTS_HISTORY = "C_ONLINE_CONTENTS_HISTORY";
 
+    /** Query key. */
+    private static final String C_ONLINE_CONTENTS_READ = "C_ONLINE_CONTENTS_READ";
+
     /** Query key. */
     private static final String C_ONLINE_FILES_CONTENT = "C_ONLINE_FILES_CONTENT";
 
@@ -208,12 +213,18 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /** Query key. */
     private static final String C_RELATION_FILTER_SOURCE_ID = "C_RELATION_FILTER_SOURCE_ID";
 
+    /** Query key. */
+    private static final String C_RELATION_FILTER_SOURCE_IDS = "C_RELATION_FILTER_SOURCE_IDS";
+
     /** Query key. */
     private static final String C_RELATION_FILTER_SOURCE_PATH = "C_RELATION_FILTER_SOURCE_PATH";
 
     /** Query key. */
     private static final String C_RELATION_FILTER_TARGET_ID = "C_RELATION_FILTER_TARGET_ID";
 
+    /** Query key. */
+    private static final String C_RELATION_FILTER_TARGET_IDS = "C_RELATION_FILTER_TARGET_IDS";
+
     /** Query key. */
     private static final String C_RELATION_FILTER_TARGET_PATH = "C_RELATION_FILTER_TARGET_PATH";
 
@@ -268,6 +279,12 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /** Query key. */
     private static final String C_RESOURCES_READ = "C_RESOURCES_READ";
 
+    /** Query key. */
+    private static final String C_RESOURCES_READ_BY_IDS = "C_RESOURCES_READ_BY_IDS";
+
+    /** Query key. */
+    private static final String C_RESOURCES_READ_BY_PATHS = "C_RESOURCES_READ_BY_PATHS";
+
     /** Query key. */
     private static final String C_RESOURCES_READ_PARENT_BY_ID = "C_RESOURCES_READ_PARENT_BY_ID";
 
@@ -397,6 +414,9 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(org.opencms.db.jpa.CmsVfsDriver.class);
 
+    /** The maximum number of values in a single IN clause used for reading resources in batches. */
+    protected static final int BATCH_READ_SIZE = 500;
+
     /** The driver manager. */
     protected CmsDriverManager m_driverManager;
 
@@ -712,8 +732,17 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
         try {
             boolean dbcHasProjectId = (dbc.getProjectId() != null) && !dbc.getProjectId().isNullUUID();
+            boolean storeContent = needToUpdateContent;
+            if (storeContent && !dbcHasProjectId && OpenCms.getSystemInfo().isHistoryEnabled()) {
+                // if the content is unchanged, the new version shares the content entry with the previous version
+                Query q = m_sqlManager.createQuery(dbc, C_ONLINE_CONTENTS_READ);
+                q.setParameter(1, resourceId.toString());
+                @SuppressWarnings("unchecked")
+                List<CmsDAOContents> res = q.getResultList();
+                storeContent = res.isEmpty() || !Arrays.equals(res.get(0).getFileContent(), contents);
+            }
 
-            if (needToUpdateContent || dbcHasProjectId) {
+            if (storeContent || dbcHasProjectId) {
                 if (dbcHasProjectId || !OpenCms.getSystemInfo().isHistoryEnabled()) {
                     // remove the online content for this resource id
                     Query q = m_sqlManager.createQuery(dbc, "C_ONLINE_CONTENTS_DELETE");
@@ -2319,6 +2348,47 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return result;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readRelationsForResources(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, org.opencms.relations.CmsRelationFilter)
+     */
+    public Map<CmsUUID, List<CmsRelation>> readRelationsForResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsResource> resources,
+        CmsRelationFilter filter) throws CmsDataAccessException {
+
+        if (filter.isIncludeSubresources()) {
+            // the relations are selected by the path of each resource, which can not be done in one query
+            Map<CmsUUID, List<CmsRelation>> result = new HashMap<CmsUUID, List<CmsRelation>>(resources.size());
+            for (CmsResource resource : resources) {
+                List<CmsRelation> resourceRelations = readRelations(dbc, projectId, resource, filter);
+                if (!resourceRelations.isEmpty()) {
+                    result.put(resource.getStructureId(), resourceRelations);
+                }
+            }
+            return result;
+        }
+        Set<String> ids = new LinkedHashSet<String>();
+        for (CmsResource resource : resources) {
+            ids.add(resource.getStructureId().toString());
+        }
+        Map<CmsUUID, Set<CmsRelation>> relations = new HashMap<CmsUUID, Set<CmsRelation>>();
+        if (filter.isSource()) {
+            internalReadRelations(dbc, projectId, filter, ids, true, relations);
+        }
+        if (filter.isTarget()) {
+            internalReadRelations(dbc, projectId, filter, ids, false, relations);
+        }
+
+        Map<CmsUUID, List<CmsRelation>> result = new HashMap<CmsUUID, List<CmsRelation>>(relations.size());
+        for (Map.Entry<CmsUUID, Set<CmsRelation>> entry : relations.entrySet()) {
+            List<CmsRelation> resourceRelations = new ArrayList<CmsRelation>(entry.getValue());
+            Collections.sort(resourceRelations, CmsRelation.COMPARATOR);
+            result.put(entry.getKey(), resourceRelations);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResource(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID, boolean)
      */
@@ -2399,6 +2469,30 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return resource;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readResources(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, boolean)
+     */
+    public List<CmsResource> readResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsUUID> structureIds,
+        boolean includeDeleted) throws CmsDataAccessException {
+
+        Set<String> ids = new LinkedHashSet<String>();
+        for (CmsUUID structureId : structureIds) {
+            ids.add(structureId.toString());
+        }
+        Map<String, CmsResource> resources = internalReadResources(dbc, projectId, C_RESOURCES_READ_BY_IDS, ids);
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        for (String id : ids) {
+            CmsResource resource = resources.get(id);
+            if ((resource != null) && (includeDeleted || !resource.getState().isDeleted())) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResources(org.opencms.db.CmsDbContext, CmsUUID, CmsResourceState, int)
      */
@@ -2440,6 +2534,39 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return result;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readResourcesByPaths(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, boolean)
+     */
+    public List<CmsResource> readResourcesByPaths(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<String> paths,
+        boolean includeDeleted) throws CmsDataAccessException {
+
+        Set<String> queryPaths = new LinkedHashSet<String>();
+        for (String path : paths) {
+            // must remove trailing slash
+            queryPaths.add(CmsFileUtil.removeTrailingSeparator(path));
+        }
+        Map<String, CmsResource> resources = internalReadResources(dbc, projectId, C_RESOURCES_READ_BY_PATHS, queryPaths);
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        Set<CmsUUID> added = new HashSet<CmsUUID>();
+        for (String path : paths) {
+            CmsResource resource = resources.get(CmsFileUtil.removeTrailingSeparator(path));
+            if ((resource == null) || (!includeDeleted && resource.getState().isDeleted())) {
+                continue;
+            }
+            if (resource.isFile() && path.endsWith("/")) {
+                // a file is not allowed to end with a "/"
+                continue;
+            }
+            if (added.add(resource.getStructureId())) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResourcesForPrincipalACE(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, org.opencms.util.CmsUUID)
      */
@@ -3633,6 +3760,148 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new CmsRelation(sourceId, sourcePath, targetId, targetPath, CmsRelationType.valueOf(type));
     }
 
+    /**
+     * Reads the relations of many resources in batches of at most {@link #BATCH_READ_SIZE} resources per query.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param filter the filter to restrict the relations to retrieve
+     * @param structureIds the structure ids of the resources
+     * @param checkSource if <code>true</code> the relations with the resources as target are read,
+     *      otherwise the relations with the resources as source
+     * @param relations the map to add the read relations to, keyed by the structure id of the resource
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalReadRelations(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        CmsRelationFilter filter,
+        Collection<String> structureIds,
+        boolean checkSource,
+        Map<CmsUUID, Set<CmsRelation>> relations) throws CmsDataAccessException {
+
+        if (structureIds.isEmpty()) {
+            return;
+        }
+        List<String> allIds = new ArrayList<String>(structureIds);
+        List<Object> params = new ArrayList<Object>(7);
+        String conditions = prepareRelationConditions(projectId, filter, null, params, checkSource);
+        StringBuffer baseQuery = new StringBuffer(256);
+        baseQuery.append(m_sqlManager.readQuery(projectId, C_READ_RELATIONS));
+        baseQuery.append(conditions);
+        baseQuery.append(conditions.length() == 0 ? BEGIN_CONDITION : BEGIN_INCLUDE_CONDITION);
+        String idQuery = checkSource ? C_RELATION_FILTER_TARGET_IDS : C_RELATION_FILTER_SOURCE_IDS;
+        baseQuery.append(m_sqlManager.readQuery(projectId, idQuery));
+
+        try {
+            for (int start = 0; start < allIds.size(); start += BATCH_READ_SIZE) {
+                List<String> batch = allIds.subList(start, Math.min(start + BATCH_READ_SIZE, allIds.size()));
+                StringBuffer queryBuf = new StringBuffer(baseQuery.length() + (3 * batch.size()) + 8);
+                queryBuf.append(baseQuery);
+                queryBuf.append(BEGIN_CONDITION);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        queryBuf.append(", ");
+                    }
+                    queryBuf.append("?");
+                }
+                queryBuf.append(END_CONDITION);
+                queryBuf.append(END_CONDITION);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(queryBuf.toString());
+                }
+
+                Query q = m_sqlManager.createQueryFromJPQL(dbc, queryBuf.toString());
+                for (int i = 0; i < params.size(); i++) {
+                    q.setParameter(i + 1, params.get(i));
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    q.setParameter(params.size() + i + 1, batch.get(i));
+                }
+                @SuppressWarnings("unchecked")
+                List<I_CmsDAOResourceRelations> res = q.getResultList();
+                for (I_CmsDAOResourceRelations rr : res) {
+                    CmsRelation relation = internalReadRelation(rr);
+                    CmsUUID key = checkSource ? relation.getTargetId() : relation.getSourceId();
+                    Set<CmsRelation> resourceRelations = relations.get(key);
+                    if (resourceRelations == null) {
+                        resourceRelations = new HashSet<CmsRelation>();
+                        relations.put(key, resourceRelations);
+                    }
+                    resourceRelations.add(relation);
+                }
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+    }
+
+    /**
+     * Reads resources in batches of at most {@link #BATCH_READ_SIZE} values per query.<p>
+     *
+     * The given query must end with an IN operator, the parameter list is appended for each batch.
+     * If more than one resource matches a value, the resource with the lowest state is used.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project
+     * @param queryKey the key of the query to use
+     * @param values the structure ids or paths (without trailing slash) to read
+     *
+     * @return the resources read, keyed by structure id or by path without trailing slash
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected Map<String, CmsResource> internalReadResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        String queryKey,
+        Collection<String> values) throws CmsDataAccessException {
+
+        Map<String, CmsResource> result = new HashMap<String, CmsResource>();
+        if (values.isEmpty()) {
+            return result;
+        }
+        boolean byId = C_RESOURCES_READ_BY_IDS.equals(queryKey);
+        List<String> allValues = new ArrayList<String>(values);
+        String baseQuery = m_sqlManager.readQuery(projectId, queryKey);
+        try {
+            for (int start = 0; start < allValues.size(); start += BATCH_READ_SIZE) {
+                List<String> batch = allValues.subList(start, Math.min(start + BATCH_READ_SIZE, allValues.size()));
+                StringBuffer queryBuf = new StringBuffer(baseQuery.length() + (3 * batch.size()) + 4);
+                queryBuf.append(baseQuery);
+                queryBuf.append(BEGIN_CONDITION);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        queryBuf.append(", ");
+                    }
+                    queryBuf.append("?");
+                }
+                queryBuf.append(END_CONDITION);
+                Query q = m_sqlManager.createQueryFromJPQL(dbc, queryBuf.toString());
+                for (int i = 0; i < batch.size(); i++) {
+                    q.setParameter(i + 1, batch.get(i));
+                }
+                @SuppressWarnings("unchecked")
+                List<Object[]> res = q.getResultList();
+                for (Object[] o : res) {
+                    CmsResource resource = createResource(o, projectId);
+                    String key = byId
+                    ? resource.getStructureId().toString()
+                    : CmsFileUtil.removeTrailingSeparator(resource.getRootPath());
+                    CmsResource existing = result.get(key);
+                    if ((existing == null) || (existing.getState().getState() > resource.getState().getState())) {
+                        // same as in the single read, prefer the lowest structure state
+                        result.put(key, resource);
+                    }
+                }
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+        return result;
+    }
+
     /**
      * Returns the resource state of the given resource.<p>
      *
@@ -0,0 +1,291 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db.jpa.persistence;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import com.google.common.base.Objects;
+
+/**
+ * Entity class for JPA access to the executions of scheduled jobs.<p>
+ */
+@Entity
+@Table(name = "CMS_SCHEDULER_EXECUTIONS")
+@IdClass(value = CmsDAOScheduledJobExecutions.PK.class)
+public class CmsDAOScheduledJobExecutions {
+
+    /** The primary key class for scheduled job executions. */
+    public static class PK {
+
+        /** The fire time. */
+        protected long m_fireTime;
+
+        /** The job key. */
+        protected String m_jobKey;
+
+        /**
+         * Empty default constructor.<p>
+         */
+        public PK() {
+
+            // do nothing
+        }
+
+        /**
+         * Creates a new instance.<p>
+         *
+         * @param jobKey the job key
+         * @param fireTime the fire time
+         */
+        public PK(String jobKey, long fireTime) {
+
+            m_jobKey = jobKey;
+            m_fireTime = fireTime;
+        }
+
+        /**
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object other) {
+
+            if (!(other instanceof PK)) {
+                return false;
+            }
+            PK otherPK = (PK)other;
+            return Objects.equal(m_jobKey, otherPK.m_jobKey) && (m_fireTime == otherPK.m_fireTime);
+        }
+
+        /**
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+
+            return Objects.hashCode(m_jobKey, Long.valueOf(m_fireTime));
+        }
+    }
+
+    /** The date finished field. */
+    @Column(name = "DATE_FINISHED", nullable = false)
+    protected long m_dateFinished;
+
+    /** The date started field. */
+    @Column(name = "DATE_STARTED", nullable = false)
+    protected long m_dateStarted;
+
+    /** The execution result field. */
+    @Column(name = "EXECUTION_RESULT", length = 1024)
+    protected String m_executionResult;
+
+    /** The execution state field. */
+    @Column(name = "EXECUTION_STATE", nullable = false, length = 16)
+    protected String m_executionState;
+
+    /** The fire time field. */
+    @Id
+    @Column(name = "FIRE_TIME", nullable = false)
+    protected long m_fireTime;
+
+    /** The job key field. */
+    @Id
+    @Column(name = "JOB_KEY", nullable = false, length = 36)
+    protected String m_jobKey;
+
+    /** The job name field. */
+    @Column(name = "JOB_NAME", nullable = false)
+    protected String m_jobName;
+
+    /** The server name field. */
+    @Column(name = "SERVER_NAME", nullable = false, length = 64)
+    protected String m_serverName;
+
+    /**
+     * Empty default constructor.<p>
+     */
+    public CmsDAOScheduledJobExecutions() {
+
+        // do nothing
+    }
+
+    /**
+     * Creates a new entry.<p>
+     *
+     * @param jobKey the job key
+     * @param fireTime the fire time
+     */
+    public CmsDAOScheduledJobExecutions(String jobKey, long fireTime) {
+
+        m_jobKey = jobKey;
+        m_fireTime = fireTime;
+    }
+
+    /**
+     * Returns the date finished.<p>
+     *
+     * @return the date finished
+     */
+    public long getDateFinished() {
+
+        return m_dateFinished;
+    }
+
+    /**
+     * Returns the date started.<p>
+     *
+     * @return the date started
+     */
+    public long getDateStarted() {
+
+        return m_dateStarted;
+    }
+
+    /**
+     * Returns the execution result.<p>
+     *
+     * @return the execution result
+     */
+    public String getExecutionResult() {
+
+        return m_executionResult;
+    }
+
+    /**
+     * Returns the execution state.<p>
+     *
+     * @return the execution state
+     */
+    public String getExecutionState() {
+
+        return m_executionState;
+    }
+
+    /**
+     * Returns the fire time.<p>
+     *
+     * @return the fire time
+     */
+    public long getFireTime() {
+
+        return m_fireTime;
+    }
+
+    /**
+     * Returns the job key.<p>
+     *
+     * @return the job key
+     */
+    public String getJobKey() {
+
+        return m_jobKey;
+    }
+
+    /**
+     * Returns the job name.<p>
+     *
+     * @return the job name
+     */
+    public String getJobName() {
+
+        return m_jobName;
+    }
+
+    /**
+     * Returns the server name.<p>
+     *
+     * @return the server name
+     */
+    public String getServerName() {
+
+        return m_serverName;
+    }
+
+    /**
+     * Sets the date finished.<p>
+     *
+     * @param dateFinished the date finished to set
+     */
+    public void setDateFinished(long dateFinished) {
+
+        m_dateFinished = dateFinished;
+    }
+
+    /**
+     * Sets the date started.<p>
+     *
+     * @param dateStarted the date started to set
+     */
+    public void setDateStarted(long dateStarted) {
+
+        m_dateStarted = dateStarted;
+    }
+
+    /**
+     * Sets the execution result.<p>
+     *
+     * @param executionResult the execution result to set
+     */
+    public void setExecutionResult(String executionResult) {
+
+        m_executionResult = executionResult;
+    }
+
+    /**
+     * Sets the execution state.<p>
+     *
+     * @param executionState the execution state to set
+     */
+    public void setExecutionState(String executionState) {
+
+        m_executionState = executionState;
+    }
+
+    /**
+     * Sets the job name.<p>
+     *
+     * @param jobName the job name to set
+     */
+    public void setJobName(String jobName) {
+
+        m_jobName = jobName;
+    }
+
+    /**
+     * Sets the server name.<p>
+     *
+     * @param serverName the server name to set
+     */
+    public void setServerName(String serverName) {
+
+        m_serverName = serverName;
+    }
+}
@@ -35,7 +35,6 @@ import org.opencms.db.CmsVisitEntryFilter;
 import org.opencms.db.generic.CmsSqlManager;
 import org.opencms.db.generic.Messages;
 import org.opencms.file.CmsDataAccessException;
-import org.opencms.file.CmsResource;
 import org.opencms.file.CmsUser;
 import org.opencms.main.OpenCms;
 
@@ -43,6 +42,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * MySQL implementation of the subscription driver.<p>
@@ -61,27 +61,27 @@ public class CmsSubscriptionDriver extends org.opencms.db.generic.CmsSubscriptio
     }
 
     /**
-     * @see org.opencms.db.generic.CmsSubscriptionDriver#markResourceAsVisitedBy(org.opencms.db.CmsDbContext, java.lang.String, org.opencms.file.CmsResource, org.opencms.file.CmsUser)
+     * @see org.opencms.db.generic.CmsSubscriptionDriver#markResourcesAsVisitedBy(org.opencms.db.CmsDbContext, java.lang.String, org.opencms.file.CmsUser, java.util.List)
      */
     @Override
-    public void markResourceAsVisitedBy(CmsDbContext dbc, String poolName, CmsResource resource, CmsUser user)
+    public void markResourcesAsVisitedBy(CmsDbContext dbc, String poolName, CmsUser user, List<CmsVisitEntry> visits)
     throws CmsDataAccessException {
 
-        boolean entryExists = false;
-        CmsVisitEntryFilter filter = CmsVisitEntryFilter.ALL.filterResource(resource.getStructureId()).filterUser(
-            user.getId());
-        // delete existing visited entry for the resource
-        if (readVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter).size() > 0) {
-            entryExists = true;
-            deleteVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter);
+        boolean newEntries = false;
+        CmsVisitEntryFilter filter;
+        for (CmsVisitEntry entry : visits) {
+            filter = CmsVisitEntryFilter.ALL.filterResource(entry.getStructureId()).filterUser(user.getId());
+            // delete existing visited entry for the resource
+            if (readVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter).size() > 0) {
+                deleteVisits(dbc, OpenCms.getSubscriptionManager().getPoolName(), filter);
+            } else {
+                newEntries = true;
+            }
+            addVisit(dbc, poolName, entry);
         }
 
-        CmsVisitEntry entry = new CmsVisitEntry(user.getId(), System.currentTimeMillis(), resource.getStructureId());
-
-        addVisit(dbc, poolName, entry);
-
-        if (!entryExists) {
-            // new entry, check if maximum number of stored visited resources is exceeded
+        if (newEntries) {
+            // new entries, check if maximum number of stored visited resources is exceeded
             PreparedStatement stmt = null;
             Connection conn = null;
             ResultSet res = null;
@@ -129,6 +129,7 @@ public class CmsSqlManager extends org.opencms.db.generic.CmsSqlManager {
             if (con != null) {
                 try {
                     con.setAutoCommit(true);
+                    sqlManager.markReleased(con);
                     con.close();
                 } catch (SQLException se) {
                     // ignore
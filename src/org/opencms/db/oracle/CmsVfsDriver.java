@@ -100,10 +100,16 @@ public class CmsVfsDriver extends org.opencms.db.generic.CmsVfsDriver {
         Connection conn = null;
         PreparedStatement stmt = null;
 
+        boolean dbcHasProjectId = (dbc.getProjectId() != null) && !dbc.getProjectId().isNullUUID();
+        boolean storeContent = needToUpdateContent;
+        if (storeContent && !dbcHasProjectId && OpenCms.getSystemInfo().isHistoryEnabled()) {
+            // if the content is unchanged, the new version shares the content entry with the previous version
+            storeContent = !internalIsOnlineContent(dbc, resourceId, contents);
+        }
+
         try {
             conn = m_sqlManager.getConnection(dbc);
-            boolean dbcHasProjectId = (dbc.getProjectId() != null) && !dbc.getProjectId().isNullUUID();
-            if (needToUpdateContent || dbcHasProjectId) {
+            if (storeContent || dbcHasProjectId) {
                 if (dbcHasProjectId || !OpenCms.getSystemInfo().isHistoryEnabled()) {
                     // remove the online content for this resource id
                     stmt = m_sqlManager.getPreparedStatement(conn, "C_ONLINE_CONTENTS_DELETE");
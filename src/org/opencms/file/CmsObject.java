@@ -46,6 +46,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
+import org.opencms.relations.CmsLink;
 import org.opencms.relations.CmsRelation;
 import org.opencms.relations.CmsRelationFilter;
 import org.opencms.relations.CmsRelationType;
@@ -1901,6 +1902,26 @@ public final class CmsObject {
         m_securityManager.importAccessControlEntries(m_context, resource, acEntries);
     }
 
+    /**
+     * Imports the relations defined in the content of the given resource.<p>
+     *
+     * The relations defined in the content of the resource and its siblings are replaced
+     * by the relations to the internal targets of the given links.<p>
+     *
+     * The resource has to be locked by the current user, who needs write permissions on it.<p>
+     *
+     * @param resource the resource to import the relations for
+     * @param links the links parsed from the content of the resource
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see org.opencms.relations.I_CmsLinkParseable#parseLinks(CmsObject, CmsFile)
+     */
+    public void importContentRelations(CmsResource resource, List<CmsLink> links) throws CmsException {
+
+        m_securityManager.importContentRelations(m_context, resource, links);
+    }
+
     /**
      * Imports a new relation to the given resource.<p>
      *
@@ -3122,6 +3143,49 @@ public final class CmsObject {
         return m_securityManager.readResources(m_context, resource, filter, readTree);
     }
 
+    /**
+     * Reads the resources with the given structure IDs, using the specified resource filter.<p>
+     *
+     * This is equivalent to reading every single resource with {@link #readResource(CmsUUID, CmsResourceFilter)},
+     * but uses a minimal number of database queries. Resources that do not exist, that can not be read
+     * by the current user or that do not match the filter are silently omitted from the result.<p>
+     *
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given structure IDs
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsResource> readResources(List<CmsUUID> structureIds, CmsResourceFilter filter) throws CmsException {
+
+        return m_securityManager.readResources(m_context, structureIds, filter);
+    }
+
+    /**
+     * Reads the resources with the given names, using the specified resource filter.<p>
+     *
+     * This is equivalent to reading every single resource with {@link #readResource(String, CmsResourceFilter)},
+     * but uses a minimal number of database queries. Resources that do not exist, that can not be read
+     * by the current user or that do not match the filter are silently omitted from the result.<p>
+     *
+     * @param resourcenames the names of the resources to read (relative to the current site)
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given names
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsResource> readResourcesByPaths(List<String> resourcenames, CmsResourceFilter filter)
+    throws CmsException {
+
+        List<String> rootPaths = new ArrayList<String>(resourcenames.size());
+        for (String resourcename : resourcenames) {
+            rootPaths.add(addSiteRoot(resourcename));
+        }
+        return m_securityManager.readResourcesByPaths(m_context, rootPaths, filter);
+    }
+
     /**
      * Reads all resources that have a value set for the specified property.<p>
      *
@@ -143,6 +143,9 @@ public class CmsPropertyDefinition implements Cloneable, Comparable<CmsPropertyD
     /** Property to control the folders where template or default bodies should be available. */
     public static final String PROPERTY_FOLDERS_AVAILABLE = "folders.available";
 
+    /** The name of the VFS property that enables the parallel rendering of a formatter JSP in some containers. */
+    public static final String PROPERTY_FORMATTER_PARALLEL = "formatter.parallel";
+
     /** Property stating where to create new gallery folders. */
     public static final String PROPERTY_GALLERIES_FOLDER = "galleries.folder";
 
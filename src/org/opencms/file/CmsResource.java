@@ -394,6 +394,9 @@ public class CmsResource implements I_CmsResource, Cloneable, Serializable, Comp
     /**
      * Creates a new CmsRecource object.<p>
      *
+     * The ids of the users and the project are shared with other resources using {@link CmsUUID#intern(CmsUUID)},
+     * since only few different values of these ids occur in large numbers of resources.<p>
+     *
      * @param structureId the id of this resources structure record
      * @param resourceId the id of this resources resource record
      * @param rootPath the root path to the resource
@@ -439,12 +442,12 @@ public class CmsResource implements I_CmsResource, Cloneable, Serializable, Comp
         m_typeId = type;
         m_isFolder = isFolder;
         m_flags = flags;
-        m_projectLastModified = projectId;
+        m_projectLastModified = CmsUUID.intern(projectId);
         m_state = state;
         m_dateCreated = dateCreated;
-        m_userCreated = userCreated;
+        m_userCreated = CmsUUID.intern(userCreated);
         m_dateLastModified = dateLastModified;
-        m_userLastModified = userLastModified;
+        m_userLastModified = CmsUUID.intern(userLastModified);
         m_dateReleased = dateReleased;
         m_dateExpired = dateExpired;
         m_siblingCount = linkCount;
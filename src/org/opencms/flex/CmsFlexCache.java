@@ -37,16 +37,16 @@ import org.opencms.main.OpenCms;
 import org.opencms.security.CmsRole;
 import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsFileUtil;
-import org.opencms.util.CmsStringUtil;
 
 import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
@@ -108,8 +108,8 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         /** The key belonging to the resource. */
         public CmsFlexCacheKey m_key;
 
-        /** Maps variations to CmsFlexCacheEntries. */
-        public Map<String, I_CmsLruCacheObject> m_map;
+        /** Maps the hashes of the variations to CmsFlexCacheEntries. */
+        public ConcurrentMap<Long, I_CmsLruCacheObject> m_map;
 
         /**
          * Generates a new instance of CmsFlexCacheVariation.<p>
@@ -119,7 +119,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         public CmsFlexCacheVariation(CmsFlexCacheKey theKey) {
 
             m_key = theKey;
-            m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            m_map = new ConcurrentHashMap<Long, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
         }
     }
 
@@ -158,7 +158,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             if (v == null) {
                 return true;
             }
-            Map<String, I_CmsLruCacheObject> m = v.m_map;
+            Map<Long, I_CmsLruCacheObject> m = v.m_map;
             if ((m == null) || (m.size() == 0)) {
                 return true;
             }
@@ -427,7 +427,15 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
         Object o = m_keyCache.get(key);
         if (o != null) {
-            return ((CmsFlexCacheVariation)o).m_map.keySet();
+            Map<Long, I_CmsLruCacheObject> m = ((CmsFlexCacheVariation)o).m_map;
+            if (m == null) {
+                return null;
+            }
+            Set<String> variations = new HashSet<String>();
+            for (I_CmsLruCacheObject entry : m.values()) {
+                variations.add(((CmsFlexCacheEntry)entry).getVariationKey());
+            }
+            return variations;
         }
         return null;
     }
@@ -496,15 +504,21 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (o != null) {
             // found a matching key in the cache
             CmsFlexCacheVariation v = (CmsFlexCacheVariation)o;
-            String variation = v.m_key.matchRequestKey(key);
-
-            if (CmsStringUtil.isEmpty(variation)) {
+            CmsFlexCacheKey cacheKey = v.m_key;
+            Map<Long, I_CmsLruCacheObject> m = v.m_map;
+            if ((cacheKey == null) || (m == null)) {
+                // the key has just been removed from the cache
+                return null;
+            }
+            // use the hash of the variation for the lookup, so the variation String is not created
+            long variation = cacheKey.matchRequestKeyHash(key);
+            if (variation == CmsFlexCacheKey.NO_VARIATION) {
                 // requested resource is not cacheable
                 return null;
             }
-            CmsFlexCacheEntry entry = (CmsFlexCacheEntry)v.m_map.get(variation);
-            if (entry == null) {
-                // no cache entry available for variation
+            CmsFlexCacheEntry entry = (CmsFlexCacheEntry)m.get(Long.valueOf(variation));
+            if ((entry == null) || !CmsFlexCacheKey.isLastVariation(entry.getVariationKey())) {
+                // no cache entry available for variation, or an entry for another variation with the same hash
                 return null;
             }
             if (entry.getDateExpires() < System.currentTimeMillis()) {
@@ -636,7 +650,8 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
         CmsFlexCacheVariation o = m_keyCache.get(key.getResource());
         if (o != null) {
-            I_CmsLruCacheObject old = o.m_map.get(key.getVariation());
+            Long variationHash = Long.valueOf(CmsFlexCacheKey.getVariationHash(key.getVariation()));
+            I_CmsLruCacheObject old = o.m_map.get(variationHash);
             if (old != null) {
                 getEntryLruCache().remove(old);
             }
@@ -690,7 +705,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                         allEntries.remove();
                         m_variationCache.remove(nextObject);
                     }
-                    v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+                    v.m_map = new ConcurrentHashMap<Long, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
                 } else {
                     // Clear key and entry
                     m_size -= v.m_map.size();
@@ -743,7 +758,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                 allEntries.remove();
                 m_variationCache.remove(nextObject);
             }
-            v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            v.m_map = new ConcurrentHashMap<Long, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
         }
         m_size = 0;
     }
@@ -869,19 +884,26 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (key.getTimeout() > 0) {
             theCacheEntry.setDateExpiresToNextTimeout(key.getTimeout());
         }
-        if (o != null) {
+        Long variationHash = Long.valueOf(CmsFlexCacheKey.getVariationHash(key.getVariation()));
+        if ((o != null) && (o.m_map != null)) {
             // We already have a variation map for this resource
-            Map<String, I_CmsLruCacheObject> m = o.m_map;
+            ConcurrentMap<Long, I_CmsLruCacheObject> m = o.m_map;
             boolean wasAdded = true;
-            if (!m.containsKey(key.getVariation())) {
+            CmsFlexCacheEntry old = (CmsFlexCacheEntry)m.get(variationHash);
+            if ((old != null) && !key.getVariation().equals(old.getVariationKey())) {
+                // another variation with the same hash is replaced
+                m_variationCache.remove(old);
+                old = null;
+            }
+            if (old == null) {
                 wasAdded = m_variationCache.add(theCacheEntry);
             } else {
                 wasAdded = m_variationCache.touch(theCacheEntry);
             }
 
             if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), m);
-                m.put(key.getVariation(), theCacheEntry);
+                theCacheEntry.setVariationData(key.getVariation(), variationHash, m);
+                m.put(variationHash, theCacheEntry);
             }
         } else {
             // No variation map for this resource yet, so create one
@@ -890,8 +912,8 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             boolean wasAdded = m_variationCache.add(theCacheEntry);
 
             if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), list.m_map);
-                list.m_map.put(key.getVariation(), theCacheEntry);
+                theCacheEntry.setVariationData(key.getVariation(), variationHash, list.m_map);
+                list.m_map.put(variationHash, theCacheEntry);
                 m_keyCache.put(key.getResource(), list);
             }
         }
@@ -41,6 +41,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.ServletException;
 
@@ -104,11 +105,14 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /** A redirection target (if redirection is set). */
     private String m_redirectTarget;
 
-    /** The key under which this cache entry is stored in the variation map. */
+    /** The hash of the variation, which is the key under which this cache entry is stored in the variation map. */
+    private Long m_variationHash;
+
+    /** The variation of this cache entry. */
     private String m_variationKey;
 
     /** The variation map where this cache entry is stored. */
-    private Map<String, I_CmsLruCacheObject> m_variationMap;
+    private ConcurrentMap<Long, I_CmsLruCacheObject> m_variationMap;
 
     /**
      * Constructor for class CmsFlexCacheEntry.<p>
@@ -303,13 +307,24 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return m_elements;
     }
 
+    /**
+     * Returns the variation of this cache entry.<p>
+     *
+     * @return the variation of this cache entry, or <code>null</code> if the entry is not stored in the cache
+     */
+    public String getVariationKey() {
+
+        return m_variationKey;
+    }
+
     /**
      * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
      */
     public void removeFromLruCache() {
 
-        if ((m_variationMap != null) && (m_variationKey != null)) {
-            m_variationMap.remove(m_variationKey);
+        if ((m_variationMap != null) && (m_variationHash != null)) {
+            // only remove this entry, the entry may already have been replaced by another variation with the same hash
+            m_variationMap.remove(m_variationHash, this);
         }
         if (LOG.isDebugEnabled()) {
             LOG.debug(
@@ -512,11 +527,16 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
      * This is required for the FlexCache.<p>
      *
      * @param theVariationKey the variation key
+     * @param theVariationHash the hash of the variation key, which is the key in the variation map
      * @param theVariationMap the variation map
      */
-    public void setVariationData(String theVariationKey, Map<String, I_CmsLruCacheObject> theVariationMap) {
+    public void setVariationData(
+        String theVariationKey,
+        Long theVariationHash,
+        ConcurrentMap<Long, I_CmsLruCacheObject> theVariationMap) {
 
         m_variationKey = theVariationKey;
+        m_variationHash = theVariationHash;
         m_variationMap = theVariationMap;
     }
 
@@ -151,6 +151,25 @@ public class CmsFlexCacheKey {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsFlexCacheKey.class);
 
+    /** The variation hash which indicates that a resource is not cachable. */
+    static final long NO_VARIATION = 0;
+
+    /** The maximum capacity of a variation buffer that is kept for reuse. */
+    private static final int VARIATION_BUFFER_MAX_CAPACITY = 4096;
+
+    /** The buffers used to calculate the variations, one for each thread. */
+    private static final ThreadLocal<StringBuffer> VARIATION_BUFFERS = new ThreadLocal<StringBuffer>() {
+
+        /**
+         * @see java.lang.ThreadLocal#initialValue()
+         */
+        @Override
+        protected StringBuffer initialValue() {
+
+            return new StringBuffer(256);
+        }
+    };
+
     /** Cache key variable: Determines if this resource can be cached alwys, never or under certain conditions. -1 = never, 0=check, 1=always. */
     private int m_always;
 
@@ -258,6 +277,40 @@ public class CmsFlexCacheKey {
         return resourcename.concat(online ? CmsFlexCache.CACHE_ONLINESUFFIX : CmsFlexCache.CACHE_OFFLINESUFFIX);
     }
 
+    /**
+     * Calculates the hash of a variation, which is used as key in the
+     * second level of the FlexCache.<p>
+     *
+     * @param variation the variation as returned by {@link #matchRequestKey(CmsFlexRequestKey)}
+     *
+     * @return the hash of the variation, which is never {@link #NO_VARIATION}
+     */
+    static long getVariationHash(CharSequence variation) {
+
+        // 64 bit FNV-1a hash
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, n = variation.length(); i < n; i++) {
+            hash = (hash ^ variation.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash == NO_VARIATION) ? 1 : hash;
+    }
+
+    /**
+     * Checks if the given variation is equal to the variation calculated by the last call
+     * of {@link #matchRequestKeyHash(CmsFlexRequestKey)} in the current thread.<p>
+     *
+     * This is used to verify that a cache entry found by the hash of the variation
+     * really belongs to the variation of the request, without creating the variation String.<p>
+     *
+     * @param variation the variation to check
+     *
+     * @return <code>true</code> if the given variation is equal to the last calculated variation
+     */
+    static boolean isLastVariation(String variation) {
+
+        return variation.contentEquals(VARIATION_BUFFERS.get());
+    }
+
     /**
      * Appends a flex cache key value to the given buffer.<p>
      *
@@ -277,6 +330,24 @@ public class CmsFlexCacheKey {
         }
     }
 
+    /**
+     * Returns the empty variation buffer of the current thread.<p>
+     *
+     * @return the empty variation buffer of the current thread
+     */
+    private static StringBuffer getVariationBuffer() {
+
+        StringBuffer buffer = VARIATION_BUFFERS.get();
+        if (buffer.capacity() > VARIATION_BUFFER_MAX_CAPACITY) {
+            // don't keep the memory of an unusually large variation
+            buffer = new StringBuffer(256);
+            VARIATION_BUFFERS.set(buffer);
+        } else {
+            buffer.setLength(0);
+        }
+        return buffer;
+    }
+
     /**
      * This flag is used to indicate that a parse error had
      * occurred, which can happen if the cache directives String
@@ -308,226 +379,11 @@ public class CmsFlexCacheKey {
      */
     public String matchRequestKey(CmsFlexRequestKey key) {
 
-        StringBuffer str = new StringBuffer(100);
-        if (m_always < 0) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_NEVER_0));
-            }
-            return null;
-        }
-
-        if (LOG.isDebugEnabled()) {
-            LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_PARAMS_0));
-        }
-        if ((m_noparams != null) && (key.getParams() != null)) {
-            if ((m_noparams.size() == 0) && (key.getParams().size() > 0)) {
-                return null;
-            }
-            Iterator<String> i = key.getParams().keySet().iterator();
-            while (i.hasNext()) {
-                if (m_noparams.contains(i.next())) {
-                    return null;
-                }
-            }
-        }
-
-        if (LOG.isDebugEnabled()) {
-            LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_ATTRS_0));
-        }
-        if ((m_noattrs != null) && (key.getAttributes() != null)) {
-            if ((m_noattrs.size() == 0) && (key.getAttributes().size() > 0)) {
-                return null;
-            }
-            Iterator<String> i = key.getAttributes().keySet().iterator();
-            while (i.hasNext()) {
-                if (m_noattrs.contains(i.next())) {
-                    return null;
-                }
-            }
-        }
-
-        if (m_always > 0) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_ALWAYS_0));
-            }
-            str.append(CACHE_00_ALWAYS);
-            return str.toString();
-        }
-
-        if (m_uri != null) {
-            appendKeyValue(str, CACHE_02_URI, key.getUri());
-        }
-
-        if (m_site != null) {
-            appendKeyValue(str, CACHE_17_SITE, key.getSite());
-        }
-
-        if (m_element != null) {
-            appendKeyValue(str, CACHE_14_ELEMENT, key.getElement());
-        }
-
-        if (m_device != null) {
-            appendKeyValue(str, CACHE_20_DEVICE, key.getDevice());
-        }
-
-        if (m_containerElement != null) {
-            appendKeyValue(str, CACHE_22_CONTAINER_ELEMENT, key.getContainerElement());
-        }
-
-        if (m_locale != null) {
-            appendKeyValue(str, CACHE_15_LOCALE, key.getLocale());
-        }
-
-        if (m_encoding != null) {
-            appendKeyValue(str, CACHE_16_ENCODING, key.getEncoding());
-        }
-
-        if (m_ip != null) {
-            appendKeyValue(str, CACHE_13_IP, key.getIp());
-        }
-
-        if (m_user != null) {
-            appendKeyValue(str, CACHE_03_USER, key.getUser());
-        }
-
-        if (m_params != null) {
-            str.append(CACHE_04_PARAMS);
-            str.append("=(");
-            Map<String, String[]> keyParams = key.getParams();
-            if (keyParams != null) {
-                if (m_params.size() > 0) {
-                    // match only params listed in cache directives
-                    Iterator<String> i = m_params.iterator();
-                    while (i.hasNext()) {
-                        Object o = i.next();
-                        if (keyParams.containsKey(o)) {
-                            str.append(o);
-                            str.append("=");
-                            // TODO: handle multiple occurrences of the same parameter value
-                            String[] values = keyParams.get(o);
-                            str.append(values[0]);
-                            if (i.hasNext()) {
-                                str.append(",");
-                            }
-                        }
-                    }
-                } else {
-                    // match all request params
-                    Iterator<Map.Entry<String, String[]>> i = keyParams.entrySet().iterator();
-                    while (i.hasNext()) {
-                        Map.Entry<String, String[]> entry = i.next();
-                        str.append(entry.getKey());
-                        str.append("=");
-                        // TODO: handle multiple occurrences of the same parameter value
-                        String[] values = entry.getValue();
-                        str.append(values[0]);
-                        if (i.hasNext()) {
-                            str.append(",");
-                        }
-                    }
-                }
-            }
-            str.append(");");
-        }
-
-        if (m_attrs != null) {
-            str.append(CACHE_18_ATTRS);
-            str.append("=(");
-            Map<String, Object> keyAttrs = key.getAttributes();
-            if (keyAttrs != null) {
-                if (m_attrs.size() > 0) {
-                    // match only attributes listed in cache directives
-                    Iterator<String> i = m_attrs.iterator();
-                    while (i.hasNext()) {
-                        String s = i.next();
-                        if (keyAttrs.containsKey(s)) {
-                            str.append(s);
-                            str.append("=");
-                            Object value = keyAttrs.get(s);
-                            str.append(value);
-                            if (i.hasNext()) {
-                                str.append(",");
-                            }
-                        }
-                    }
-                } else {
-                    // match all request attributes
-                    Iterator<Map.Entry<String, Object>> i = keyAttrs.entrySet().iterator();
-                    while (i.hasNext()) {
-                        Map.Entry<String, Object> entry = i.next();
-                        str.append(entry.getKey());
-                        str.append("=");
-                        Object value = entry.getValue();
-                        str.append(value);
-                        if (i.hasNext()) {
-                            str.append(",");
-                        }
-                    }
-                }
-            }
-            str.append(");");
-        }
-
-        if (m_session != null) {
-            StringBuffer buf = new StringBuffer(32);
-            boolean found = false;
-            buf.append(CACHE_07_SESSION);
-            buf.append("=(");
-            HttpSession keySession = key.getSession();
-            if (keySession != null) {
-                // match only session attributes listed in cache directives
-                Iterator<String> i = m_session.iterator();
-                while (i.hasNext()) {
-                    String name = i.next();
-                    Object val = keySession.getAttribute(name);
-                    if (val != null) {
-                        found = true;
-                        buf.append(name);
-                        buf.append("=");
-                        buf.append(val);
-                        if (i.hasNext()) {
-                            buf.append(",");
-                        }
-                    }
-                }
-            }
-            if (found) {
-                buf.append(");");
-                str.append(buf);
-            }
-        }
-
-        if (m_schemes != null) {
-            String s = key.getScheme();
-            if ((m_schemes.size() > 0) && (!m_schemes.contains(s))) {
-                return null;
-            }
-            appendKeyValue(str, CACHE_08_SCHEMES, s);
-        }
-
-        if (m_ports != null) {
-            Integer i = key.getPort();
-            if ((m_ports.size() > 0) && (!m_ports.contains(i))) {
-                return null;
-            }
-            str.append(CACHE_09_PORTS);
-            str.append("=(");
-            str.append(i);
-            str.append(");");
-        }
-
-        if (m_timeout > 0) {
-            str.append(CACHE_06_TIMEOUT);
-            str.append("=(");
-            str.append(m_timeout);
-            str.append(");");
-        }
-
-        if (str.length() > 0) {
-            return str.toString();
-        } else {
+        StringBuffer str = getVariationBuffer();
+        if (!appendVariation(key, str)) {
             return null;
         }
+        return str.toString();
     }
 
     /**
@@ -767,6 +623,266 @@ public class CmsFlexCacheKey {
         m_variation = variation;
     }
 
+    /**
+     * Calculates the hash of the variation this key matches for the given request key,
+     * without creating the variation String.<p>
+     *
+     * The result is the same as {@link #getVariationHash(CharSequence)} for the variation
+     * returned by {@link #matchRequestKey(CmsFlexRequestKey)}. The variation is kept in a buffer
+     * of the current thread, so it can be checked with {@link #isLastVariation(String)}.<p>
+     *
+     * @param key the key to match this key with
+     *
+     * @return the hash of the variation, or {@link #NO_VARIATION} if not cachable
+     */
+    long matchRequestKeyHash(CmsFlexRequestKey key) {
+
+        StringBuffer str = getVariationBuffer();
+        if (!appendVariation(key, str)) {
+            return NO_VARIATION;
+        }
+        return getVariationHash(str);
+    }
+
+    /**
+     * Appends the variation this key matches for the given request key to a buffer.<p>
+     *
+     * @param key the key to match this key with
+     * @param str the buffer to append to
+     *
+     * @return <code>true</code> if cachable, <code>false</code> if not
+     */
+    private boolean appendVariation(CmsFlexRequestKey key, StringBuffer str) {
+
+        if (m_always < 0) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_NEVER_0));
+            }
+            return false;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_PARAMS_0));
+        }
+        // the parameter and attribute maps are read only once, since every call creates a new map
+        Map<String, String[]> keyParams = ((m_noparams != null) || (m_params != null)) ? key.getParams() : null;
+        if ((m_noparams != null) && (keyParams != null)) {
+            if ((m_noparams.size() == 0) && (keyParams.size() > 0)) {
+                return false;
+            }
+            Iterator<String> i = keyParams.keySet().iterator();
+            while (i.hasNext()) {
+                if (m_noparams.contains(i.next())) {
+                    return false;
+                }
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_ATTRS_0));
+        }
+        Map<String, Object> keyAttrs = ((m_noattrs != null) || (m_attrs != null)) ? key.getAttributes() : null;
+        if ((m_noattrs != null) && (keyAttrs != null)) {
+            if ((m_noattrs.size() == 0) && (keyAttrs.size() > 0)) {
+                return false;
+            }
+            Iterator<String> i = keyAttrs.keySet().iterator();
+            while (i.hasNext()) {
+                if (m_noattrs.contains(i.next())) {
+                    return false;
+                }
+            }
+        }
+
+        if (m_always > 0) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_ALWAYS_0));
+            }
+            str.append(CACHE_00_ALWAYS);
+            return true;
+        }
+
+        if (m_uri != null) {
+            appendKeyValue(str, CACHE_02_URI, key.getUri());
+        }
+
+        if (m_site != null) {
+            appendKeyValue(str, CACHE_17_SITE, key.getSite());
+        }
+
+        if (m_element != null) {
+            appendKeyValue(str, CACHE_14_ELEMENT, key.getElement());
+        }
+
+        if (m_device != null) {
+            appendKeyValue(str, CACHE_20_DEVICE, key.getDevice());
+        }
+
+        if (m_containerElement != null) {
+            appendKeyValue(str, CACHE_22_CONTAINER_ELEMENT, key.getContainerElement());
+        }
+
+        if (m_locale != null) {
+            appendKeyValue(str, CACHE_15_LOCALE, key.getLocale());
+        }
+
+        if (m_encoding != null) {
+            appendKeyValue(str, CACHE_16_ENCODING, key.getEncoding());
+        }
+
+        if (m_ip != null) {
+            appendKeyValue(str, CACHE_13_IP, key.getIp());
+        }
+
+        if (m_user != null) {
+            appendKeyValue(str, CACHE_03_USER, key.getUser());
+        }
+
+        if (m_params != null) {
+            str.append(CACHE_04_PARAMS);
+            str.append("=(");
+            if (keyParams != null) {
+                if (m_params.size() > 0) {
+                    // match only params listed in cache directives
+                    Iterator<String> i = m_params.iterator();
+                    while (i.hasNext()) {
+                        Object o = i.next();
+                        if (keyParams.containsKey(o)) {
+                            str.append(o);
+                            str.append("=");
+                            // TODO: handle multiple occurrences of the same parameter value
+                            String[] values = keyParams.get(o);
+                            str.append(values[0]);
+                            if (i.hasNext()) {
+                                str.append(",");
+                            }
+                        }
+                    }
+                } else {
+                    // match all request params
+                    Iterator<Map.Entry<String, String[]>> i = keyParams.entrySet().iterator();
+                    while (i.hasNext()) {
+                        Map.Entry<String, String[]> entry = i.next();
+                        str.append(entry.getKey());
+                        str.append("=");
+                        // TODO: handle multiple occurrences of the same parameter value
+                        String[] values = entry.getValue();
+                        str.append(values[0]);
+                        if (i.hasNext()) {
+                            str.append(",");
+                        }
+                    }
+                }
+            }
+            str.append(");");
+        }
+
+        if (m_attrs != null) {
+            str.append(CACHE_18_ATTRS);
+            str.append("=(");
+            if (keyAttrs != null) {
+                if (m_attrs.size() > 0) {
+                    // match only attributes listed in cache directives
+                    Iterator<String> i = m_attrs.iterator();
+                    while (i.hasNext()) {
+                        String s = i.next();
+                        if (keyAttrs.containsKey(s)) {
+                            str.append(s);
+                            str.append("=");
+                            Object value = keyAttrs.get(s);
+                            str.append(value);
+                            if (i.hasNext()) {
+                                str.append(",");
+                            }
+                        }
+                    }
+                } else {
+                    // match all request attributes
+                    Iterator<Map.Entry<String, Object>> i = keyAttrs.entrySet().iterator();
+                    while (i.hasNext()) {
+                        Map.Entry<String, Object> entry = i.next();
+                        str.append(entry.getKey());
+                        str.append("=");
+                        Object value = entry.getValue();
+                        str.append(value);
+                        if (i.hasNext()) {
+                            str.append(",");
+                        }
+                    }
+                }
+            }
+            str.append(");");
+        }
+
+        if (m_session != null) {
+            HttpSession keySession = key.getSession();
+            if ((keySession != null) && hasSessionAttribute(keySession)) {
+                str.append(CACHE_07_SESSION);
+                str.append("=(");
+                // match only session attributes listed in cache directives
+                Iterator<String> i = m_session.iterator();
+                while (i.hasNext()) {
+                    String name = i.next();
+                    Object val = keySession.getAttribute(name);
+                    if (val != null) {
+                        str.append(name);
+                        str.append("=");
+                        str.append(val);
+                        if (i.hasNext()) {
+                            str.append(",");
+                        }
+                    }
+                }
+                str.append(");");
+            }
+        }
+
+        if (m_schemes != null) {
+            String s = key.getScheme();
+            if ((m_schemes.size() > 0) && (!m_schemes.contains(s))) {
+                return false;
+            }
+            appendKeyValue(str, CACHE_08_SCHEMES, s);
+        }
+
+        if (m_ports != null) {
+            Integer i = key.getPort();
+            if ((m_ports.size() > 0) && (!m_ports.contains(i))) {
+                return false;
+            }
+            str.append(CACHE_09_PORTS);
+            str.append("=(");
+            str.append(i);
+            str.append(");");
+        }
+
+        if (m_timeout > 0) {
+            str.append(CACHE_06_TIMEOUT);
+            str.append("=(");
+            str.append(m_timeout);
+            str.append(");");
+        }
+
+        return str.length() > 0;
+    }
+
+    /**
+     * Checks if at least one of the session attributes listed in the cache directives is set.<p>
+     *
+     * @param session the session to check
+     *
+     * @return <code>true</code> if at least one of the session attributes is set
+     */
+    private boolean hasSessionAttribute(HttpSession session) {
+
+        for (String name : m_session) {
+            if (session.getAttribute(name) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Parse a String in the Flex cache language and construct
      * the key data structure from this.<p>
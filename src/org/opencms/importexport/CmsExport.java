@@ -67,8 +67,16 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.logging.Log;
@@ -90,6 +98,30 @@ import org.xml.sax.SAXException;
  */
 public class CmsExport {
 
+    /**
+     * The content and the properties of a file read ahead for the export.<p>
+     */
+    private static class CmsExportContent {
+
+        /** The file with its content. */
+        CmsFile m_file;
+
+        /** The properties of the file. */
+        List<CmsProperty> m_properties;
+
+        /**
+         * Creates a new export content.<p>
+         *
+         * @param file the file with its content
+         * @param properties the properties of the file
+         */
+        CmsExportContent(CmsFile file, List<CmsProperty> properties) {
+
+            m_file = file;
+            m_properties = properties;
+        }
+    }
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsExport.class);
 
@@ -105,6 +137,15 @@ public class CmsExport {
     /** The export writer. */
     private CmsExportHelper m_exportWriter;
 
+    /** The cms contexts of the threads reading the file contents in the background. */
+    private ThreadLocal<CmsObject> m_fetchCms;
+
+    /** The executor reading the file contents in the background, <code>null</code> if files are read in sequence. */
+    private ExecutorService m_fetchExecutor;
+
+    /** The maximum number of files read ahead of the file currently written. */
+    private int m_fetchWindow;
+
     /** The export parameters. */
     private CmsExportParameters m_parameters;
 
@@ -186,7 +227,12 @@ public class CmsExport {
 
             // export resource data only if selected
             if (m_parameters.isExportResourceData()) {
-                exportAllResources(exportNode, m_parameters.getResources());
+                startFetchThreads();
+                try {
+                    exportAllResources(exportNode, m_parameters.getResources());
+                } finally {
+                    stopFetchThreads();
+                }
             }
 
             // export project data only if selected
@@ -243,7 +289,8 @@ public class CmsExport {
             // get all files in folder
             List<CmsResource> subFiles = getCms().getFilesInFolder(folderName, CmsResourceFilter.IGNORE_EXPIRATION);
 
-            // walk through all files and export them
+            // walk through all files and collect the files to export
+            List<CmsResource> exportFiles = new ArrayList<CmsResource>(subFiles.size());
             for (int i = 0; i < subFiles.size(); i++) {
                 CmsResource file = subFiles.get(i);
                 CmsResourceState state = file.getState();
@@ -261,7 +308,7 @@ public class CmsExport {
                         String export = getCms().getSitePath(file);
                         if (checkExportResource(export)) {
                             if (isInExportableProject(file)) {
-                                exportFile(getCms().readFile(export, CmsResourceFilter.IGNORE_EXPIRATION));
+                                exportFiles.add(file);
                             }
                         }
                     }
@@ -269,8 +316,11 @@ public class CmsExport {
                 // release file header memory
                 subFiles.set(i, null);
             }
-            // all files are exported, release memory
             subFiles = null;
+            // export the collected files
+            exportFiles(exportFiles);
+            // all files are exported, release memory
+            exportFiles = null;
 
             // walk through all subfolders and export them
             for (int i = 0; i < subFolders.size(); i++) {
@@ -471,6 +521,23 @@ public class CmsExport {
      * @throws SAXException if something goes wrong processing the manifest.xml
      */
     protected void appendResourceToManifest(CmsResource resource, boolean source)
+    throws CmsImportExportException, SAXException {
+
+        appendResourceToManifest(resource, source, null);
+    }
+
+    /**
+     * Writes the data for a resource (like access-rights) to the <code>manifest.xml</code> file,
+     * using the given properties of the resource.<p>
+     *
+     * @param resource the resource to get the data from
+     * @param source flag to show if the source information in the xml file must be written
+     * @param properties the properties of the resource, or <code>null</code> to read them
+     *
+     * @throws CmsImportExportException if something goes wrong
+     * @throws SAXException if something goes wrong processing the manifest.xml
+     */
+    protected void appendResourceToManifest(CmsResource resource, boolean source, List<CmsProperty> properties)
     throws CmsImportExportException, SAXException {
 
         try {
@@ -569,7 +636,9 @@ public class CmsExport {
 
             // write the properties to the manifest
             Element propertiesElement = fileElement.addElement(CmsImportVersion7.N_PROPERTIES);
-            List<CmsProperty> properties = getCms().readPropertyObjects(getCms().getSitePath(resource), false);
+            if (properties == null) {
+                properties = getCms().readPropertyObjects(getCms().getSitePath(resource), false);
+            }
             // sort the properties for a well defined output order
             Collections.sort(properties);
             for (int i = 0, n = properties.size(); i < n; i++) {
@@ -827,6 +896,22 @@ public class CmsExport {
      */
     protected void exportFile(CmsFile file) throws CmsImportExportException, SAXException, IOException {
 
+        exportFile(file, null);
+    }
+
+    /**
+     * Exports one single file with all its data and content, using the given properties of the file.<p>
+     *
+     * @param file the file to be exported
+     * @param properties the properties of the file, or <code>null</code> to read them
+     *
+     * @throws CmsImportExportException if something goes wrong
+     * @throws SAXException if something goes wrong processing the manifest.xml
+     * @throws IOException if the ZIP entry for the file could be appended to the ZIP archive
+     */
+    protected void exportFile(CmsFile file, List<CmsProperty> properties)
+    throws CmsImportExportException, SAXException, IOException {
+
         String source = trimResourceName(getCms().getSitePath(file));
         I_CmsReport report = getReport();
         m_exportCount++;
@@ -848,10 +933,10 @@ public class CmsExport {
             // add the resource id to the storage to mark that this resource was already exported
             m_exportedResources.add(file.getResourceId());
             // create the manifest-entries
-            appendResourceToManifest(file, true);
+            appendResourceToManifest(file, true, properties);
         } else {
             // only create the manifest-entries
-            appendResourceToManifest(file, false);
+            appendResourceToManifest(file, false, properties);
         }
 
         if (LOG.isInfoEnabled()) {
@@ -863,6 +948,59 @@ public class CmsExport {
             I_CmsReport.FORMAT_OK);
     }
 
+    /**
+     * Exports the given files in the given order.<p>
+     *
+     * If background threads are configured in the export parameters, the contents and properties
+     * of the following files are read by these threads while a file is written, but never more than a
+     * limited number of files ahead. The files are still written one after another in the given order,
+     * so the export is the same as if the files were read in sequence.<p>
+     *
+     * @param files the files to export
+     *
+     * @throws CmsException if a file could not be read
+     * @throws SAXException if something goes wrong processing the manifest.xml
+     * @throws IOException if the ZIP entry for a file could be appended to the ZIP archive
+     */
+    protected void exportFiles(List<CmsResource> files) throws CmsException, SAXException, IOException {
+
+        if ((m_fetchExecutor == null) || (files.size() < 2)) {
+            for (CmsResource file : files) {
+                CmsExportContent content = readContent(getCms(), getCms().getSitePath(file));
+                exportFile(content.m_file, content.m_properties);
+            }
+            return;
+        }
+        LinkedList<CmsResource> pendingFiles = new LinkedList<CmsResource>();
+        LinkedList<Future<CmsExportContent>> pending = new LinkedList<Future<CmsExportContent>>();
+        Iterator<CmsResource> it = files.iterator();
+        try {
+            while (it.hasNext() || !pending.isEmpty()) {
+                // keep the window of files read ahead filled
+                while (it.hasNext() && (pending.size() < m_fetchWindow)) {
+                    CmsResource file = it.next();
+                    final String sitePath = getCms().getSitePath(file);
+                    pending.add(m_fetchExecutor.submit(new Callable<CmsExportContent>() {
+
+                        public CmsExportContent call() throws CmsException {
+
+                            return readContent(getFetchCms(), sitePath);
+                        }
+                    }));
+                    pendingFiles.add(file);
+                }
+                // write the next file in order
+                CmsExportContent content = waitForContent(pending.removeFirst(), pendingFiles.removeFirst());
+                exportFile(content.m_file, content.m_properties);
+            }
+        } finally {
+            // in case of an error, do not read the remaining files
+            for (Future<CmsExportContent> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
     /**
      * Exports one single group with all it's data.<p>
      *
@@ -1461,4 +1599,110 @@ public class CmsExport {
         }
         return resourceName;
     }
+
+    /**
+     * Returns the cms context of the current background thread.<p>
+     *
+     * @return the cms context of the current background thread
+     *
+     * @throws CmsException if the cms context could not be initialized
+     */
+    private CmsObject getFetchCms() throws CmsException {
+
+        CmsObject cms = m_fetchCms.get();
+        if (cms == null) {
+            cms = OpenCms.initCmsObject(getCms());
+            m_fetchCms.set(cms);
+        }
+        return cms;
+    }
+
+    /**
+     * Reads the content and the properties of a file.<p>
+     *
+     * @param cms the cms context to use
+     * @param sitePath the site path of the file
+     *
+     * @return the content and the properties of the file
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private CmsExportContent readContent(CmsObject cms, String sitePath) throws CmsException {
+
+        CmsFile file = cms.readFile(sitePath, CmsResourceFilter.IGNORE_EXPIRATION);
+        List<CmsProperty> properties = cms.readPropertyObjects(sitePath, false);
+        return new CmsExportContent(file, properties);
+    }
+
+    /**
+     * Starts the threads reading the file contents in the background, if configured in the export parameters.<p>
+     */
+    private void startFetchThreads() {
+
+        int threads = m_parameters.getFetchThreads();
+        if (threads < 1) {
+            return;
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        m_fetchExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "OpenCms-Export-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        m_fetchCms = new ThreadLocal<CmsObject>();
+        // every thread may read one file ahead while the next one waits in the queue
+        m_fetchWindow = 2 * threads;
+    }
+
+    /**
+     * Stops the threads reading the file contents in the background.<p>
+     */
+    private void stopFetchThreads() {
+
+        if (m_fetchExecutor != null) {
+            m_fetchExecutor.shutdownNow();
+            m_fetchExecutor = null;
+            m_fetchCms = null;
+        }
+    }
+
+    /**
+     * Waits until the content of a file has been read in the background.<p>
+     *
+     * @param future the future of the background read
+     * @param file the file
+     *
+     * @return the content and the properties of the file
+     *
+     * @throws CmsException if the file could not be read
+     */
+    private CmsExportContent waitForContent(Future<CmsExportContent> future, CmsResource file) throws CmsException {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmsImportExportException(
+                Messages.get().container(Messages.ERR_IMPORTEXPORT_ERROR_READING_FILE_1, file.getRootPath()),
+                e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CmsException) {
+                throw (CmsException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new CmsImportExportException(
+                Messages.get().container(Messages.ERR_IMPORTEXPORT_ERROR_READING_FILE_1, file.getRootPath()),
+                cause);
+        }
+    }
 }
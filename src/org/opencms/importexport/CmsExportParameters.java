@@ -42,6 +42,9 @@ import org.dom4j.Element;
  */
 public class CmsExportParameters {
 
+    /** The default number of threads reading the file contents and properties in the background. */
+    public static final int DEFAULT_FETCH_THREADS = 4;
+
     /** Only resources modified after this time stamp will be exported. */
     private long m_contentAge;
 
@@ -57,6 +60,9 @@ public class CmsExportParameters {
     /** If the resource data should be exported. */
     private boolean m_exportResourceData = true;
 
+    /** The number of threads reading the file contents and properties in the background. */
+    private int m_fetchThreads = DEFAULT_FETCH_THREADS;
+
     /** If the system folder should be included in the export.*/
     private boolean m_includeSystemFolder = true;
 
@@ -151,6 +157,19 @@ public class CmsExportParameters {
         return m_moduleInfo;
     }
 
+    /**
+     * Returns the number of threads reading the file contents and properties in the background.<p>
+     *
+     * The files are still written to the export one after another in a well defined order,
+     * the threads only read ahead the contents of the next files.<p>
+     *
+     * @return the number of threads reading the file contents, 0 if all files are read by the export thread
+     */
+    public int getFetchThreads() {
+
+        return m_fetchThreads;
+    }
+
     /**
      * Returns the file path, should be a zip file.<p>
      *
@@ -324,6 +343,16 @@ public class CmsExportParameters {
         m_exportResourceData = exportResourceData;
     }
 
+    /**
+     * Sets the number of threads reading the file contents and properties in the background.<p>
+     *
+     * @param fetchThreads the number of threads, 0 to read all files in the export thread
+     */
+    public void setFetchThreads(int fetchThreads) {
+
+        m_fetchThreads = Math.max(0, fetchThreads);
+    }
+
     /**
      * Sets if to include the /system/ Folder.<p>
      *
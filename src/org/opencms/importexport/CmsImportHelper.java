@@ -280,6 +280,23 @@ public class CmsImportHelper {
         return m_zipFile;
     }
 
+    /**
+     * Checks if the file exists in the folder or zip file, without reading its content.<p>
+     *
+     * @param filename the name of the file to check, relative to the folder or zip file
+     *
+     * @return <code>true</code> if the file exists
+     */
+    public boolean hasFile(String filename) {
+
+        if (getZipFile() != null) {
+            // path to file might be relative, too
+            return (getZipFile().getEntry(filename) != null)
+                || (filename.startsWith("/") && (getZipFile().getEntry(filename.substring(1)) != null));
+        }
+        return (getFolder() != null) && new File(getFolder(), filename).isFile();
+    }
+
     /**
      * Opens the import file.<p>
      *
@@ -40,16 +40,23 @@ import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.CmsUser;
 import org.opencms.file.CmsVfsResourceNotFoundException;
+import org.opencms.file.types.CmsResourceTypeJsp;
 import org.opencms.file.types.CmsResourceTypePlain;
 import org.opencms.file.types.CmsResourceTypeXmlContainerPage;
+import org.opencms.file.types.CmsResourceTypeXmlContent;
+import org.opencms.file.types.CmsResourceTypeXmlPage;
 import org.opencms.file.types.I_CmsResourceType;
+import org.opencms.i18n.CmsEncoder;
+import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.jsp.util.CmsJspLinkMacroResolver;
 import org.opencms.loader.CmsLoaderException;
 import org.opencms.lock.CmsLock;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalStateException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.relations.CmsLink;
 import org.opencms.relations.CmsRelation;
 import org.opencms.relations.CmsRelationType;
 import org.opencms.relations.I_CmsLinkParseable;
@@ -62,16 +69,25 @@ import org.opencms.security.I_CmsPrincipal;
 import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsDataTypeUtil;
 import org.opencms.util.CmsDateUtil;
+import org.opencms.util.CmsHtmlConverter;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 import org.opencms.xml.CmsXmlEntityResolver;
 import org.opencms.xml.CmsXmlErrorHandler;
+import org.opencms.xml.containerpage.CmsXmlContainerPage;
+import org.opencms.xml.containerpage.CmsXmlContainerPageFactory;
+import org.opencms.xml.content.CmsXmlContent;
+import org.opencms.xml.content.CmsXmlContentFactory;
+import org.opencms.xml.page.CmsXmlPage;
+import org.opencms.xml.page.CmsXmlPageFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -348,6 +364,9 @@ public class CmsImportVersion7 implements I_CmsImport {
     /** The flag to import ACEs. */
     private boolean m_importACEs;
 
+    /** The structure ids of the resources imported so far, used to check the link targets without reading them. */
+    private Set<CmsUUID> m_importedIds;
+
     /** The membership structure. */
     private Map<String, Map<String, Map<String, String>>> m_membership;
 
@@ -369,7 +388,7 @@ public class CmsImportVersion7 implements I_CmsImport {
     /** The import parameters to use. */
     private CmsImportParameters m_parameters;
 
-    /** The list of resource to be parsed, this is a global list, which will be handled at the end of the import. */
+    /** The list of resources with links to resources that were not available when they were imported, this is a global list, which will be handled at the end of the import. */
     private List<CmsResource> m_parseables;
 
     /** The project description. */
@@ -531,10 +550,10 @@ public class CmsImportVersion7 implements I_CmsImport {
     public void addContentFile(String source, String resourceId) {
 
         if ((source != null) && (resourceId != null)) {
-            try {
-                m_helper.getFileBytes(source);
+            // only check the entry, the content is read once when the resource is imported
+            if (m_helper.hasFile(source)) {
                 m_contentFiles.add(new CmsUUID(resourceId));
-            } catch (CmsImportExportException e) {
+            } else {
                 LOG.info("File not found in import: " + source);
             }
         }
@@ -1860,9 +1879,18 @@ public class CmsImportVersion7 implements I_CmsImport {
 
                     if (OpenCms.getResourceManager().getResourceType(
                         m_resource.getTypeId()) instanceof I_CmsLinkParseable) {
-                        // store for later use
-                        m_parseables.add(m_resource);
+                        // process the content now if the link targets are available, otherwise store for later use
+                        boolean relationsUpdated = false;
+                        if (content != null) {
+                            CmsFile file = new CmsFile(m_resource);
+                            file.setContents(content);
+                            relationsUpdated = updateContentRelations(getCms(), file);
+                        }
+                        if (!relationsUpdated) {
+                            m_parseables.add(m_resource);
+                        }
                     }
+                    m_importedIds.add(m_resource.getStructureId());
                     if (LOG.isInfoEnabled()) {
                         LOG.info(
                             Messages.get().getBundle().key(
@@ -2183,6 +2211,7 @@ public class CmsImportVersion7 implements I_CmsImport {
         m_fileCounter = 1;
         m_totalFiles = 0;
         m_parseables = new ArrayList<CmsResource>();
+        m_importedIds = new HashSet<CmsUUID>();
 
         m_parameters = parameters;
 
@@ -2230,17 +2259,21 @@ public class CmsImportVersion7 implements I_CmsImport {
     }
 
     /**
-     * Rewrites all parseable files, to assure link check.<p>
+     * Rewrites all parseable files whose relations could not be created when they were imported, to assure link check.<p>
      *
      * This is a global process, that is executed only once at the
      * end of the import to be sure that all link targets are
      * available.<p>
      *
+     * If the links in the content of a file need no correction and the content is not changed when it is processed,
+     * only the relations of the file are updated. Otherwise the file is written again.<p>
+     *
      * @see #addXmlDigesterRules(Digester)
      */
     public void rewriteParseables() {
 
         if (m_parseables.isEmpty()) {
+            m_importedIds = null;
             return;
         }
 
@@ -2251,6 +2284,7 @@ public class CmsImportVersion7 implements I_CmsImport {
         parseLinks(cms, report);
         report.println(Messages.get().container(Messages.RPT_END_PARSE_LINKS_0), I_CmsReport.FORMAT_HEADLINE);
         m_parseables = null;
+        m_importedIds = null;
     }
 
     /**
@@ -3378,8 +3412,10 @@ public class CmsImportVersion7 implements I_CmsImport {
                 } else if (!lock.isDirectlyOwnedInProjectBy(cms)) {
                     cms.changeLock(resName);
                 }
-                // rewrite the file
-                cms.writeFile(file);
+                if (!updateContentRelations(cms, file)) {
+                    // rewrite the file
+                    cms.writeFile(file);
+                }
 
                 report.println(
                     org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
@@ -3401,4 +3437,108 @@ public class CmsImportVersion7 implements I_CmsImport {
         }
         cms.getRequestContext().removeAttribute(CmsLogEntry.ATTR_LOG_ENTRY);
     }
+
+    /**
+     * Applies the processing done by the resource type when a file is written to the content of the given file,
+     * without writing the content.<p>
+     *
+     * For XML contents and container pages the content handler corrects the structure, resolves the mappings,
+     * e.g. the URL name, and writes the categories. The structure of XML pages is corrected and the link macros
+     * of JSPs are resolved.<p>
+     *
+     * @param cms the CMS context to use
+     * @param type the resource type of the file
+     * @param file the file with the imported content, the content may be changed by this method
+     *
+     * @return <code>false</code> if the type of the file is not supported
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private boolean prepareContent(CmsObject cms, I_CmsResourceType type, CmsFile file) throws CmsException {
+
+        if (type instanceof CmsResourceTypeXmlContainerPage) {
+            CmsXmlContainerPage xmlContent = CmsXmlContainerPageFactory.unmarshal(cms, file, false, true);
+            xmlContent.getHandler().prepareForWrite(cms, xmlContent, file);
+        } else if (type instanceof CmsResourceTypeXmlContent) {
+            CmsXmlContent xmlContent = CmsXmlContentFactory.unmarshal(cms, file, false);
+            xmlContent.getHandler().prepareForWrite(cms, xmlContent, file);
+        } else if (type instanceof CmsResourceTypeXmlPage) {
+            if (file.getLength() > 0) {
+                CmsXmlPage xmlPage = CmsXmlPageFactory.unmarshal(cms, file, false);
+                xmlPage.validateXmlStructure(new CmsXmlEntityResolver(cms));
+                xmlPage.setConversion(CmsHtmlConverter.getConversionSettings(cms, file));
+                xmlPage.correctXmlStructure(cms);
+            }
+        } else if (type instanceof CmsResourceTypeJsp) {
+            String encoding = CmsLocaleManager.getResourceEncoding(cms, file);
+            String content = CmsEncoder.createString(file.getContents(), encoding);
+            CmsJspLinkMacroResolver macroResolver = new CmsJspLinkMacroResolver(cms, file.getRootPath(), false);
+            String resolved = macroResolver.resolveMacros(content);
+            if (!resolved.equals(content)) {
+                try {
+                    file.setContents(resolved.getBytes(encoding));
+                } catch (UnsupportedEncodingException e) {
+                    // this should usually never happen since the encoding is already used before
+                    file.setContents(resolved.getBytes());
+                }
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the relations defined in the content of a parseable file, if the file does not have to be written again.<p>
+     *
+     * This is the case if all link targets are available, the links found in the content did not have to be
+     * corrected, i.e. the path and the structure id of every link target occur in the content as they are,
+     * and the content is not changed by the processing done when the file is written. This processing,
+     * e.g. the mappings and categories of an XML content, is applied in any case once all link targets
+     * are available.<p>
+     *
+     * @param cms the CMS context to use
+     * @param file the file with the imported content
+     *
+     * @return <code>true</code> if the relations have been created, <code>false</code> if the file has to be written
+     */
+    private boolean updateContentRelations(CmsObject cms, CmsFile file) {
+
+        try {
+            I_CmsResourceType type = OpenCms.getResourceManager().getResourceType(file);
+            List<CmsLink> links = ((I_CmsLinkParseable)type).parseLinks(cms, file);
+            byte[] imported = file.getContents();
+            String content = null;
+            for (CmsLink link : links) {
+                if (!link.isInternal() || CmsStringUtil.isEmptyOrWhitespaceOnly(link.getTarget())) {
+                    continue;
+                }
+                CmsUUID targetId = link.getStructureId();
+                if ((targetId == null)
+                    || !(m_importedIds.contains(targetId) || cms.existsResource(targetId, CmsResourceFilter.ALL))) {
+                    // the target is not available (yet)
+                    return false;
+                }
+                if (content == null) {
+                    content = CmsEncoder.createString(imported, CmsLocaleManager.getResourceEncoding(cms, file));
+                }
+                if (!content.contains(link.getTarget())
+                    || ((link.getElement() != null) && !content.contains(targetId.toString()))) {
+                    // the link has been corrected while parsing the content
+                    return false;
+                }
+            }
+            if (!prepareContent(cms, type, file) || !Arrays.equals(imported, file.getContents())) {
+                // the content has been changed while processing it
+                return false;
+            }
+            cms.importContentRelations(file, links);
+            return true;
+        } catch (CmsException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+            return false;
+        }
+    }
 }
@@ -27,28 +27,95 @@
 
 package org.opencms.jlan;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
 /**
- * Buffer class which holds file contents for JLAN file access in memory before they are written to the VFS.<p>
+ * Buffer class which holds file contents for JLAN file access before they are written to the VFS.<p>
  *
- * This is implemented as a CmsByteBuffer instance together with a 'position' index which marks the next write position
+ * This is implemented as a CmsByteBuffer instance together with a 'position' index which marks the next write position.
+ * Once the contents grow beyond a size limit, they are moved to a temporary file, so the memory used by a file
+ * opened over CIFS does not depend on the file size. Call {@link #close()} to delete the temporary file.<p>
  */
 public class CmsFileBuffer {
 
-    /** The buffer used to store the file contents. */
+    /** The default size up to which the contents are kept in memory. */
+    public static final int DEFAULT_MEMORY_LIMIT = 1024 * 1024;
+
+    /** The prefix of the temporary files. */
+    private static final String TEMP_FILE_PREFIX = "opencms-jlan";
+
+    /** The buffer used to store the file contents, or null if the contents have been moved to a temporary file. */
     CmsByteBuffer m_buffer = new CmsByteBuffer(8192);
 
+    /** The temporary file storing the contents, or null if the contents are stored in memory. */
+    RandomAccessFile m_file;
+
+    /** The size up to which the contents are kept in memory. */
+    int m_memoryLimit;
+
     /** The current write position. */
     long m_position;
 
+    /** The path of the temporary file. */
+    File m_tempFile;
+
+    /**
+     * Creates a new buffer which keeps up to {@link #DEFAULT_MEMORY_LIMIT} bytes in memory.<p>
+     */
+    public CmsFileBuffer() {
+
+        this(DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * Creates a new buffer.<p>
+     *
+     * @param memoryLimit the size up to which the contents are kept in memory
+     */
+    public CmsFileBuffer(int memoryLimit) {
+
+        m_memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Discards the contents of this buffer and deletes the temporary file, if one has been created.<p>
+     */
+    public void close() {
+
+        if (m_file != null) {
+            try {
+                m_file.close();
+            } catch (IOException e) {
+                // ignore, the file is deleted anyway
+            }
+            m_file = null;
+        }
+        if (m_tempFile != null) {
+            m_tempFile.delete();
+            m_tempFile = null;
+        }
+        m_buffer = new CmsByteBuffer(8192);
+        m_position = 0;
+    }
+
     /**
      * Gets the contents of this buffer as a byte array.<p>
      *
      * @return the file content
+     *
+     * @throws IOException if reading the temporary file fails
      */
-    public byte[] getContents() {
+    public byte[] getContents() throws IOException {
 
-        byte[] contents = new byte[m_buffer.size()];
-        m_buffer.readBytes(contents, 0, 0, m_buffer.size());
+        byte[] contents = new byte[(int)getLength()];
+        if (m_file == null) {
+            m_buffer.readBytes(contents, 0, 0, m_buffer.size());
+        } else {
+            m_file.seek(0);
+            m_file.readFully(contents);
+        }
         return contents;
     }
 
@@ -57,10 +124,11 @@ public class CmsFileBuffer {
      *
      * @return the content length
      *
+     * @throws IOException if reading the length of the temporary file fails
      */
-    public long getLength() {
+    public long getLength() throws IOException {
 
-        return m_buffer.size();
+        return (m_file == null) ? m_buffer.size() : m_file.length();
     }
 
     /**
@@ -77,11 +145,13 @@ public class CmsFileBuffer {
      * Initializes the file content data.<p>
      *
      * @param data the file content data
+     *
+     * @throws IOException if writing the temporary file fails
      */
-    public void init(byte[] data) {
+    public void init(byte[] data) throws IOException {
 
-        m_position = 0;
-        m_buffer.writeBytes(data, 0, 0, data.length);
+        close();
+        writeBytes(data, 0, 0, data.length);
     }
 
     /**
@@ -94,17 +164,25 @@ public class CmsFileBuffer {
      * @param fileOffset the start index for this instance
      *
      * @return the number of bytes read, or -1 if we are at the end of the file
+     *
+     * @throws IOException if reading the temporary file fails
      */
-    public int read(byte[] dest, int length, int bufferOffset, int fileOffset) {
+    public int read(byte[] dest, int length, int bufferOffset, long fileOffset) throws IOException {
 
-        if (fileOffset >= m_buffer.size()) {
+        long size = getLength();
+        if (fileOffset >= size) {
             return -1;
         }
-        int readEnd = fileOffset + length;
-        if (readEnd > m_buffer.size()) {
-            length = length - (readEnd - m_buffer.size());
+        long readEnd = fileOffset + length;
+        if (readEnd > size) {
+            length = (int)(size - fileOffset);
+        }
+        if (m_file == null) {
+            m_buffer.readBytes(dest, (int)fileOffset, bufferOffset, length);
+        } else {
+            m_file.seek(fileOffset);
+            m_file.readFully(dest, bufferOffset, length);
         }
-        m_buffer.readBytes(dest, fileOffset, bufferOffset, length);
         return length;
     }
 
@@ -122,10 +200,19 @@ public class CmsFileBuffer {
      * Changes the size of this buffer.<p>
      *
      * @param size the new size
+     *
+     * @throws IOException if writing the temporary file fails
      */
-    public void truncate(int size) {
+    public void truncate(long size) throws IOException {
 
-        m_buffer.truncate(size);
+        if ((m_file == null) && (size > m_memoryLimit)) {
+            spill();
+        }
+        if (m_file == null) {
+            m_buffer.truncate((int)size);
+        } else {
+            m_file.setLength(size);
+        }
         m_position = Math.min(size, m_position);
     }
 
@@ -133,9 +220,79 @@ public class CmsFileBuffer {
      * Writes the data to the internal buffer.<p>
      *
      * @param data the data to write
+     *
+     * @throws IOException if writing the temporary file fails
+     */
+    public void write(byte[] data) throws IOException {
+
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes a part of the given data to the internal buffer.<p>
+     *
+     * @param data the array containing the data to write
+     * @param offset the start index of the data to write
+     * @param length the number of bytes to write
+     *
+     * @throws IOException if writing the temporary file fails
+     */
+    public void write(byte[] data, int offset, int length) throws IOException {
+
+        writeBytes(data, offset, m_position, length);
+    }
+
+    /**
+     * Checks if the contents have been moved to a temporary file.<p>
+     *
+     * @return true if the contents are stored in a temporary file
      */
-    public void write(byte[] data) {
+    boolean isSpilled() {
 
-        m_buffer.writeBytes(data, 0, (int)m_position, data.length);
+        return m_file != null;
+    }
+
+    /**
+     * Moves the contents from memory to a temporary file.<p>
+     *
+     * @throws IOException if creating the temporary file fails
+     */
+    private void spill() throws IOException {
+
+        m_tempFile = File.createTempFile(TEMP_FILE_PREFIX, null);
+        try {
+            m_file = new RandomAccessFile(m_tempFile, "rw");
+            byte[] contents = new byte[m_buffer.size()];
+            m_buffer.readBytes(contents, 0, 0, contents.length);
+            m_file.write(contents);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        m_buffer = null;
+    }
+
+    /**
+     * Writes bytes to the memory buffer or the temporary file, moving the contents to a temporary file if
+     * they grow beyond the memory limit.<p>
+     *
+     * @param src the source from which to write the bytes
+     * @param srcStart the start index in the source array
+     * @param destStart the start index in this buffer
+     * @param len the number of bytes to write
+     *
+     * @throws IOException if writing the temporary file fails
+     */
+    private void writeBytes(byte[] src, int srcStart, long destStart, int len) throws IOException {
+
+        if ((m_file == null) && ((destStart + len) > m_memoryLimit)) {
+            spill();
+        }
+        if (m_file == null) {
+            m_buffer.writeBytes(src, srcStart, (int)destStart, len);
+        } else {
+            m_file.seek(destStart);
+            m_file.write(src, srcStart, len);
+        }
     }
 }
@@ -38,7 +38,6 @@ import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -97,17 +96,23 @@ public class CmsJlanNetworkFile extends NetworkFile {
     @Override
     public void closeFile() throws IOException {
 
-        if (hasDeleteOnClose()) {
-            delete();
-        } else {
-            flushFile();
-            if (getWriteCount() > 0) {
-                try {
-                    m_cms.unlockResource(m_cms.getSitePath(m_resource));
-                } catch (CmsException e) {
-                    LOG.error("Couldn't unlock file: " + m_resource.getRootPath());
+        try {
+            if (hasDeleteOnClose()) {
+                delete();
+            } else {
+                flushFile();
+                if (getWriteCount() > 0) {
+                    try {
+                        m_cms.unlockResource(m_cms.getSitePath(m_resource));
+                    } catch (CmsException e) {
+                        LOG.error("Couldn't unlock file: " + m_resource.getRootPath());
+                    }
                 }
             }
+        } finally {
+            // release the memory or temporary file holding the contents
+            m_buffer.close();
+            m_bufferInitialized = false;
         }
     }
 
@@ -134,13 +139,12 @@ public class CmsJlanNetworkFile extends NetworkFile {
         int writeCount = getWriteCount();
         try {
             if (writeCount > m_lastFlush) {
-                CmsFile file = getFile();
-                if (file != null) {
-                    CmsWrappedResource wr = new CmsWrappedResource(file);
+                if (m_bufferInitialized) {
+                    CmsWrappedResource wr = new CmsWrappedResource(m_resource);
                     String rootPath = m_cms.getRequestContext().addSiteRoot(
                         CmsJlanDiskInterface.getCmsPath(getFullName()));
                     wr.setRootPath(rootPath);
-                    file = wr.getFile();
+                    CmsFile file = wr.getFile();
                     file.setContents(m_buffer.getContents());
                     ensureLock();
                     m_cms.writeFile(file);
@@ -245,7 +249,7 @@ public class CmsJlanNetworkFile extends NetworkFile {
 
         try {
             load(true);
-            int result = m_buffer.read(buffer, length, bufferOffset, (int)fileOffset);
+            int result = m_buffer.read(buffer, length, bufferOffset, fileOffset);
             return result;
         } catch (CmsException e) {
             throw CmsJlanDiskInterface.convertCmsException(e);
@@ -349,7 +353,7 @@ public class CmsJlanNetworkFile extends NetworkFile {
 
         try {
             load(true);
-            m_buffer.truncate((int)size);
+            m_buffer.truncate(size);
             incrementWriteCount();
         } catch (CmsException e) {
             throw CmsJlanDiskInterface.convertCmsException(e);
@@ -368,8 +372,7 @@ public class CmsJlanNetworkFile extends NetworkFile {
             }
             load(true);
             m_buffer.seek(offset);
-            byte[] dataToWrite = Arrays.copyOfRange(data, pos, pos + len);
-            m_buffer.write(dataToWrite);
+            m_buffer.write(data, pos, len);
             incrementWriteCount();
         } catch (CmsException e) {
             throw CmsJlanDiskInterface.convertCmsException(e);
@@ -390,7 +393,10 @@ public class CmsJlanNetworkFile extends NetworkFile {
     }
 
     /**
-     * Gets the CmsFile instance for this file, or null if the file contents haven'T been loaded already.<p>
+     * Gets the CmsFile instance for this file, or null if the file contents haven't been loaded already.<p>
+     *
+     * Once the contents have been transferred to the buffer, they are no longer kept in the CmsFile instance,
+     * and this method returns null.<p>
      *
      * @return the CmsFile instance
      */
@@ -430,7 +436,7 @@ public class CmsJlanNetworkFile extends NetworkFile {
             if (m_resource.isFolder() && needContent) {
                 throw new AccessDeniedException("Operation not supported for directories!");
             }
-            if (m_resource.isFile() && needContent && (!(m_resource instanceof CmsFile))) {
+            if (m_resource.isFile() && needContent && !m_bufferInitialized && (!(m_resource instanceof CmsFile))) {
                 m_resource = m_cms.readFile(m_cms.getSitePath(m_resource), CmsJlanDiskInterface.STANDARD_FILTER);
             }
             if (!m_bufferInitialized && (getFile() != null)) {
@@ -438,6 +444,8 @@ public class CmsJlanNetworkFile extends NetworkFile {
                 // here and not in the if-block above
                 m_buffer.init(getFile().getContents());
                 m_bufferInitialized = true;
+                // keep the contents only in the buffer, which moves large contents to a temporary file
+                m_resource = new CmsWrappedResource(m_resource).getResource();
             }
         } catch (CmsException e) {
             throw e;
@@ -0,0 +1,754 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jsp;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.flex.CmsFlexController;
+import org.opencms.flex.CmsFlexRequest;
+import org.opencms.flex.CmsFlexResponse;
+import org.opencms.jsp.util.CmsJspStandardContextBean;
+import org.opencms.main.CmsException;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsDateUtil;
+import org.opencms.util.CmsRequestUtil;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.xml.containerpage.CmsContainerBean;
+import org.opencms.xml.containerpage.CmsContainerElementBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Renders container page elements concurrently on a bounded thread pool.<p>
+ *
+ * Every element is rendered with its own copy of the OpenCms user context, its own request attributes,
+ * its own standard context bean, its own Flex controller and its own response, so the element formatters
+ * do not share any state with the page that includes them. The element output is collected in a separate
+ * {@link CmsFlexResponse} buffer and returned as a String together with the headers set by the element,
+ * the calling container tag writes the results in document order.<p>
+ *
+ * Elements that are rendered from within a parallel render thread are always rendered in the calling thread,
+ * this prevents nested containers from waiting for pool threads that are all blocked by their parents.<p>
+ *
+ * @since 9.5.0
+ */
+public final class CmsJspParallelElementRenderer {
+
+    /**
+     * The result of a parallel element rendering.<p>
+     */
+    public static final class RenderResult {
+
+        /** The rendered content. */
+        private String m_content;
+
+        /** The "expires" date of the resources read during rendering. */
+        private long m_dateExpires;
+
+        /** The "last modified" date of the resources read during rendering. */
+        private long m_dateLastModified;
+
+        /** The headers set during rendering. */
+        private Map<String, List<String>> m_headers;
+
+        /**
+         * Creates a new render result.<p>
+         *
+         * @param content the rendered content
+         * @param dateLastModified the "last modified" date of the resources read during rendering
+         * @param dateExpires the "expires" date of the resources read during rendering
+         * @param headers the headers set during rendering
+         */
+        RenderResult(String content, long dateLastModified, long dateExpires, Map<String, List<String>> headers) {
+
+            m_content = content;
+            m_dateLastModified = dateLastModified;
+            m_dateExpires = dateExpires;
+            m_headers = headers;
+        }
+
+        /**
+         * Returns the rendered content.<p>
+         *
+         * @return the rendered content
+         */
+        public String getContent() {
+
+            return m_content;
+        }
+
+        /**
+         * Returns the "expires" date of the resources read during rendering.<p>
+         *
+         * @return the "expires" date
+         */
+        public long getDateExpires() {
+
+            return m_dateExpires;
+        }
+
+        /**
+         * Returns the "last modified" date of the resources read during rendering.<p>
+         *
+         * @return the "last modified" date
+         */
+        public long getDateLastModified() {
+
+            return m_dateLastModified;
+        }
+
+        /**
+         * Returns the headers set during rendering.<p>
+         *
+         * The headers are stored in the format used by
+         * {@link CmsFlexResponse#processHeaders(Map, HttpServletResponse)}.<p>
+         *
+         * @return the headers set during rendering
+         */
+        public Map<String, List<String>> getHeaders() {
+
+            return m_headers;
+        }
+    }
+
+    /**
+     * Request wrapper with a private attribute map, initialized with a snapshot of the wrapped request attributes.<p>
+     */
+    static class CmsIsolatedRequest extends HttpServletRequestWrapper {
+
+        /** The private request attributes. */
+        private Map<String, Object> m_attributes;
+
+        /**
+         * Creates a new isolated request.<p>
+         *
+         * @param req the request to wrap
+         * @param attributes the initial request attributes
+         */
+        CmsIsolatedRequest(HttpServletRequest req, Map<String, Object> attributes) {
+
+            super(req);
+            m_attributes = Collections.synchronizedMap(attributes);
+        }
+
+        /**
+         * @see javax.servlet.ServletRequestWrapper#getAttribute(java.lang.String)
+         */
+        @Override
+        public Object getAttribute(String name) {
+
+            return m_attributes.get(name);
+        }
+
+        /**
+         * @see javax.servlet.ServletRequestWrapper#getAttributeNames()
+         */
+        @Override
+        public Enumeration<String> getAttributeNames() {
+
+            synchronized (m_attributes) {
+                return Collections.enumeration(new HashMap<String, Object>(m_attributes).keySet());
+            }
+        }
+
+        /**
+         * @see javax.servlet.ServletRequestWrapper#removeAttribute(java.lang.String)
+         */
+        @Override
+        public void removeAttribute(String name) {
+
+            m_attributes.remove(name);
+        }
+
+        /**
+         * @see javax.servlet.ServletRequestWrapper#setAttribute(java.lang.String, java.lang.Object)
+         */
+        @Override
+        public void setAttribute(String name, Object o) {
+
+            if (o == null) {
+                m_attributes.remove(name);
+            } else {
+                m_attributes.put(name, o);
+            }
+        }
+    }
+
+    /**
+     * Response wrapper that keeps the output and the headers of an element away from the shared response.<p>
+     *
+     * Output written directly to this response instead of the Flex response of the element is collected
+     * in a private buffer and appended to the element content, the headers are recorded to be applied
+     * to the shared response by the requesting thread. Status codes, errors, redirects and changes of
+     * the content type or buffer are ignored, since they would affect the complete page.<p>
+     */
+    static class CmsIsolatedResponse extends HttpServletResponseWrapper {
+
+        /** The buffer for the element output. */
+        private ByteArrayOutputStream m_buffer;
+
+        /** The encoding of the element output. */
+        private String m_encoding;
+
+        /** The recorded headers. */
+        private Map<String, List<String>> m_headers;
+
+        /** The output stream writing to the buffer. */
+        private ServletOutputStream m_out;
+
+        /** The writer writing to the buffer. */
+        private PrintWriter m_writer;
+
+        /**
+         * Creates a new isolated response.<p>
+         *
+         * @param res the response to wrap
+         * @param encoding the encoding of the element output
+         */
+        CmsIsolatedResponse(HttpServletResponse res, String encoding) {
+
+            super(res);
+            m_encoding = encoding;
+            m_buffer = new ByteArrayOutputStream();
+            m_headers = new LinkedHashMap<String, List<String>>();
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#addCookie(javax.servlet.http.Cookie)
+         */
+        @Override
+        public void addCookie(Cookie cookie) {
+
+            // cookies are added as headers by the Flex response, other cookies can not be recorded
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#addDateHeader(java.lang.String, long)
+         */
+        @Override
+        public void addDateHeader(String name, long date) {
+
+            addHeader(name, CmsDateUtil.getHeaderDate(date));
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#addHeader(java.lang.String, java.lang.String)
+         */
+        @Override
+        public synchronized void addHeader(String name, String value) {
+
+            List<String> values = m_headers.get(name);
+            if (values == null) {
+                values = new ArrayList<String>();
+                m_headers.put(name, values);
+            }
+            values.add(value);
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#addIntHeader(java.lang.String, int)
+         */
+        @Override
+        public void addIntHeader(String name, int value) {
+
+            addHeader(name, String.valueOf(value));
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+         */
+        @Override
+        public void flushBuffer() throws IOException {
+
+            if (m_writer != null) {
+                m_writer.flush();
+            }
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+         */
+        @Override
+        public synchronized ServletOutputStream getOutputStream() {
+
+            if (m_out == null) {
+                m_out = new ServletOutputStream() {
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+
+                        m_buffer.write(b, off, len);
+                    }
+
+                    @Override
+                    public void write(int b) {
+
+                        m_buffer.write(b);
+                    }
+                };
+            }
+            return m_out;
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#getWriter()
+         */
+        @Override
+        public synchronized PrintWriter getWriter() throws IOException {
+
+            if (m_writer == null) {
+                m_writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), m_encoding));
+            }
+            return m_writer;
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#isCommitted()
+         */
+        @Override
+        public boolean isCommitted() {
+
+            return false;
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#reset()
+         */
+        @Override
+        public synchronized void reset() {
+
+            resetBuffer();
+            m_headers.clear();
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#resetBuffer()
+         */
+        @Override
+        public void resetBuffer() {
+
+            if (m_writer != null) {
+                m_writer.flush();
+            }
+            m_buffer.reset();
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int)
+         */
+        @Override
+        public void sendError(int sc) {
+
+            // the status of the page is not changed by an element
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int, java.lang.String)
+         */
+        @Override
+        public void sendError(int sc, String msg) {
+
+            // the status of the page is not changed by an element
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#sendRedirect(java.lang.String)
+         */
+        @Override
+        public void sendRedirect(String location) {
+
+            // the status of the page is not changed by an element
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#setBufferSize(int)
+         */
+        @Override
+        public void setBufferSize(int size) {
+
+            // the output is always buffered completely
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+         */
+        @Override
+        public void setContentLength(int len) {
+
+            // the length of the page is not known to an element
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#setContentType(java.lang.String)
+         */
+        @Override
+        public void setContentType(String type) {
+
+            // the content type of the page is not changed by an element
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#setDateHeader(java.lang.String, long)
+         */
+        @Override
+        public void setDateHeader(String name, long date) {
+
+            setHeader(name, CmsDateUtil.getHeaderDate(date));
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#setHeader(java.lang.String, java.lang.String)
+         */
+        @Override
+        public synchronized void setHeader(String name, String value) {
+
+            List<String> values = new ArrayList<String>();
+            values.add(CmsFlexResponse.SET_HEADER + value);
+            m_headers.put(name, values);
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#setIntHeader(java.lang.String, int)
+         */
+        @Override
+        public void setIntHeader(String name, int value) {
+
+            setHeader(name, String.valueOf(value));
+        }
+
+        /**
+         * @see javax.servlet.ServletResponseWrapper#setLocale(java.util.Locale)
+         */
+        @Override
+        public void setLocale(Locale loc) {
+
+            // the locale of the page is not changed by an element
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#setStatus(int)
+         */
+        @Override
+        public void setStatus(int sc) {
+
+            // the status of the page is not changed by an element
+        }
+
+        /**
+         * @see javax.servlet.http.HttpServletResponseWrapper#setStatus(int, java.lang.String)
+         */
+        @SuppressWarnings("deprecation")
+        @Override
+        public void setStatus(int sc, String sm) {
+
+            // the status of the page is not changed by an element
+        }
+
+        /**
+         * Returns the output written directly to this response.<p>
+         *
+         * @return the output written directly to this response
+         *
+         * @throws IOException if the encoding is not supported
+         */
+        synchronized String getContent() throws IOException {
+
+            flushBuffer();
+            return m_buffer.toString(m_encoding);
+        }
+
+        /**
+         * Returns the recorded headers.<p>
+         *
+         * @return the recorded headers
+         */
+        synchronized Map<String, List<String>> getHeaders() {
+
+            return new LinkedHashMap<String, List<String>>(m_headers);
+        }
+    }
+
+    /** The default maximum number of elements waiting for a render thread. */
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    /** The default maximum time in milliseconds a container waits for its elements rendered in parallel. */
+    public static final long DEFAULT_TIMEOUT = 30000;
+
+    /** Runtime property name for the maximum number of elements waiting for a render thread. */
+    public static final String PARAM_QUEUE_SIZE = "jsp.parallel.queuesize";
+
+    /** Runtime property name for the number of render threads. */
+    public static final String PARAM_THREADS = "jsp.parallel.threads";
+
+    /** Runtime property name for the maximum time in milliseconds a container waits for its elements. */
+    public static final String PARAM_TIMEOUT = "jsp.parallel.timeout";
+
+    /** Marks the threads of the render pool. */
+    private static final ThreadLocal<Boolean> RENDER_THREAD = new ThreadLocal<Boolean>();
+
+    /** The shared render thread pool, lazily initialized. */
+    private static ThreadPoolExecutor m_executor;
+
+    /**
+     * Hides the public constructor.<p>
+     */
+    private CmsJspParallelElementRenderer() {
+
+        // hide the constructor
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a container waits for its elements rendered in parallel.<p>
+     *
+     * The time is read from the runtime property {@link #PARAM_TIMEOUT},
+     * if this is not set to a positive value, {@link #DEFAULT_TIMEOUT} is used.<p>
+     *
+     * @return the maximum time in milliseconds a container waits for its elements
+     */
+    public static long getTimeout() {
+
+        long timeout = CmsStringUtil.getLongValue(
+            (String)OpenCms.getRuntimeProperty(PARAM_TIMEOUT),
+            DEFAULT_TIMEOUT,
+            PARAM_TIMEOUT);
+        return timeout > 0 ? timeout : DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Returns if parallel rendering can be used in the current thread.<p>
+     *
+     * @return <code>true</code> if parallel rendering can be used in the current thread
+     */
+    public static boolean isAvailable() {
+
+        return RENDER_THREAD.get() == null;
+    }
+
+    /**
+     * Shuts down the render thread pool.<p>
+     */
+    public static synchronized void shutdown() {
+
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+            m_executor = null;
+        }
+    }
+
+    /**
+     * Starts rendering a container element with the given formatter.<p>
+     *
+     * All request dependent state is copied in the calling thread, so the returned future
+     * does not access the calling request after this method has returned, except for read access
+     * to request parameters and headers of the wrapped servlet request.<p>
+     *
+     * @param req the current request
+     * @param res the current response
+     * @param standardContext the standard context bean of the current request
+     * @param container the container the element belongs to
+     * @param element the element to render
+     * @param formatter the site path of the formatter JSP
+     * @param locale the locale to render the element in
+     *
+     * @return the future providing the render result
+     *
+     * @throws CmsException in case the user context could not be copied
+     */
+    public static Future<RenderResult> submit(
+        ServletRequest req,
+        ServletResponse res,
+        CmsJspStandardContextBean standardContext,
+        CmsContainerBean container,
+        CmsContainerElementBean element,
+        final String formatter,
+        final Locale locale) throws CmsException {
+
+        final CmsFlexController parentController = CmsFlexController.getController(req);
+        final CmsObject cms = OpenCms.initCmsObject(parentController.getCmsObject());
+        Map<String, Object> attributes = new HashMap<String, Object>(CmsRequestUtil.getAtrributeMap(req));
+        attributes.remove(CmsFlexController.ATTRIBUTE_NAME);
+        final CmsIsolatedRequest isolatedReq = new CmsIsolatedRequest((HttpServletRequest)req, attributes);
+        final CmsIsolatedResponse isolatedRes = new CmsIsolatedResponse(
+            (HttpServletResponse)res,
+            parentController.getCurrentResponse().getEncoding());
+        CmsJspStandardContextBean isolatedContext = standardContext.createCopy(cms, isolatedReq);
+        isolatedContext.setContainer(container);
+        isolatedContext.setElement(element);
+        isolatedReq.setAttribute(CmsJspStandardContextBean.ATTRIBUTE_NAME, isolatedContext);
+        final CmsResource formatterResource = cms.readResource(formatter);
+
+        Callable<RenderResult> task = new Callable<RenderResult>() {
+
+            public RenderResult call() throws Exception {
+
+                boolean isRenderThread = RENDER_THREAD.get() != null;
+                RENDER_THREAD.set(Boolean.TRUE);
+                try {
+                    // the isolated controller collects the "last modified" and "expires" dates of this element
+                    CmsFlexController controller = new CmsFlexController(
+                        cms,
+                        formatterResource,
+                        parentController.getCmsCache(),
+                        isolatedReq,
+                        isolatedRes,
+                        false,
+                        false);
+                    CmsFlexController.setController(isolatedReq, controller);
+                    CmsFlexResponse flexRes = new CmsFlexResponse(isolatedRes, controller, false, false);
+                    controller.push(new CmsFlexRequest(isolatedReq, controller), flexRes);
+                    String content = CmsJspTagInclude.getIncludeContentNoCache(
+                        cms,
+                        formatter,
+                        null,
+                        locale,
+                        isolatedReq,
+                        isolatedRes);
+                    // collect the headers the element has set on its Flex response or directly on the response
+                    CmsFlexResponse.processHeaders(flexRes.getHeaders(), isolatedRes);
+                    return new RenderResult(
+                        content + isolatedRes.getContent(),
+                        controller.getDateLastModified(),
+                        controller.getDateExpires(),
+                        isolatedRes.getHeaders());
+                } finally {
+                    if (!isRenderThread) {
+                        RENDER_THREAD.remove();
+                    }
+                }
+            }
+        };
+        return getExecutor().submit(task);
+    }
+
+    /**
+     * Waits for the result of a parallel element rendering.<p>
+     *
+     * If the result is not available until the given deadline, the rendering is cancelled.<p>
+     *
+     * @param future the future returned by {@link #submit(ServletRequest, ServletResponse, CmsJspStandardContextBean, CmsContainerBean, CmsContainerElementBean, String, Locale)}
+     * @param deadline the time until the result has to be available
+     *
+     * @return the render result
+     *
+     * @throws TimeoutException if the result is not available until the deadline
+     * @throws Exception the exception that occurred during rendering
+     */
+    public static RenderResult waitFor(Future<RenderResult> future, long deadline) throws Exception {
+
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the render thread pool, creating it if required.<p>
+     *
+     * The pool size is read from the runtime property {@link #PARAM_THREADS} and defaults to twice the number
+     * of available processors, the queue size is read from {@link #PARAM_QUEUE_SIZE} and defaults to
+     * {@link #DEFAULT_QUEUE_SIZE}. If all threads are busy and the queue is full, the element is rendered
+     * by the requesting thread.<p>
+     *
+     * @return the render thread pool
+     */
+    private static synchronized ThreadPoolExecutor getExecutor() {
+
+        if (m_executor == null) {
+            int size = CmsStringUtil.getIntValue(
+                (String)OpenCms.getRuntimeProperty(PARAM_THREADS),
+                2 * Runtime.getRuntime().availableProcessors(),
+                PARAM_THREADS);
+            if (size < 1) {
+                size = 2 * Runtime.getRuntime().availableProcessors();
+            }
+            int queueSize = CmsStringUtil.getIntValue(
+                (String)OpenCms.getRuntimeProperty(PARAM_QUEUE_SIZE),
+                DEFAULT_QUEUE_SIZE,
+                PARAM_QUEUE_SIZE);
+            if (queueSize < 1) {
+                queueSize = DEFAULT_QUEUE_SIZE;
+            }
+            m_executor = new ThreadPoolExecutor(
+                size,
+                size,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(queueSize),
+                new ThreadFactory() {
+
+                    private AtomicInteger m_count = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+
+                        Thread thread = new Thread(r, "OpenCms-ContainerElementRenderer-" + m_count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+            m_executor.allowCoreThreadTimeOut(true);
+        }
+        return m_executor;
+    }
+}
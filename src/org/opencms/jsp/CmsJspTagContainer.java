@@ -34,12 +34,14 @@ import org.opencms.ade.containerpage.shared.CmsContainerElement;
 import org.opencms.ade.containerpage.shared.CmsFormatterConfig;
 import org.opencms.file.CmsGroup;
 import org.opencms.file.CmsObject;
+import org.opencms.file.CmsPropertyDefinition;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.CmsUser;
 import org.opencms.file.CmsVfsResourceNotFoundException;
 import org.opencms.file.history.CmsHistoryResourceHandler;
 import org.opencms.flex.CmsFlexController;
+import org.opencms.flex.CmsFlexResponse;
 import org.opencms.gwt.shared.CmsTemplateContextInfo;
 import org.opencms.i18n.CmsEncoder;
 import org.opencms.jsp.util.CmsJspStandardContextBean;
@@ -74,6 +76,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
@@ -92,12 +95,50 @@ import org.apache.commons.logging.Log;
  */
 public class CmsJspTagContainer extends BodyTagSupport {
 
+    /**
+     * An element that is rendered in parallel and whose output is still pending.<p>
+     */
+    private static class CmsPendingElement {
+
+        /** The formatter site path. */
+        String m_formatter;
+
+        /** The render result. */
+        Future<CmsJspParallelElementRenderer.RenderResult> m_result;
+
+        /** The element site path. */
+        String m_sitePath;
+
+        /**
+         * Creates a new pending element.<p>
+         *
+         * @param sitePath the element site path
+         * @param formatter the formatter site path
+         * @param result the render result
+         */
+        CmsPendingElement(
+            String sitePath,
+            String formatter,
+            Future<CmsJspParallelElementRenderer.RenderResult> result) {
+
+            m_sitePath = sitePath;
+            m_formatter = formatter;
+            m_result = result;
+        }
+    }
+
     /** Default number of max elements in the container in case no value has been set. */
     public static final String DEFAULT_MAX_ELEMENTS = "100";
 
     /** The detail containers folder name. */
     public static final String DETAIL_CONTAINERS_FOLDER_NAME = ".detailContainers";
 
+    /** The parallel attribute value to render all elements of the container in parallel. */
+    public static final String PARALLEL_ALL = "true";
+
+    /** The parallel attribute value to render the elements with a formatter enabled by property in parallel. */
+    public static final String PARALLEL_FORMATTER = "formatter";
+
     /** HTML used for invisible dummy elements. */
     public static final String DUMMY_ELEMENT = "<div class='"
         + CmsTemplateContextInfo.DUMMY_ELEMENT_MARKER
@@ -130,12 +171,21 @@ public class CmsJspTagContainer extends BodyTagSupport {
     /** The name attribute value. */
     private String m_name;
 
+    /** The parallel attribute value, <code>null</code> if the elements are rendered in document order. */
+    private String m_parallel;
+
     /** The parent container. */
     private CmsContainerBean m_parentContainer;
 
     /** The parent element to this container. */
     private CmsContainerElementBean m_parentElement;
 
+    /** The buffer collecting the sequentially rendered output after the first element rendered in parallel. */
+    private BodyContent m_renderBuffer;
+
+    /** The output parts in document order, either Strings or pending elements, null if not rendering in parallel. */
+    private List<Object> m_renderParts;
+
     /** The tag attribute value. */
     private String m_tag;
 
@@ -587,24 +637,42 @@ public class CmsJspTagContainer extends BodyTagSupport {
                 }
                 // iterate over elements to render
                 int numRenderedElements = 0;
-                for (CmsContainerElementBean elementBean : allElements) {
-                    try {
-                        boolean rendered = renderContainerElement(
-                            (HttpServletRequest)req,
-                            cms,
-                            standardContext,
-                            elementBean,
-                            locale,
-                            numRenderedElements >= maxElements);
-                        if (rendered) {
-                            numRenderedElements += 1;
-                        }
-                    } catch (Exception e) {
-                        if (LOG.isErrorEnabled()) {
-                            LOG.error(e.getLocalizedMessage(), e);
+                if ((m_parallel != null)
+                    && !controller.isStreaming()
+                    && CmsJspParallelElementRenderer.isAvailable()) {
+                    // elements may be rendered in parallel, the output is collected in document order
+                    m_renderParts = new ArrayList<Object>();
+                }
+                try {
+                    for (CmsContainerElementBean elementBean : allElements) {
+                        try {
+                            boolean rendered = renderContainerElement(
+                                (HttpServletRequest)req,
+                                cms,
+                                standardContext,
+                                elementBean,
+                                locale,
+                                numRenderedElements >= maxElements);
+                            if (rendered) {
+                                numRenderedElements += 1;
+                            }
+                        } catch (Exception e) {
+                            if (LOG.isErrorEnabled()) {
+                                LOG.error(e.getLocalizedMessage(), e);
+                            }
                         }
                     }
+                } finally {
+                    if (m_renderBuffer != null) {
+                        m_renderParts.add(m_renderBuffer.getString());
+                        pageContext.popBody();
+                        m_renderBuffer = null;
+                    }
                 }
+                if ((m_renderParts != null) && !m_renderParts.isEmpty()) {
+                    printRenderParts(controller, isOnline);
+                }
+                m_renderParts = null;
                 if ((numRenderedElements == 0) && (m_bodyContent != null) && CmsJspTagEditable.isEditableRequest(req)) {
                     // the container is empty, print the evaluated body content
                     pageContext.getOut().print(m_bodyContent);
@@ -624,6 +692,8 @@ public class CmsJspTagContainer extends BodyTagSupport {
         m_name = null;
         m_param = null;
         m_maxElements = null;
+        m_parallel = null;
+        m_renderParts = null;
         m_tag = null;
         m_tagClass = null;
         m_detailView = false;
@@ -711,6 +781,16 @@ public class CmsJspTagContainer extends BodyTagSupport {
         return m_param;
     }
 
+    /**
+     * Returns the parallel attribute value.<p>
+     *
+     * @return the parallel attribute value
+     */
+    public String getParallel() {
+
+        return m_parallel;
+    }
+
     /**
      * Returns the tag attribute.<p>
      *
@@ -816,6 +896,27 @@ public class CmsJspTagContainer extends BodyTagSupport {
         m_param = param;
     }
 
+    /**
+     * Sets if the elements of this container should be rendered in parallel.<p>
+     *
+     * With {@link #PARALLEL_ALL}, all elements are rendered in parallel, with {@link #PARALLEL_FORMATTER}
+     * only the elements with a formatter that has the <code>formatter.parallel</code> property set to
+     * <code>true</code>. With any other value, the elements are rendered in document order.
+     * Only elements with a formatter that is not cached by the Flex cache are rendered in parallel.<p>
+     *
+     * @param parallel the parallel attribute value
+     */
+    public void setParallel(String parallel) {
+
+        if (PARALLEL_ALL.equalsIgnoreCase(parallel)) {
+            m_parallel = PARALLEL_ALL;
+        } else if (PARALLEL_FORMATTER.equalsIgnoreCase(parallel)) {
+            m_parallel = PARALLEL_FORMATTER;
+        } else {
+            m_parallel = null;
+        }
+    }
+
     /**
      * Sets the tag attribute.<p>
      *
@@ -1154,6 +1255,37 @@ public class CmsJspTagContainer extends BodyTagSupport {
         return CmsADESessionCache.getCache((HttpServletRequest)(pageContext.getRequest()), cms);
     }
 
+    /**
+     * Checks if the element with the given formatter should be rendered in parallel.<p>
+     *
+     * The properties of the formatter are only read if the container is rendered in parallel.
+     * Formatters that are cached by the Flex cache are always rendered sequentially.<p>
+     *
+     * @param cms the current CMS context
+     * @param formatter the formatter site path
+     *
+     * @return <code>true</code> if the element should be rendered in parallel
+     *
+     * @throws CmsException if reading the formatter properties fails
+     */
+    private boolean isParallelFormatter(CmsObject cms, String formatter) throws CmsException {
+
+        if (m_renderParts == null) {
+            // the container is not rendered in parallel
+            return false;
+        }
+        if (PARALLEL_FORMATTER.equals(m_parallel)) {
+            String parallel = cms.readPropertyObject(
+                formatter,
+                CmsPropertyDefinition.PROPERTY_FORMATTER_PARALLEL,
+                false).getValue();
+            if (!Boolean.valueOf(parallel).booleanValue()) {
+                return false;
+            }
+        }
+        return cms.readPropertyObject(formatter, CmsPropertyDefinition.PROPERTY_CACHE, true).isNullProperty();
+    }
+
     /**
      * Prints an element error tag to the response out.<p>
      *
@@ -1207,6 +1339,48 @@ public class CmsJspTagContainer extends BodyTagSupport {
         }
     }
 
+    /**
+     * Prints the collected output parts in document order, waiting for the elements rendered in parallel.<p>
+     *
+     * All elements of the container have to be rendered within {@link CmsJspParallelElementRenderer#getTimeout()},
+     * an element error is printed instead of the elements that are not ready in time.<p>
+     *
+     * @param controller the current Flex controller, updated with the dates of the elements rendered in parallel
+     * @param isOnline if the current project is the online project
+     *
+     * @throws IOException if writing the output fails
+     */
+    private void printRenderParts(CmsFlexController controller, boolean isOnline) throws IOException {
+
+        long deadline = System.currentTimeMillis() + CmsJspParallelElementRenderer.getTimeout();
+        for (Object part : m_renderParts) {
+            if (part instanceof CmsPendingElement) {
+                CmsPendingElement pending = (CmsPendingElement)part;
+                try {
+                    CmsJspParallelElementRenderer.RenderResult result = CmsJspParallelElementRenderer.waitFor(
+                        pending.m_result,
+                        deadline);
+                    controller.updateDates(result.getDateLastModified(), result.getDateExpires());
+                    // the headers set by the element are applied in document order, like for sequential elements
+                    CmsFlexResponse.processHeaders(result.getHeaders(), (HttpServletResponse)pageContext.getResponse());
+                    pageContext.getOut().print(result.getContent());
+                } catch (Exception e) {
+                    if (LOG.isErrorEnabled()) {
+                        LOG.error(
+                            Messages.get().getBundle().key(
+                                Messages.ERR_CONTAINER_PAGE_ELEMENT_RENDER_ERROR_2,
+                                pending.m_sitePath,
+                                pending.m_formatter),
+                            e);
+                    }
+                    printElementErrorTag(isOnline, pending.m_sitePath, pending.m_formatter, e);
+                }
+            } else {
+                pageContext.getOut().print((String)part);
+            }
+        }
+    }
+
     /**
      * Renders a container element.<p>
      *
@@ -1439,6 +1613,25 @@ public class CmsJspTagContainer extends BodyTagSupport {
                         // write invisible dummy element
                         pageContext.getOut().print(DUMMY_ELEMENT);
                         result = false;
+                    } else if (isParallelFormatter(cms, formatter)) {
+                        // render the element concurrently, the output is written once all elements have been started
+                        Future<CmsJspParallelElementRenderer.RenderResult> future;
+                        future = CmsJspParallelElementRenderer.submit(
+                            req,
+                            res,
+                            standardContext,
+                            standardContext.getContainer(),
+                            element,
+                            formatter,
+                            locale);
+                        if (m_renderBuffer == null) {
+                            // buffer the following output until the parallel elements are available
+                            m_renderBuffer = pageContext.pushBody();
+                        } else {
+                            m_renderParts.add(m_renderBuffer.getString());
+                            m_renderBuffer.clearBody();
+                        }
+                        m_renderParts.add(new CmsPendingElement(element.getSitePath(), formatter, future));
                     } else {
                         // execute the formatter jsp for the given element uri
                         CmsJspTagInclude.includeTagAction(
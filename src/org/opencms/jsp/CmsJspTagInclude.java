@@ -256,6 +256,75 @@ public class CmsJspTagInclude extends BodyTagSupport implements I_CmsJspTagParam
         }
     }
 
+    /**
+     * Returns the content of the selected target without using the Flex cache.<p>
+     *
+     * The target is rendered with a temporary Flex controller by the loader of the target resource,
+     * so this can also be used to render a target with a user context and request that are
+     * isolated from the current include cascade.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param target the target for the include
+     * @param element the element to select form the target, might be <code>null</code>
+     * @param locale the locale to select from the target, might be <code>null</code>
+     * @param req the current request
+     * @param res the current response
+     *
+     * @return the content of the target
+     *
+     * @throws ServletException might be thrown by the loader
+     * @throws IOException might be thrown by the loader
+     * @throws CmsException in case the target could not be read
+     * @throws JspException in case the request or response are no HTTP request or response
+     */
+    static String getIncludeContentNoCache(
+        CmsObject cms,
+        String target,
+        String element,
+        Locale locale,
+        ServletRequest req,
+        ServletResponse res) throws ServletException, IOException, CmsException, JspException {
+
+        CmsFile file = cms.readFile(target);
+        if (locale == null) {
+            locale = cms.getRequestContext().getLocale();
+        }
+        // get the loader for the requested file
+        I_CmsResourceLoader loader = OpenCms.getResourceManager().getLoader(file);
+        String content;
+        if (loader instanceof I_CmsResourceStringDumpLoader) {
+            // loader can provide content as a String
+            I_CmsResourceStringDumpLoader strLoader = (I_CmsResourceStringDumpLoader)loader;
+            content = strLoader.dumpAsString(cms, file, element, locale, req, res);
+        } else {
+            if (!(req instanceof HttpServletRequest) || !(res instanceof HttpServletResponse)) {
+                // http type is required for loader (no refactoring to avoid changes to interface)
+                CmsLoaderException e = new CmsLoaderException(
+                    Messages.get().container(Messages.ERR_BAD_REQUEST_RESPONSE_0));
+                throw new JspException(e);
+            }
+            // get the bytes from the loader and convert them to a String
+            byte[] result = loader.dump(
+                cms,
+                file,
+                element,
+                locale,
+                (HttpServletRequest)req,
+                (HttpServletResponse)res);
+            // use the encoding from the property or the system default if not available
+            String encoding = cms.readPropertyObject(
+                file,
+                CmsPropertyDefinition.PROPERTY_CONTENT_ENCODING,
+                true).getValue(OpenCms.getSystemInfo().getDefaultEncoding());
+            // If the included target issued a redirect null will be returned from loader
+            if (result == null) {
+                result = new byte[0];
+            }
+            content = new String(result, encoding);
+        }
+        return content;
+    }
+
     /**
      * Includes the selected target without caching.<p>
      *
@@ -280,44 +349,7 @@ public class CmsJspTagInclude extends BodyTagSupport implements I_CmsJspTagParam
 
         try {
             // include is not cachable
-            CmsFile file = controller.getCmsObject().readFile(target);
-            CmsObject cms = controller.getCmsObject();
-            if (locale == null) {
-                locale = cms.getRequestContext().getLocale();
-            }
-            // get the loader for the requested file
-            I_CmsResourceLoader loader = OpenCms.getResourceManager().getLoader(file);
-            String content;
-            if (loader instanceof I_CmsResourceStringDumpLoader) {
-                // loader can provide content as a String
-                I_CmsResourceStringDumpLoader strLoader = (I_CmsResourceStringDumpLoader)loader;
-                content = strLoader.dumpAsString(cms, file, element, locale, req, res);
-            } else {
-                if (!(req instanceof HttpServletRequest) || !(res instanceof HttpServletResponse)) {
-                    // http type is required for loader (no refactoring to avoid changes to interface)
-                    CmsLoaderException e = new CmsLoaderException(
-                        Messages.get().container(Messages.ERR_BAD_REQUEST_RESPONSE_0));
-                    throw new JspException(e);
-                }
-                // get the bytes from the loader and convert them to a String
-                byte[] result = loader.dump(
-                    cms,
-                    file,
-                    element,
-                    locale,
-                    (HttpServletRequest)req,
-                    (HttpServletResponse)res);
-                // use the encoding from the property or the system default if not available
-                String encoding = cms.readPropertyObject(
-                    file,
-                    CmsPropertyDefinition.PROPERTY_CONTENT_ENCODING,
-                    true).getValue(OpenCms.getSystemInfo().getDefaultEncoding());
-                // If the included target issued a redirect null will be returned from loader
-                if (result == null) {
-                    result = new byte[0];
-                }
-                content = new String(result, encoding);
-            }
+            String content = getIncludeContentNoCache(controller.getCmsObject(), target, element, locale, req, res);
             // write the content String to the JSP output writer
             context.getOut().print(content);
 
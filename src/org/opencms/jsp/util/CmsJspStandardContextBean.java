@@ -751,6 +751,27 @@ public final class CmsJspStandardContextBean {
         return result;
     }
 
+    /**
+     * Returns a copy of this JSP context bean bound to the given user context and request.<p>
+     *
+     * This is used when an element is rendered outside of the thread that processes the original request.<p>
+     *
+     * @param cms the user context to use for the copy
+     * @param req the request to use for the copy
+     *
+     * @return a copy of this JSP context bean
+     */
+    public CmsJspStandardContextBean createCopy(CmsObject cms, ServletRequest req) {
+
+        CmsJspStandardContextBean result = createCopy();
+        result.m_cms = cms;
+        result.m_request = req;
+        result.m_detailOnlyPage = m_detailOnlyPage;
+        result.m_edited = m_edited;
+        result.m_parentContainers = m_parentContainers;
+        return result;
+    }
+
     /**
      * Returns a caching hash specific to the element, it's properties and the current container width.<p>
      *
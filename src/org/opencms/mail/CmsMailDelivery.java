@@ -0,0 +1,261 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.mail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * The delivery of a single email message by the {@link CmsMailDeliveryService}.<p>
+ *
+ * A delivery is returned when a message is submitted to the delivery service. It can be used
+ * to check the outcome of the delivery, or to wait until the message has been sent or
+ * the delivery has finally failed.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsMailDelivery {
+
+    /**
+     * The states of a delivery.<p>
+     */
+    public enum State {
+
+        /** The delivery has finally failed. */
+        FAILED,
+
+        /** The message is waiting to be sent for the first time. */
+        QUEUED,
+
+        /** Sending the message has failed, it is waiting to be sent again. */
+        RETRY,
+
+        /** The message has been sent. */
+        SENT
+    }
+
+    /** The number of attempts to send the message. */
+    private int m_attempts;
+
+    /** Signals the end of the delivery. */
+    private CountDownLatch m_done;
+
+    /** The error of the last attempt to send the message. */
+    private Throwable m_error;
+
+    /** The key of the mail host connection the message is sent with. */
+    private String m_hostKey;
+
+    /** The unique id of the delivery. */
+    private String m_id;
+
+    /** The message to send. */
+    private MimeMessage m_message;
+
+    /** The time of the next attempt to send the message. */
+    private long m_nextAttempt;
+
+    /** The mail session to send the message with. */
+    private Session m_session;
+
+    /** The state of the delivery. */
+    private volatile State m_state;
+
+    /**
+     * Creates a new delivery.<p>
+     *
+     * @param id the unique id of the delivery
+     * @param message the message to send
+     * @param session the mail session to send the message with
+     * @param hostKey the key of the mail host connection the message is sent with
+     * @param attempts the number of previous attempts to send the message
+     */
+    CmsMailDelivery(String id, MimeMessage message, Session session, String hostKey, int attempts) {
+
+        m_id = id;
+        m_message = message;
+        m_session = session;
+        m_hostKey = hostKey;
+        m_attempts = attempts;
+        m_state = (attempts > 0) ? State.RETRY : State.QUEUED;
+        m_done = new CountDownLatch(1);
+    }
+
+    /**
+     * Returns the number of attempts to send the message.<p>
+     *
+     * @return the number of attempts to send the message
+     */
+    public synchronized int getAttempts() {
+
+        return m_attempts;
+    }
+
+    /**
+     * Returns the error of the last failed attempt to send the message.<p>
+     *
+     * @return the error of the last failed attempt, or <code>null</code> if no attempt has failed
+     */
+    public synchronized Throwable getError() {
+
+        return m_error;
+    }
+
+    /**
+     * Returns the unique id of this delivery.<p>
+     *
+     * @return the unique id of this delivery
+     */
+    public String getId() {
+
+        return m_id;
+    }
+
+    /**
+     * Returns the message to send.<p>
+     *
+     * @return the message to send
+     */
+    public MimeMessage getMessage() {
+
+        return m_message;
+    }
+
+    /**
+     * Returns the time of the next attempt to send the message.<p>
+     *
+     * @return the time of the next attempt, or 0 if the message is not waiting for a retry
+     */
+    public synchronized long getNextAttempt() {
+
+        return m_nextAttempt;
+    }
+
+    /**
+     * Returns the state of this delivery.<p>
+     *
+     * @return the state of this delivery
+     */
+    public State getState() {
+
+        return m_state;
+    }
+
+    /**
+     * Returns if the delivery is finished, that is if the message has been sent or the delivery has finally failed.<p>
+     *
+     * @return <code>true</code> if the delivery is finished
+     */
+    public boolean isDone() {
+
+        return (m_state == State.SENT) || (m_state == State.FAILED);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(64);
+        result.append("[id:").append(m_id);
+        result.append(", state:").append(m_state);
+        result.append(", attempts:").append(getAttempts());
+        result.append("]");
+        return result.toString();
+    }
+
+    /**
+     * Waits until the delivery is finished.<p>
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     *
+     * @return <code>true</code> if the delivery is finished, <code>false</code> if the timeout elapsed before
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean waitFor(long timeout) throws InterruptedException {
+
+        return m_done.await(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a failed attempt to send the message.<p>
+     *
+     * @param error the error of the attempt
+     * @param nextAttempt the time of the next attempt, or 0 if the delivery has finally failed
+     */
+    synchronized void failed(Throwable error, long nextAttempt) {
+
+        m_attempts++;
+        m_error = error;
+        m_nextAttempt = nextAttempt;
+        if (nextAttempt > 0) {
+            m_state = State.RETRY;
+        } else {
+            m_state = State.FAILED;
+            m_done.countDown();
+        }
+    }
+
+    /**
+     * Returns the key of the mail host connection the message is sent with.<p>
+     *
+     * Messages with the same key can be sent using the same connection.<p>
+     *
+     * @return the key of the mail host connection, or <code>null</code> if the connection can not be shared
+     */
+    String getHostKey() {
+
+        return m_hostKey;
+    }
+
+    /**
+     * Returns the mail session to send the message with.<p>
+     *
+     * @return the mail session
+     */
+    Session getSession() {
+
+        return m_session;
+    }
+
+    /**
+     * Records that the message has been sent.<p>
+     */
+    synchronized void sent() {
+
+        m_attempts++;
+        m_nextAttempt = 0;
+        m_state = State.SENT;
+        m_done.countDown();
+    }
+}
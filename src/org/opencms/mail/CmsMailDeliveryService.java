@@ -0,0 +1,753 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.mail;
+
+import org.opencms.main.CmsLog;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.Authenticator;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.ParseException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.mail.DefaultAuthenticator;
+import org.apache.commons.mail.Email;
+import org.apache.commons.mail.EmailException;
+
+/**
+ * Delivers email messages with a bounded pool of worker threads.<p>
+ *
+ * Each worker thread keeps its connections to the mail hosts open and reuses them for the following messages,
+ * as long as there are more messages waiting to be sent.
+ * Messages which can not be sent because of a temporary problem, for instance if the mail host is not reachable,
+ * are sent again later, the delay between the attempts is doubled after each attempt. Messages are written to a
+ * spool folder as soon as they are submitted, so they are not lost if OpenCms is stopped before they have been sent.
+ * The number of messages sent per second can be limited, to avoid that the mail host rejects messages during large
+ * mailings.<p>
+ *
+ * Connections can only be shared by messages which use the same mail session settings. For messages that require
+ * authentication, this is only the case if the mail host is configured with user name and password, since the
+ * credentials of a mail session can not be compared. Other authenticated messages are sent with a new connection.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsMailDeliveryService {
+
+    /**
+     * A connection to a mail host, used by a single worker thread.<p>
+     */
+    private static class CmsMailConnection {
+
+        /** The time the connection has been used last. */
+        long m_lastUsed;
+
+        /** The transport of the connection. */
+        Transport m_transport;
+
+        /**
+         * Creates a new connection.<p>
+         *
+         * @param transport the connected transport
+         */
+        CmsMailConnection(Transport transport) {
+
+            m_transport = transport;
+            m_lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Closes the connection, ignoring errors.<p>
+         */
+        void close() {
+
+            try {
+                m_transport.close();
+            } catch (MessagingException e) {
+                // ignore, the connection is not used anymore
+            }
+        }
+    }
+
+    /** The default maximum number of attempts to send a message. */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /** The default delay before the first retry in milliseconds. */
+    public static final long DEFAULT_RETRY_DELAY = 60000;
+
+    /** The default number of worker threads. */
+    public static final int DEFAULT_THREADS = 2;
+
+    /** The name of the spool folder, relative to the WEB-INF folder. */
+    public static final String SPOOL_FOLDER = "mailspool";
+
+    /** A connection that has not been used for this time in milliseconds is checked before it is used again. */
+    private static final long CONNECTION_CHECK_INTERVAL = 10000;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsMailDeliveryService.class);
+
+    /** The maximum factor the retry delay is multiplied with. */
+    private static final int MAX_BACKOFF_FACTOR = 64;
+
+    /** The key for the number of attempts in the spooled delivery information. */
+    private static final String SPOOL_ATTEMPTS = "attempts";
+
+    /** The suffix of the spooled delivery information files. */
+    private static final String SPOOL_INFO_SUFFIX = ".properties";
+
+    /** The suffix of the spooled message files. */
+    private static final String SPOOL_MESSAGE_SUFFIX = ".eml";
+
+    /** The key for the time of the next attempt in the spooled delivery information. */
+    private static final String SPOOL_NEXT_ATTEMPT = "nextattempt";
+
+    /** The prefix for the mail session properties in the spooled delivery information. */
+    private static final String SPOOL_SESSION_PREFIX = "session.";
+
+    /** All connections opened by the worker threads. */
+    private List<CmsMailConnection> m_allConnections;
+
+    /** The connections of the current worker thread, by host key. */
+    private ThreadLocal<Map<String, CmsMailConnection>> m_connections;
+
+    /** The worker threads. */
+    private ScheduledThreadPoolExecutor m_executor;
+
+    /** The number of finally failed deliveries. */
+    private AtomicInteger m_failedCount;
+
+    /** The configured mail hosts, used to find the credentials for spooled messages. */
+    private List<CmsMailHost> m_mailHosts;
+
+    /** The maximum number of attempts to send a message. */
+    private int m_maxAttempts;
+
+    /** The earliest time a message may be sent, if the throughput is limited. */
+    private long m_nextSendTime;
+
+    /** The deliveries which are not finished yet, by id. */
+    private Map<String, CmsMailDelivery> m_pending;
+
+    /** The number of deliveries which have not been attempted yet. */
+    private AtomicInteger m_queued;
+
+    /** The delay before the first retry in milliseconds. */
+    private long m_retryDelay;
+
+    /** The minimum interval between two messages in milliseconds, 0 for no limit. */
+    private long m_sendInterval;
+
+    /** The number of sent messages. */
+    private AtomicInteger m_sentCount;
+
+    /** The shared mail sessions, by host key. */
+    private Map<String, Session> m_sessions;
+
+    /** The spool folder, or <code>null</code> if messages are not spooled. */
+    private File m_spoolFolder;
+
+    /**
+     * Creates a new delivery service and schedules the messages found in the spool folder.<p>
+     *
+     * @param settings the mail settings
+     * @param spoolFolder the folder to write the messages which have not been sent yet to,
+     *      or <code>null</code> if messages should not be spooled
+     */
+    public CmsMailDeliveryService(CmsMailSettings settings, File spoolFolder) {
+
+        m_mailHosts = new ArrayList<CmsMailHost>(settings.getMailHosts());
+        m_maxAttempts = Math.max(1, settings.getDeliveryMaxAttempts());
+        m_retryDelay = Math.max(0, settings.getDeliveryRetryDelay());
+        int maxPerSecond = settings.getDeliveryMaxPerSecond();
+        m_sendInterval = (maxPerSecond > 0) ? Math.max(1, 1000 / maxPerSecond) : 0;
+        m_spoolFolder = spoolFolder;
+        m_allConnections = new ArrayList<CmsMailConnection>();
+        m_connections = new ThreadLocal<Map<String, CmsMailConnection>>();
+        m_pending = new ConcurrentHashMap<String, CmsMailDelivery>();
+        m_sessions = new ConcurrentHashMap<String, Session>();
+        m_sentCount = new AtomicInteger();
+        m_failedCount = new AtomicInteger();
+        m_queued = new AtomicInteger();
+        m_executor = new ScheduledThreadPoolExecutor(Math.max(1, settings.getDeliveryThreads()), new ThreadFactory() {
+
+            private AtomicInteger m_count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "OpenCms-MailDelivery-" + m_count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        readSpool();
+    }
+
+    /**
+     * Returns the number of deliveries which have finally failed.<p>
+     *
+     * @return the number of failed deliveries
+     */
+    public int getFailedCount() {
+
+        return m_failedCount.get();
+    }
+
+    /**
+     * Returns the deliveries which are not finished yet.<p>
+     *
+     * @return the deliveries which are not finished yet
+     */
+    public List<CmsMailDelivery> getPendingDeliveries() {
+
+        return new ArrayList<CmsMailDelivery>(m_pending.values());
+    }
+
+    /**
+     * Returns the number of messages sent.<p>
+     *
+     * @return the number of messages sent
+     */
+    public int getSentCount() {
+
+        return m_sentCount.get();
+    }
+
+    /**
+     * Stops the worker threads and closes the open connections.<p>
+     *
+     * Messages which have not been sent yet are written to the spool folder
+     * and sent when the next delivery service is started.<p>
+     */
+    public void shutDown() {
+
+        m_executor.shutdownNow();
+        try {
+            m_executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CmsMailDelivery delivery : m_pending.values()) {
+            if (!delivery.isDone()) {
+                writeSpool(delivery);
+            }
+        }
+        synchronized (m_allConnections) {
+            for (CmsMailConnection connection : m_allConnections) {
+                connection.close();
+            }
+            m_allConnections.clear();
+        }
+    }
+
+    /**
+     * Submits an email for delivery.<p>
+     *
+     * The MIME message of the email is built in the calling thread, so the email must not be changed
+     * or sent otherwise afterwards.<p>
+     *
+     * The message is written to the spool folder before it is queued, and removed from there once it has
+     * been delivered or has finally failed. If the service has already been shut down, the message is only
+     * spooled and sent when the next delivery service is started.<p>
+     *
+     * @param email the email to send
+     *
+     * @return the delivery of the email
+     *
+     * @throws EmailException if the MIME message can not be built
+     */
+    public CmsMailDelivery submit(Email email) throws EmailException {
+
+        email.buildMimeMessage();
+        MimeMessage message = email.getMimeMessage();
+        Session session = email.getMailSession();
+        try {
+            // sets the message id
+            message.saveChanges();
+        } catch (MessagingException e) {
+            throw new EmailException(e);
+        }
+        String hostKey = getHostKey(session);
+        if (hostKey != null) {
+            Session shared = m_sessions.get(hostKey);
+            if (shared == null) {
+                m_sessions.put(hostKey, session);
+            } else {
+                session = shared;
+            }
+        }
+        CmsMailDelivery delivery = new CmsMailDelivery(new CmsUUID().toString(), message, session, hostKey, 0);
+        m_pending.put(delivery.getId(), delivery);
+        // spool the message right away, so it is not lost if the server stops before it has been sent
+        writeSpool(delivery);
+        m_queued.incrementAndGet();
+        try {
+            schedule(delivery, 0);
+        } catch (RejectedExecutionException e) {
+            // the service has already been shut down, the message is sent after the next start
+            m_queued.decrementAndGet();
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_MAIL_DELIVERY_SHUT_DOWN_1, delivery.getId()));
+            }
+        }
+        return delivery;
+    }
+
+    /**
+     * Sends a message, using the connection of the current worker thread if possible.<p>
+     *
+     * @param delivery the delivery of the message
+     *
+     * @throws MessagingException if sending the message fails
+     */
+    protected void send(CmsMailDelivery delivery) throws MessagingException {
+
+        MimeMessage message = delivery.getMessage();
+        Address[] recipients = message.getAllRecipients();
+        String hostKey = delivery.getHostKey();
+        if (hostKey == null) {
+            // the connection can not be shared
+            Transport transport = delivery.getSession().getTransport();
+            transport.connect();
+            try {
+                transport.sendMessage(message, recipients);
+            } finally {
+                transport.close();
+            }
+            return;
+        }
+        Map<String, CmsMailConnection> connections = m_connections.get();
+        if (connections == null) {
+            connections = new HashMap<String, CmsMailConnection>();
+            m_connections.set(connections);
+        }
+        CmsMailConnection connection = connections.get(hostKey);
+        if ((connection != null)
+            && ((System.currentTimeMillis() - connection.m_lastUsed) > CONNECTION_CHECK_INTERVAL)
+            && !connection.m_transport.isConnected()) {
+            // the mail host has closed the connection
+            closeConnection(connections, hostKey);
+            connection = null;
+        }
+        if (connection == null) {
+            Transport transport = delivery.getSession().getTransport();
+            transport.connect();
+            connection = new CmsMailConnection(transport);
+            connections.put(hostKey, connection);
+            synchronized (m_allConnections) {
+                m_allConnections.add(connection);
+            }
+        }
+        try {
+            connection.m_transport.sendMessage(message, recipients);
+            connection.m_lastUsed = System.currentTimeMillis();
+        } catch (MessagingException e) {
+            // the state of the connection is unknown
+            closeConnection(connections, hostKey);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes and removes a connection of the current worker thread.<p>
+     *
+     * @param connections the connections of the current worker thread
+     * @param hostKey the host key of the connection
+     */
+    private void closeConnection(Map<String, CmsMailConnection> connections, String hostKey) {
+
+        CmsMailConnection connection = connections.remove(hostKey);
+        if (connection != null) {
+            connection.close();
+            synchronized (m_allConnections) {
+                m_allConnections.remove(connection);
+            }
+        }
+    }
+
+    /**
+     * Closes all connections of the current worker thread.<p>
+     */
+    private void closeConnections() {
+
+        Map<String, CmsMailConnection> connections = m_connections.get();
+        if (connections != null) {
+            for (String hostKey : new ArrayList<String>(connections.keySet())) {
+                closeConnection(connections, hostKey);
+            }
+        }
+    }
+
+    /**
+     * Tries to send a message once, and schedules another attempt
+     * if sending has failed because of a temporary problem.<p>
+     *
+     * @param delivery the delivery of the message
+     */
+    private void deliver(CmsMailDelivery delivery) {
+
+        if (delivery.getAttempts() == 0) {
+            m_queued.decrementAndGet();
+        }
+        try {
+            throttle();
+        } catch (InterruptedException e) {
+            // the service is shut down
+            return;
+        }
+        Exception error;
+        boolean retry;
+        try {
+            send(delivery);
+            m_sentCount.incrementAndGet();
+            m_pending.remove(delivery.getId());
+            deleteSpool(delivery);
+            delivery.sent();
+            return;
+        } catch (MessagingException e) {
+            error = e;
+            retry = !isPermanentFailure(e);
+        } catch (RuntimeException e) {
+            error = e;
+            retry = false;
+        } finally {
+            if ((m_queued.get() == 0) || m_executor.isShutdown()) {
+                // no more messages waiting, don't keep the connections of this thread open
+                closeConnections();
+            }
+        }
+        int attempts = delivery.getAttempts() + 1;
+        if (retry && (attempts < m_maxAttempts)) {
+            long delay = m_retryDelay * Math.min(MAX_BACKOFF_FACTOR, 1L << Math.min(30, attempts - 1));
+            delivery.failed(error, System.currentTimeMillis() + delay);
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_MAIL_DELIVERY_RETRY_3,
+                        delivery.getId(),
+                        new Integer(attempts),
+                        new Long(delay)),
+                    error);
+            }
+            writeSpool(delivery);
+            schedule(delivery, delay);
+        } else {
+            m_failedCount.incrementAndGet();
+            m_pending.remove(delivery.getId());
+            deleteSpool(delivery);
+            delivery.failed(error, 0);
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_MAIL_DELIVERY_FAILED_2,
+                    delivery.getId(),
+                    new Integer(attempts)),
+                error);
+        }
+    }
+
+    /**
+     * Deletes the spool files of a delivery.<p>
+     *
+     * @param delivery the delivery
+     */
+    private void deleteSpool(CmsMailDelivery delivery) {
+
+        if (m_spoolFolder != null) {
+            new File(m_spoolFolder, delivery.getId() + SPOOL_INFO_SUFFIX).delete();
+            new File(m_spoolFolder, delivery.getId() + SPOOL_MESSAGE_SUFFIX).delete();
+        }
+    }
+
+    /**
+     * Returns the key of the connections that can be used for messages of the given mail session.<p>
+     *
+     * @param session the mail session
+     *
+     * @return the host key, or <code>null</code> if the connection can not be shared
+     */
+    private String getHostKey(Session session) {
+
+        Map<String, String> properties = getSessionProperties(session);
+        String key = properties.toString();
+        if (Boolean.valueOf(properties.get(Email.MAIL_SMTP_AUTH)).booleanValue()) {
+            CmsMailHost host = getMailHost(properties);
+            if ((host == null) || !host.isAuthenticating()) {
+                return null;
+            }
+            key += host.getUsername();
+        }
+        return key;
+    }
+
+    /**
+     * Returns the configured mail host matching the host name and port of the given session properties.<p>
+     *
+     * @param properties the mail session properties
+     *
+     * @return the configured mail host, or <code>null</code> if no configured mail host matches
+     */
+    private CmsMailHost getMailHost(Map<String, String> properties) {
+
+        String hostname = properties.get(Email.MAIL_HOST);
+        String port = properties.get(Email.MAIL_PORT);
+        for (CmsMailHost host : m_mailHosts) {
+            if (host.getHostname().equals(hostname) && String.valueOf(host.getPort()).equals(port)) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the mail properties of the given session, sorted by name.<p>
+     *
+     * @param session the mail session
+     *
+     * @return the mail properties of the session
+     */
+    private Map<String, String> getSessionProperties(Session session) {
+
+        Map<String, String> result = new TreeMap<String, String>();
+        Properties properties = session.getProperties();
+        Enumeration<?> names = properties.propertyNames();
+        while (names.hasMoreElements()) {
+            String name = (String)names.nextElement();
+            if (name.startsWith("mail.")) {
+                result.put(name, properties.getProperty(name));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if a failed attempt to send a message should not be repeated.<p>
+     *
+     * @param e the error of the attempt
+     *
+     * @return <code>true</code> if sending the message again will fail too, or would send the message twice
+     */
+    private boolean isPermanentFailure(MessagingException e) {
+
+        if ((e instanceof AuthenticationFailedException) || (e instanceof ParseException)) {
+            return true;
+        }
+        if (e instanceof SendFailedException) {
+            SendFailedException sfe = (SendFailedException)e;
+            return ((sfe.getInvalidAddresses() != null) && (sfe.getInvalidAddresses().length > 0))
+                || ((sfe.getValidSentAddresses() != null) && (sfe.getValidSentAddresses().length > 0));
+        }
+        return false;
+    }
+
+    /**
+     * Reads the deliveries from the spool folder and schedules them.<p>
+     */
+    private void readSpool() {
+
+        if ((m_spoolFolder == null) || !m_spoolFolder.isDirectory()) {
+            return;
+        }
+        File[] files = m_spoolFolder.listFiles();
+        if (files == null) {
+            return;
+        }
+        int count = 0;
+        for (File infoFile : files) {
+            String name = infoFile.getName();
+            if (!name.endsWith(SPOOL_INFO_SUFFIX)) {
+                continue;
+            }
+            String id = name.substring(0, name.length() - SPOOL_INFO_SUFFIX.length());
+            InputStream in = null;
+            try {
+                Properties info = new Properties();
+                in = new FileInputStream(infoFile);
+                info.load(in);
+                in.close();
+
+                Properties sessionProperties = new Properties();
+                Map<String, String> properties = new TreeMap<String, String>();
+                for (String key : info.stringPropertyNames()) {
+                    if (key.startsWith(SPOOL_SESSION_PREFIX)) {
+                        String value = info.getProperty(key);
+                        sessionProperties.setProperty(key.substring(SPOOL_SESSION_PREFIX.length()), value);
+                        properties.put(key.substring(SPOOL_SESSION_PREFIX.length()), value);
+                    }
+                }
+                Authenticator authenticator = null;
+                if (Boolean.valueOf(properties.get(Email.MAIL_SMTP_AUTH)).booleanValue()) {
+                    CmsMailHost host = getMailHost(properties);
+                    if ((host != null) && host.isAuthenticating()) {
+                        authenticator = new DefaultAuthenticator(host.getUsername(), host.getPassword());
+                    }
+                }
+                Session session = Session.getInstance(sessionProperties, authenticator);
+                String hostKey = getHostKey(session);
+                if (hostKey != null) {
+                    Session shared = m_sessions.get(hostKey);
+                    if (shared == null) {
+                        m_sessions.put(hostKey, session);
+                    } else {
+                        session = shared;
+                    }
+                }
+
+                in = new FileInputStream(new File(m_spoolFolder, id + SPOOL_MESSAGE_SUFFIX));
+                MimeMessage message = new MimeMessage(session, in);
+                int attempts = Integer.parseInt(info.getProperty(SPOOL_ATTEMPTS, "0"));
+                long nextAttempt = Long.parseLong(info.getProperty(SPOOL_NEXT_ATTEMPT, "0"));
+                CmsMailDelivery delivery = new CmsMailDelivery(id, message, session, hostKey, attempts);
+                m_pending.put(id, delivery);
+                if (attempts == 0) {
+                    m_queued.incrementAndGet();
+                }
+                schedule(delivery, Math.max(0, nextAttempt - System.currentTimeMillis()));
+                count++;
+            } catch (Exception e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_MAIL_SPOOL_READ_ERR_1, infoFile), e);
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        if ((count > 0) && LOG.isInfoEnabled()) {
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_MAIL_SPOOL_RESTORED_1, new Integer(count)));
+        }
+    }
+
+    /**
+     * Schedules an attempt to send a message.<p>
+     *
+     * @param delivery the delivery of the message
+     * @param delay the delay in milliseconds
+     */
+    private void schedule(final CmsMailDelivery delivery, long delay) {
+
+        m_executor.schedule(new Runnable() {
+
+            public void run() {
+
+                deliver(delivery);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits until the next message may be sent, if the number of messages per second is limited.<p>
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    private void throttle() throws InterruptedException {
+
+        if (m_sendInterval <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long start = Math.max(now, m_nextSendTime);
+            m_nextSendTime = start + m_sendInterval;
+            wait = start - now;
+        }
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * Writes a delivery to the spool folder.<p>
+     *
+     * @param delivery the delivery
+     */
+    private void writeSpool(CmsMailDelivery delivery) {
+
+        if (m_spoolFolder == null) {
+            return;
+        }
+        OutputStream out = null;
+        try {
+            m_spoolFolder.mkdirs();
+            File messageFile = new File(m_spoolFolder, delivery.getId() + SPOOL_MESSAGE_SUFFIX);
+            if (!messageFile.exists()) {
+                out = new FileOutputStream(messageFile);
+                delivery.getMessage().writeTo(out);
+                out.close();
+            }
+            Properties info = new Properties();
+            for (Map.Entry<String, String> entry : getSessionProperties(delivery.getSession()).entrySet()) {
+                info.setProperty(SPOOL_SESSION_PREFIX + entry.getKey(), entry.getValue());
+            }
+            info.setProperty(SPOOL_ATTEMPTS, String.valueOf(delivery.getAttempts()));
+            info.setProperty(SPOOL_NEXT_ATTEMPT, String.valueOf(delivery.getNextAttempt()));
+            out = new FileOutputStream(new File(m_spoolFolder, delivery.getId() + SPOOL_INFO_SUFFIX));
+            info.store(out, null);
+            out.close();
+            out = null;
+        } catch (Exception e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_MAIL_SPOOL_WRITE_ERR_1, delivery.getId()), e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
@@ -28,7 +28,9 @@
 package org.opencms.mail;
 
 import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -51,6 +53,24 @@ public class CmsMailSettings {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsMailSettings.class);
 
+    /** The maximum number of attempts to deliver a mail. */
+    private int m_deliveryMaxAttempts;
+
+    /** The maximum number of mails delivered per second, 0 for no limit. */
+    private int m_deliveryMaxPerSecond;
+
+    /** The delay before the first retry of a failed delivery in milliseconds. */
+    private long m_deliveryRetryDelay;
+
+    /** The mail delivery service, created on first use. */
+    private CmsMailDeliveryService m_deliveryService;
+
+    /** Indicates if the mail delivery service has been shut down. */
+    private boolean m_deliveryShutDown;
+
+    /** The number of mail delivery threads. */
+    private int m_deliveryThreads;
+
     /** The default mail "from" sender address. */
     private String m_mailFromDefault;
 
@@ -67,6 +87,9 @@ public class CmsMailSettings {
 
         m_mailFromDefault = MAIL_DEFAULT_SENDER;
         m_mailHosts = new ArrayList<CmsMailHost>();
+        m_deliveryThreads = CmsMailDeliveryService.DEFAULT_THREADS;
+        m_deliveryMaxAttempts = CmsMailDeliveryService.DEFAULT_MAX_ATTEMPTS;
+        m_deliveryRetryDelay = CmsMailDeliveryService.DEFAULT_RETRY_DELAY;
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_EMPTY_CONSTRUCTOR_CALLED_1));
         }
@@ -139,6 +162,73 @@ public class CmsMailSettings {
         return m_mailHosts.get(0);
     }
 
+    /**
+     * Returns the maximum number of attempts to deliver a mail.<p>
+     *
+     * @return the maximum number of attempts to deliver a mail
+     */
+    public int getDeliveryMaxAttempts() {
+
+        return m_deliveryMaxAttempts;
+    }
+
+    /**
+     * Returns the maximum number of mails delivered per second.<p>
+     *
+     * @return the maximum number of mails delivered per second, 0 for no limit
+     */
+    public int getDeliveryMaxPerSecond() {
+
+        return m_deliveryMaxPerSecond;
+    }
+
+    /**
+     * Returns the delay before the first retry of a failed delivery in milliseconds.<p>
+     *
+     * The delay is doubled for each further retry.<p>
+     *
+     * @return the delay before the first retry of a failed delivery
+     */
+    public long getDeliveryRetryDelay() {
+
+        return m_deliveryRetryDelay;
+    }
+
+    /**
+     * Returns the mail delivery service, which is created on first use.<p>
+     *
+     * Mails waiting for another delivery attempt are spooled to the folder
+     * {@link CmsMailDeliveryService#SPOOL_FOLDER} below the <code>WEB-INF</code> folder.<p>
+     *
+     * The service is not started again after it has been shut down. The shut down service only
+     * spools the submitted mails, which are sent after the next start.<p>
+     *
+     * @return the mail delivery service, or <code>null</code> if the service has been shut down before it was started
+     */
+    public synchronized CmsMailDeliveryService getDeliveryService() {
+
+        if (m_deliveryShutDown) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_MAIL_DELIVERY_SHUT_DOWN_0));
+            }
+        } else if (m_deliveryService == null) {
+            File spoolFolder = new File(
+                OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(CmsMailDeliveryService.SPOOL_FOLDER));
+            m_deliveryService = new CmsMailDeliveryService(this, spoolFolder);
+        }
+        return m_deliveryService;
+    }
+
+    /**
+     * Returns the number of mail delivery threads.<p>
+     *
+     * @return the number of mail delivery threads
+     */
+    public int getDeliveryThreads() {
+
+        return m_deliveryThreads;
+    }
+
     /**
      * Returns the mail from default sender.<p>
      *
@@ -159,6 +249,50 @@ public class CmsMailSettings {
         return Collections.unmodifiableList(m_mailHosts);
     }
 
+    /**
+     * Sets the mail delivery settings.<p>
+     *
+     * Invalid or missing values are replaced by the defaults.<p>
+     *
+     * @param threads the number of mail delivery threads
+     * @param maxPerSecond the maximum number of mails delivered per second, 0 for no limit
+     * @param maxAttempts the maximum number of attempts to deliver a mail
+     * @param retryDelay the delay before the first retry of a failed delivery in milliseconds
+     */
+    public void setDelivery(String threads, String maxPerSecond, String maxAttempts, String retryDelay) {
+
+        try {
+            m_deliveryThreads = Math.max(1, Integer.parseInt(threads));
+        } catch (Throwable t) {
+            m_deliveryThreads = CmsMailDeliveryService.DEFAULT_THREADS;
+        }
+        try {
+            m_deliveryMaxPerSecond = Math.max(0, Integer.parseInt(maxPerSecond));
+        } catch (Throwable t) {
+            m_deliveryMaxPerSecond = 0;
+        }
+        try {
+            m_deliveryMaxAttempts = Math.max(1, Integer.parseInt(maxAttempts));
+        } catch (Throwable t) {
+            m_deliveryMaxAttempts = CmsMailDeliveryService.DEFAULT_MAX_ATTEMPTS;
+        }
+        try {
+            m_deliveryRetryDelay = Math.max(0, Long.parseLong(retryDelay));
+        } catch (Throwable t) {
+            m_deliveryRetryDelay = CmsMailDeliveryService.DEFAULT_RETRY_DELAY;
+        }
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_DELIVERY_SETTINGS_4,
+                    new Object[] {
+                        new Integer(m_deliveryThreads),
+                        new Integer(m_deliveryMaxPerSecond),
+                        new Integer(m_deliveryMaxAttempts),
+                        new Long(m_deliveryRetryDelay)}));
+        }
+    }
+
     /**
      * Sets the mail from default sender.<p>
      *
@@ -172,6 +306,19 @@ public class CmsMailSettings {
         }
     }
 
+    /**
+     * Shuts down the mail delivery service, if it has been started.<p>
+     *
+     * Afterwards, the mail delivery service is not started again.<p>
+     */
+    public synchronized void shutDown() {
+
+        if (m_deliveryService != null) {
+            m_deliveryService.shutDown();
+        }
+        m_deliveryShutDown = true;
+    }
+
     /**
      * @see java.lang.Object#toString()
      */
@@ -182,6 +329,10 @@ public class CmsMailSettings {
         sb.append("[hosts:" + m_mailHosts.toString());
         sb.append(", order:" + m_orderDefault);
         sb.append(", from:" + m_mailFromDefault);
+        sb.append(", threads:" + m_deliveryThreads);
+        sb.append(", maxpersecond:" + m_deliveryMaxPerSecond);
+        sb.append(", maxattempts:" + m_deliveryMaxAttempts);
+        sb.append(", retrydelay:" + m_deliveryRetryDelay);
         return sb.toString();
     }
 }
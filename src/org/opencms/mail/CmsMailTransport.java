@@ -28,15 +28,19 @@
 package org.opencms.mail;
 
 import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.mail.Email;
 import org.apache.commons.mail.EmailException;
 
 /**
- * Sends an email using a Thread, so that the application can
+ * Sends an email using the {@link CmsMailDeliveryService}, so that the application can
  * continue without waiting for the mail to be send.<p>
  *
+ * The mail is queued and sent by one of the pooled delivery threads, which reuse the connections
+ * to the mail host and retry failed deliveries.<p>
+ *
  * @since 6.0.0
  */
 public class CmsMailTransport extends Thread {
@@ -58,6 +62,8 @@ public class CmsMailTransport extends Thread {
     }
 
     /**
+     * Sends the email in this transport object synchronously in the current thread.<p>
+     *
      * @see java.lang.Thread#run()
      */
     @Override
@@ -74,10 +80,33 @@ public class CmsMailTransport extends Thread {
 
     /**
      * Sends the email in this transport object,
-     * same as calling <code>start()</code>.<p>
+     * by queuing it for the mail delivery service.<p>
+     *
+     * @see #submit()
      */
     public void send() {
 
-        start();
+        submit();
+    }
+
+    /**
+     * Queues the email in this transport object for delivery by the mail delivery service.<p>
+     *
+     * @return the delivery of the email, or <code>null</code> if the email could not be queued
+     */
+    public CmsMailDelivery submit() {
+
+        CmsMailDeliveryService deliveryService = OpenCms.getSystemInfo().getMailSettings().getDeliveryService();
+        if (deliveryService == null) {
+            return null;
+        }
+        try {
+            return deliveryService.submit(m_email);
+        } catch (EmailException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_SEND_MAIL_ERR_0), e);
+            }
+        }
+        return null;
     }
 }
@@ -52,12 +52,36 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_DEFAULT_SENDER_1 = "LOG_DEFAULT_SENDER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DELIVERY_SETTINGS_4 = "LOG_DELIVERY_SETTINGS_4";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_EMPTY_CONSTRUCTOR_CALLED_1 = "LOG_EMPTY_CONSTRUCTOR_CALLED_1";
 
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INVALID_SENDER_ADDRESS_0 = "LOG_INVALID_SENDER_ADDRESS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MAIL_DELIVERY_FAILED_2 = "LOG_MAIL_DELIVERY_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MAIL_DELIVERY_RETRY_3 = "LOG_MAIL_DELIVERY_RETRY_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MAIL_DELIVERY_SHUT_DOWN_0 = "LOG_MAIL_DELIVERY_SHUT_DOWN_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MAIL_DELIVERY_SHUT_DOWN_1 = "LOG_MAIL_DELIVERY_SHUT_DOWN_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MAIL_SPOOL_READ_ERR_1 = "LOG_MAIL_SPOOL_READ_ERR_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MAIL_SPOOL_RESTORED_1 = "LOG_MAIL_SPOOL_RESTORED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MAIL_SPOOL_WRITE_ERR_1 = "LOG_MAIL_SPOOL_WRITE_ERR_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MESSAGE_ID_ERR_0 = "LOG_MESSAGE_ID_ERR_0";
 
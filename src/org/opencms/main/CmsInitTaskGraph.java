@@ -0,0 +1,296 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the initialization tasks of the OpenCms managers, respecting the prerequisites of each task.<p>
+ *
+ * Each task declares the names of the tasks it requires. A task is started as soon as all its
+ * prerequisites have finished, so independent tasks run concurrently on a bounded number of threads.
+ * The time needed by each task is written to the initialization log.<p>
+ *
+ * Prerequisites must be added before the tasks that require them, so the order in which the tasks are
+ * added is always a valid sequential order, which is used if only a single thread is configured.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsInitTaskGraph {
+
+    /**
+     * An initialization task.<p>
+     */
+    public interface I_CmsInitTask {
+
+        /**
+         * Executes the initialization task.<p>
+         *
+         * @throws Exception if something goes wrong
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * The result of an executed initialization task.<p>
+     */
+    private static class CmsInitTaskResult {
+
+        /** The execution time in milliseconds. */
+        long m_duration;
+
+        /** The name of the task. */
+        String m_name;
+
+        /**
+         * Creates a new task result.<p>
+         *
+         * @param name the name of the task
+         * @param duration the execution time in milliseconds
+         */
+        CmsInitTaskResult(String name, long duration) {
+
+            m_name = name;
+            m_duration = duration;
+        }
+    }
+
+    /** The prerequisites of the tasks, by task name. */
+    private Map<String, List<String>> m_prerequisites;
+
+    /** The tasks, by name, in the order they have been added. */
+    private Map<String, I_CmsInitTask> m_tasks;
+
+    /**
+     * Creates a new, empty task graph.<p>
+     */
+    public CmsInitTaskGraph() {
+
+        m_tasks = new LinkedHashMap<String, I_CmsInitTask>();
+        m_prerequisites = new HashMap<String, List<String>>();
+    }
+
+    /**
+     * Adds a task.<p>
+     *
+     * @param name the unique name of the task
+     * @param task the task
+     * @param prerequisites the names of the tasks that must be finished before the task is started
+     *
+     * @throws CmsIllegalArgumentException if a task with the name already exists or a prerequisite has not been added
+     */
+    public void addTask(String name, I_CmsInitTask task, String... prerequisites) {
+
+        if (m_tasks.containsKey(name)) {
+            throw new CmsIllegalArgumentException(Messages.get().container(Messages.ERR_INIT_TASK_DUPLICATE_1, name));
+        }
+        for (String prerequisite : prerequisites) {
+            if (!m_tasks.containsKey(prerequisite)) {
+                throw new CmsIllegalArgumentException(
+                    Messages.get().container(Messages.ERR_INIT_TASK_UNKNOWN_PREREQUISITE_2, name, prerequisite));
+            }
+        }
+        m_tasks.put(name, task);
+        m_prerequisites.put(name, Arrays.asList(prerequisites));
+    }
+
+    /**
+     * Runs all tasks.<p>
+     *
+     * If a task fails, no more tasks are started, and the exception of the failed task is thrown
+     * after all running tasks have finished.<p>
+     *
+     * @param threads the maximum number of tasks to run at the same time
+     *
+     * @throws Exception the exception of the first failed task
+     */
+    public void run(int threads) throws Exception {
+
+        long start = System.currentTimeMillis();
+        if ((threads <= 1) || (m_tasks.size() <= 1)) {
+            for (Map.Entry<String, I_CmsInitTask> entry : m_tasks.entrySet()) {
+                logResult(execute(entry.getKey(), entry.getValue()));
+            }
+        } else {
+            runConcurrently(Math.min(threads, m_tasks.size()));
+        }
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_TASKS_FINISHED_3,
+                    new Integer(m_tasks.size()),
+                    new Integer(Math.max(1, threads)),
+                    new Long(System.currentTimeMillis() - start)));
+        }
+    }
+
+    /**
+     * Executes a single task and measures its execution time.<p>
+     *
+     * @param name the name of the task
+     * @param task the task
+     *
+     * @return the task result
+     *
+     * @throws Exception if the task fails
+     */
+    private CmsInitTaskResult execute(String name, I_CmsInitTask task) throws Exception {
+
+        long start = System.currentTimeMillis();
+        task.run();
+        return new CmsInitTaskResult(name, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Writes the execution time of a task to the initialization log.<p>
+     *
+     * @param result the task result
+     */
+    private void logResult(CmsInitTaskResult result) {
+
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_TASK_FINISHED_2,
+                    result.m_name,
+                    new Long(result.m_duration)));
+        }
+    }
+
+    /**
+     * Runs all tasks on a thread pool, starting each task as soon as its prerequisites are finished.<p>
+     *
+     * @param threads the number of threads
+     *
+     * @throws Exception the exception of the first failed task
+     */
+    private void runConcurrently(int threads) throws Exception {
+
+        // count the unfinished prerequisites and collect the dependent tasks of each task
+        Map<String, Integer> pending = new HashMap<String, Integer>();
+        Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        for (String name : m_tasks.keySet()) {
+            List<String> prerequisites = m_prerequisites.get(name);
+            pending.put(name, new Integer(prerequisites.size()));
+            for (String prerequisite : prerequisites) {
+                List<String> list = dependents.get(prerequisite);
+                if (list == null) {
+                    list = new ArrayList<String>();
+                    dependents.put(prerequisite, list);
+                }
+                list.add(name);
+            }
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                return new Thread(r, "OpenCms-Init-" + threadCount.incrementAndGet());
+            }
+        });
+        CompletionService<CmsInitTaskResult> completion = new ExecutorCompletionService<CmsInitTaskResult>(executor);
+        Exception failure = null;
+        try {
+            int running = 0;
+            for (String name : m_tasks.keySet()) {
+                if (pending.get(name).intValue() == 0) {
+                    submit(completion, name);
+                    running++;
+                }
+            }
+            while (running > 0) {
+                Future<CmsInitTaskResult> future = completion.take();
+                running--;
+                CmsInitTaskResult result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+                    }
+                    continue;
+                }
+                logResult(result);
+                if (failure != null) {
+                    // do not start new tasks after a failure, but wait for the running ones
+                    continue;
+                }
+                List<String> next = dependents.get(result.m_name);
+                if (next != null) {
+                    for (String name : next) {
+                        int count = pending.get(name).intValue() - 1;
+                        pending.put(name, new Integer(count));
+                        if (count == 0) {
+                            submit(completion, name);
+                            running++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Submits a task for execution.<p>
+     *
+     * @param completion the completion service to submit the task to
+     * @param name the name of the task
+     */
+    private void submit(CompletionService<CmsInitTaskResult> completion, final String name) {
+
+        final I_CmsInitTask task = m_tasks.get(name);
+        completion.submit(new Callable<CmsInitTaskResult>() {
+
+            public CmsInitTaskResult call() throws Exception {
+
+                return execute(name, task);
+            }
+        });
+    }
+}
@@ -252,6 +252,16 @@ public final class CmsThreadStore extends Thread {
                     t);
             }
         }
+        try {
+            // save the last login times of the users to db
+            m_securityManager.writeLastLogins();
+        } catch (Throwable t) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error(
+                    org.opencms.db.Messages.get().getBundle().key(org.opencms.db.Messages.LOG_ERR_WRITE_LAST_LOGINS_0),
+                    t);
+            }
+        }
     }
 
     /**
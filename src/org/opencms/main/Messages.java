@@ -102,6 +102,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_ILLEGAL_ARG_2 = "ERR_ILLEGAL_ARG_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_INIT_TASK_DUPLICATE_1 = "ERR_INIT_TASK_DUPLICATE_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_INIT_TASK_UNKNOWN_PREREQUISITE_2 = "ERR_INIT_TASK_UNKNOWN_PREREQUISITE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_INVALID_INIT_USER_2 = "ERR_INVALID_INIT_USER_2";
 
@@ -330,12 +336,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SHUTDOWN_TIME_1 = "INIT_SHUTDOWN_TIME_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_STARTUP_THREADS_1 = "INIT_STARTUP_THREADS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_STARTUP_TIME_1 = "INIT_STARTUP_TIME_1";
 
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SYSTEM_RUNNING_1 = "INIT_SYSTEM_RUNNING_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_TASKS_FINISHED_3 = "INIT_TASKS_FINISHED_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_TASK_FINISHED_2 = "INIT_TASK_FINISHED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_WEBAPP_NAME_1 = "INIT_WEBAPP_NAME_1";
 
@@ -390,6 +405,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_GWTSERVICE_SHUTDOWN_2 = "LOG_ERROR_GWTSERVICE_SHUTDOWN_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_MAIL_SHUTDOWN_1 = "LOG_ERROR_MAIL_SHUTDOWN_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_MEMORY_MONITOR_SHUTDOWN_1 = "LOG_ERROR_MEMORY_MONITOR_SHUTDOWN_1";
 
@@ -420,6 +438,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_SITEMAP_MANAGER_SHUTDOWN_1 = "LOG_ERROR_SITEMAP_MANAGER_SHUTDOWN_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_SUBSCRIPTION_MANAGER_SHUTDOWN_1 = "LOG_ERROR_SUBSCRIPTION_MANAGER_SHUTDOWN_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_THREAD_SHUTDOWN_1 = "LOG_ERROR_THREAD_SHUTDOWN_1";
 
@@ -441,6 +462,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INIT_INVALID_ERROR_2 = "LOG_INIT_INVALID_ERROR_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SCHEMA_WARMUP_ERROR_1 = "LOG_SCHEMA_WARMUP_ERROR_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SCHEMA_WARMUP_FINISHED_2 = "LOG_SCHEMA_WARMUP_FINISHED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SESSION_CREATED_1 = "LOG_SESSION_CREATED_1";
 
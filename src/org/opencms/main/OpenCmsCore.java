@@ -54,6 +54,8 @@ import org.opencms.file.CmsRequestContext;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsUser;
 import org.opencms.file.CmsVfsResourceNotFoundException;
+import org.opencms.file.types.CmsResourceTypeXmlContent;
+import org.opencms.file.types.I_CmsResourceType;
 import org.opencms.flex.CmsFlexCache;
 import org.opencms.flex.CmsFlexCacheConfiguration;
 import org.opencms.flex.CmsFlexController;
@@ -65,6 +67,7 @@ import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.i18n.CmsMessageContainer;
 import org.opencms.i18n.CmsVfsBundleManager;
 import org.opencms.importexport.CmsImportExportManager;
+import org.opencms.jsp.CmsJspParallelElementRenderer;
 import org.opencms.jsp.util.CmsErrorBean;
 import org.opencms.loader.CmsResourceManager;
 import org.opencms.loader.CmsTemplateContextManager;
@@ -101,6 +104,7 @@ import org.opencms.workflow.CmsDefaultWorkflowManager;
 import org.opencms.workflow.I_CmsWorkflowManager;
 import org.opencms.workplace.CmsWorkplace;
 import org.opencms.workplace.CmsWorkplaceManager;
+import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.CmsXmlContentTypeManager;
 import org.opencms.xml.containerpage.CmsFormatterConfiguration;
 
@@ -163,6 +167,12 @@ public final class OpenCmsCore {
     /** The static log object for this class. */
     private static final Log LOG = CmsLog.getLog(OpenCmsCore.class);
 
+    /** Parameter in <code>opencms.properties</code> for the number of threads used to initialize the managers. */
+    private static final String PARAM_STARTUP_THREADS = "startup.threads";
+
+    /** Parameter in <code>opencms.properties</code> to enable parsing the XML schemas in the background after startup. */
+    private static final String PARAM_STARTUP_WARMUP_SCHEMAS = "startup.warmup.schemas";
+
     /** Indicates if the configuration was successfully finished or not. */
     private static CmsMessageContainer m_errorCondition;
 
@@ -1133,7 +1143,7 @@ public final class OpenCmsCore {
         }
 
         // get the system configuration
-        CmsSystemConfiguration systemConfiguration = (CmsSystemConfiguration)m_configurationManager.getConfiguration(
+        final CmsSystemConfiguration systemConfiguration = (CmsSystemConfiguration)m_configurationManager.getConfiguration(
             CmsSystemConfiguration.class);
 
         // initialize the memory monitor
@@ -1328,10 +1338,10 @@ public final class OpenCmsCore {
         m_runtimeProperties.putAll(systemConfiguration.getRuntimeProperties());
 
         // initialize the session storage provider
-        I_CmsSessionStorageProvider sessionStorageProvider = systemConfiguration.getSessionStorageProvider();
+        final I_CmsSessionStorageProvider sessionStorageProvider = systemConfiguration.getSessionStorageProvider();
 
         // get an Admin cms context object with site root set to "/"
-        CmsObject adminCms;
+        final CmsObject adminCms;
         try {
             adminCms = initCmsObject(null, null, getDefaultUsers().getUserAdmin(), (String)null, (String)null);
         } catch (CmsException e) {
@@ -1339,69 +1349,144 @@ public final class OpenCmsCore {
         }
 
         m_repositoryManager.initializeCms(adminCms);
-        // now initialize the other managers
-        try {
-            // initialize the scheduler
-            m_scheduleManager.initialize(initCmsObject(adminCms));
 
-            // initialize the locale manager
-            m_localeManager = systemConfiguration.getLocaleManager();
-            m_localeManager.initialize(initCmsObject(adminCms));
+        // now initialize the other managers, independent managers are initialized concurrently
+        int startupThreads = configuration.getInteger(
+            PARAM_STARTUP_THREADS,
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_STARTUP_THREADS_1, new Integer(startupThreads)));
+        }
+        CmsInitTaskGraph tasks = new CmsInitTaskGraph();
+        tasks.addTask("scheduler", new CmsInitTaskGraph.I_CmsInitTask() {
 
-            // initialize the site manager
-            m_siteManager.initialize(initCmsObject(adminCms));
+            public void run() throws Exception {
 
-            // initialize the static export manager
-            m_staticExportManager.initialize(initCmsObject(adminCms));
+                m_scheduleManager.setSecurityManager(m_securityManager);
+                m_scheduleManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        tasks.addTask("locale", new CmsInitTaskGraph.I_CmsInitTask() {
 
-            // initialize the XML content type manager
-            m_xmlContentTypeManager.initialize(initCmsObject(adminCms));
+            public void run() throws Exception {
 
-            m_orgUnitManager.initialize(initCmsObject(adminCms));
+                m_localeManager = systemConfiguration.getLocaleManager();
+                m_localeManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        tasks.addTask("site", new CmsInitTaskGraph.I_CmsInitTask() {
 
-            // initialize the module manager
-            m_moduleManager.initialize(initCmsObject(adminCms), m_configurationManager);
+            public void run() throws Exception {
 
-            // initialize the resource manager
-            m_resourceManager.initialize(initCmsObject(adminCms));
+                m_siteManager.initialize(initCmsObject(adminCms));
+            }
+        }, "locale");
+        tasks.addTask("staticExport", new CmsInitTaskGraph.I_CmsInitTask() {
 
-            // initialize the publish manager
-            m_publishManager.setPublishEngine(m_publishEngine);
-            m_publishManager.setSecurityManager(m_securityManager);
-            m_publishManager.setPublishListRemoveMode(systemConfiguration.getPublishListRemoveMode());
-            m_publishManager.initialize(initCmsObject(adminCms));
+            public void run() throws Exception {
 
-            // initialize the search manager
-            m_searchManager.initialize(initCmsObject(adminCms));
+                m_staticExportManager.initialize(initCmsObject(adminCms));
+            }
+        }, "site");
+        tasks.addTask("xmlContentType", new CmsInitTaskGraph.I_CmsInitTask() {
 
-            // initialize the VFS bundle manager
-            m_vfsBundleManager = new CmsVfsBundleManager(adminCms);
+            public void run() throws Exception {
 
-            // initialize the workplace manager
-            m_workplaceManager.initialize(initCmsObject(adminCms));
+                m_xmlContentTypeManager.initialize(initCmsObject(adminCms));
+            }
+        }, "locale");
+        tasks.addTask("orgUnit", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
 
-            // initialize the session manager
-            m_sessionManager.initialize(sessionStorageProvider);
-            m_sessionManager.setUserSessionMode(systemConfiguration.getUserSessionMode(true));
+                m_orgUnitManager.initialize(initCmsObject(adminCms));
+            }
+        });
+        tasks.addTask("session", new CmsInitTaskGraph.I_CmsInitTask() {
 
-            // initialize the subscription manager
-            m_subscriptionManager.setSecurityManager(m_securityManager);
-            m_subscriptionManager.initialize(adminCms);
+            public void run() throws Exception {
 
-            // initialize ade manager
-            // initialize the formatter configuration
-            CmsFormatterConfiguration.initialize(adminCms);
-            CmsPersistentLoginTokenHandler.setAdminCms(adminCms);
-            //m_adeManager = new CmsADEManager(initCmsObject(adminCms), m_memoryMonitor, systemConfiguration);
-            m_adeManager = new CmsADEManager(adminCms, m_memoryMonitor, systemConfiguration);
-            m_templateContextManager = new CmsTemplateContextManager(adminCms);
-            m_workflowManager = systemConfiguration.getWorkflowManager();
-            if (m_workflowManager == null) {
-                m_workflowManager = new CmsDefaultWorkflowManager();
-                m_workflowManager.setParameters(new HashMap<String, String>());
+                m_sessionManager.initialize(sessionStorageProvider);
+                m_sessionManager.setUserSessionMode(systemConfiguration.getUserSessionMode(true));
             }
-            m_workflowManager.initialize(adminCms);
-        } catch (CmsException e) {
+        });
+        // the module manager calls the module action classes, which may use any of the managers above
+        tasks.addTask("module", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                m_moduleManager.initialize(initCmsObject(adminCms), m_configurationManager);
+            }
+        }, "scheduler", "locale", "site", "staticExport", "xmlContentType", "orgUnit");
+        tasks.addTask("resource", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                m_resourceManager.initialize(initCmsObject(adminCms));
+            }
+        }, "module");
+        tasks.addTask("publish", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                m_publishManager.setPublishEngine(m_publishEngine);
+                m_publishManager.setSecurityManager(m_securityManager);
+                m_publishManager.setPublishListRemoveMode(systemConfiguration.getPublishListRemoveMode());
+                m_publishManager.initialize(initCmsObject(adminCms));
+            }
+        }, "resource");
+        tasks.addTask("search", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                m_searchManager.initialize(initCmsObject(adminCms));
+            }
+        }, "resource");
+        tasks.addTask("vfsBundle", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                m_vfsBundleManager = new CmsVfsBundleManager(adminCms);
+            }
+        }, "resource");
+        tasks.addTask("workplace", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                m_workplaceManager.initialize(initCmsObject(adminCms));
+            }
+        }, "resource");
+        tasks.addTask("subscription", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                m_subscriptionManager.setSecurityManager(m_securityManager);
+                m_subscriptionManager.initialize(adminCms);
+            }
+        }, "resource");
+        // the ADE managers read the sitemap and formatter configurations, so they need everything else
+        tasks.addTask("ade", new CmsInitTaskGraph.I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                // initialize the formatter configuration
+                CmsFormatterConfiguration.initialize(adminCms);
+                CmsPersistentLoginTokenHandler.setAdminCms(adminCms);
+                m_adeManager = new CmsADEManager(adminCms, m_memoryMonitor, systemConfiguration);
+                m_templateContextManager = new CmsTemplateContextManager(adminCms);
+                m_workflowManager = systemConfiguration.getWorkflowManager();
+                if (m_workflowManager == null) {
+                    m_workflowManager = new CmsDefaultWorkflowManager();
+                    m_workflowManager.setParameters(new HashMap<String, String>());
+                }
+                m_workflowManager.initialize(adminCms);
+            }
+        }, "session", "publish", "search", "vfsBundle", "workplace", "subscription");
+        try {
+            tasks.run(startupThreads);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
             throw new CmsInitException(Messages.get().container(Messages.ERR_CRITICAL_INIT_MANAGERS_0), e);
         }
 
@@ -1410,6 +1495,21 @@ public final class OpenCmsCore {
         } catch (Exception e) {
             CmsLog.INIT.error("Problem with clearing caches after initialization: " + e.getLocalizedMessage(), e);
         }
+
+        if (configuration.getBoolean(PARAM_STARTUP_WARMUP_SCHEMAS, true)) {
+            m_executor.execute(new Runnable() {
+
+                public void run() {
+
+                    warmUpSchemas(adminCms);
+                }
+            });
+        }
+
+        // start the mail delivery service, so that mails spooled before the last shutdown are sent
+        if (getSystemInfo().getMailSettings() != null) {
+            getSystemInfo().getMailSettings().getDeliveryService();
+        }
     }
 
     /**
@@ -1824,12 +1924,23 @@ public final class OpenCmsCore {
                     if (m_executor != null) {
                         m_executor.shutdownNow();
                     }
+                    CmsJspParallelElementRenderer.shutdown();
                 } catch (Throwable e) {
                     CmsLog.INIT.error(
                         Messages.get().getBundle().key(Messages.LOG_ERROR_MODULE_SHUTDOWN_1, e.getMessage()),
                         e);
                 }
 
+                try {
+                    if (getSystemInfo().getMailSettings() != null) {
+                        getSystemInfo().getMailSettings().shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(
+                        Messages.get().getBundle().key(Messages.LOG_ERROR_MAIL_SHUTDOWN_1, e.getMessage()),
+                        e);
+                }
+
                 try {
                     if (m_scheduleManager != null) {
                         m_scheduleManager.shutDown();
@@ -1857,6 +1968,18 @@ public final class OpenCmsCore {
                     CmsLog.INIT.error(e.getLocalizedMessage(), e);
                 }
 
+                try {
+                    // writes the pending visits, so it has to be stopped before the security manager
+                    if (m_subscriptionManager != null) {
+                        m_subscriptionManager.shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_ERROR_SUBSCRIPTION_MANAGER_SHUTDOWN_1,
+                            e.getMessage()),
+                        e);
+                }
                 try {
                     // has to be stopped before the security manager, since this thread uses it
                     if (m_threadStore != null) {
@@ -2088,6 +2211,9 @@ public final class OpenCmsCore {
 
         // everything is initialized, now start publishing
         m_publishManager.startPublishing();
+
+        // the jobs may require all managers, so the executions missed while no server was running are made now
+        m_scheduleManager.executeMisfiredJobs();
     }
 
     /**
@@ -2777,4 +2903,42 @@ public final class OpenCmsCore {
         }
     }
 
+    /**
+     * Parses the XML schemas of all XML content resource types, so that they are available
+     * in the content definition cache when they are first used.<p>
+     *
+     * @param adminCms an Admin user context
+     */
+    private void warmUpSchemas(CmsObject adminCms) {
+
+        long start = System.currentTimeMillis();
+        int count = 0;
+        for (I_CmsResourceType type : getResourceManager().getResourceTypes()) {
+            if (!(type instanceof CmsResourceTypeXmlContent)) {
+                continue;
+            }
+            String schema = ((CmsResourceTypeXmlContent)type).getSchema();
+            if (CmsStringUtil.isEmptyOrWhitespaceOnly(schema)) {
+                continue;
+            }
+            try {
+                CmsObject cms = initCmsObject(adminCms);
+                if (!cms.existsResource(schema)) {
+                    // the schema has not been imported yet, e.g. during the setup
+                    continue;
+                }
+                CmsXmlContentDefinition.unmarshal(cms, schema);
+                count++;
+            } catch (Throwable t) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_SCHEMA_WARMUP_ERROR_1, schema), t);
+            }
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SCHEMA_WARMUP_FINISHED_2,
+                    new Integer(count),
+                    new Long(System.currentTimeMillis() - start)));
+        }
+    }
 }
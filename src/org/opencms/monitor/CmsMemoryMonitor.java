@@ -32,6 +32,7 @@ import org.opencms.cache.CmsMemoryObjectCache;
 import org.opencms.cache.CmsVfsMemoryObjectCache;
 import org.opencms.configuration.CmsSystemConfiguration;
 import org.opencms.db.CmsCacheSettings;
+import org.opencms.db.CmsDbPoolStatistics;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.CmsSecurityManager;
@@ -61,6 +62,7 @@ import org.opencms.scheduler.I_CmsScheduledJob;
 import org.opencms.security.CmsAccessControlList;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.security.CmsPermissionSet;
+import org.opencms.security.CmsPrincipalSet;
 import org.opencms.security.CmsRole;
 import org.opencms.security.I_CmsPermissionHandler;
 import org.opencms.util.CmsCollectionsGenericWrapper;
@@ -127,6 +129,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         XML_ENTITY_TEMP;
     }
 
+    /** Separates the root path of the resource in the cache keys of access control lists. */
+    public static final char ACL_KEY_PATH_SEPARATOR = '|';
+
     /** Set interval for clearing the caches to 10 minutes. */
     private static final int INTERVAL_CLEAR = 1000 * 60 * 10;
 
@@ -166,6 +171,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** Cache for permission checks. */
     private Map<String, I_CmsPermissionHandler.CmsPermissionCheckResult> m_cachePermission;
 
+    /** Cache for the principal sets of users. */
+    private Map<String, CmsPrincipalSet> m_cachePrincipalSet;
+
     /** Cache for offline projects. */
     private Map<String, CmsProject> m_cacheProject;
 
@@ -614,6 +622,22 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cachePermission.put(key, permission);
     }
 
+    /**
+     * Caches the given principal set under the given cache key.<p>
+     *
+     * The principal set cache is flushed together with the user groups and the role lists caches.<p>
+     *
+     * @param key the cache key
+     * @param principals the principal set to cache
+     */
+    public void cachePrincipalSet(String key, CmsPrincipalSet principals) {
+
+        if ((m_disabled.get(CacheType.USERGROUPS) != null) || (m_disabled.get(CacheType.ROLE_LIST) != null)) {
+            return;
+        }
+        m_cachePrincipalSet.put(key, principals);
+    }
+
     /**
      * Caches the given project under its id AND the fully qualified name.<p>
      *
@@ -951,6 +975,29 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return true;
     }
 
+    /**
+     * Removes the cached access control lists of all resources in the given sub tree.<p>
+     *
+     * The cache keys of access control lists end with the root path of the resource, separated
+     * by {@link #ACL_KEY_PATH_SEPARATOR}. All entries with a root path starting with the given
+     * root path are removed, so a folder path removes the folder and all its sub resources.<p>
+     *
+     * @param rootPath the root path of the sub tree
+     */
+    public void flushACLs(String rootPath) {
+
+        synchronized (m_cacheAccessControlList) {
+            Iterator<String> itKeys = m_cacheAccessControlList.keySet().iterator();
+            while (itKeys.hasNext()) {
+                String key = itKeys.next();
+                int pos = key.indexOf(ACL_KEY_PATH_SEPARATOR);
+                if ((pos < 0) || key.startsWith(rootPath, pos + 1)) {
+                    itKeys.remove();
+                }
+            }
+        }
+    }
+
     /**
      * Flushes the ACL cache.<p>
      *
@@ -1027,12 +1074,14 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                     break;
                 case ROLE_LIST:
                     m_cacheRoleLists.clear();
+                    m_cachePrincipalSet.clear();
                     break;
                 case USER:
                     m_cacheUser.clear();
                     break;
                 case USERGROUPS:
                     m_cacheUserGroups.clear();
+                    m_cachePrincipalSet.clear();
                     break;
                 case USER_LIST:
                     m_cacheUserList.clear();
@@ -1460,6 +1509,18 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return m_cachePermission.get(key);
     }
 
+    /**
+     * Returns the principal set cached with the given cache key or <code>null</code> if not found.<p>
+     *
+     * @param key the cache key to look for
+     *
+     * @return the principal set cached with the given cache key
+     */
+    public CmsPrincipalSet getCachedPrincipalSet(String key) {
+
+        return m_cachePrincipalSet.get(key);
+    }
+
     /**
      * Returns the project cached with the given cache key or <code>null</code> if not found.<p>
      *
@@ -1852,6 +1913,12 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cacheUserGroups = Collections.synchronizedMap(lruUserGroups);
         register(CmsDriverManager.class.getName() + ".userGroupsCache", lruUserGroups);
 
+        // principal sets cache
+        Map<String, CmsPrincipalSet> lruPrincipalSets = CmsCollectionsGenericWrapper.createLRUMap(
+            cacheSettings.getUserGroupsCacheSize());
+        m_cachePrincipalSet = Collections.synchronizedMap(lruPrincipalSets);
+        register(CmsDriverManager.class.getName() + ".principalSetCache", lruPrincipalSets);
+
         // project cache
         Map<String, CmsProject> lruProjects = CmsCollectionsGenericWrapper.createLRUMap(
             cacheSettings.getProjectCacheSize());
@@ -2695,12 +2762,22 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             for (Iterator<String> i = OpenCms.getSqlManager().getDbPoolUrls().iterator(); i.hasNext();) {
                 String poolname = i.next();
                 try {
+                    CmsDbPoolStatistics statistics = OpenCms.getSqlManager().getPoolStatistics(poolname);
                     LOG.info(
                         Messages.get().getBundle().key(
                             Messages.LOG_MM_CONNECTIONS_3,
                             poolname,
-                            Integer.toString(OpenCms.getSqlManager().getActiveConnections(poolname)),
-                            Integer.toString(OpenCms.getSqlManager().getIdleConnections(poolname))));
+                            Integer.toString(statistics.getNumActive()),
+                            Integer.toString(statistics.getNumIdle())));
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_MM_CONNECTION_WAITS_5,
+                            new Object[] {
+                                poolname,
+                                Long.toString(statistics.getBorrowCount()),
+                                Long.toString(statistics.getBorrowFailures()),
+                                Long.toString(statistics.getAverageWaitTime()),
+                                Long.toString(statistics.getMaxWaitTime())}));
                 } catch (Exception exc) {
                     LOG.info(
                         Messages.get().getBundle().key(
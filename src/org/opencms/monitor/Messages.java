@@ -46,6 +46,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_CONNECTIONS_3 = "LOG_MM_CONNECTIONS_3";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CONNECTION_WAITS_5 = "LOG_MM_CONNECTION_WAITS_5";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_CREATED_1 = "LOG_MM_CREATED_1";
 
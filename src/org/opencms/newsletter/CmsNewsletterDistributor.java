@@ -28,8 +28,12 @@
 package org.opencms.newsletter;
 
 import org.opencms.file.CmsObject;
+import org.opencms.mail.CmsMailDelivery;
+import org.opencms.mail.CmsMailDeliveryService;
 import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -55,23 +59,51 @@ public class CmsNewsletterDistributor {
     /**
      * Sends a {@link I_CmsNewsletter} to a list of {@link I_CmsNewsletterRecipient} objects.<p>
      *
+     * The mails are queued for the mail delivery service, see {@link #submit(CmsObject, List, I_CmsNewsletter)}.<p>
+     *
      * @param recipients a list of CmsNewsletterRecipient objects
      * @param newsletter the newsletter to be distributed
      * @param cms the CmsObject
      */
     public void distribute(CmsObject cms, List<I_CmsNewsletterRecipient> recipients, I_CmsNewsletter newsletter) {
 
+        submit(cms, recipients, newsletter);
+    }
+
+    /**
+     * Queues a {@link I_CmsNewsletter} for a list of {@link I_CmsNewsletterRecipient} objects.<p>
+     *
+     * The mails are queued for the mail delivery service, which sends them with a pool of
+     * delivery threads reusing the connections to the mail host.<p>
+     *
+     * @param cms the CmsObject
+     * @param recipients a list of CmsNewsletterRecipient objects
+     * @param newsletter the newsletter to be distributed
+     *
+     * @return the deliveries of the queued mails
+     */
+    public List<CmsMailDelivery> submit(
+        CmsObject cms,
+        List<I_CmsNewsletterRecipient> recipients,
+        I_CmsNewsletter newsletter) {
+
+        List<CmsMailDelivery> deliveries = new ArrayList<CmsMailDelivery>(recipients.size());
+        CmsMailDeliveryService deliveryService = OpenCms.getSystemInfo().getMailSettings().getDeliveryService();
+        if (deliveryService == null) {
+            return deliveries;
+        }
         Iterator<I_CmsNewsletterRecipient> recipientsIterator = recipients.iterator();
         while (recipientsIterator.hasNext()) {
             I_CmsNewsletterRecipient recipient = recipientsIterator.next();
             try {
                 Email mail = newsletter.getEmail(cms, recipient);
                 mail.addTo(recipient.getEmail(), recipient.getFullName());
-                mail.send();
+                deliveries.add(deliveryService.submit(mail));
             } catch (Exception e) {
                 LOG.error(e.getMessage(), e);
             }
         }
+        return deliveries;
     }
 
 }
@@ -0,0 +1,287 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.relations;
+
+import org.opencms.main.CmsLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Checks if external HTTP links can be accessed.<p>
+ *
+ * A link checker can be used by several threads at the same time. The result for an URL is only
+ * calculated once and then cached, threads that check an URL which is currently being checked by another
+ * thread wait for the result of the other thread.<p>
+ *
+ * Requests to the same host are spaced by a configurable interval, so validating many links
+ * does not flood a single server. The response bodies are consumed, so the connections can
+ * be reused by the keep-alive support of the Java runtime.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsExternalLinksChecker {
+
+    /** The default connect timeout in milliseconds. */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+    /** The default minimum interval between two requests to the same host in milliseconds. */
+    public static final int DEFAULT_HOST_INTERVAL = 200;
+
+    /** The default read timeout in milliseconds. */
+    public static final int DEFAULT_READ_TIMEOUT = 20000;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsExternalLinksChecker.class);
+
+    /** The maximum number of bytes read from a response to allow the connection to be reused. */
+    private static final int MAX_DRAIN_SIZE = 64 * 1024;
+
+    /** The connect timeout in milliseconds. */
+    private int m_connectTimeout;
+
+    /** The minimum interval between two requests to the same host in milliseconds. */
+    private int m_hostInterval;
+
+    /** The earliest time of the next request, by host. */
+    private Map<String, Long> m_nextRequestTimes;
+
+    /** The read timeout in milliseconds. */
+    private int m_readTimeout;
+
+    /** The number of HTTP requests sent. */
+    private AtomicInteger m_requestCount;
+
+    /** The check results, by URL. */
+    private ConcurrentHashMap<String, FutureTask<Boolean>> m_results;
+
+    /**
+     * Creates a new link checker with the default settings.<p>
+     */
+    public CmsExternalLinksChecker() {
+
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_HOST_INTERVAL);
+    }
+
+    /**
+     * Creates a new link checker.<p>
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout the read timeout in milliseconds
+     * @param hostInterval the minimum interval between two requests to the same host in milliseconds
+     */
+    public CmsExternalLinksChecker(int connectTimeout, int readTimeout, int hostInterval) {
+
+        m_connectTimeout = connectTimeout;
+        m_readTimeout = readTimeout;
+        m_hostInterval = hostInterval;
+        m_nextRequestTimes = new HashMap<String, Long>();
+        m_requestCount = new AtomicInteger();
+        m_results = new ConcurrentHashMap<String, FutureTask<Boolean>>();
+    }
+
+    /**
+     * Checks if the given URL can be accessed.<p>
+     *
+     * URLs using other protocols than HTTP or HTTPS are not checked and always considered valid.<p>
+     *
+     * @param url the URL to check
+     *
+     * @return <code>true</code> if the URL can be accessed
+     */
+    public boolean checkUrl(final URL url) {
+
+        String protocol = url.getProtocol();
+        if (!"http".equals(protocol) && !"https".equals(protocol)) {
+            return true;
+        }
+        String key = url.toExternalForm();
+        FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+
+            public Boolean call() {
+
+                return Boolean.valueOf(isReachable(url));
+            }
+        });
+        FutureTask<Boolean> existing = m_results.putIfAbsent(key, task);
+        if (existing == null) {
+            task.run();
+        } else {
+            task = existing;
+        }
+        try {
+            return task.get().booleanValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of HTTP requests sent by this link checker.<p>
+     *
+     * @return the number of HTTP requests sent
+     */
+    public int getRequestCount() {
+
+        return m_requestCount.get();
+    }
+
+    /**
+     * Checks if the given HTTP URL can be accessed.<p>
+     *
+     * A <code>HEAD</code> request is sent first, if the server does not support it,
+     * a <code>GET</code> request is sent instead.<p>
+     *
+     * @param url the URL to check
+     *
+     * @return <code>true</code> if the server answered the request with status 200
+     */
+    protected boolean isReachable(URL url) {
+
+        try {
+            int status = request(url, "HEAD");
+            if ((status == HttpURLConnection.HTTP_BAD_METHOD) || (status == HttpURLConnection.HTTP_NOT_IMPLEMENTED)) {
+                status = request(url, "GET");
+            }
+            return status == HttpURLConnection.HTTP_OK;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_EXTERNAL_LINK_CHECK_FAILED_1, url), e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reads the remaining response body, so the connection can be reused.<p>
+     *
+     * Connections with a large response body are closed instead.<p>
+     *
+     * @param connection the connection
+     * @param status the response status
+     */
+    private void drain(HttpURLConnection connection, int status) {
+
+        InputStream in = null;
+        try {
+            in = (status >= HttpURLConnection.HTTP_BAD_REQUEST)
+            ? connection.getErrorStream()
+            : connection.getInputStream();
+            if (in != null) {
+                byte[] buffer = new byte[4096];
+                int total = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    total += read;
+                    if (total > MAX_DRAIN_SIZE) {
+                        connection.disconnect();
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // the connection can not be reused
+            connection.disconnect();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a request to the given URL and returns the response status.<p>
+     *
+     * @param url the URL
+     * @param method the request method
+     *
+     * @return the response status
+     *
+     * @throws IOException if the request fails
+     * @throws InterruptedException if the thread is interrupted while waiting for the host
+     */
+    private int request(URL url, String method) throws IOException, InterruptedException {
+
+        waitForHost(url.getHost());
+        m_requestCount.incrementAndGet();
+        HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+        connection.setConnectTimeout(m_connectTimeout);
+        connection.setReadTimeout(m_readTimeout);
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        drain(connection, status);
+        return status;
+    }
+
+    /**
+     * Waits until the next request to the given host is allowed.<p>
+     *
+     * @param host the host
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private void waitForHost(String host) throws InterruptedException {
+
+        if (m_hostInterval <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (m_nextRequestTimes) {
+            long now = System.currentTimeMillis();
+            Long next = m_nextRequestTimes.get(host);
+            long start = ((next == null) || (next.longValue() < now)) ? now : next.longValue();
+            m_nextRequestTimes.put(host, new Long(start + m_hostInterval));
+            wait = start - now;
+        }
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+}
@@ -29,6 +29,7 @@ package org.opencms.relations;
 
 import org.opencms.i18n.CmsMessages;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Locale;
@@ -59,6 +60,16 @@ public class CmsExternalLinksValidationResult {
         m_validationDate = new Date();
     }
 
+    /**
+     * Returns the broken links that were found.<p>
+     *
+     * @return the broken links, with the root path of the pointer resource as key and the link as value
+     */
+    public Map<String, String> getBrokenLinks() {
+
+        return Collections.unmodifiableMap(m_brokenLinks);
+    }
+
     /**
      * Returns a Html representation of this pointer link validation result.<p>
      *
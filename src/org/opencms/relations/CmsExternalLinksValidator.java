@@ -33,69 +33,172 @@ import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.types.CmsResourceTypePointer;
 import org.opencms.main.CmsException;
+import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
 import org.opencms.report.CmsLogReport;
 import org.opencms.report.I_CmsReport;
 import org.opencms.scheduler.I_CmsScheduledJob;
+import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUriSplitter;
 
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to validate pointer links.<p>
  *
+ * Links to external HTTP servers are checked concurrently by a {@link CmsExternalLinksChecker}, using
+ * a bounded number of threads. The following parameters of the scheduled job are supported:<p>
+ *
+ * <ul>
+ * <li><code>writeLog</code>: if <code>true</code>, the report is written to the OpenCms log</li>
+ * <li><code>threads</code>: the number of links checked at the same time</li>
+ * <li><code>connectTimeout</code>: the connect timeout in milliseconds</li>
+ * <li><code>readTimeout</code>: the read timeout in milliseconds</li>
+ * <li><code>hostInterval</code>: the minimum interval between two requests to the same host in milliseconds</li>
+ * </ul>
+ *
  * @since 6.0.0
  */
 public class CmsExternalLinksValidator implements I_CmsScheduledJob {
 
+    /**
+     * The result of an external link check.<p>
+     */
+    private static class CmsLinkCheckResult {
+
+        /** The link of the pointer resource. */
+        String m_linkUrl;
+
+        /** Flag indicating if the link is valid. */
+        boolean m_ok;
+
+        /** The root path of the pointer resource. */
+        String m_rootPath;
+
+        /**
+         * Creates a new link check result.<p>
+         *
+         * @param rootPath the root path of the pointer resource
+         * @param linkUrl the link of the pointer resource
+         * @param ok flag indicating if the link is valid
+         */
+        CmsLinkCheckResult(String rootPath, String linkUrl, boolean ok) {
+
+            m_rootPath = rootPath;
+            m_linkUrl = linkUrl;
+            m_ok = ok;
+        }
+    }
+
+    /** The default number of links checked at the same time. */
+    public static final int DEFAULT_THREADS = 8;
+
+    /** Scheduled job parameter for the connect timeout. */
+    public static final String PARAM_CONNECT_TIMEOUT = "connectTimeout";
+
+    /** Scheduled job parameter for the minimum interval between two requests to the same host. */
+    public static final String PARAM_HOST_INTERVAL = "hostInterval";
+
+    /** Scheduled job parameter for the read timeout. */
+    public static final String PARAM_READ_TIMEOUT = "readTimeout";
+
+    /** Scheduled job parameter for the number of links checked at the same time. */
+    public static final String PARAM_THREADS = "threads";
+
+    /** Scheduled job parameter to write the report to the log. */
+    public static final String PARAM_WRITE_LOG = "writeLog";
+
+    /** The link checker used for external links. */
+    private CmsExternalLinksChecker m_checker;
+
     /** The report for the output. */
     private I_CmsReport m_report;
 
+    /** The number of links checked at the same time. */
+    private int m_threads = DEFAULT_THREADS;
+
     /**
      * Checks if the given url is valid.<p>
      *
-     * @param check the url to check
      * @param cms a OpenCms context object
+     * @param check the url to check
      *
      * @return false if the url could not be accessed
      */
     public static boolean checkUrl(CmsObject cms, String check) {
 
-        // first, create an URI from the string representation
-        URI uri = null;
-        try {
-            uri = new CmsUriSplitter(check, true).toURI();
-        } catch (URISyntaxException exc) {
+        return checkUrl(cms, check, new CmsExternalLinksChecker());
+    }
+
+    /**
+     * Checks if the given url is valid, using the given link checker for external links.<p>
+     *
+     * @param cms a OpenCms context object
+     * @param check the url to check
+     * @param checker the link checker for external links
+     *
+     * @return false if the url could not be accessed
+     */
+    public static boolean checkUrl(CmsObject cms, String check, CmsExternalLinksChecker checker) {
+
+        URI uri = toUri(check);
+        if (uri == null) {
             return false;
         }
         try {
             if (!uri.isAbsolute()) {
                 return cms.existsResource(cms.getRequestContext().removeSiteRoot(uri.getPath()));
             } else {
-                URL url = uri.toURL();
-                if ("http".equals(url.getProtocol())) {
-                    // ensure that file is encoded properly
-                    HttpURLConnection httpcon = (HttpURLConnection)url.openConnection();
-                    return (httpcon.getResponseCode() == 200);
-                } else {
-                    return true;
-                }
+                return checker.checkUrl(uri.toURL());
             }
-        } catch (MalformedURLException mue) {
-            return false;
         } catch (Exception ex) {
             return false;
         }
     }
 
+    /**
+     * Creates an URI from the string representation of a link.<p>
+     *
+     * @param check the link
+     *
+     * @return the URI, or <code>null</code> if the link is not valid
+     */
+    private static URI toUri(String check) {
+
+        try {
+            return new CmsUriSplitter(check, true).toURI();
+        } catch (URISyntaxException exc) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the link checker used for external links.<p>
+     *
+     * @return the link checker used for external links
+     */
+    public CmsExternalLinksChecker getChecker() {
+
+        if (m_checker == null) {
+            m_checker = new CmsExternalLinksChecker();
+        }
+        return m_checker;
+    }
+
     /**
      * This method is called by the cron scheduler.<p>
      *
@@ -106,13 +209,37 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
      */
     public String launch(CmsObject cms, Map<String, String> parameters) throws CmsException {
 
-        if (Boolean.valueOf(parameters.get("writeLog")).booleanValue()) {
+        if (Boolean.valueOf(parameters.get(PARAM_WRITE_LOG)).booleanValue()) {
             m_report = new CmsLogReport(cms.getRequestContext().getLocale(), CmsExternalLinksValidator.class);
         }
+        m_threads = CmsStringUtil.getIntValue(parameters.get(PARAM_THREADS), DEFAULT_THREADS, PARAM_THREADS);
+        m_checker = new CmsExternalLinksChecker(
+            CmsStringUtil.getIntValue(
+                parameters.get(PARAM_CONNECT_TIMEOUT),
+                CmsExternalLinksChecker.DEFAULT_CONNECT_TIMEOUT,
+                PARAM_CONNECT_TIMEOUT),
+            CmsStringUtil.getIntValue(
+                parameters.get(PARAM_READ_TIMEOUT),
+                CmsExternalLinksChecker.DEFAULT_READ_TIMEOUT,
+                PARAM_READ_TIMEOUT),
+            CmsStringUtil.getIntValue(
+                parameters.get(PARAM_HOST_INTERVAL),
+                CmsExternalLinksChecker.DEFAULT_HOST_INTERVAL,
+                PARAM_HOST_INTERVAL));
         validateLinks(cms);
         return "CmsExternLinkValidator.launch(): Links checked.";
     }
 
+    /**
+     * Sets the link checker used for external links.<p>
+     *
+     * @param checker the link checker used for external links
+     */
+    public void setChecker(CmsExternalLinksChecker checker) {
+
+        m_checker = checker;
+    }
+
     /**
      * Sets the report for the output.<p>
      *
@@ -123,9 +250,22 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
         m_report = report;
     }
 
+    /**
+     * Sets the number of links checked at the same time.<p>
+     *
+     * @param threads the number of links checked at the same time
+     */
+    public void setThreads(int threads) {
+
+        m_threads = threads;
+    }
+
     /**
      * Validate all links.<p>
      *
+     * Links to resources in the VFS are checked in the calling thread. Links to external servers are
+     * checked concurrently, the results are written to the report as soon as they are available.<p>
+     *
      * @param cms a OpenCms context object
      *
      * @throws CmsException if something goes wrong
@@ -145,39 +285,68 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
             CmsResourceTypePointer.getStaticTypeName()).getTypeId();
         CmsResourceFilter filter = CmsResourceFilter.ONLY_VISIBLE_NO_DELETED.addRequireType(pointerId);
         List<CmsResource> links = cms.readResources("/", filter);
-        Iterator<CmsResource> iterator = links.iterator();
         Map<String, String> brokenLinks = new HashMap<String, String>();
 
-        for (int i = 1; iterator.hasNext(); i++) {
-            CmsFile link = cms.readFile(cms.getSitePath(iterator.next()), filter);
-            String linkUrl = new String(link.getContents());
-
-            // print to the report
-            m_report.print(
-                org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_SUCCESSION_1,
-                    new Integer(i),
-                    new Integer(links.size())),
-                I_CmsReport.FORMAT_NOTE);
-            m_report.print(Messages.get().container(Messages.RPT_VALIDATE_LINK_0), I_CmsReport.FORMAT_NOTE);
-            m_report.print(
-                org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    link.getRootPath()));
-            m_report.print(Messages.get().container(Messages.GUI_LINK_POINTING_TO_0), I_CmsReport.FORMAT_NOTE);
-            m_report.print(
-                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ARGUMENT_1, linkUrl));
-            m_report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-
-            // check link and append it to the list of broken links, if test fails
-            if (!checkUrl(cms, linkUrl)) {
-                brokenLinks.put(link.getRootPath(), linkUrl);
-                m_report.println(Messages.get().container(Messages.RPT_BROKEN_0), I_CmsReport.FORMAT_ERROR);
-            } else {
-                m_report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                    I_CmsReport.FORMAT_OK);
+        final CmsExternalLinksChecker checker = getChecker();
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, m_threads), new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "OpenCms-ExternalLinksValidator-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        CompletionService<CmsLinkCheckResult> completion = new ExecutorCompletionService<CmsLinkCheckResult>(executor);
+        int count = 0;
+        int pending = 0;
+        try {
+            for (CmsResource resource : links) {
+                CmsFile link = cms.readFile(cms.getSitePath(resource), filter);
+                final String rootPath = link.getRootPath();
+                final String linkUrl = new String(link.getContents());
+                final URI uri = toUri(linkUrl);
+                if ((uri != null) && uri.isAbsolute()) {
+                    // check external links in the background
+                    completion.submit(new Callable<CmsLinkCheckResult>() {
+
+                        public CmsLinkCheckResult call() {
+
+                            boolean ok;
+                            try {
+                                ok = checker.checkUrl(uri.toURL());
+                            } catch (MalformedURLException e) {
+                                ok = false;
+                            }
+                            return new CmsLinkCheckResult(rootPath, linkUrl, ok);
+                        }
+                    });
+                    pending++;
+                } else {
+                    count++;
+                    boolean ok = checkUrl(cms, linkUrl, checker);
+                    reportLink(count, links.size(), rootPath, linkUrl, ok, brokenLinks);
+                }
             }
+            while (pending > 0) {
+                CmsLinkCheckResult result;
+                try {
+                    result = completion.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    throw new CmsRuntimeException(
+                        Messages.get().container(Messages.ERR_EXTERNAL_LINK_CHECK_0),
+                        e.getCause());
+                }
+                pending--;
+                count++;
+                reportLink(count, links.size(), result.m_rootPath, result.m_linkUrl, result.m_ok, brokenLinks);
+            }
+        } finally {
+            executor.shutdownNow();
         }
 
         m_report.println(
@@ -192,4 +361,48 @@ public class CmsExternalLinksValidator implements I_CmsScheduledJob {
 
         OpenCms.getLinkManager().setPointerLinkValidationResult(new CmsExternalLinksValidationResult(brokenLinks));
     }
+
+    /**
+     * Writes the result of a link check to the report and collects the broken links.<p>
+     *
+     * @param index the number of the checked link
+     * @param total the total number of links
+     * @param rootPath the root path of the pointer resource
+     * @param linkUrl the link of the pointer resource
+     * @param ok <code>true</code> if the link is valid
+     * @param brokenLinks the broken links, by root path of the pointer resource
+     */
+    private void reportLink(
+        int index,
+        int total,
+        String rootPath,
+        String linkUrl,
+        boolean ok,
+        Map<String, String> brokenLinks) {
+
+        // print to the report
+        m_report.print(
+            org.opencms.report.Messages.get().container(
+                org.opencms.report.Messages.RPT_SUCCESSION_1,
+                new Integer(index),
+                new Integer(total)),
+            I_CmsReport.FORMAT_NOTE);
+        m_report.print(Messages.get().container(Messages.RPT_VALIDATE_LINK_0), I_CmsReport.FORMAT_NOTE);
+        m_report.print(
+            org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ARGUMENT_1, rootPath));
+        m_report.print(Messages.get().container(Messages.GUI_LINK_POINTING_TO_0), I_CmsReport.FORMAT_NOTE);
+        m_report.print(
+            org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ARGUMENT_1, linkUrl));
+        m_report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+
+        // append the link to the list of broken links, if the test failed
+        if (!ok) {
+            brokenLinks.put(rootPath, linkUrl);
+            m_report.println(Messages.get().container(Messages.RPT_BROKEN_0), I_CmsReport.FORMAT_ERROR);
+        } else {
+            m_report.println(
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                I_CmsReport.FORMAT_OK);
+        }
+    }
 }
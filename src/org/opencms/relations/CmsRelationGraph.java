@@ -0,0 +1,129 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.relations;
+
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The relations of a set of resources, together with the link targets of these relations that exist
+ * in the project the relations are validated against.<p>
+ *
+ * The graph is read once per validation run with a few bulk queries by the {@link CmsRelationSystemValidator},
+ * so checking a link does not need any database access.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsRelationGraph {
+
+    /** The relations to check, keyed by the structure id of the validated resource. */
+    private Map<CmsUUID, List<CmsRelation>> m_relations;
+
+    /** The root paths of the existing link targets, keyed by their structure id. */
+    private Map<CmsUUID, String> m_targetPathsById;
+
+    /** The existing link targets, keyed by their root path without trailing slash. */
+    private Map<String, CmsResource> m_targetsByPath;
+
+    /**
+     * Creates a new relation graph.<p>
+     *
+     * @param relations the relations to check, keyed by the structure id of the validated resource
+     * @param targetsById the existing link targets read by their structure id
+     * @param targetsByPath the existing link targets read by their root path
+     */
+    public CmsRelationGraph(
+        Map<CmsUUID, List<CmsRelation>> relations,
+        List<CmsResource> targetsById,
+        List<CmsResource> targetsByPath) {
+
+        m_relations = relations;
+        m_targetPathsById = new HashMap<CmsUUID, String>(targetsById.size());
+        for (CmsResource target : targetsById) {
+            m_targetPathsById.put(target.getStructureId(), target.getRootPath());
+        }
+        m_targetsByPath = new HashMap<String, CmsResource>(targetsByPath.size());
+        for (CmsResource target : targetsByPath) {
+            m_targetsByPath.put(CmsFileUtil.removeTrailingSeparator(target.getRootPath()), target);
+        }
+    }
+
+    /**
+     * Returns the relations to check for the given resource.<p>
+     *
+     * For resources which are not deleted, these are the relations with the resource as source,
+     * for deleted resources the relations with the resource as target.<p>
+     *
+     * @param resource the validated resource
+     *
+     * @return the relations to check for the given resource
+     */
+    public List<CmsRelation> getRelations(CmsResource resource) {
+
+        List<CmsRelation> relations = m_relations.get(resource.getStructureId());
+        if (relations == null) {
+            return Collections.emptyList();
+        }
+        return relations;
+    }
+
+    /**
+     * Returns the root path of the target of the given relation, if the target has been found by its structure id.<p>
+     *
+     * @param relation the relation
+     *
+     * @return the root path of the target, or <code>null</code> if no resource with the target id exists
+     */
+    public String getTargetRootPath(CmsRelation relation) {
+
+        return m_targetPathsById.get(relation.getTargetId());
+    }
+
+    /**
+     * Checks if a resource with the target path of the given relation exists.<p>
+     *
+     * Like when reading a single resource by its path, a target path with a trailing slash
+     * does not match a file.<p>
+     *
+     * @param relation the relation
+     *
+     * @return <code>true</code> if a resource with the target path exists
+     */
+    public boolean hasTargetPath(CmsRelation relation) {
+
+        String path = relation.getTargetPath();
+        CmsResource target = m_targetsByPath.get(CmsFileUtil.removeTrailingSeparator(path));
+        return (target != null) && !(target.isFile() && path.endsWith("/"));
+    }
+}
@@ -30,6 +30,7 @@ package org.opencms.relations;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsPublishList;
+import org.opencms.db.I_CmsVfsDriver;
 import org.opencms.file.CmsProject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
@@ -41,11 +42,14 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.report.I_CmsReport;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 import org.opencms.workplace.commons.CmsProgressThread;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -195,6 +199,18 @@ public class CmsRelationSystemValidator {
             }
         }
 
+        // read the relations and the existing link targets of all resources at once
+        CmsRelationGraph graph = null;
+        try {
+            graph = readRelationGraph(dbc, resources, project);
+        } catch (CmsException e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_RELATION_GRAPH_READ_FAILED_1,
+                    new Integer(resources.size())),
+                e);
+        }
+
         boolean foundBrokenLinks = false;
         for (int index = 0, size = resources.size(); index < size; index++) {
 
@@ -226,7 +242,12 @@ public class CmsRelationSystemValidator {
                         dbc.removeSiteRoot(resourceName)));
                 report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
             }
-            List<CmsRelation> brokenLinks = validateLinks(dbc, resource, offlineFilesLookup, project, report);
+            List<CmsRelation> brokenLinks;
+            if (graph != null) {
+                brokenLinks = validateLinks(dbc, resource, offlineFilesLookup, project, graph, report);
+            } else {
+                brokenLinks = validateLinks(dbc, resource, offlineFilesLookup, project, report);
+            }
             if (brokenLinks.size() > 0) {
                 // the resource contains broken links
                 invalidResources.put(resourceName, brokenLinks);
@@ -357,6 +378,139 @@ public class CmsRelationSystemValidator {
         return isValidLink;
     }
 
+    /**
+     * Checks a link from a resource which has changed, using the link targets of the given relation graph.<p>
+     *
+     * This gives the same result as {@link #checkLinkForNewOrChangedLinkSource(CmsDbContext, CmsResource, CmsRelation, String, CmsProject, Map)},
+     * without reading the link target from the database.<p>
+     *
+     * @param relation the relation
+     * @param link the link target
+     * @param project the current project
+     * @param fileLookup a lookup table which contains the files which are going to be published
+     * @param graph the relation graph
+     *
+     * @return true if the link will be valid after publishing
+     */
+    protected boolean checkLinkForNewOrChangedLinkSource(
+        CmsRelation relation,
+        String link,
+        CmsProject project,
+        Map<String, CmsResource> fileLookup,
+        CmsRelationGraph graph) {
+
+        boolean isValidLink = true;
+        // the link is valid if the linked resource exists in the online project...
+        String targetPath = graph.getTargetRootPath(relation);
+        if (targetPath != null) {
+            link = targetPath;
+        } else if (!graph.hasTargetPath(relation)) {
+            // ... or if the linked resource is a resource that gets actually published
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_LINK_VALIDATION_READBYPATH_FAILED_2,
+                        relation.getTargetPath(),
+                        project.getName()));
+            }
+            if (!fileLookup.containsKey(link)) {
+                isValidLink = false;
+            }
+        }
+        // ... and if the linked resource to be published get deleted
+        if (fileLookup.containsKey(link)) {
+            CmsResource offlineResource = fileLookup.get(link);
+            if (offlineResource.getState().isDeleted()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(Messages.get().getBundle().key(Messages.LOG_LINK_VALIDATION_RESOURCEDELETED_1, link));
+                }
+                isValidLink = false;
+            }
+        }
+        return isValidLink;
+    }
+
+    /**
+     * Reads the relations of the given resources and the link targets of these relations which exist in the
+     * given project, with a minimal number of queries.<p>
+     *
+     * For resources which are not deleted, the relations with the resource as source are read from the current project,
+     * for deleted resources the relations with the resource as target are read from the given project.<p>
+     *
+     * @param dbc the database context
+     * @param resources the resources to validate
+     * @param project the project to validate against
+     *
+     * @return the relation graph
+     *
+     * @throws CmsException if something goes wrong
+     */
+    protected CmsRelationGraph readRelationGraph(CmsDbContext dbc, List<CmsResource> resources, CmsProject project)
+    throws CmsException {
+
+        List<CmsResource> changedResources = new ArrayList<CmsResource>();
+        List<CmsResource> deletedResources = new ArrayList<CmsResource>();
+        for (CmsResource resource : resources) {
+            if (resource.getState().isDeleted()) {
+                deletedResources.add(resource);
+            } else {
+                changedResources.add(resource);
+            }
+        }
+
+        // search the target of links in the current (offline) project
+        Map<CmsUUID, List<CmsRelation>> outgoingRelations = m_driverManager.getRelationsForResources(
+            dbc,
+            changedResources,
+            CmsRelationFilter.TARGETS);
+        Map<CmsUUID, List<CmsRelation>> relations = new HashMap<CmsUUID, List<CmsRelation>>(outgoingRelations);
+        if (!deletedResources.isEmpty()) {
+            // search the source of links in the online project
+            CmsProject currentProject = dbc.currentProject();
+            dbc.getRequestContext().setCurrentProject(project);
+            try {
+                relations.putAll(
+                    m_driverManager.getRelationsForResources(dbc, deletedResources, CmsRelationFilter.SOURCES));
+            } finally {
+                dbc.getRequestContext().setCurrentProject(currentProject);
+            }
+        }
+
+        // read the link targets in the project to validate against, first by id, then the remaining ones by path
+        Set<CmsUUID> targetIds = new LinkedHashSet<CmsUUID>();
+        for (List<CmsRelation> resourceRelations : outgoingRelations.values()) {
+            for (CmsRelation relation : resourceRelations) {
+                if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(relation.getTargetPath())) {
+                    targetIds.add(relation.getTargetId());
+                }
+            }
+        }
+        I_CmsVfsDriver vfsDriver = m_driverManager.getVfsDriver(dbc);
+        List<CmsResource> targetsById = vfsDriver.readResources(
+            dbc,
+            project.getUuid(),
+            new ArrayList<CmsUUID>(targetIds),
+            true);
+        for (CmsResource target : targetsById) {
+            targetIds.remove(target.getStructureId());
+        }
+        Set<String> targetPaths = new LinkedHashSet<String>();
+        for (List<CmsRelation> resourceRelations : outgoingRelations.values()) {
+            for (CmsRelation relation : resourceRelations) {
+                if (targetIds.contains(relation.getTargetId())
+                    && CmsStringUtil.isNotEmptyOrWhitespaceOnly(relation.getTargetPath())) {
+                    targetPaths.add(relation.getTargetPath());
+                }
+            }
+        }
+        List<CmsResource> targetsByPath = vfsDriver.readResourcesByPaths(
+            dbc,
+            project.getUuid(),
+            new ArrayList<String>(targetPaths),
+            true);
+        return new CmsRelationGraph(relations, targetsById, targetsByPath);
+    }
+
     /**
      * Validates the links for the specified resource.<p>
      *
@@ -376,9 +530,6 @@ public class CmsRelationSystemValidator {
         CmsProject project,
         I_CmsReport report) {
 
-        List<CmsRelation> brokenRelations = new ArrayList<CmsRelation>();
-        Map<String, Boolean> validatedLinks = new HashMap<String, Boolean>();
-
         // get the relations
         List<CmsRelation> incomingRelationsOnline = new ArrayList<CmsRelation>();
         List<CmsRelation> outgoingRelationsOffline = new ArrayList<CmsRelation>();
@@ -409,12 +560,67 @@ public class CmsRelationSystemValidator {
                     Messages.get().container(Messages.LOG_LINK_SEARCH_1, dbc.removeSiteRoot(resource.getRootPath())),
                     I_CmsReport.FORMAT_ERROR);
             }
-            return brokenRelations;
+            return new ArrayList<CmsRelation>();
         }
 
         List<CmsRelation> relations = new ArrayList<CmsRelation>();
         relations.addAll(incomingRelationsOnline);
         relations.addAll(outgoingRelationsOffline);
+        return validateRelations(dbc, resource, relations, fileLookup, project, null, report);
+    }
+
+    /**
+     * Validates the links for the specified resource, using the relations and link targets of a relation graph.<p>
+     *
+     * @param dbc the database context
+     * @param resource the resource that will be validated
+     * @param fileLookup a map for faster lookup with all resources keyed by their rootpath
+     * @param project the project to validate
+     * @param graph the relation graph containing the resource
+     * @param report the report to write to
+     *
+     * @return a list with the broken links as {@link CmsRelation} objects for the specified resource,
+     *          or an empty list if no broken links were found
+     */
+    protected List<CmsRelation> validateLinks(
+        CmsDbContext dbc,
+        CmsResource resource,
+        Map<String, CmsResource> fileLookup,
+        CmsProject project,
+        CmsRelationGraph graph,
+        I_CmsReport report) {
+
+        return validateRelations(dbc, resource, graph.getRelations(resource), fileLookup, project, graph, report);
+    }
+
+    /**
+     * Validates the given relations of the specified resource.<p>
+     *
+     * @param dbc the database context
+     * @param resource the resource that will be validated
+     * @param relations the relations to validate, with the resource as target if it is deleted, otherwise as source
+     * @param fileLookup a map for faster lookup with all resources keyed by their rootpath
+     * @param project the project to validate
+     * @param graph the relation graph to look up the link targets, or <code>null</code> to read them
+     * @param report the report to write to
+     *
+     * @return a list with the broken links as {@link CmsRelation} objects for the specified resource,
+     *          or an empty list if no broken links were found
+     */
+    private List<CmsRelation> validateRelations(
+        CmsDbContext dbc,
+        CmsResource resource,
+        List<CmsRelation> relations,
+        Map<String, CmsResource> fileLookup,
+        CmsProject project,
+        CmsRelationGraph graph,
+        I_CmsReport report) {
+
+        List<CmsRelation> brokenRelations = new ArrayList<CmsRelation>();
+        Map<String, Boolean> validatedLinks = new HashMap<String, Boolean>();
+        List<CmsRelation> outgoingRelationsOffline = resource.getState().isDeleted()
+        ? Collections.<CmsRelation> emptyList()
+        : relations;
         HashMultimap<String, String> outgoingRelationTargets = HashMultimap.create();
         for (CmsRelation outRelation : outgoingRelationsOffline) {
             String sourcePath = outRelation.getSourcePath();
@@ -449,9 +655,10 @@ public class CmsRelationSystemValidator {
             boolean result;
             if (resource.getState().isDeleted()) {
                 result = checkLinkForDeletedLinkTarget(relation, link, fileLookup, outgoingRelationTargets);
+            } else if (graph != null) {
+                result = checkLinkForNewOrChangedLinkSource(relation, link, project, fileLookup, graph);
             } else {
                 result = checkLinkForNewOrChangedLinkSource(dbc, resource, relation, link, project, fileLookup);
-
             }
             boolean isValidLink = result;
             if (!isValidLink) {
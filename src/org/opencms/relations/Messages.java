@@ -40,6 +40,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CATEGORY_INVALID_LOCATION_1 = "ERR_CATEGORY_INVALID_LOCATION_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_EXTERNAL_LINK_CHECK_0 = "ERR_EXTERNAL_LINK_CHECK_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_RELATION_TYPE_INIT_1 = "ERR_RELATION_TYPE_INIT_1";
 
@@ -112,6 +115,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERR_CREATE_CATEGORY_FOLDER_1 = "LOG_ERR_CREATE_CATEGORY_FOLDER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXTERNAL_LINK_CHECK_FAILED_1 = "LOG_EXTERNAL_LINK_CHECK_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_LINK_SEARCH_1 = "LOG_LINK_SEARCH_1";
 
@@ -127,6 +133,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_LINK_VALIDATION_RESOURCENOTINLOOKUP_1 = "LOG_LINK_VALIDATION_RESOURCENOTINLOOKUP_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_RELATION_GRAPH_READ_FAILED_1 = "LOG_RELATION_GRAPH_READ_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_RETRIEVAL_RESOURCES_1 = "LOG_RETRIEVAL_RESOURCES_1";
 
@@ -27,10 +27,14 @@
 
 package org.opencms.scheduler;
 
+import org.opencms.db.CmsSecurityManager;
 import org.opencms.file.CmsObject;
+import org.opencms.file.CmsRequestContext;
 import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsRole;
 import org.opencms.security.CmsRoleViolationException;
@@ -47,6 +51,7 @@ import java.util.Properties;
 
 import org.apache.commons.logging.Log;
 
+import org.quartz.CronExpression;
 import org.quartz.CronTrigger;
 import org.quartz.Job;
 import org.quartz.JobDataMap;
@@ -55,6 +60,7 @@ import org.quartz.JobExecutionContext;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.SchedulerFactory;
+import org.quartz.impl.SchedulerRepository;
 import org.quartz.impl.StdSchedulerFactory;
 
 /**
@@ -80,21 +86,45 @@ public class CmsScheduleManager implements Job {
     /** Key for the scheduled job description in the job data map. */
     public static final String SCHEDULER_JOB_INFO = "org.opencms.scheduler.CmsScheduledJobInfo";
 
+    /** Key for the schedule manager that has scheduled the job in the job data map. */
+    public static final String SCHEDULER_MANAGER = "org.opencms.scheduler.CmsScheduleManager";
+
+    /** The interval in which recorded job executions older than {@link #EXECUTIONS_MAX_AGE} are deleted (1 day). */
+    private static final long EXECUTIONS_CLEANUP_INTERVAL = 24L * 60L * 60L * 1000L;
+
+    /** The time after which recorded job executions are deleted (30 days). */
+    private static final long EXECUTIONS_MAX_AGE = 30L * 24L * 60L * 60L * 1000L;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsScheduleManager.class);
 
+    /** The maximum number of fire times checked when looking for the latest missed execution of a job. */
+    private static final int MISFIRE_MAX_STEPS = 10000;
+
+    /** The name of the Quartz scheduler instance. */
+    private static final String SCHEDULER_NAME = "OpenCmsScheduler";
+
     /** The Admin context used for creation of users for the individual jobs. */
     private CmsObject m_adminCms;
 
     /** The list of job entries from the configuration. */
     private List<CmsScheduledJobInfo> m_configuredJobs;
 
+    /** The time old job executions have been deleted the last time. */
+    private volatile long m_executionsCleanup;
+
     /** The list of scheduled jobs. */
     private List<CmsScheduledJobInfo> m_jobs;
 
+    /** Indicates if the job executions are recorded in the database, so each firing runs on only one server. */
+    private boolean m_persistent;
+
     /** The initialized scheduler. */
     private Scheduler m_scheduler;
 
+    /** The security manager used to record the job executions. */
+    private CmsSecurityManager m_securityManager;
+
     /**
      * Default constructor for the scheduler manager,
      * used only when a new job is scheduled.<p>
@@ -144,7 +174,16 @@ public class CmsScheduleManager implements Job {
             return;
         }
 
-        executeJob(jobInfo);
+        // this is a new empty instance, the manager that has scheduled the job is stored in the job data
+        CmsScheduleManager manager = (CmsScheduleManager)jobData.get(SCHEDULER_MANAGER);
+        if (manager == null) {
+            manager = this;
+        }
+        if (manager.isStoreAvailable()) {
+            manager.executePersistentJob(jobInfo, context.getScheduledFireTime().getTime());
+        } else {
+            manager.executeJob(jobInfo);
+        }
     }
 
     /**
@@ -173,6 +212,72 @@ public class CmsScheduleManager implements Job {
         thread.start();
     }
 
+    /**
+     * Executes the jobs with misfire policy {@link CmsScheduledJobInfo#MISFIRE_POLICY_FIRE_ONCE}
+     * which have missed an execution since their last recorded execution.<p>
+     *
+     * Each job is executed at most once, with the latest missed fire time. Since the execution
+     * is recorded like a regular firing, only one server of a cluster executes it.<p>
+     *
+     * The jobs may require fully initialized managers, so this is called once OpenCms has reached
+     * its final runlevel, and not when this schedule manager is initialized.<p>
+     */
+    public void executeMisfiredJobs() {
+
+        if (!isStoreAvailable()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (final CmsScheduledJobInfo jobInfo : m_jobs) {
+            if (!jobInfo.isActive()
+                || !CmsScheduledJobInfo.MISFIRE_POLICY_FIRE_ONCE.equals(jobInfo.getMisfirePolicy())) {
+                continue;
+            }
+            try {
+                List<CmsScheduledJobExecution> executions = m_securityManager.readScheduledJobExecutions(
+                    getStoreContext(),
+                    jobInfo.getJobKey(),
+                    1);
+                if (executions.isEmpty()) {
+                    // the job has never been executed, so no execution can have been missed
+                    continue;
+                }
+                // the trigger of the job only knows fire times after the job has been scheduled
+                CronExpression cron = new CronExpression(jobInfo.getCronExpression());
+                Date next = cron.getNextValidTimeAfter(new Date(executions.get(0).getFireTime()));
+                if ((next == null) || (next.getTime() >= now)) {
+                    continue;
+                }
+                // use the latest missed fire time, so later restarts do not execute the job again
+                Date latest = next;
+                for (int i = 0; (next != null) && (next.getTime() < now) && (i < MISFIRE_MAX_STEPS); i++) {
+                    latest = next;
+                    next = cron.getNextValidTimeAfter(latest);
+                }
+                final Date missed = latest;
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(Messages.get().getBundle().key(Messages.LOG_JOB_MISFIRED_2, jobInfo.getJobName(), missed));
+                }
+                Thread thread = new Thread() {
+
+                    /**
+                     * @see java.lang.Thread#run()
+                     */
+                    @Override
+                    public void run() {
+
+                        executePersistentJob(jobInfo, missed.getTime());
+                    }
+                };
+                thread.start();
+            } catch (Exception e) {
+                LOG.error(
+                    Messages.get().getBundle().key(Messages.LOG_JOB_MISFIRE_CHECK_ERROR_1, jobInfo.getJobName()),
+                    e);
+            }
+        }
+    }
+
     /**
      * Returns the currently scheduled job description identified by the given id.
      *
@@ -193,6 +298,34 @@ public class CmsScheduleManager implements Job {
         return null;
     }
 
+    /**
+     * Returns the latest recorded executions of a scheduled job, ordered by descending fire time.<p>
+     *
+     * Executions are only recorded if this schedule manager is persistent,
+     * otherwise the result is always empty.<p>
+     *
+     * @param cms an OpenCms context object that must have been initialized with "Admin" permissions
+     * @param jobId the id of the job, obtained with <code>{@link CmsScheduledJobInfo#getId()}</code>
+     * @param maxCount the maximum number of executions to return
+     *
+     * @return the latest recorded executions of the job
+     *
+     * @throws CmsException if the user has insufficient role permissions or reading the executions fails
+     */
+    public List<CmsScheduledJobExecution> getJobExecutions(CmsObject cms, String jobId, int maxCount)
+    throws CmsException {
+
+        if (OpenCms.getRunLevel() > OpenCms.RUNLEVEL_1_CORE_OBJECT) {
+            // simple unit tests will have runlevel 1 and no CmsObject
+            OpenCms.getRoleManager().checkRole(cms, CmsRole.WORKPLACE_MANAGER);
+        }
+        CmsScheduledJobInfo jobInfo = getJob(jobId);
+        if ((jobInfo == null) || !isStoreAvailable()) {
+            return Collections.emptyList();
+        }
+        return m_securityManager.readScheduledJobExecutions(cms.getRequestContext(), jobInfo.getJobKey(), maxCount);
+    }
+
     /**
      * Returns the currently scheduled job descriptions in an unmodifiable list.<p>
      *
@@ -225,9 +358,15 @@ public class CmsScheduleManager implements Job {
         // save the admin cms
         m_adminCms = adminCms;
 
+        // Quartz caches the schedulers by name, so each schedule manager requires its own name
+        String schedulerName = SCHEDULER_NAME;
+        for (int i = 2; SchedulerRepository.getInstance().lookup(schedulerName) != null; i++) {
+            schedulerName = SCHEDULER_NAME + "_" + i;
+        }
+
         // Quartz scheduler settings
         Properties properties = new Properties();
-        properties.put(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "OpenCmsScheduler");
+        properties.put(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, schedulerName);
         properties.put(StdSchedulerFactory.PROP_SCHED_THREAD_NAME, "OpenCms: Scheduler");
         properties.put(StdSchedulerFactory.PROP_SCHED_RMI_EXPORT, CmsStringUtil.FALSE);
         properties.put(StdSchedulerFactory.PROP_SCHED_RMI_PROXY, CmsStringUtil.FALSE);
@@ -281,6 +420,17 @@ public class CmsScheduleManager implements Job {
         }
     }
 
+    /**
+     * Returns if the job executions are recorded in the database, so each firing
+     * of a job runs on only one server of a cluster.<p>
+     *
+     * @return <code>true</code> if the job executions are recorded in the database
+     */
+    public boolean isPersistent() {
+
+        return m_persistent;
+    }
+
     /**
      * Adds a new job to the scheduler.<p>
      *
@@ -401,6 +551,7 @@ public class CmsScheduleManager implements Job {
             // now set the job data
             JobDataMap jobData = new JobDataMap();
             jobData.put(CmsScheduleManager.SCHEDULER_JOB_INFO, jobInfo);
+            jobData.put(CmsScheduleManager.SCHEDULER_MANAGER, this);
             jobDetail.setJobDataMap(jobData);
 
             // finally add the job to the Quartz scheduler
@@ -468,6 +619,32 @@ public class CmsScheduleManager implements Job {
 
     }
 
+    /**
+     * Sets if the job executions are recorded in the database.<p>
+     *
+     * If set, a firing of a job is only executed by the first server of a cluster that records it,
+     * and jobs with the misfire policy {@link CmsScheduledJobInfo#MISFIRE_POLICY_FIRE_ONCE} are executed
+     * once on startup if an execution has been missed while no server was running.<p>
+     *
+     * @param persistent <code>true</code> if the job executions should be recorded in the database
+     */
+    public void setPersistent(boolean persistent) {
+
+        checkNotInitialized();
+        m_persistent = persistent;
+    }
+
+    /**
+     * Sets the security manager during initialization.<p>
+     *
+     * @param securityManager the security manager
+     */
+    public void setSecurityManager(CmsSecurityManager securityManager) {
+
+        checkNotInitialized();
+        m_securityManager = securityManager;
+    }
+
     /**
      * Shuts down this instance of the OpenCms scheduler manager.<p>
      */
@@ -553,44 +730,125 @@ public class CmsScheduleManager implements Job {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_JOB_STARTING_1, jobInfo.getJobName()));
         }
 
-        I_CmsScheduledJob job = jobInfo.getJobInstance();
+        try {
+            launchJob(jobInfo);
+        } catch (Throwable t) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_JOB_EXECUTION_ERROR_1, jobInfo.getJobName()), t);
+        }
 
-        if (job != null) {
-            // launch the job
-            try {
+        logJobExecuted(jobInfo);
+    }
 
-                CmsObject cms = null;
-                // update the request time in the job info to the current time
-                jobInfo.updateContextRequestTime();
-                // some simple test cases might run below this runlevel
-                if (OpenCms.getRunLevel() >= OpenCms.RUNLEVEL_3_SHELL_ACCESS) {
-                    // generate a CmsObject for the job context
-                    // must access the scheduler manager instance from the OpenCms singleton
-                    // to get the initialized CmsObject
-                    cms = OpenCms.initCmsObject(OpenCms.getScheduleManager().getAdminCms(), jobInfo.getContextInfo());
-                }
+    /**
+     * Returns the security manager used to record the job executions.<p>
+     *
+     * @return the security manager used to record the job executions
+     */
+    CmsSecurityManager getSecurityManager() {
 
-                String result = job.launch(cms, jobInfo.getParameters());
-                if (CmsStringUtil.isNotEmpty(result) && LOG.isInfoEnabled()) {
-                    LOG.info(
-                        Messages.get().getBundle().key(Messages.LOG_JOB_EXECUTION_OK_2, jobInfo.getJobName(), result));
+        return m_securityManager;
+    }
+
+    /**
+     * Checks that this schedule manager has not been initialized yet.<p>
+     *
+     * @throws CmsRuntimeException if this schedule manager has already been initialized
+     */
+    private void checkNotInitialized() throws CmsRuntimeException {
+
+        if (m_scheduler != null) {
+            throw new CmsRuntimeException(Messages.get().container(Messages.ERR_SCHEDULER_INITIALIZED_0));
+        }
+    }
+
+    /**
+     * Deletes the recorded job executions which are older than {@link #EXECUTIONS_MAX_AGE}.<p>
+     */
+    private void deleteOldExecutions() {
+
+        try {
+            m_securityManager.deleteScheduledJobExecutions(
+                getStoreContext(),
+                System.currentTimeMillis() - EXECUTIONS_MAX_AGE);
+        } catch (CmsException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_OLD_EXECUTIONS_DELETE_ERROR_0), e);
+        }
+    }
+
+    /**
+     * Executes the given job for the given fire time, if no other server has already recorded
+     * an execution for this fire time.<p>
+     *
+     * @param jobInfo the job info bean
+     * @param fireTime the time the job was scheduled to fire
+     */
+    private void executePersistentJob(CmsScheduledJobInfo jobInfo, long fireTime) {
+
+        String jobKey = jobInfo.getJobKey();
+        String serverName = CmsStringUtil.trimToSize(OpenCms.getSystemInfo().getServerName(), 64, "");
+        long started = System.currentTimeMillis();
+        try {
+            CmsScheduledJobExecution claim = new CmsScheduledJobExecution(
+                jobKey,
+                fireTime,
+                jobInfo.getJobName(),
+                serverName,
+                started,
+                0,
+                CmsScheduledJobExecution.State.RUNNING,
+                null);
+            if (!m_securityManager.createScheduledJobExecution(getStoreContext(), claim)) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_JOB_EXECUTION_SKIPPED_2,
+                            jobInfo.getJobName(),
+                            new Date(fireTime)));
                 }
-            } catch (Throwable t) {
-                LOG.error(Messages.get().getBundle().key(Messages.LOG_JOB_EXECUTION_ERROR_1, jobInfo.getJobName()), t);
+                return;
             }
+        } catch (CmsException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_JOB_CLAIM_ERROR_1, jobInfo.getJobName()), e);
+            return;
         }
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug(Messages.get().getBundle().key(Messages.LOG_JOB_EXECUTED_1, jobInfo.getJobName()));
-            Date nextExecution = jobInfo.getExecutionTimeNext();
-            if (nextExecution != null) {
-                LOG.info(
-                    Messages.get().getBundle().key(
-                        Messages.LOG_JOB_NEXT_EXECUTION_2,
-                        jobInfo.getJobName(),
-                        nextExecution));
-            }
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_JOB_STARTING_1, jobInfo.getJobName()));
+        }
+
+        CmsScheduledJobExecution.State state = CmsScheduledJobExecution.State.SUCCEEDED;
+        String result;
+        try {
+            result = launchJob(jobInfo);
+        } catch (Throwable t) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_JOB_EXECUTION_ERROR_1, jobInfo.getJobName()), t);
+            state = CmsScheduledJobExecution.State.FAILED;
+            result = t.toString();
+        }
+
+        try {
+            CmsScheduledJobExecution execution = new CmsScheduledJobExecution(
+                jobKey,
+                fireTime,
+                jobInfo.getJobName(),
+                serverName,
+                started,
+                System.currentTimeMillis(),
+                state,
+                CmsStringUtil.trimToSize(result, 500));
+            m_securityManager.writeScheduledJobExecution(getStoreContext(), execution);
+        } catch (CmsException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_JOB_RESULT_ERROR_1, jobInfo.getJobName()), e);
         }
+
+        long now = System.currentTimeMillis();
+        if ((now - m_executionsCleanup) >= EXECUTIONS_CLEANUP_INTERVAL) {
+            // the executions are recorded by the jobs, so they are also deleted with them
+            m_executionsCleanup = now;
+            deleteOldExecutions();
+        }
+
+        logJobExecuted(jobInfo);
     }
 
     /**
@@ -602,4 +860,87 @@ public class CmsScheduleManager implements Job {
 
         return m_adminCms;
     }
+
+    /**
+     * Returns the request context used to record the job executions.<p>
+     *
+     * Since the job executions are recorded from the scheduler threads, each call
+     * returns the context of a new copy of the admin context.<p>
+     *
+     * @return the request context used to record the job executions
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private CmsRequestContext getStoreContext() throws CmsException {
+
+        return OpenCms.initCmsObject(getAdminCms()).getRequestContext();
+    }
+
+    /**
+     * Returns if the job executions are recorded in the database.<p>
+     *
+     * @return <code>true</code> if the job executions are recorded in the database
+     */
+    private boolean isStoreAvailable() {
+
+        return m_persistent && (m_securityManager != null) && (getAdminCms() != null);
+    }
+
+    /**
+     * Launches the given job.<p>
+     *
+     * @param jobInfo the job info bean
+     *
+     * @return the result of the job, may be <code>null</code>
+     *
+     * @throws Exception if the job fails
+     */
+    private String launchJob(CmsScheduledJobInfo jobInfo) throws Exception {
+
+        I_CmsScheduledJob job = jobInfo.getJobInstance();
+        if (job == null) {
+            return null;
+        }
+
+        CmsObject cms = null;
+        // update the request time in the job info to the current time
+        jobInfo.updateContextRequestTime();
+        // some simple test cases might run below this runlevel
+        if (OpenCms.getRunLevel() >= OpenCms.RUNLEVEL_3_SHELL_ACCESS) {
+            // generate a CmsObject for the job context
+            // the job may have been started by an empty instance created by Quartz,
+            // in this case the initialized CmsObject is taken from the OpenCms singleton
+            CmsObject adminCms = getAdminCms();
+            if (adminCms == null) {
+                adminCms = OpenCms.getScheduleManager().getAdminCms();
+            }
+            cms = OpenCms.initCmsObject(adminCms, jobInfo.getContextInfo());
+        }
+
+        String result = job.launch(cms, jobInfo.getParameters());
+        if (CmsStringUtil.isNotEmpty(result) && LOG.isInfoEnabled()) {
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_JOB_EXECUTION_OK_2, jobInfo.getJobName(), result));
+        }
+        return result;
+    }
+
+    /**
+     * Logs the end of the execution of the given job.<p>
+     *
+     * @param jobInfo the job info bean
+     */
+    private void logJobExecuted(CmsScheduledJobInfo jobInfo) {
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_JOB_EXECUTED_1, jobInfo.getJobName()));
+            Date nextExecution = jobInfo.getExecutionTimeNext();
+            if (nextExecution != null) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_JOB_NEXT_EXECUTION_2,
+                        jobInfo.getJobName(),
+                        nextExecution));
+            }
+        }
+    }
 }
\ No newline at end of file
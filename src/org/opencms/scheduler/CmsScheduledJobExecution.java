@@ -0,0 +1,209 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.scheduler;
+
+/**
+ * A single execution of a scheduled job, as recorded in the database by a persistent
+ * {@link CmsScheduleManager}.<p>
+ *
+ * An execution is identified by the key of the job and the time the job was scheduled to fire.
+ * The first server of a cluster that records an execution for a fire time runs the job,
+ * all other servers skip this firing.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsScheduledJobExecution {
+
+    /**
+     * The states of a job execution.<p>
+     */
+    public enum State {
+
+        /** The job has thrown an exception. */
+        FAILED,
+
+        /** The job is running. */
+        RUNNING,
+
+        /** The job has finished successfully. */
+        SUCCEEDED
+    }
+
+    /** The time the execution finished, or 0 if it is still running. */
+    private long m_dateFinished;
+
+    /** The time the execution started. */
+    private long m_dateStarted;
+
+    /** The time the job was scheduled to fire. */
+    private long m_fireTime;
+
+    /** The key of the job. */
+    private String m_jobKey;
+
+    /** The name of the job. */
+    private String m_jobName;
+
+    /** The result message of the execution. */
+    private String m_result;
+
+    /** The name of the server that runs the execution. */
+    private String m_serverName;
+
+    /** The state of the execution. */
+    private State m_state;
+
+    /**
+     * Creates a new job execution.<p>
+     *
+     * @param jobKey the key of the job
+     * @param fireTime the time the job was scheduled to fire
+     * @param jobName the name of the job
+     * @param serverName the name of the server that runs the execution
+     * @param dateStarted the time the execution started
+     * @param dateFinished the time the execution finished, or 0 if it is still running
+     * @param state the state of the execution
+     * @param result the result message of the execution, may be <code>null</code>
+     */
+    public CmsScheduledJobExecution(
+        String jobKey,
+        long fireTime,
+        String jobName,
+        String serverName,
+        long dateStarted,
+        long dateFinished,
+        State state,
+        String result) {
+
+        m_jobKey = jobKey;
+        m_fireTime = fireTime;
+        m_jobName = jobName;
+        m_serverName = serverName;
+        m_dateStarted = dateStarted;
+        m_dateFinished = dateFinished;
+        m_state = state;
+        m_result = result;
+    }
+
+    /**
+     * Returns the time the execution finished.<p>
+     *
+     * @return the time the execution finished, or 0 if it is still running
+     */
+    public long getDateFinished() {
+
+        return m_dateFinished;
+    }
+
+    /**
+     * Returns the time the execution started.<p>
+     *
+     * @return the time the execution started
+     */
+    public long getDateStarted() {
+
+        return m_dateStarted;
+    }
+
+    /**
+     * Returns the time the job was scheduled to fire.<p>
+     *
+     * @return the time the job was scheduled to fire
+     */
+    public long getFireTime() {
+
+        return m_fireTime;
+    }
+
+    /**
+     * Returns the key of the job.<p>
+     *
+     * @return the key of the job
+     *
+     * @see CmsScheduledJobInfo#getJobKey()
+     */
+    public String getJobKey() {
+
+        return m_jobKey;
+    }
+
+    /**
+     * Returns the name of the job.<p>
+     *
+     * @return the name of the job
+     */
+    public String getJobName() {
+
+        return m_jobName;
+    }
+
+    /**
+     * Returns the result message of the execution.<p>
+     *
+     * @return the result message of the execution, may be <code>null</code>
+     */
+    public String getResult() {
+
+        return m_result;
+    }
+
+    /**
+     * Returns the name of the server that runs the execution.<p>
+     *
+     * @return the name of the server that runs the execution
+     */
+    public String getServerName() {
+
+        return m_serverName;
+    }
+
+    /**
+     * Returns the state of the execution.<p>
+     *
+     * @return the state of the execution
+     */
+    public State getState() {
+
+        return m_state;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(64);
+        result.append("[job:").append(m_jobName);
+        result.append(", fireTime:").append(m_fireTime);
+        result.append(", server:").append(m_serverName);
+        result.append(", state:").append(m_state);
+        result.append("]");
+        return result.toString();
+    }
+}
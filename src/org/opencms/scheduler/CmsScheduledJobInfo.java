@@ -36,6 +36,7 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
 import java.util.Collections;
 import java.util.Date;
@@ -343,6 +344,12 @@ import org.quartz.Trigger;
  */
 public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
 
+    /** Misfire policy to run a job once after startup if at least one of its executions has been missed. */
+    public static final String MISFIRE_POLICY_FIRE_ONCE = "fireonce";
+
+    /** Misfire policy to ignore executions missed while no server was running (default). */
+    public static final String MISFIRE_POLICY_IGNORE = "ignore";
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsScheduledJobInfo.class);
 
@@ -370,6 +377,9 @@ public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
     /** The name of the job (for information purposes). */
     private String m_jobName;
 
+    /** The policy for executions missed while no server was running. */
+    private String m_misfirePolicy;
+
     /** The parameters used for this job entry. */
     private SortedMap<String, String> m_parameters;
 
@@ -390,6 +400,7 @@ public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
         m_parameters = new TreeMap<String, String>();
         // a job is active by default
         m_active = true;
+        m_misfirePolicy = MISFIRE_POLICY_IGNORE;
     }
 
     /**
@@ -415,6 +426,7 @@ public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
         SortedMap<String, String> parameters) {
 
         m_frozen = false;
+        m_misfirePolicy = MISFIRE_POLICY_IGNORE;
         setId(id);
         if (CmsStringUtil.isNotEmpty(jobName)) {
             // job name is optional, if not present class name will be used
@@ -486,6 +498,7 @@ public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
         result.m_context = (CmsContextInfo)m_context.clone();
         result.m_cronExpression = m_cronExpression;
         result.m_jobName = m_jobName;
+        result.m_misfirePolicy = m_misfirePolicy;
         result.m_parameters = new TreeMap<String, String>(m_parameters);
         result.m_trigger = null;
 
@@ -663,6 +676,29 @@ public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
         return job;
     }
 
+    /**
+     * Returns a key that identifies this job on all servers of a cluster.<p>
+     *
+     * Unlike the id, which is generated when the job is scheduled, the key is derived from
+     * the job configuration, so all servers that schedule the same job use the same key.<p>
+     *
+     * @return the key of this job
+     */
+    public String getJobKey() {
+
+        StringBuffer key = new StringBuffer(256);
+        key.append(m_jobName).append('|');
+        key.append(m_className).append('|');
+        key.append(m_cronExpression).append('|');
+        if (m_context != null) {
+            key.append(m_context.getUserName()).append('|');
+            key.append(m_context.getProjectName()).append('|');
+            key.append(m_context.getSiteRoot()).append('|');
+        }
+        key.append(m_parameters);
+        return CmsUUID.getConstantUUID(key.toString()).toString();
+    }
+
     /**
      * Returns the job name.<p>
      *
@@ -673,6 +709,16 @@ public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
         return m_jobName;
     }
 
+    /**
+     * Returns the policy for executions missed while no server was running.<p>
+     *
+     * @return the misfire policy, either {@link #MISFIRE_POLICY_IGNORE} or {@link #MISFIRE_POLICY_FIRE_ONCE}
+     */
+    public String getMisfirePolicy() {
+
+        return m_misfirePolicy;
+    }
+
     /**
      * Returns the parameters.<p>
      *
@@ -842,6 +888,27 @@ public class CmsScheduledJobInfo implements I_CmsConfigurationParameterHandler {
         m_jobName = jobName;
     }
 
+    /**
+     * Sets the policy for executions missed while no server was running.<p>
+     *
+     * The policy is only used if the schedule manager records the job executions in the database.<p>
+     *
+     * @param misfirePolicy the misfire policy,
+     *      either {@link #MISFIRE_POLICY_IGNORE} or {@link #MISFIRE_POLICY_FIRE_ONCE}
+     */
+    public void setMisfirePolicy(String misfirePolicy) {
+
+        checkFrozen();
+        if (misfirePolicy != null) {
+            misfirePolicy = misfirePolicy.trim().toLowerCase();
+        }
+        if (!MISFIRE_POLICY_IGNORE.equals(misfirePolicy) && !MISFIRE_POLICY_FIRE_ONCE.equals(misfirePolicy)) {
+            throw new CmsIllegalArgumentException(
+                Messages.get().container(Messages.ERR_BAD_MISFIRE_POLICY_2, getJobName(), misfirePolicy));
+        }
+        m_misfirePolicy = misfirePolicy;
+    }
+
     /**
      * Sets the job parameters.<p>
      *
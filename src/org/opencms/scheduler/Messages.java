@@ -52,6 +52,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_BAD_JOB_PARAMS_0 = "ERR_BAD_JOB_PARAMS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_BAD_MISFIRE_POLICY_2 = "ERR_BAD_MISFIRE_POLICY_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_COULD_NOT_RESCHEDULE_JOB_2 = "ERR_COULD_NOT_RESCHEDULE_JOB_2";
 
@@ -82,6 +85,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_NO_SCHEDULER_1 = "ERR_NO_SCHEDULER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_SCHEDULER_INITIALIZED_0 = "ERR_SCHEDULER_INITIALIZED_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_SCHEDULER_PRIORITY_BOUNDS_0 = "ERR_SCHEDULER_PRIORITY_BOUNDS_0";
 
@@ -118,6 +124,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INVALID_JOB_1 = "LOG_INVALID_JOB_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JOB_CLAIM_ERROR_1 = "LOG_JOB_CLAIM_ERROR_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JOB_CREATED_1 = "LOG_JOB_CREATED_1";
 
@@ -130,9 +139,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JOB_EXECUTION_OK_2 = "LOG_JOB_EXECUTION_OK_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JOB_EXECUTION_SKIPPED_2 = "LOG_JOB_EXECUTION_SKIPPED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JOB_MISFIRED_2 = "LOG_JOB_MISFIRED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JOB_MISFIRE_CHECK_ERROR_1 = "LOG_JOB_MISFIRE_CHECK_ERROR_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JOB_NEXT_EXECUTION_2 = "LOG_JOB_NEXT_EXECUTION_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JOB_RESULT_ERROR_1 = "LOG_JOB_RESULT_ERROR_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JOB_SCHEDULED_4 = "LOG_JOB_SCHEDULED_4";
 
@@ -145,6 +166,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NO_SCHEDULER_0 = "LOG_NO_SCHEDULER_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_OLD_EXECUTIONS_DELETE_ERROR_0 = "LOG_OLD_EXECUTIONS_DELETE_ERROR_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_REUSING_INSTANCE_1 = "LOG_REUSING_INSTANCE_1";
 
@@ -66,6 +66,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.analysis.Analyzer;
@@ -211,6 +213,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The use all locale. */
     public static final String USE_ALL_LOCALE = "all";
 
+    /** Constant for additional parameter to set the queries used to warm up a new index searcher, separated by ';'. */
+    public static final String WARMUP_QUERIES = A_PARAM_PREFIX + ".warmupQueries";
+
     /**
      * A stored field visitor, that does not return the large fields: "content" and "contentblob".<p>
      */
@@ -269,7 +274,10 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     private boolean m_ignoreExpiration;
 
     /** The Lucene index searcher to use. */
-    private IndexSearcher m_indexSearcher;
+    private volatile IndexSearcher m_indexSearcher;
+
+    /** The time the current index searcher has been opened. */
+    private volatile long m_indexSearcherDate;
 
     /** The index writer to use. */
     private I_CmsIndexWriter m_indexWriter;
@@ -289,6 +297,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The name of this index. */
     private String m_name;
 
+    /** The number of index readers opened for this index which are not closed yet. */
+    private AtomicInteger m_openReaderCount = new AtomicInteger();
+
     /** The path where this index stores it's data in the "real" file system. */
     private String m_path;
 
@@ -313,6 +324,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The list of configured index sources. */
     private List<CmsSearchIndexSource> m_sources;
 
+    /** The queries used to warm up a new index searcher. */
+    private List<String> m_warmupQueries;
+
     /**
      * Default constructor only intended to be used by the XML configuration. <p>
      *
@@ -330,6 +344,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         m_createExcerpt = true;
         m_maxHits = MAX_HITS_DEFAULT;
         m_checkTimeRange = false;
+        m_warmupQueries = new ArrayList<String>();
     }
 
     /**
@@ -488,6 +503,35 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return result;
     }
 
+    /**
+     * Acquires the current Lucene index searcher of this index for a search.<p>
+     *
+     * The index reader of an acquired searcher stays open even if the index searcher is replaced
+     * in the meantime, until it has been released with {@link #releaseSearcher(IndexSearcher)}.
+     * Every acquired searcher must be released exactly once.<p>
+     *
+     * @return the acquired index searcher, or <code>null</code> if this index has no index searcher
+     */
+    public IndexSearcher acquireSearcher() {
+
+        while (true) {
+            IndexSearcher searcher = m_indexSearcher;
+            if (searcher == null) {
+                return null;
+            }
+            if (searcher.getIndexReader().tryIncRef()) {
+                if (searcher == m_indexSearcher) {
+                    return searcher;
+                }
+                // the searcher has been replaced meanwhile, use the new one
+                releaseSearcher(searcher);
+            } else if (searcher == m_indexSearcher) {
+                // the searcher has been closed without replacement
+                return null;
+            }
+        }
+    }
+
     /**
      * Adds a parameter.<p>
      *
@@ -548,6 +592,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             } catch (NumberFormatException e) {
                 LOG.error(Messages.get().getBundle().key(Messages.LOG_INVALID_PARAM_3, value, key, getName()));
             }
+        } else if (WARMUP_QUERIES.equals(key)) {
+            m_warmupQueries = CmsStringUtil.splitAsList(value, ';', true);
         }
     }
 
@@ -669,6 +715,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         }
         // always write time range check parameter because of logic change in OpenCms 8.0
         result.put(TIME_RANGE, String.valueOf(m_checkTimeRange));
+        if (!m_warmupQueries.isEmpty()) {
+            result.put(WARMUP_QUERIES, CmsStringUtil.listAsString(m_warmupQueries, ";"));
+        }
         return result;
     }
 
@@ -681,11 +730,13 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      */
     public I_CmsSearchDocument getDocument(int docId) {
 
+        IndexSearcher searcher = acquireSearcher();
         try {
-            IndexSearcher searcher = getSearcher();
             return new CmsLuceneDocument(searcher.doc(docId));
         } catch (IOException e) {
             // ignore, return null and assume document was not found
+        } finally {
+            releaseSearcher(searcher);
         }
         return null;
     }
@@ -718,10 +769,10 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      *
      * @return the first document where the given term matches the selected index field
      */
-    public synchronized I_CmsSearchDocument getDocument(String field, String term) {
+    public I_CmsSearchDocument getDocument(String field, String term) {
 
         Document result = null;
-        IndexSearcher searcher = getSearcher();
+        IndexSearcher searcher = acquireSearcher();
         if (searcher != null) {
             // search for an exact match on the selected field
             Term resultTerm = new Term(field, term);
@@ -732,6 +783,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 }
             } catch (IOException e) {
                 // ignore, return null and assume document was not found
+            } finally {
+                releaseSearcher(searcher);
             }
         }
         if (result != null) {
@@ -908,6 +961,19 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_name;
     }
 
+    /**
+     * Returns the number of index readers opened for this index which are not closed yet.<p>
+     *
+     * This includes the reader of the current index searcher as well as replaced readers
+     * which are still used by searches running on an acquired searcher.<p>
+     *
+     * @return the number of open index readers
+     */
+    public int getOpenReaderCount() {
+
+        return m_openReaderCount.get();
+    }
+
     /**
      * Returns the path where this index stores it's data in the "real" file system.<p>
      *
@@ -954,6 +1020,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /**
      * Returns the Lucene index searcher used for this search index.<p>
      *
+     * The returned searcher is not protected against being closed when the index is updated.
+     * For searches use {@link #acquireSearcher()} and {@link #releaseSearcher(IndexSearcher)} instead.<p>
+     *
      * @return the Lucene index searcher used for this search index
      */
     public IndexSearcher getSearcher() {
@@ -961,6 +1030,20 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_indexSearcher;
     }
 
+    /**
+     * Returns the age of the current index searcher of this index.<p>
+     *
+     * @return the time in milliseconds since the current index searcher has been opened,
+     *      or <code>-1</code> if there is no index searcher
+     */
+    public long getSearcherAge() {
+
+        if (m_indexSearcher == null) {
+            return -1;
+        }
+        return System.currentTimeMillis() - m_indexSearcherDate;
+    }
+
     /**
      * Returns all configured sources names of this search index.<p>
      *
@@ -1220,6 +1303,25 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_indexWriter != null;
     }
 
+    /**
+     * Releases an index searcher acquired with {@link #acquireSearcher()}.<p>
+     *
+     * The index reader of the searcher is closed if the searcher has been replaced
+     * and this was the last search using it.<p>
+     *
+     * @param searcher the searcher to release, may be <code>null</code>
+     */
+    public void releaseSearcher(IndexSearcher searcher) {
+
+        if (searcher != null) {
+            try {
+                searcher.getIndexReader().decRef();
+            } catch (IOException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_CLOSE_1, getName()), e);
+            }
+        }
+    }
+
     /**
      * Removes an index source from this search index.<p>
      *
@@ -1243,7 +1345,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      *
      * @throws CmsSearchException if something goes wrong
      */
-    public synchronized CmsSearchResultList search(CmsObject cms, CmsSearchParameters params)
+    public CmsSearchResultList search(CmsObject cms, CmsSearchParameters params)
     throws CmsSearchException {
 
         long timeTotal = -System.currentTimeMillis();
@@ -1262,6 +1364,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
 
         int previousPriority = Thread.currentThread().getPriority();
 
+        IndexSearcher searcher = null;
         try {
             // copy the user OpenCms context
             CmsObject searchCms = OpenCms.initCmsObject(cms);
@@ -1300,7 +1403,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
 
             // get an index searcher that is certainly up to date
             indexSearcherUpdate();
-            IndexSearcher searcher = getSearcher();
+            searcher = acquireSearcher();
 
             if (!params.isIgnoreQuery()) {
                 // since OpenCms 8 the query can be empty in which case only filters are used for the result
@@ -1473,6 +1576,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
 
             // re-set thread to previous priority
             Thread.currentThread().setPriority(previousPriority);
+            releaseSearcher(searcher);
         }
 
         if (LOG.isDebugEnabled()) {
@@ -2185,16 +2289,22 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /**
      * Closes the index searcher for this index.<p>
      *
+     * The index reader is closed once all searches using it have released it.<p>
+     *
      * @see #indexSearcherOpen(String)
      */
     protected synchronized void indexSearcherClose() {
 
-        indexSearcherClose(m_indexSearcher);
+        IndexSearcher searcher = m_indexSearcher;
+        m_indexSearcher = null;
+        indexSearcherClose(searcher);
     }
 
     /**
      * Closes the given Lucene index searcher.<p>
      *
+     * The index reader is closed once all searches using it have released it.<p>
+     *
      * @param searcher the searcher to close
      */
     protected synchronized void indexSearcherClose(IndexSearcher searcher) {
@@ -2209,6 +2319,29 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         }
     }
 
+    /**
+     * Creates a new index searcher for the given index reader, which is warmed up and ready to be used.<p>
+     *
+     * @param reader the index reader to create the searcher for
+     *
+     * @return the new index searcher
+     */
+    protected IndexSearcher indexSearcherCreate(IndexReader reader) {
+
+        m_openReaderCount.incrementAndGet();
+        reader.addReaderClosedListener(new IndexReader.ReaderClosedListener() {
+
+            public void onClose(IndexReader closedReader) {
+
+                m_openReaderCount.decrementAndGet();
+            }
+        });
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setSimilarity(m_sim);
+        indexSearcherWarmUp(searcher);
+        return searcher;
+    }
+
     /**
      * Initializes the index searcher for this index.<p>
      *
@@ -2231,9 +2364,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                     // store old searcher instance to close it later
                     oldSearcher = m_indexSearcher;
                 }
-                m_indexSearcher = new IndexSearcher(reader);
-                m_indexSearcher.setSimilarity(m_sim);
-                m_displayFilters = new HashMap<String, Filter>();
+                m_indexSearcher = indexSearcherCreate(reader);
+                m_indexSearcherDate = System.currentTimeMillis();
+                m_displayFilters = new ConcurrentHashMap<String, Filter>();
             }
         } catch (IOException e) {
             LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_1, getName()), e);
@@ -2247,6 +2380,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /**
      * Reopens the index search reader for this index, required after the index has been changed.<p>
      *
+     * Searches running on the old index searcher are not affected, its index reader
+     * is closed once all of them have released it.<p>
+     *
      * @see #indexSearcherOpen(String)
      */
     protected synchronized void indexSearcherUpdate() {
@@ -2259,8 +2395,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                     IndexReader newReader = DirectoryReader.openIfChanged(
                         (DirectoryReader)oldSearcher.getIndexReader());
                     if (newReader != null) {
-                        m_indexSearcher = new IndexSearcher(newReader);
-                        m_indexSearcher.setSimilarity(m_sim);
+                        m_indexSearcher = indexSearcherCreate(newReader);
+                        m_indexSearcherDate = System.currentTimeMillis();
                         indexSearcherClose(oldSearcher);
                     }
                 }
@@ -2273,6 +2409,26 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         }
     }
 
+    /**
+     * Warms up a new index searcher by running the configured warm-up queries on it.<p>
+     *
+     * This is done before the searcher is used for searches, so the first searches on a
+     * new index reader are not slowed down by loading the index data.<p>
+     *
+     * @param searcher the index searcher to warm up
+     */
+    protected void indexSearcherWarmUp(IndexSearcher searcher) {
+
+        for (String warmupQuery : m_warmupQueries) {
+            try {
+                QueryParser p = new QueryParser(LUCENE_VERSION, CmsSearchField.FIELD_CONTENT, getAnalyzer());
+                searcher.search(p.parse(warmupQuery), getMaxHits());
+            } catch (Exception e) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_WARMUP_QUERY_FAILED_2, warmupQuery, getName()), e);
+            }
+        }
+    }
+
     /**
      * Unlocks the Lucene index writer of this index if required.<p>
      *
@@ -2257,6 +2257,11 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
         m_indexes.clear();
 
+        if (m_extractionResultCache != null) {
+            // keeps the last access times of the cached extraction results for the next start
+            m_extractionResultCache.close();
+        }
+
         shutDownSolrContainer();
 
         if (CmsLog.INIT.isInfoEnabled()) {
@@ -2556,6 +2561,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     protected synchronized void updateAllIndexes(CmsObject adminCms, CmsUUID publishHistoryId, I_CmsReport report) {
 
         int oldPriority = Thread.currentThread().getPriority();
+        // the indexes which have not been updated successfully for the publish job
+        Set<String> failedIndexes = new HashSet<String>();
+        boolean indexesUpdated = false;
         try {
             Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
             List<CmsPublishedResource> publishedResources;
@@ -2641,6 +2649,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                         try {
                             updateIndex(index, report, updateResources);
                         } catch (CmsException e) {
+                            failedIndexes.add(index.getName());
                             LOG.error(
                                 Messages.get().getBundle().key(Messages.LOG_UPDATE_INDEX_FAILED_1, index.getName()),
                                 e);
@@ -2648,9 +2657,18 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                     }
                 }
             }
+            indexesUpdated = true;
             // clean up the extraction result cache
             cleanExtractionCache();
         } finally {
+            // the publish job has been processed, so waiting for its visibility can end
+            for (CmsSolrIndex index : getAllSolrIndexes()) {
+                if (CmsSearchIndex.REBUILD_MODE_AUTO.equals(index.getRebuildMode())) {
+                    index.markPublishIndexed(
+                        publishHistoryId,
+                        indexesUpdated && !failedIndexes.contains(index.getName()));
+                }
+            }
             Thread.currentThread().setPriority(oldPriority);
         }
     }
@@ -2777,8 +2795,8 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 }
 
                 if (backup != null) {
-                    // remove the backup after the files have been re-indexed
-                    index.indexSearcherClose();
+                    // switch the searches to the re-indexed files, then remove the backup
+                    index.indexSearcherOpen(index.getPath());
                     index.removeIndexBackup(backup);
                 }
 
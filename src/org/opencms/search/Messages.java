@@ -436,6 +436,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WAITING_ABANDONED_THREADS_2 = "LOG_WAITING_ABANDONED_THREADS_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_WARMUP_QUERY_FAILED_2 = "LOG_WARMUP_QUERY_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WRITE_SUCCESS_0 = "LOG_WRITE_SUCCESS_0";
 
@@ -113,42 +113,47 @@ public abstract class A_CmsVfsDocument implements I_CmsDocumentFactory {
         if (index.isExtractingContent()) {
             // do full text content extraction only if required
 
-            // check if caching is enabled for this document type
-            CmsExtractionResultCache cache = getCache();
-            String cacheName = null;
-            if ((cache != null) && (resource.getSiblingCount() > 1)) {
-                // hard drive based caching only makes sense for resources that have siblings,
-                // because the index will also store the content as a blob
-                cacheName = cache.getCacheName(
-                    resource,
-                    isLocaleDependend() ? index.getLocaleForResource(cms, resource, null) : null,
-                    getName());
-                content = cache.getCacheObject(cacheName);
-            }
-
-            if (content == null) {
-                // extraction result has not been found in the cache
-                // compare "date of last modification of content" from Lucene index and OpenCms VFS
-                // if this is identical, then the data from the Lucene index can be re-used
-                I_CmsSearchDocument oldDoc = index.getDocument(CmsSearchField.FIELD_PATH, resource.getRootPath());
-                // first check if the document is already in the index
-                if ((oldDoc != null) && (oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT) != null)) {
-                    long contentDateIndex = oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT).getTime();
-                    // now compare the date with the date stored in the resource
-                    if (contentDateIndex == resource.getDateContent()) {
-                        // extract stored content blob from index
-                        content = CmsExtractionResult.fromBytes(oldDoc.getContentBlob());
-                    }
+            // compare "date of last modification of content" from Lucene index and OpenCms VFS
+            // if this is identical, then the data from the Lucene index can be re-used
+            I_CmsSearchDocument oldDoc = index.getDocument(CmsSearchField.FIELD_PATH, resource.getRootPath());
+            // first check if the document is already in the index
+            if ((oldDoc != null) && (oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT) != null)) {
+                long contentDateIndex = oldDoc.getFieldValueAsDate(CmsSearchField.FIELD_DATE_CONTENT).getTime();
+                // now compare the date with the date stored in the resource
+                if (contentDateIndex == resource.getDateContent()) {
+                    // extract stored content blob from index
+                    content = CmsExtractionResult.fromBytes(oldDoc.getContentBlob());
                 }
             }
 
             if (content == null) {
-                // extraction result has not been attached to the resource
+                // check if caching is enabled for this document type
+                CmsExtractionResultCache cache = getCache();
+                String cacheName = null;
+                CmsResource extractResource = resource;
                 try {
-                    content = extractContent(cms, resource, index);
-                    if ((cache != null) && (resource.getSiblingCount() > 1)) {
-                        // save extracted content to the cache
-                        cache.saveCacheObject(cacheName, content);
+                    if ((cache != null) && resource.isFile() && (resource.getSiblingCount() > 1)) {
+                        // hard drive based caching only makes sense for resources that have siblings,
+                        // because the index will also store the content as a blob,
+                        // the cache is content addressed, so all siblings of a resource share one entry,
+                        // the file read here is passed on to the extraction to avoid reading the content twice
+                        CmsFile file = cms.readFile(resource);
+                        if (file.getLength() > 0) {
+                            extractResource = file;
+                            cacheName = cache.getCacheName(
+                                file.getContents(),
+                                isLocaleDependend() ? index.getLocaleForResource(cms, resource, null) : null,
+                                getName());
+                            content = cache.getCacheObject(cacheName);
+                        }
+                    }
+                    if (content == null) {
+                        // extraction result has not been attached to the resource
+                        content = extractContent(cms, extractResource, index);
+                        if (cacheName != null) {
+                            // save extracted content to the cache
+                            cache.saveCacheObject(cacheName, content);
+                        }
                     }
                 } catch (CmsIndexNoContentException e) {
                     // there was no content found for the resource
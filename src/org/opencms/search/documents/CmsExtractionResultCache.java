@@ -27,46 +27,279 @@
 
 package org.opencms.search.documents;
 
-import org.opencms.cache.CmsVfsDiskCache;
+import org.opencms.file.CmsFile;
 import org.opencms.file.CmsResource;
+import org.opencms.i18n.CmsEncoder;
 import org.opencms.main.CmsLog;
 import org.opencms.search.extractors.CmsExtractionResult;
 import org.opencms.search.extractors.I_CmsExtractionResult;
 import org.opencms.util.CmsFileUtil;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.logging.Log;
 
 /**
  * Implements a disk cache that stores text extraction results in the RFS.<p>
  *
- * This cache operates on resource file names, plus a hash code calculated from
- * {@link org.opencms.file.CmsResource#getDateLastModified()}
- * and {@link org.opencms.file.CmsResource#getLength()}. Optional a locale can be appended to this name.<p>
+ * The cache is content addressed: the key of an entry is calculated from an MD5 hash of the
+ * resource content, the name of the search document type and optional a locale. This means that all
+ * siblings and all copies of a resource share the same extraction result, and that the cache is usable for
+ * resources from the online AND the offline project at the same time. A changed resource content will always
+ * result in a new cache key.<p>
  *
- * Since text extraction is done only on the content of a resource, all siblings must have the same content.
- * The difference can be only by the locale setting in case of an XML content or XML page. However,
- * the most problematic contents to extract for the search are in fact the MS Office and PDF formats.
- * For these documents, all siblings must produce the exact same text extraction result.<p>
+ * Instead of one file per extraction result, the entries are appended to a small number of segment files
+ * in the cache folder. An in-memory index maps the cache keys to the position of the entry in the segments,
+ * sealed segments are read through memory mapped buffers. {@link #cleanCache(float)} removes expired entries
+ * from the index and compacts segments that contain mostly expired data.<p>
  *
- * This cache is usable for resources from the online AND the offline project at the same time,
- * because any change to a resource will result in a changed hash code. This means a resource changed in the offline
- * project will have a new hash code compared to the online project. If the resource is identical in the online and
- * the offline project, the generated hash codes will be the same.<p>
+ * A segment file starts with a header (magic number and version), followed by the records. Every record
+ * consists of the key length, the UTF-8 bytes of the key, the last access time, the data length and the
+ * data itself. The data is the byte representation of a {@link CmsExtractionResult}.<p>
  *
  * @since 6.2.0
  */
 public class CmsExtractionResultCache {
 
+    /**
+     * Location of a cache entry in a segment file.<p>
+     */
+    private static class Entry {
+
+        /** The time the entry has been last accessed. */
+        volatile long m_lastAccess;
+
+        /** The length of the entry data. */
+        final int m_length;
+
+        /** The position of the entry data in the segment. */
+        final long m_position;
+
+        /** The length of the complete record in the segment. */
+        final int m_recordLength;
+
+        /** The segment containing the entry. */
+        final Segment m_segment;
+
+        /** The last access time that is stored in the segment. */
+        volatile long m_storedAccess;
+
+        /**
+         * Creates a new entry.<p>
+         *
+         * @param segment the segment containing the entry
+         * @param position the position of the entry data in the segment
+         * @param length the length of the entry data
+         * @param recordLength the length of the complete record in the segment
+         * @param lastAccess the time the entry has been last accessed
+         */
+        Entry(Segment segment, long position, int length, int recordLength, long lastAccess) {
+
+            m_segment = segment;
+            m_position = position;
+            m_length = length;
+            m_recordLength = recordLength;
+            m_lastAccess = lastAccess;
+            m_storedAccess = lastAccess;
+        }
+
+        /**
+         * Stores the last access time of this entry in its segment, if it has changed.<p>
+         *
+         * @throws IOException in case of disk access errors
+         */
+        void storeLastAccess() throws IOException {
+
+            long lastAccess = m_lastAccess;
+            if (lastAccess != m_storedAccess) {
+                // the last access time is stored in front of the data length and the data
+                m_segment.write(m_position - 12, lastAccess);
+                m_storedAccess = lastAccess;
+            }
+        }
+    }
+
+    /**
+     * A segment file of the cache.<p>
+     */
+    private static class Segment {
+
+        /** The channel to the segment file. */
+        final FileChannel m_channel;
+
+        /** The segment file. */
+        final File m_file;
+
+        /** The segment id, used to order the segments. */
+        final int m_id;
+
+        /** The number of bytes in the segment that are still referenced by the index. */
+        long m_liveBytes;
+
+        /** The memory mapped content of the segment, only set for sealed segments. */
+        volatile MappedByteBuffer m_mapped;
+
+        /** The random access file of the segment. */
+        final RandomAccessFile m_raf;
+
+        /** The current size of the segment. */
+        volatile long m_size;
+
+        /**
+         * Opens a segment file.<p>
+         *
+         * @param id the segment id
+         * @param file the segment file
+         *
+         * @throws IOException in case the file could not be opened
+         */
+        Segment(int id, File file) throws IOException {
+
+            m_id = id;
+            m_file = file;
+            m_raf = new RandomAccessFile(file, "rw");
+            m_channel = m_raf.getChannel();
+            m_size = m_channel.size();
+        }
+
+        /**
+         * Closes the segment file.<p>
+         */
+        void close() {
+
+            try {
+                m_raf.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            m_mapped = null;
+        }
+
+        /**
+         * Reads data from the segment.<p>
+         *
+         * @param position the position of the data
+         * @param length the length of the data
+         *
+         * @return the data read
+         *
+         * @throws IOException in case of disk access errors
+         */
+        byte[] read(long position, int length) throws IOException {
+
+            byte[] result = new byte[length];
+            MappedByteBuffer mapped = m_mapped;
+            if (mapped != null) {
+                ByteBuffer buffer = mapped.duplicate();
+                buffer.position((int)position);
+                buffer.get(result);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(result);
+                while (buffer.hasRemaining()) {
+                    if (m_channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException(m_file.getAbsolutePath());
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Seals this segment, no more records are appended afterwards.<p>
+         *
+         * @throws IOException in case of disk access errors
+         */
+        void seal() throws IOException {
+
+            m_channel.force(false);
+            if (m_size > 0) {
+                m_mapped = m_channel.map(FileChannel.MapMode.READ_ONLY, 0, m_size);
+            }
+        }
+
+        /**
+         * Overwrites a long value in the segment.<p>
+         *
+         * @param position the position of the value
+         * @param value the value to write
+         *
+         * @throws IOException in case of disk access errors
+         */
+        void write(long position, long value) throws IOException {
+
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putLong(value);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                m_channel.write(buffer, position + buffer.position());
+            }
+        }
+    }
+
+    /** The default maximum size of a segment file. */
+    public static final int DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /** The interval in which the last access time of a read entry is stored in its segment. */
+    private static final long LAST_ACCESS_STORE_INTERVAL = 10 * 60 * 1000L;
+
+    /** The minimal ratio of referenced data in a sealed segment, segments below are compacted. */
+    private static final float COMPACTION_RATIO = 0.5f;
+
+    /** The file name prefix of the segment files. */
+    private static final String SEGMENT_PREFIX = "extract-";
+
+    /** The file name suffix of the segment files. */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /** The magic number of the segment file header. */
+    private static final int SEGMENT_MAGIC = 0x4F435853;
+
+    /** The length of the segment file header. */
+    private static final int SEGMENT_HEADER_LENGTH = 8;
+
+    /** The version of the segment file format. */
+    private static final int SEGMENT_VERSION = 1;
+
+    /** The file name suffix of the extraction result files used by older versions. */
+    private static final String LEGACY_SUFFIX = ".ext";
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsExtractionResultCache.class);
 
+    /** The currently active segment new entries are appended to. */
+    private volatile Segment m_activeSegment;
+
+    /** The index of the cache entries. */
+    private Map<String, Entry> m_index;
+
+    /** Indicates if the old cache files of previous versions still have to be removed. */
+    private boolean m_legacyFilesChecked;
+
+    /** The maximum size of a segment file. */
+    private int m_maxSegmentSize;
+
     /** The name of the cache base repository folder in the RFS. */
     private String m_rfsRepository;
 
+    /** The segment files of the cache, sorted by id. */
+    private List<Segment> m_segments;
+
     /**
      * Creates a new disk cache.<p>
      *
@@ -75,68 +308,117 @@ public class CmsExtractionResultCache {
      */
     public CmsExtractionResultCache(String basepath, String foldername) {
 
+        this(basepath, foldername, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a new disk cache.<p>
+     *
+     * @param basepath the base path for the cache in the RFS
+     * @param foldername the folder name for this cache, to be used a subfolder for the base folder
+     * @param maxSegmentSize the maximum size of a segment file in bytes
+     */
+    public CmsExtractionResultCache(String basepath, String foldername, int maxSegmentSize) {
+
         // normalize the given folder name
         m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
+        m_maxSegmentSize = maxSegmentSize;
+        m_index = new ConcurrentHashMap<String, Entry>();
+        m_segments = new ArrayList<Segment>();
     }
 
     /**
-     * Removes all expired extraction result cache entries from the RFS cache.<p>
+     * Calculates the content hash used as part of the cache key.<p>
      *
-     * @param maxAge the maximum age of the extraction result cache files in hours (or fractions of hours)
+     * @param content the content to calculate the hash for
      *
-     * @return the total number of deleted resources
+     * @return the content hash as hex String
+     */
+    public static String getContentHash(byte[] content) {
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return new String(Hex.encodeHex(digest.digest(content)));
+        } catch (NoSuchAlgorithmException e) {
+            // MD5 is always available
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Removes all expired extraction result cache entries and compacts the segment files.<p>
+     *
+     * Entries are expired if they have not been accessed for the given maximum age.
+     * Segment files where less than half of the data is still referenced are rewritten.<p>
+     *
+     * @param maxAge the maximum age of the extraction result cache entries in hours (or fractions of hours)
+     *
+     * @return the total number of deleted entries
      */
     public synchronized int cleanCache(float maxAge) {
 
-        // calculate oldest possible date for the cache files
+        // calculate oldest possible date for the cache entries
         long expireDate = System.currentTimeMillis() - (long)(maxAge * 60.0f * 60.0f * 1000.0f);
-        File basedir = new File(m_rfsRepository);
-        // perform the cache cleanup
         int count = 0;
-        if (basedir.canRead() && basedir.isDirectory()) {
-            File[] files = basedir.listFiles();
-            if (files != null) {
-                for (int i = 0; i < files.length; i++) {
-                    File f = files[i];
-                    if (f.canWrite()) {
-                        if (f.lastModified() < expireDate) {
-                            try {
-                                f.delete();
-                                count++;
-                            } catch (Exception e) {
-                                if (LOG.isWarnEnabled()) {
-                                    LOG.warn(
-                                        Messages.get().getBundle().key(
-                                            Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
-                                            f.getAbsolutePath()),
-                                        e);
-                                }
-                            }
-                        }
-                    }
+        try {
+            ensureOpen();
+            Iterator<Entry> i = m_index.values().iterator();
+            while (i.hasNext()) {
+                Entry entry = i.next();
+                if (entry.m_lastAccess < expireDate) {
+                    i.remove();
+                    entry.m_segment.m_liveBytes -= entry.m_recordLength;
+                    count++;
                 }
             }
+            compact();
+        } catch (IOException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+        if (!m_legacyFilesChecked) {
+            deleteLegacyFiles();
+            m_legacyFilesChecked = true;
         }
         return count;
     }
 
     /**
-     * Returns the RFS name used for caching an the text extraction result
-     * based on the given VFS resource and locale.<p>
+     * Closes all segment files of this cache.<p>
      *
-     * @param resource the VFS resource to generate the cache name for
-     * @param locale the locale to generate the cache name for (may be <code>null</code>)
+     * The last access times of the entries which have been read since they have been stored
+     * are written to the segment files before, so that they are kept for the next start.<p>
+     */
+    public synchronized void close() {
+
+        for (Entry entry : m_index.values()) {
+            try {
+                entry.storeLastAccess();
+            } catch (IOException e) {
+                LOG.warn(e.getLocalizedMessage(), e);
+            }
+        }
+        for (Segment segment : m_segments) {
+            segment.close();
+        }
+        m_segments.clear();
+        m_index.clear();
+        m_activeSegment = null;
+    }
+
+    /**
+     * Returns the key used for caching the text extraction result
+     * based on the given content, locale and document type.<p>
+     *
+     * @param content the content of the VFS resource to generate the cache key for
+     * @param locale the locale to generate the cache key for (may be <code>null</code>)
      * @param docTypeName the name of the search document type
      *
-     * @return the RFS name to use for caching the given VFS resource with parameters
+     * @return the key to use for caching the given content with parameters
      */
-    public String getCacheName(CmsResource resource, Locale locale, String docTypeName) {
+    public String getCacheName(byte[] content, Locale locale, String docTypeName) {
 
-        // create a StringBuffer for the result
-        StringBuffer buf = new StringBuffer(m_rfsRepository.length() + 36);
-        buf.append(m_rfsRepository);
-        buf.append('/');
-        buf.append(resource.getResourceId().toString());
+        StringBuffer buf = new StringBuffer(64);
+        buf.append(getContentHash(content));
 
         if (docTypeName != null) {
             buf.append('_');
@@ -148,45 +430,98 @@ public class CmsExtractionResultCache {
             buf.append('_');
             buf.append(locale.toString());
         }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the key used for caching the text extraction result
+     * based on the given VFS resource, locale and document type.<p>
+     *
+     * If the given resource is a file with content, the key is calculated from the content,
+     * like {@link #getCacheName(byte[], Locale, String)} does. Otherwise the key is calculated from
+     * the resource id and the date of the last content modification.<p>
+     *
+     * @param resource the VFS resource to generate the cache key for
+     * @param locale the locale to generate the cache key for (may be <code>null</code>)
+     * @param docTypeName the name of the search document type
+     *
+     * @return the key to use for caching the given VFS resource with parameters
+     *
+     * @deprecated use {@link #getCacheName(byte[], Locale, String)} with the content of the resource instead,
+     *      so that siblings and copies of a resource share one extraction result
+     */
+    @Deprecated
+    public String getCacheName(CmsResource resource, Locale locale, String docTypeName) {
 
-        // append the date of last content modification to the result buffer
-        // please note that we need only worry about last change in content, since properties are ignored here
+        if ((resource instanceof CmsFile) && (((CmsFile)resource).getContents().length > 0)) {
+            return getCacheName(((CmsFile)resource).getContents(), locale, docTypeName);
+        }
+        StringBuffer buf = new StringBuffer(64);
+        buf.append(resource.getResourceId().toString());
         buf.append('_');
         buf.append(resource.getDateContent());
 
-        // finally append the extension
-        buf.append(".ext");
+        if (docTypeName != null) {
+            buf.append('_');
+            buf.append(docTypeName);
+        }
+
+        // check if parameters are provided, if so add them as well
+        if (locale != null) {
+            buf.append('_');
+            buf.append(locale.toString());
+        }
         return buf.toString();
     }
 
     /**
-     * Returns the extraction result in the requested file in the disk cache, or <code>null</code> if the
-     * file is not found in the cache, or is found but out-dated.<p>
+     * Returns the extraction result stored for the given key in the disk cache, or <code>null</code> if the
+     * key is not found in the cache.<p>
      *
-     * @param rfsName the file RFS name to look up in the cache
+     * @param cacheName the key to look up in the cache
      *
-     * @return the extraction result stored in the requested file in the RFS disk cache, or <code>null</code>
+     * @return the extraction result stored for the key in the disk cache, or <code>null</code>
      */
-    public CmsExtractionResult getCacheObject(String rfsName) {
+    public CmsExtractionResult getCacheObject(String cacheName) {
 
         try {
-            File f = new File(rfsName);
-            if (f.exists()) {
-                long age = f.lastModified();
-                if ((System.currentTimeMillis() - age) > 3600000) {
-                    // file has not been touched for 1 hour, touch the file with the current date
-                    f.setLastModified(System.currentTimeMillis());
+            ensureOpen();
+            Entry entry = m_index.get(cacheName);
+            if (entry != null) {
+                byte[] byteContent = entry.m_segment.read(entry.m_position, entry.m_length);
+                entry.m_lastAccess = System.currentTimeMillis();
+                if ((entry.m_lastAccess - entry.m_storedAccess) > LAST_ACCESS_STORE_INTERVAL) {
+                    // keep the last access time for the next start, to not expire entries which are in use
+                    try {
+                        entry.storeLastAccess();
+                    } catch (IOException e) {
+                        // the time is stored again later
+                    }
                 }
-                byte[] byteContent = CmsFileUtil.readFile(f);
                 return CmsExtractionResult.fromBytes(byteContent);
             }
         } catch (IOException e) {
-            // unable to read content
+            // unable to read content, the segment may have been compacted concurrently
         }
-        // this code can be reached only in case of an error
+        // this code can be reached only in case of an error or a cache miss
         return null;
     }
 
+    /**
+     * Returns the number of entries in the cache.<p>
+     *
+     * @return the number of entries in the cache
+     */
+    public int getCacheSize() {
+
+        try {
+            ensureOpen();
+        } catch (IOException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+        return m_index.size();
+    }
+
     /**
      * Returns the absolute path of the cache repository in the RFS.<p>
      *
@@ -198,18 +533,338 @@ public class CmsExtractionResultCache {
     }
 
     /**
-     * Serializes the given extraction result and saves it in the disk cache.<p>
+     * Returns the number of segment files used by the cache.<p>
+     *
+     * @return the number of segment files used by the cache
+     */
+    public synchronized int getSegmentCount() {
+
+        return m_segments.size();
+    }
+
+    /**
+     * Encodes the given extraction result and saves it in the disk cache.<p>
      *
-     * @param rfsName the RFS name of the file to save the extraction result in
-     * @param content the extraction result to serialize and save
+     * @param cacheName the key to save the extraction result for
+     * @param content the extraction result to save
      *
      * @throws IOException in case of disk access errors
      */
-    public void saveCacheObject(String rfsName, I_CmsExtractionResult content) throws IOException {
+    public synchronized void saveCacheObject(String cacheName, I_CmsExtractionResult content) throws IOException {
 
         byte[] byteContent = content.getBytes();
         if (byteContent != null) {
-            CmsVfsDiskCache.saveFile(rfsName, byteContent);
+            ensureOpen();
+            Entry entry = append(cacheName, byteContent, System.currentTimeMillis());
+            Entry old = m_index.put(cacheName, entry);
+            if (old != null) {
+                old.m_segment.m_liveBytes -= old.m_recordLength;
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the active segment.<p>
+     *
+     * @param cacheName the key of the record
+     * @param data the data of the record
+     * @param lastAccess the last access time of the record
+     *
+     * @return the index entry for the appended record
+     *
+     * @throws IOException in case of disk access errors
+     */
+    private Entry append(String cacheName, byte[] data, long lastAccess) throws IOException {
+
+        byte[] key = cacheName.getBytes(CmsEncoder.ENCODING_UTF_8);
+        int recordLength = 4 + key.length + 8 + 4 + data.length;
+        if ((m_activeSegment == null)
+            || ((m_activeSegment.m_size > SEGMENT_HEADER_LENGTH)
+                && ((m_activeSegment.m_size + recordLength) > m_maxSegmentSize))) {
+            rollSegment();
+        }
+        Segment segment = m_activeSegment;
+        ByteBuffer buffer = ByteBuffer.allocate(recordLength);
+        buffer.putInt(key.length);
+        buffer.put(key);
+        buffer.putLong(lastAccess);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        buffer.flip();
+        long recordStart = segment.m_size;
+        while (buffer.hasRemaining()) {
+            segment.m_channel.write(buffer, recordStart + buffer.position());
+        }
+        segment.m_size = recordStart + recordLength;
+        segment.m_liveBytes += recordLength;
+        return new Entry(segment, (recordStart + recordLength) - data.length, data.length, recordLength, lastAccess);
+    }
+
+    /**
+     * Rewrites all sealed segments with a low ratio of referenced data.<p>
+     *
+     * @throws IOException in case of disk access errors
+     */
+    private void compact() throws IOException {
+
+        List<Segment> candidates = new ArrayList<Segment>();
+        for (Segment segment : m_segments) {
+            if ((segment != m_activeSegment)
+                && ((segment.m_liveBytes <= 0)
+                    || (segment.m_liveBytes < ((segment.m_size - SEGMENT_HEADER_LENGTH) * COMPACTION_RATIO)))) {
+                candidates.add(segment);
+            }
+        }
+        for (Segment segment : candidates) {
+            for (Map.Entry<String, Entry> mapEntry : m_index.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                if (entry.m_segment == segment) {
+                    byte[] data = segment.read(entry.m_position, entry.m_length);
+                    m_index.put(mapEntry.getKey(), append(mapEntry.getKey(), data, entry.m_lastAccess));
+                }
+            }
+            m_segments.remove(segment);
+            segment.close();
+            if (!segment.m_file.delete()) {
+                // file may still be mapped on some platforms
+                segment.m_file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Deletes the extraction result files that have been written by previous versions of this cache.<p>
+     */
+    private void deleteLegacyFiles() {
+
+        File[] files = new File(m_rfsRepository).listFiles(new FileFilter() {
+
+            public boolean accept(File pathname) {
+
+                return pathname.getName().endsWith(LEGACY_SUFFIX);
+            }
+        });
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                File f = files[i];
+                if (!f.delete() && LOG.isWarnEnabled()) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
+                            f.getAbsolutePath()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the segment files and builds the index, if this has not already been done.<p>
+     *
+     * @throws IOException in case of disk access errors
+     */
+    private void ensureOpen() throws IOException {
+
+        if (m_activeSegment == null) {
+            synchronized (this) {
+                if (m_activeSegment == null) {
+                    open();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the segment id encoded in a segment file name.<p>
+     *
+     * @param name the segment file name
+     *
+     * @return the segment id, or -1 if the name is no segment file name
+     */
+    private int getSegmentId(String name) {
+
+        if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+            try {
+                return Integer.parseInt(
+                    name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                // no segment file
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the file for the segment with the given id.<p>
+     *
+     * @param id the segment id
+     *
+     * @return the file for the segment
+     */
+    private File getSegmentFile(int id) {
+
+        String name = String.valueOf(id);
+        while (name.length() < 6) {
+            name = "0" + name;
+        }
+        return new File(m_rfsRepository, SEGMENT_PREFIX + name + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Opens all existing segment files and builds the index from their records.<p>
+     *
+     * Segments without any referenced records are deleted. New records are appended to the last segment,
+     * unless it is full.<p>
+     *
+     * @throws IOException in case of disk access errors
+     */
+    private void open() throws IOException {
+
+        File basedir = new File(m_rfsRepository);
+        if (!basedir.exists()) {
+            basedir.mkdirs();
+        }
+        File[] files = basedir.listFiles();
+        List<Integer> ids = new ArrayList<Integer>();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                int id = getSegmentId(files[i].getName());
+                if (id >= 0) {
+                    ids.add(Integer.valueOf(id));
+                }
+            }
+        }
+        Integer[] sortedIds = ids.toArray(new Integer[ids.size()]);
+        Arrays.sort(sortedIds);
+        for (int i = 0; i < sortedIds.length; i++) {
+            Segment segment = new Segment(sortedIds[i].intValue(), getSegmentFile(sortedIds[i].intValue()));
+            try {
+                scan(segment);
+                m_segments.add(segment);
+            } catch (IOException e) {
+                // corrupt segment, drop it
+                LOG.warn(e.getLocalizedMessage(), e);
+                segment.close();
+                segment.m_file.delete();
+            }
+        }
+        Segment last = m_segments.isEmpty() ? null : m_segments.get(m_segments.size() - 1);
+        Iterator<Segment> i = m_segments.iterator();
+        while (i.hasNext()) {
+            Segment segment = i.next();
+            if (segment == last) {
+                continue;
+            }
+            if (segment.m_liveBytes <= 0) {
+                // all entries of the segment have been written again to later segments
+                i.remove();
+                segment.close();
+                segment.m_file.delete();
+            } else {
+                segment.seal();
+            }
+        }
+        if ((last != null) && (last.m_size < m_maxSegmentSize)) {
+            // continue to append to the last segment instead of starting a new one on every start
+            m_activeSegment = last;
+        } else {
+            if (last != null) {
+                last.seal();
+            }
+            rollSegment();
+        }
+    }
+
+    /**
+     * Seals the active segment and creates a new one.<p>
+     *
+     * @throws IOException in case of disk access errors
+     */
+    private void rollSegment() throws IOException {
+
+        int id = 0;
+        if (!m_segments.isEmpty()) {
+            id = m_segments.get(m_segments.size() - 1).m_id + 1;
+        }
+        if (m_activeSegment != null) {
+            m_activeSegment.seal();
+        }
+        File file = getSegmentFile(id);
+        file.getParentFile().mkdirs();
+        Segment segment = new Segment(id, file);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH);
+        header.putInt(SEGMENT_MAGIC);
+        header.putInt(SEGMENT_VERSION);
+        header.flip();
+        segment.m_channel.truncate(0);
+        while (header.hasRemaining()) {
+            segment.m_channel.write(header, header.position());
+        }
+        segment.m_size = SEGMENT_HEADER_LENGTH;
+        m_segments.add(segment);
+        m_activeSegment = segment;
+    }
+
+    /**
+     * Reads all records of a segment and adds them to the index.<p>
+     *
+     * An incomplete record at the end of the segment (e.g. caused by a crash during a write)
+     * is truncated.<p>
+     *
+     * @param segment the segment to scan
+     *
+     * @throws IOException in case the segment header is invalid or the segment could not be read
+     */
+    private void scan(Segment segment) throws IOException {
+
+        FileChannel channel = segment.m_channel;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH);
+        channel.read(header, 0);
+        header.flip();
+        if ((header.remaining() < SEGMENT_HEADER_LENGTH)
+            || (header.getInt() != SEGMENT_MAGIC)
+            || (header.getInt() != SEGMENT_VERSION)) {
+            throw new IOException(segment.m_file.getAbsolutePath());
+        }
+        long position = SEGMENT_HEADER_LENGTH;
+        ByteBuffer intBuffer = ByteBuffer.allocate(4);
+        ByteBuffer metaBuffer = ByteBuffer.allocate(12);
+        while ((position + 4) <= size) {
+            intBuffer.clear();
+            channel.read(intBuffer, position);
+            intBuffer.flip();
+            int keyLength = intBuffer.getInt();
+            if ((keyLength < 0) || ((position + 4 + keyLength + 12) > size)) {
+                break;
+            }
+            ByteBuffer keyBuffer = ByteBuffer.allocate(keyLength);
+            channel.read(keyBuffer, position + 4);
+            metaBuffer.clear();
+            channel.read(metaBuffer, position + 4 + keyLength);
+            metaBuffer.flip();
+            long lastAccess = metaBuffer.getLong();
+            int dataLength = metaBuffer.getInt();
+            int recordLength = 4 + keyLength + 12 + dataLength;
+            if ((dataLength < 0) || ((position + recordLength) > size)) {
+                break;
+            }
+            String key = new String(keyBuffer.array(), CmsEncoder.ENCODING_UTF_8);
+            Entry entry = new Entry(
+                segment,
+                (position + recordLength) - dataLength,
+                dataLength,
+                recordLength,
+                lastAccess);
+            Entry old = m_index.put(key, entry);
+            if (old != null) {
+                old.m_segment.m_liveBytes -= old.m_recordLength;
+            }
+            segment.m_liveBytes += recordLength;
+            position += recordLength;
+        }
+        if (position < size) {
+            channel.truncate(position);
         }
+        segment.m_size = position;
     }
-}
\ No newline at end of file
+}
@@ -27,12 +27,15 @@
 
 package org.opencms.search.extractors;
 
+import org.opencms.i18n.CmsEncoder;
 import org.opencms.util.CmsStringUtil;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -43,10 +46,17 @@ import java.util.Map;
  * This data structure contains the extracted text as well as (optional)
  * meta information extracted from the document.<p>
  *
+ * The byte representation returned by {@link #getBytes()} uses a compact, length prefixed
+ * UTF-8 encoding of the content items. {@link #fromBytes(byte[])} also accepts results
+ * that have been stored with Java serialization by older OpenCms versions.<p>
+ *
  * @since 6.0.0
  */
 public class CmsExtractionResult implements I_CmsExtractionResult, Serializable {
 
+    /** Magic bytes identifying the compact encoding. */
+    private static final byte[] COMPACT_MAGIC = {'O', 'X', 1};
+
     /** UID required for safe serialization. */
     private static final long serialVersionUID = 1465447302192195154L;
 
@@ -94,9 +104,19 @@ public class CmsExtractionResult implements I_CmsExtractionResult, Serializable
      */
     public static final CmsExtractionResult fromBytes(byte[] bytes) {
 
-        Object obj = null;
-        if (bytes != null) {
-            // create an object out of the byte array
+        if (bytes == null) {
+            return null;
+        }
+        CmsExtractionResult result = null;
+        if (isCompactEncoded(bytes)) {
+            try {
+                result = new CmsExtractionResult(null, decodeItems(bytes));
+            } catch (IOException e) {
+                // ignore, the result will be null
+            }
+        } else {
+            // stored by an older version using Java serialization
+            Object obj = null;
             try {
                 ByteArrayInputStream in = new ByteArrayInputStream(bytes);
                 ObjectInputStream oin = new ObjectInputStream(in);
@@ -106,12 +126,13 @@ public class CmsExtractionResult implements I_CmsExtractionResult, Serializable
                 // ignore, null is not an instance of CmsExtractionResult
             }
             if (obj instanceof CmsExtractionResult) {
-                CmsExtractionResult result = (CmsExtractionResult)obj;
-                result.m_serializedVersion = bytes;
-                return result;
+                result = (CmsExtractionResult)obj;
             }
         }
-        return null;
+        if (result != null) {
+            result.m_serializedVersion = bytes;
+        }
+        return result;
     }
 
     /**
@@ -124,12 +145,17 @@ public class CmsExtractionResult implements I_CmsExtractionResult, Serializable
             return m_serializedVersion;
         }
         try {
-            // serialize this object and return
-            ByteArrayOutputStream out = new ByteArrayOutputStream(512);
-            ObjectOutputStream oout = new ObjectOutputStream(out);
-            oout.writeObject(this);
-            oout.close();
-            m_serializedVersion = out.toByteArray();
+            // encode the content items and return
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(COMPACT_MAGIC);
+            out.writeInt(m_contentItems.size());
+            for (Map.Entry<String, String> item : m_contentItems.entrySet()) {
+                writeString(out, item.getKey());
+                writeString(out, item.getValue());
+            }
+            out.close();
+            m_serializedVersion = bytes.toByteArray();
         } catch (Exception e) {
             // ignore, serialized version will be null
         }
@@ -163,4 +189,89 @@ public class CmsExtractionResult implements I_CmsExtractionResult, Serializable
         m_contentItems = null;
         m_serializedVersion = null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Decodes the content items from the compact encoding.<p>
+     *
+     * @param bytes the compact encoded bytes
+     *
+     * @return the decoded content items
+     *
+     * @throws IOException in case the encoded data is corrupt
+     */
+    private static Map<String, String> decodeItems(byte[] bytes) throws IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipBytes(COMPACT_MAGIC.length);
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException();
+        }
+        Map<String, String> items = new HashMap<String, String>(Math.max(16, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            String value = readString(in);
+            items.put(key, value);
+        }
+        return items;
+    }
+
+    /**
+     * Checks if the given bytes use the compact encoding.<p>
+     *
+     * @param bytes the bytes to check
+     *
+     * @return <code>true</code> if the given bytes use the compact encoding
+     */
+    private static boolean isCompactEncoded(byte[] bytes) {
+
+        if (bytes.length < COMPACT_MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < COMPACT_MAGIC.length; i++) {
+            if (bytes[i] != COMPACT_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 String.<p>
+     *
+     * @param in the input to read from
+     *
+     * @return the String read, or <code>null</code>
+     *
+     * @throws IOException in case the encoded data is corrupt
+     */
+    private static String readString(DataInputStream in) throws IOException {
+
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return new String(data, CmsEncoder.ENCODING_UTF_8);
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 String.<p>
+     *
+     * @param out the output to write to
+     * @param value the String to write (may be <code>null</code>)
+     *
+     * @throws IOException in case of errors writing the data
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] data = value.getBytes(CmsEncoder.ENCODING_UTF_8);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+}
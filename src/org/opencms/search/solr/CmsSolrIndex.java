@@ -60,6 +60,7 @@ import org.opencms.security.CmsRole;
 import org.opencms.security.CmsRoleViolationException;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -68,8 +69,13 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletResponse;
 
@@ -77,6 +83,7 @@ import org.apache.commons.logging.Log;
 import org.apache.lucene.index.Term;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.util.ClientUtils;
@@ -111,6 +118,30 @@ import org.apache.solr.util.FastWriter;
  */
 public class CmsSolrIndex extends CmsSearchIndex {
 
+    /**
+     * The modes to commit the changes of an indexing run.<p>
+     */
+    public enum CommitMode {
+
+        /** Each indexing run ends with a hard commit, which makes the changes durable and visible. */
+        HARD,
+
+        /** Each indexing run ends with a soft commit, which makes the changes visible, hard commits are periodic. */
+        SOFT,
+
+        /** The changes become visible within the configured time, hard commits are periodic. */
+        WITHIN
+    }
+
+    /** Constant for additional parameter to set the interval in milliseconds of the periodic hard commits. */
+    public static final String COMMIT_HARD_INTERVAL = "search.solr.commit.hardInterval";
+
+    /** Constant for additional parameter to set the commit mode, one of "hard", "soft" or "within". */
+    public static final String COMMIT_MODE = "search.solr.commit.mode";
+
+    /** Constant for additional parameter to set the time in milliseconds within changes become visible. */
+    public static final String COMMIT_WITHIN = "search.solr.commit.within";
+
     /** The name of the default Solr Offline index. */
     public static final String DEFAULT_INDEX_NAME_OFFLINE = "Solr Offline";
 
@@ -129,12 +160,21 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** A constant for debug formatting output. */
     protected static final int DEBUG_PADDING_RIGHT = 50;
 
+    /** The default interval in milliseconds of the periodic hard commits. */
+    private static final long DEFAULT_HARD_COMMIT_INTERVAL = 60000;
+
     /** The name for the parameters key of the response header. */
     private static final String HEADER_PARAMS_NAME = "params";
 
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsSolrIndex.class);
 
+    /** The maximum number of indexed publish jobs to remember for waiting on their visibility. */
+    private static final int MAX_INDEXED_PUBLISHES = 100;
+
+    /** The version recorded for publish jobs for which updating the index has failed. */
+    private static final long PUBLISH_FAILED = -1;
+
     /** Pseudo resource used for not permission checked indexes. */
     private static final CmsResource PSEUDO_RES = new CmsResource(
         null,
@@ -168,9 +208,36 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** The embedded Solr server for this index. */
     SolrServer m_solr;
 
+    /** Lock for the commit state of this index. */
+    private Object m_commitLock = new Object();
+
+    /** The mode to commit the changes of an indexing run. */
+    private CommitMode m_commitMode = CommitMode.HARD;
+
+    /** The time in milliseconds within changes become visible, 0 to use the time of the Solr configuration. */
+    private int m_commitWithin;
+
+    /** The interval in milliseconds of the periodic hard commits. */
+    private long m_hardCommitInterval = DEFAULT_HARD_COMMIT_INTERVAL;
+
+    /** The task performing the periodic hard commits. */
+    private ScheduledFuture<?> m_hardCommitTask;
+
+    /** The version of the changes made durable by the last hard commit. */
+    private long m_hardVersion;
+
+    /** The version of the changes written by the indexing of a publish job, by publish history id. */
+    private Map<CmsUUID, Long> m_indexedPublishes = new LinkedHashMap<CmsUUID, Long>();
+
     /** The post document manipulator. */
     private I_CmsSolrPostSearchProcessor m_postProcessor;
 
+    /** The version of the changes made visible by the last commit. */
+    private long m_visibleVersion;
+
+    /** The version of the last changes written, counted up with each indexing run. */
+    private long m_writtenVersion;
+
     /**
      * Default constructor.<p>
      */
@@ -230,6 +297,40 @@ public class CmsSolrIndex extends CmsSearchIndex {
                     LOG.error(ex.getMessage(), ex);
                 }
             }
+        } else if (COMMIT_MODE.equals(key)) {
+            try {
+                m_commitMode = CommitMode.valueOf(String.valueOf(value).trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_SOLR_ERR_INVALID_COMMIT_PARAM_3,
+                        value,
+                        key,
+                        getName()));
+            }
+        } else if (COMMIT_WITHIN.equals(key)) {
+            try {
+                m_commitWithin = Math.max(0, Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_SOLR_ERR_INVALID_COMMIT_PARAM_3,
+                        value,
+                        key,
+                        getName()));
+            }
+        } else if (COMMIT_HARD_INTERVAL.equals(key)) {
+            try {
+                long interval = Long.parseLong(value);
+                m_hardCommitInterval = (interval > 0) ? interval : DEFAULT_HARD_COMMIT_INTERVAL;
+            } catch (NumberFormatException e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_SOLR_ERR_INVALID_COMMIT_PARAM_3,
+                        value,
+                        key,
+                        getName()));
+            }
         }
         super.addConfigurationParameter(key, value);
     }
@@ -254,6 +355,29 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return new CmsSolrIndexWriter(m_solr, this);
     }
 
+    /**
+     * Returns the mode to commit the changes of an indexing run.<p>
+     *
+     * @return the mode to commit the changes of an indexing run
+     */
+    public CommitMode getCommitMode() {
+
+        return m_commitMode;
+    }
+
+    /**
+     * Returns the time in milliseconds within changes become visible in the {@link CommitMode#WITHIN} mode.<p>
+     *
+     * @return the time in milliseconds within changes become visible
+     */
+    public int getCommitWithin() {
+
+        if (m_commitWithin > 0) {
+            return m_commitWithin;
+        }
+        return (int)OpenCms.getSearchManager().getSolrServerConfiguration().getSolrCommitMs();
+    }
+
     /**
      * @see org.opencms.search.CmsSearchIndex#getConfiguration()
      */
@@ -264,6 +388,15 @@ public class CmsSolrIndex extends CmsSearchIndex {
         if (getPostProcessor() != null) {
             result.put(POST_PROCESSOR, getPostProcessor().getClass().getName());
         }
+        if (m_commitMode != CommitMode.HARD) {
+            result.put(COMMIT_MODE, m_commitMode.name().toLowerCase());
+        }
+        if (m_commitWithin > 0) {
+            result.put(COMMIT_WITHIN, String.valueOf(m_commitWithin));
+        }
+        if (m_hardCommitInterval != DEFAULT_HARD_COMMIT_INTERVAL) {
+            result.put(COMMIT_HARD_INTERVAL, String.valueOf(m_hardCommitInterval));
+        }
         return result;
     }
 
@@ -345,6 +478,17 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return result;
     }
 
+    /**
+     * Returns the interval in milliseconds of the periodic hard commits in the
+     * {@link CommitMode#SOFT} and {@link CommitMode#WITHIN} modes.<p>
+     *
+     * @return the interval in milliseconds of the periodic hard commits
+     */
+    public long getHardCommitInterval() {
+
+        return m_hardCommitInterval;
+    }
+
     /**
      * Returns the search post processor.<p>
      *
@@ -371,6 +515,29 @@ public class CmsSolrIndex extends CmsSearchIndex {
         }
     }
 
+    /**
+     * Records that the given publish job has been processed by this index.<p>
+     *
+     * This is called after the indexing of a publish job, so that {@link #waitForVisibility(CmsUUID, long)}
+     * knows which changes have to be visible for the publish job, or that they will never be visible
+     * because updating this index has failed.<p>
+     *
+     * @param publishHistoryId the publish history id of the processed publish job
+     * @param success <code>true</code> if this index has been updated successfully for the publish job
+     */
+    public void markPublishIndexed(CmsUUID publishHistoryId, boolean success) {
+
+        synchronized (m_commitLock) {
+            m_indexedPublishes.put(publishHistoryId, Long.valueOf(success ? m_writtenVersion : PUBLISH_FAILED));
+            if (m_indexedPublishes.size() > MAX_INDEXED_PUBLISHES) {
+                Iterator<CmsUUID> it = m_indexedPublishes.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+            m_commitLock.notifyAll();
+        }
+    }
+
     /**
      * Not yet implemented for Solr.<p>
      *
@@ -500,7 +667,20 @@ public class CmsSolrIndex extends CmsSearchIndex {
      */
     @Override
     public void shutDown() {
+
+        synchronized (m_commitLock) {
+            if (m_hardCommitTask != null) {
+                m_hardCommitTask.cancel(false);
+                m_hardCommitTask = null;
+            }
+        }
         if (null != m_solr) {
+            try {
+                // make the changes which have only been soft committed durable
+                hardCommit();
+            } catch (Exception e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_SOLR_ERR_HARD_COMMIT_FAILED_1, getName()), e);
+            }
             m_solr.shutdown();
         }
     }
@@ -585,6 +765,61 @@ public class CmsSolrIndex extends CmsSearchIndex {
         }
     }
 
+    /**
+     * Waits until the changes of the given publish job are visible in this index.<p>
+     *
+     * Only indexes with the rebuild mode "auto" are updated for publish jobs. For other indexes,
+     * and for publish jobs which could not be indexed, <code>false</code> is returned.<p>
+     *
+     * If the publish job has been indexed, but its changes have not been made visible by a commit yet,
+     * a soft commit is performed to make them visible at once. In the {@link CommitMode#WITHIN} mode,
+     * Solr makes the changes visible on its own, so it is not known when this has happened and
+     * every call for a publish job indexed after the last hard or soft commit performs a soft commit.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish job
+     * @param timeout the maximum time in milliseconds to wait for the publish job to be indexed
+     *
+     * @return <code>true</code> if the changes of the publish job are visible,
+     *      <code>false</code> if this index is not updated for publish jobs, if updating this index
+     *      has failed for the publish job, or if the publish job has not been indexed before the timeout elapsed
+     *
+     * @throws CmsSearchException if the commit making the changes visible fails
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean waitForVisibility(CmsUUID publishHistoryId, long timeout)
+    throws CmsSearchException, InterruptedException {
+
+        if (!isEnabled() || !REBUILD_MODE_AUTO.equals(getRebuildMode())) {
+            return false;
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (m_commitLock) {
+            Long version = m_indexedPublishes.get(publishHistoryId);
+            while (version == null) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                m_commitLock.wait(wait);
+                version = m_indexedPublishes.get(publishHistoryId);
+            }
+            if (version.longValue() == PUBLISH_FAILED) {
+                return false;
+            }
+            if (version.longValue() <= m_visibleVersion) {
+                return true;
+            }
+        }
+        try {
+            softCommit();
+        } catch (Exception e) {
+            throw new CmsSearchException(
+                Messages.get().container(Messages.LOG_SOLR_ERR_VISIBILITY_COMMIT_FAILED_1, getName()),
+                e);
+        }
+        return true;
+    }
+
     /**
      * @see org.opencms.search.CmsSearchIndex#createIndexBackup()
      */
@@ -692,6 +927,36 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return false;
     }
 
+    /**
+     * Commits the changes written to this index by an indexing run according to the commit mode.<p>
+     *
+     * @throws SolrServerException if the commit fails
+     * @throws IOException if the commit fails
+     */
+    void commit() throws SolrServerException, IOException {
+
+        long version;
+        synchronized (m_commitLock) {
+            m_writtenVersion++;
+            version = m_writtenVersion;
+        }
+        switch (m_commitMode) {
+            case SOFT:
+                m_solr.commit(true, true, true);
+                committed(version, false);
+                scheduleHardCommits();
+                break;
+            case WITHIN:
+                // the changes have been sent with a commitWithin time and become visible on their own
+                scheduleHardCommits();
+                break;
+            case HARD:
+            default:
+                m_solr.commit();
+                committed(version, true);
+        }
+    }
+
     /**
      * Checks if the current user is allowed to access non-online indexes.<p>
      *
@@ -719,6 +984,83 @@ public class CmsSolrIndex extends CmsSearchIndex {
         }
     }
 
+    /**
+     * Records that the changes up to the given version have been committed.<p>
+     *
+     * @param version the version of the committed changes
+     * @param hard <code>true</code> if the commit was a hard commit
+     */
+    private void committed(long version, boolean hard) {
+
+        synchronized (m_commitLock) {
+            m_visibleVersion = Math.max(m_visibleVersion, version);
+            if (hard) {
+                m_hardVersion = Math.max(m_hardVersion, version);
+            }
+            m_commitLock.notifyAll();
+        }
+    }
+
+    /**
+     * Performs a hard commit if there are changes which have not been made durable yet.<p>
+     *
+     * @throws SolrServerException if the commit fails
+     * @throws IOException if the commit fails
+     */
+    private void hardCommit() throws SolrServerException, IOException {
+
+        long version;
+        synchronized (m_commitLock) {
+            if (m_hardVersion >= m_writtenVersion) {
+                return;
+            }
+            version = m_writtenVersion;
+        }
+        m_solr.commit();
+        committed(version, true);
+    }
+
+    /**
+     * Starts the periodic hard commits, if they are not running already.<p>
+     */
+    private void scheduleHardCommits() {
+
+        synchronized (m_commitLock) {
+            if (m_hardCommitTask != null) {
+                return;
+            }
+            m_hardCommitTask = OpenCms.getExecutor().scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+
+                    try {
+                        hardCommit();
+                    } catch (Throwable t) {
+                        LOG.error(
+                            Messages.get().getBundle().key(Messages.LOG_SOLR_ERR_HARD_COMMIT_FAILED_1, getName()),
+                            t);
+                    }
+                }
+            }, m_hardCommitInterval, m_hardCommitInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Performs a soft commit, which makes all written changes visible.<p>
+     *
+     * @throws SolrServerException if the commit fails
+     * @throws IOException if the commit fails
+     */
+    private void softCommit() throws SolrServerException, IOException {
+
+        long version;
+        synchronized (m_commitLock) {
+            version = m_writtenVersion;
+        }
+        m_solr.commit(true, true, true);
+        committed(version, false);
+    }
+
     /**
      * <h4>Performs a search on the Solr index</h4>
      *
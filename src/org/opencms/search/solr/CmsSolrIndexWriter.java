@@ -48,6 +48,9 @@ import org.apache.solr.common.SolrInputDocument;
 /**
  * Implements the index writer for the Solr server used by OpenCms.<p>
  *
+ * How the changes are committed is selected by the commit mode of the index,
+ * see {@link CmsSolrIndex.CommitMode}.<p>
+ *
  * @since 8.5.0
  */
 public class CmsSolrIndexWriter implements I_CmsIndexWriter {
@@ -118,7 +121,7 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
                         Messages.LOG_SOLR_WRITER_COMMIT_2,
                         m_index.getName(),
                         m_index.getPath()));
-                m_server.commit();
+                m_index.commit();
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
             }
@@ -139,7 +142,7 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
                         Messages.LOG_SOLR_WRITER_DELETE_ALL_2,
                         m_index.getName(),
                         m_index.getPath()));
-                m_server.deleteByQuery("*:*", m_commitMs);
+                m_server.deleteByQuery("*:*", getCommitWithin());
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
             }
@@ -159,7 +162,7 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
                         resource.getRootPath(),
                         m_index.getName(),
                         m_index.getPath()));
-                m_server.deleteById(resource.getStructureId().toString(), m_commitMs);
+                m_server.deleteById(resource.getStructureId().toString(), getCommitWithin());
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
             } catch (SolrException e) {
@@ -191,11 +194,29 @@ public class CmsSolrIndexWriter implements I_CmsIndexWriter {
                             rootPath,
                             m_index.getName(),
                             m_index.getPath()));
-                    m_server.add((SolrInputDocument)document.getDocument(), m_commitMs);
+                    m_server.add((SolrInputDocument)document.getDocument(), getCommitWithin());
                 } catch (SolrServerException e) {
                     throw new IOException(e.getLocalizedMessage(), e);
                 }
             }
         }
     }
+
+    /**
+     * Returns the commitWithin time to send with the changes, depending on the commit mode of the index.<p>
+     *
+     * @return the commitWithin time in milliseconds, or -1 if the changes are made visible by an explicit commit
+     */
+    private int getCommitWithin() {
+
+        switch (m_index.getCommitMode()) {
+            case SOFT:
+                return -1;
+            case WITHIN:
+                return m_index.getCommitWithin();
+            case HARD:
+            default:
+                return m_commitMs;
+        }
+    }
 }
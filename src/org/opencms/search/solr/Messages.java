@@ -46,6 +46,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_ERR_CONFIG_XML_NOT_READABLE_1 = "LOG_SOLR_ERR_CONFIG_XML_NOT_READABLE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_ERR_HARD_COMMIT_FAILED_1 = "LOG_SOLR_ERR_HARD_COMMIT_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_ERR_INVALID_COMMIT_PARAM_3 = "LOG_SOLR_ERR_INVALID_COMMIT_PARAM_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_ERR_POST_PROCESSOR_NOT_EXIST_1 = "LOG_SOLR_ERR_POST_PROCESSOR_NOT_EXIST_1";
 
@@ -64,6 +70,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_ERR_SPELL_EXECUTION_FAILD_1 = "LOG_SOLR_ERR_SPELL_EXECUTION_FAILD_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_ERR_VISIBILITY_COMMIT_FAILED_1 = "LOG_SOLR_ERR_VISIBILITY_COMMIT_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_FIELD_NOT_FOUND_1 = "LOG_SOLR_FIELD_NOT_FOUND_1";
 
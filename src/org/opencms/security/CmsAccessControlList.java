@@ -57,11 +57,17 @@ import java.util.Map;
  */
 public class CmsAccessControlList {
 
+    /** The maximum number of principal set fingerprints the calculated permissions are kept for. */
+    private static final int MAX_SHARED_PERMISSIONS = 64;
+
     /**
      * Collected permissions of a principal on this resource .
      */
     private Map<CmsUUID, CmsPermissionSetCustom> m_permissions;
 
+    /** The calculated permissions, by principal set fingerprint. */
+    private Map<String, CmsPermissionSetCustom> m_sharedPermissions;
+
     /**
      * Constructor to create an empty access control list for a given resource.<p>
      *
@@ -69,6 +75,7 @@ public class CmsAccessControlList {
     public CmsAccessControlList() {
 
         m_permissions = new HashMap<CmsUUID, CmsPermissionSetCustom>();
+        m_sharedPermissions = Collections.synchronizedMap(new HashMap<String, CmsPermissionSetCustom>());
     }
 
     /**
@@ -78,6 +85,7 @@ public class CmsAccessControlList {
      */
     public void add(CmsAccessControlEntry entry) {
 
+        m_sharedPermissions.clear();
         CmsPermissionSetCustom p = m_permissions.get(entry.getPrincipal());
         if (p == null) {
             p = new CmsPermissionSetCustom();
@@ -163,6 +171,34 @@ public class CmsAccessControlList {
         return sum;
     }
 
+    /**
+     * Calculates the permissions of the given principal set from the access control list.<p>
+     *
+     * The result is the same as for {@link #getPermissions(CmsUser, List, List)}. If this access control list
+     * contains no entry for the user itself, the permissions only depend on the groups and roles, so they are
+     * calculated once for each principal set fingerprint and shared by all users with the same fingerprint.<p>
+     *
+     * @param principals the principal set of the user
+     *
+     * @return the summarized permission set of the user
+     */
+    public CmsPermissionSetCustom getPermissions(CmsPrincipalSet principals) {
+
+        if (m_permissions.containsKey(principals.getUserId())) {
+            // user specific entry, the result can not be shared
+            return getPermissions(principals.getUser(), principals.getGroups(), principals.getRoles());
+        }
+        CmsPermissionSetCustom permissions = m_sharedPermissions.get(principals.getFingerprint());
+        if (permissions == null) {
+            permissions = getPermissions(principals.getUser(), principals.getGroups(), principals.getRoles());
+            if (m_sharedPermissions.size() < MAX_SHARED_PERMISSIONS) {
+                m_sharedPermissions.put(principals.getFingerprint(), permissions);
+            }
+        }
+        // the caller may modify the returned permissions
+        return (CmsPermissionSetCustom)permissions.clone();
+    }
+
     /**
      * Returns the permission set of a principal as stored in the access control list.<p>
      *
@@ -210,6 +246,7 @@ public class CmsAccessControlList {
      */
     public void setAllowedPermissions(CmsAccessControlEntry entry) {
 
+        m_sharedPermissions.clear();
         CmsPermissionSetCustom p = m_permissions.get(entry.getPrincipal());
         if (p == null) {
             p = new CmsPermissionSetCustom();
@@ -226,6 +263,7 @@ public class CmsAccessControlList {
      */
     public void setDeniedPermissions(CmsAccessControlEntry entry) {
 
+        m_sharedPermissions.clear();
         CmsPermissionSetCustom p = m_permissions.get(entry.getPrincipal());
         if (p == null) {
             p = new CmsPermissionSetCustom();
@@ -63,6 +63,9 @@ public class CmsDefaultPasswordHandler implements I_CmsPasswordHandler {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsDefaultPasswordHandler.class);
 
+    /** The prefix of scrypt digests, followed by the hex encoded cost parameters. */
+    private static final String SCRYPT_DIGEST_PREFIX = "$s0$";
+
     /** The secure random number generator. */
     private static SecureRandom m_secureRandom;
 
@@ -290,6 +293,36 @@ public class CmsDefaultPasswordHandler implements I_CmsPasswordHandler {
         }
     }
 
+    /**
+     * Checks if the given digest has been created with the current digest configuration.<p>
+     *
+     * For the scrypt digest type, this is the case if the digest is a scrypt digest created
+     * with the configured cost parameters. Digests created with the fall back algorithm or with other
+     * cost parameters can be replaced with a new digest, once the plain password is known after a successful login.
+     * No password is verified for this check.<p>
+     *
+     * For all other digest types, every digest is considered current.<p>
+     *
+     * @param digestedPassword the digested password
+     *
+     * @return <code>true</code> if the given digest has been created with the current digest configuration
+     */
+    public boolean isCurrentDigest(String digestedPassword) {
+
+        if (!DIGEST_TYPE_SCRYPT.equals(m_digestType)) {
+            return true;
+        }
+        if ((digestedPassword == null) || !digestedPassword.startsWith(SCRYPT_DIGEST_PREFIX)) {
+            return false;
+        }
+        int end = digestedPassword.indexOf('$', SCRYPT_DIGEST_PREFIX.length());
+        if (end < 0) {
+            return false;
+        }
+        long params = (Integer.numberOfTrailingZeros(m_scryptN) << 16) | (m_scryptR << 8) | m_scryptP;
+        return Long.toString(params, 16).equals(digestedPassword.substring(SCRYPT_DIGEST_PREFIX.length(), end));
+    }
+
     /**
      * Sets the digestType.<p>
      *
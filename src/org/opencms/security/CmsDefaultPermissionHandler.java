@@ -44,7 +44,9 @@ import org.opencms.main.CmsInitException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 
@@ -67,6 +69,80 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
     /** The class used for cache key generation. */
     private I_CmsCacheKey m_keyGenerator;
 
+    /**
+     * Filters a list of resources, keeping only the resources the current user has the required permissions on.<p>
+     *
+     * The result is the same as checking each resource with
+     * {@link #hasPermissions(CmsDbContext, CmsResource, CmsPermissionSet, boolean, CmsResourceFilter)}
+     * with lock checking enabled. If neither write, control nor direct publish permissions are required,
+     * the permissions of all resources are read together with
+     * {@link CmsDriverManager#getPermissions(CmsDbContext, List, CmsUser)}.<p>
+     *
+     * @param dbc the current database context
+     * @param resources the resources to filter
+     * @param requiredPermissions the set of permissions required for each resource
+     * @param filter the resource filter to use
+     *
+     * @return the resources with sufficient permissions, in the order of the given list
+     *
+     * @throws CmsException in case of i/o errors (NOT because of insufficient permissions)
+     */
+    public List<CmsResource> filterPermissions(
+        CmsDbContext dbc,
+        List<CmsResource> resources,
+        CmsPermissionSet requiredPermissions,
+        CmsResourceFilter filter) throws CmsException {
+
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        if (!isReadOnly(requiredPermissions)) {
+            // lock and role checks are required, check each resource on its own
+            for (CmsResource resource : resources) {
+                if (hasPermissions(dbc, resource, requiredPermissions, true, filter).isAllowed()) {
+                    result.add(resource);
+                }
+            }
+            return result;
+        }
+
+        CmsPermissionCheckResult[] checks = new CmsPermissionCheckResult[resources.size()];
+        List<CmsResource> uncheckedResources = new ArrayList<CmsResource>();
+        for (int i = 0; i < resources.size(); i++) {
+            CmsResource resource = resources.get(i);
+            if (!filter.isValid(dbc.getRequestContext(), resource)) {
+                checks[i] = I_CmsPermissionHandler.PERM_FILTERED;
+            } else if (isVfsManager(dbc, resource)) {
+                // the current user is admin for the resource, read access is always allowed
+                checks[i] = I_CmsPermissionHandler.PERM_ALLOWED;
+            } else {
+                uncheckedResources.add(resource);
+            }
+        }
+
+        if (!uncheckedResources.isEmpty()) {
+            Iterator<CmsPermissionSetCustom> itPermissions = m_driverManager.getPermissions(
+                dbc,
+                uncheckedResources,
+                dbc.currentUser()).iterator();
+            for (int i = 0; i < resources.size(); i++) {
+                if (checks[i] == null) {
+                    checks[i] = checkPermissions(
+                        dbc,
+                        resources.get(i),
+                        requiredPermissions,
+                        itPermissions.next(),
+                        filter);
+                }
+            }
+        }
+
+        for (int i = 0; i < resources.size(); i++) {
+            if (checks[i].isAllowed()) {
+                result.add(resources.get(i));
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.security.I_CmsPermissionHandler#hasPermissions(org.opencms.db.CmsDbContext, org.opencms.file.CmsResource, org.opencms.security.CmsPermissionSet, boolean, org.opencms.file.CmsResourceFilter)
      */
@@ -85,16 +161,21 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
 
         // checking the filter is less cost intensive then checking the cache,
         // this is why basic filter results are not cached
-        String cacheKey = m_keyGenerator.getCacheKeyForUserPermissions(
-            filter.requireVisible() && checkLock
-            ? "11"
-            : (!filter.requireVisible() && checkLock ? "01" : (filter.requireVisible() && !checkLock ? "10" : "00")),
-            dbc,
-            resource,
-            requiredPermissions);
-        CmsPermissionCheckResult cacheResult = OpenCms.getMemoryMonitor().getCachedPermission(cacheKey);
-        if (cacheResult != null) {
-            return cacheResult;
+        String cacheKey = null;
+        if (!isReadOnly(requiredPermissions)) {
+            // read only permissions are calculated from the shared access control list and principal set caches,
+            // other permissions depend on the lock state and the project and are cached per user
+            cacheKey = m_keyGenerator.getCacheKeyForUserPermissions(
+                filter.requireVisible() && checkLock
+                ? "11"
+                : (!filter.requireVisible() && checkLock ? "01" : (filter.requireVisible() && !checkLock ? "10" : "00")),
+                dbc,
+                resource,
+                requiredPermissions);
+            CmsPermissionCheckResult cacheResult = OpenCms.getMemoryMonitor().getCachedPermission(cacheKey);
+            if (cacheResult != null) {
+                return cacheResult;
+            }
         }
 
         int denied = 0;
@@ -105,11 +186,7 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
         }
 
         // check if the current user is admin
-        boolean canIgnorePermissions = m_securityManager.hasRoleForResource(
-            dbc,
-            dbc.currentUser(),
-            CmsRole.VFS_MANAGER,
-            resource);
+        boolean canIgnorePermissions = isVfsManager(dbc, resource);
 
         // check lock status
         boolean writeRequired = requiredPermissions.requiresWritePermission()
@@ -214,7 +291,7 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
                             permissions.getPermissionString()}));
             }
         }
-        if (dbc.getProjectId().isNullUUID()) {
+        if ((cacheKey != null) && dbc.getProjectId().isNullUUID()) {
             OpenCms.getMemoryMonitor().cachePermission(cacheKey, result);
         }
 
@@ -243,4 +320,88 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
                 e);
         }
     }
+
+    /**
+     * Compares the permissions of the current user on a resource with the required permissions,
+     * in case no write, control or direct publish permission is required.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the resource
+     * @param requiredPermissions the required permissions
+     * @param permissions the permissions of the current user on the resource
+     * @param filter the resource filter to use
+     *
+     * @return <code>{@link #PERM_ALLOWED}</code> if the permissions are sufficient
+     */
+    private CmsPermissionCheckResult checkPermissions(
+        CmsDbContext dbc,
+        CmsResource resource,
+        CmsPermissionSet requiredPermissions,
+        CmsPermissionSetCustom permissions,
+        CmsResourceFilter filter) {
+
+        if (dbc.currentProject().isOnlineProject()) {
+            permissions.denyPermissions(CmsPermissionSet.PERMISSION_WRITE);
+        }
+        if ((permissions.getPermissions() & CmsPermissionSet.PERMISSION_VIEW) == 0) {
+            // resource "invisible" flag is set for this user
+            if (filter.requireVisible()) {
+                requiredPermissions = new CmsPermissionSet(
+                    requiredPermissions.getAllowedPermissions() | CmsPermissionSet.PERMISSION_VIEW,
+                    requiredPermissions.getDeniedPermissions());
+            } else {
+                permissions.setPermissions(
+                    permissions.getAllowedPermissions() | CmsPermissionSet.PERMISSION_VIEW,
+                    permissions.getDeniedPermissions() & ~CmsPermissionSet.PERMISSION_VIEW);
+            }
+        }
+        if ((requiredPermissions.getPermissions()
+            & (permissions.getPermissions())) == requiredPermissions.getPermissions()) {
+            return I_CmsPermissionHandler.PERM_ALLOWED;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(
+                    Messages.LOG_NO_PERMISSION_RESOURCE_USER_4,
+                    new Object[] {
+                        dbc.getRequestContext().removeSiteRoot(resource.getRootPath()),
+                        dbc.currentUser().getName(),
+                        requiredPermissions.getPermissionString(),
+                        permissions.getPermissionString()}));
+        }
+        return I_CmsPermissionHandler.PERM_DENIED;
+    }
+
+    /**
+     * Checks if the given permission set only requires permissions that do not depend on the lock state,
+     * the roles of the user or the project.<p>
+     *
+     * @param requiredPermissions the required permissions
+     *
+     * @return <code>true</code> if neither write, control nor direct publish permissions are required
+     */
+    private boolean isReadOnly(CmsPermissionSet requiredPermissions) {
+
+        return !(requiredPermissions.requiresWritePermission()
+            || requiredPermissions.requiresControlPermission()
+            || requiredPermissions.requiresDirectPublishPermission());
+    }
+
+    /**
+     * Checks if the current user has the {@link CmsRole#VFS_MANAGER} role for the given resource.<p>
+     *
+     * Users without this role in any organizational unit are detected with a single cached role check per user,
+     * without caching a role check result for each resource.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the resource
+     *
+     * @return <code>true</code> if the current user may ignore the permissions on the given resource
+     */
+    private boolean isVfsManager(CmsDbContext dbc, CmsResource resource) {
+
+        CmsUser user = dbc.currentUser();
+        return m_securityManager.hasRole(dbc, user, CmsRole.VFS_MANAGER.forOrgUnit(null))
+            && m_securityManager.hasRoleForResource(dbc, user, CmsRole.VFS_MANAGER, resource);
+    }
 }
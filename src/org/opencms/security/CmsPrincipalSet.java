@@ -0,0 +1,144 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.security;
+
+import org.opencms.file.CmsGroup;
+import org.opencms.file.CmsUser;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The set of principals a user's permissions are calculated for, that is the user itself,
+ * the groups of the user and the roles of the user.<p>
+ *
+ * The fingerprint of a principal set is built from the ids of the groups and roles only,
+ * so users that are members of the same groups and roles share the same fingerprint.
+ * It is used by {@link CmsAccessControlList#getPermissions(CmsPrincipalSet)} to share the
+ * calculated permissions among these users.<p>
+ *
+ * @since 9.5.0
+ */
+public class CmsPrincipalSet {
+
+    /** The fingerprint of the groups and roles. */
+    private String m_fingerprint;
+
+    /** The groups of the user. */
+    private List<CmsGroup> m_groups;
+
+    /** The roles of the user. */
+    private List<CmsRole> m_roles;
+
+    /** The user. */
+    private CmsUser m_user;
+
+    /**
+     * Creates a new principal set.<p>
+     *
+     * @param user the user
+     * @param groups the groups of the user
+     * @param roles the roles of the user
+     */
+    public CmsPrincipalSet(CmsUser user, List<CmsGroup> groups, List<CmsRole> roles) {
+
+        m_user = user;
+        m_groups = Collections.unmodifiableList(new ArrayList<CmsGroup>(groups));
+        m_roles = Collections.unmodifiableList(new ArrayList<CmsRole>(roles));
+
+        List<String> ids = new ArrayList<String>(m_groups.size() + m_roles.size());
+        for (CmsGroup group : m_groups) {
+            ids.add(group.getId().toString());
+        }
+        for (CmsRole role : m_roles) {
+            ids.add(role.getId().toString());
+        }
+        Collections.sort(ids);
+        StringBuffer fingerprint = new StringBuffer(ids.size() * 37);
+        for (String id : ids) {
+            fingerprint.append(id);
+            fingerprint.append(',');
+        }
+        m_fingerprint = fingerprint.toString();
+    }
+
+    /**
+     * Returns the fingerprint of the groups and roles of this principal set.<p>
+     *
+     * Two principal sets with the same groups and roles have the same fingerprint,
+     * regardless of the user.<p>
+     *
+     * @return the fingerprint of the groups and roles
+     */
+    public String getFingerprint() {
+
+        return m_fingerprint;
+    }
+
+    /**
+     * Returns the groups of the user.<p>
+     *
+     * @return the groups of the user
+     */
+    public List<CmsGroup> getGroups() {
+
+        return m_groups;
+    }
+
+    /**
+     * Returns the roles of the user.<p>
+     *
+     * @return the roles of the user
+     */
+    public List<CmsRole> getRoles() {
+
+        return m_roles;
+    }
+
+    /**
+     * Returns the user.<p>
+     *
+     * @return the user
+     */
+    public CmsUser getUser() {
+
+        return m_user;
+    }
+
+    /**
+     * Returns the id of the user.<p>
+     *
+     * @return the id of the user
+     */
+    public CmsUUID getUserId() {
+
+        return m_user.getId();
+    }
+}
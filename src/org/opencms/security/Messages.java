@@ -85,6 +85,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_LOGIN_FAILED_NO_USER_2 = "ERR_LOGIN_FAILED_NO_USER_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_LOGIN_FAILED_OVERLOADED_2 = "ERR_LOGIN_FAILED_OVERLOADED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_LOGIN_FAILED_TEMP_DISABLED_4 = "ERR_LOGIN_FAILED_TEMP_DISABLED_4";
 
@@ -36,9 +36,12 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
 
+import java.io.Writer;
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -52,12 +55,18 @@ import org.apache.commons.logging.Log;
  */
 public class CmsXmlSitemapActionElement extends CmsJspActionElement {
 
+    /** Request parameter for the number of the sitemap shard to display. */
+    public static final String PARAM_SHARD = "shard";
+
     /** The logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsXmlSitemapActionElement.class);
 
     /** The configuration bean. */
     protected CmsXmlSeoConfiguration m_configuration;
 
+    /** The SEO configuration file. */
+    protected CmsResource m_seoFile;
+
     /**
      * Constructor, with parameters.
      *
@@ -104,26 +113,70 @@ public class CmsXmlSitemapActionElement extends CmsJspActionElement {
     /**
      * Writes the XML sitemap to the response.<p>
      *
+     * If the sitemap contains more than {@link CmsXmlSitemapGenerator#MAX_URLS_PER_SITEMAP} URLs, a sitemap index
+     * is written instead, which references the single sitemap shards by the {@link #PARAM_SHARD} parameter.
+     * The rendered sitemap shards are cached until a resource in the site is published, unless they are too large
+     * for the {@link CmsXmlSitemapCache}, in which case the requested shard is written directly to the response.<p>
+     *
      * @throws Exception if something goes wrong
      */
     public void renderXmlSitemap() throws Exception {
 
         CmsObject cms = getCmsObject();
-        String baseFolderRootPath = CmsFileUtil.removeTrailingSeparator(
-            CmsResource.getParentFolder(cms.getRequestContext().addSiteRoot(cms.getRequestContext().getUri())));
-        CmsXmlSitemapGenerator xmlSitemapGenerator = createSitemapGenerator(
-            m_configuration.getSitemapGeneratorClassName(),
-            baseFolderRootPath);
-        xmlSitemapGenerator.setComputeContainerPageDates(m_configuration.shouldComputeContainerPageModificationDates());
-        CmsPathIncludeExcludeSet inexcludeSet = xmlSitemapGenerator.getIncludeExcludeSet();
-        for (String include : m_configuration.getIncludes()) {
-            inexcludeSet.addInclude(include);
+        CmsXmlSitemapCache cache = CmsXmlSitemapCache.getInstance();
+        CmsXmlSitemapCache.CmsCachedSitemap sitemap = cache.get(m_seoFile);
+        List<String> shards = null;
+        CmsXmlSitemapGenerator xmlSitemapGenerator = null;
+        List<CmsXmlSitemapUrlBean> urlBeans = null;
+        int shardCount;
+        if (sitemap != null) {
+            shards = sitemap.getShards();
+            shardCount = shards.size();
+        } else {
+            String baseFolderRootPath = CmsFileUtil.removeTrailingSeparator(
+                CmsResource.getParentFolder(cms.getRequestContext().addSiteRoot(cms.getRequestContext().getUri())));
+            xmlSitemapGenerator = createSitemapGenerator(
+                m_configuration.getSitemapGeneratorClassName(),
+                baseFolderRootPath);
+            xmlSitemapGenerator.setComputeContainerPageDates(
+                m_configuration.shouldComputeContainerPageModificationDates());
+            CmsPathIncludeExcludeSet inexcludeSet = xmlSitemapGenerator.getIncludeExcludeSet();
+            for (String include : m_configuration.getIncludes()) {
+                inexcludeSet.addInclude(include);
+            }
+            for (String exclude : m_configuration.getExcludes()) {
+                inexcludeSet.addExclude(exclude);
+            }
+            urlBeans = xmlSitemapGenerator.generateSitemapBeans();
+            shards = xmlSitemapGenerator.renderSitemapShards(urlBeans, cache.getMaxSitemapSize());
+            if (shards != null) {
+                cache.put(
+                    m_seoFile,
+                    new CmsXmlSitemapCache.CmsCachedSitemap(
+                        cms.getRequestContext().getSiteRoot(),
+                        m_seoFile.getDateLastModified(),
+                        shards));
+            }
+            shardCount = xmlSitemapGenerator.getShardCount(urlBeans.size());
         }
-        for (String exclude : m_configuration.getExcludes()) {
-            inexcludeSet.addExclude(exclude);
+
+        int shard = CmsStringUtil.getIntValue(getRequest().getParameter(PARAM_SHARD), 0, PARAM_SHARD);
+        Writer out = getResponse().getWriter();
+        if ((shard == 0) && (shardCount > 1)) {
+            String link = OpenCms.getLinkManager().getOnlineLink(cms, cms.getSitePath(m_seoFile));
+            List<String> shardLinks = new ArrayList<String>(shardCount);
+            for (int i = 1; i <= shardCount; i++) {
+                shardLinks.add(CmsRequestUtil.appendParameter(link, PARAM_SHARD, String.valueOf(i)));
+            }
+            CmsXmlSitemapGenerator.writeSitemapIndex(out, shardLinks);
+        } else if (shard > shardCount) {
+            getResponse().sendError(HttpServletResponse.SC_NOT_FOUND);
+        } else if (shards != null) {
+            out.write(shards.get(Math.max(shard, 1) - 1));
+        } else {
+            // too large to be cached, write the entries of the shard directly to the response
+            xmlSitemapGenerator.writeSitemapShard(out, urlBeans, Math.max(shard, 1));
         }
-        String xmlSitemap = xmlSitemapGenerator.renderSitemap();
-        getResponse().getWriter().print(xmlSitemap);
     }
 
     /**
@@ -135,9 +188,9 @@ public class CmsXmlSitemapActionElement extends CmsJspActionElement {
 
         CmsObject cms = getCmsObject();
         String seoFilePath = cms.getRequestContext().getUri();
-        CmsResource seoFile = cms.readResource(seoFilePath);
+        m_seoFile = cms.readResource(seoFilePath);
         m_configuration = new CmsXmlSeoConfiguration();
-        m_configuration.load(cms, seoFile);
+        m_configuration.load(cms, m_seoFile);
         String mode = m_configuration.getMode();
         if (mode.equals(CmsXmlSeoConfiguration.MODE_ROBOTS_TXT)) {
             showRobotsTxt();
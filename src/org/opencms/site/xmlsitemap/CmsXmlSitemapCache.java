@@ -0,0 +1,420 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.site.xmlsitemap;
+
+import org.opencms.cache.CmsLruCache;
+import org.opencms.cache.I_CmsLruCacheObject;
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Cache for rendered XML sitemaps.<p>
+ *
+ * The sitemaps are cached by the root path of the SEO configuration file they are generated for. A cached sitemap is
+ * removed if a resource is published below the site root of the sitemap or in the shared folder, or if the SEO configuration
+ * file has been changed. Publishing a resource in the <code>/system/</code> folder removes all cached sitemaps, since
+ * detail page and module configurations can influence the sitemaps of all sites.<p>
+ *
+ * The cache is bounded by the number of characters of the cached sitemaps, which can be set with the runtime property
+ * {@link #PARAM_MAX_SIZE}. If the limit is reached, the least recently used sitemaps are removed. A single sitemap
+ * is only cached if it is not larger than a quarter of the limit, larger sitemaps are rendered on every request.<p>
+ */
+public final class CmsXmlSitemapCache implements I_CmsEventListener {
+
+    /**
+     * A cached sitemap.<p>
+     */
+    public static class CmsCachedSitemap implements I_CmsLruCacheObject {
+
+        /** The map of cached sitemaps this sitemap is stored in. */
+        private Map<String, CmsCachedSitemap> m_cacheMap;
+
+        /** The date of last modification of the SEO configuration file. */
+        private long m_dateLastModified;
+
+        /** The key of this sitemap in the map of cached sitemaps. */
+        private String m_key;
+
+        /** The next object in the LRU list. */
+        private I_CmsLruCacheObject m_next;
+
+        /** The previous object in the LRU list. */
+        private I_CmsLruCacheObject m_previous;
+
+        /** The rendered sitemap shards. */
+        private List<String> m_shards;
+
+        /** The site root of the sitemap. */
+        private String m_siteRoot;
+
+        /** The number of characters of all shards. */
+        private int m_size;
+
+        /**
+         * Creates a new cached sitemap.<p>
+         *
+         * @param siteRoot the site root of the sitemap
+         * @param dateLastModified the date of last modification of the SEO configuration file
+         * @param shards the rendered sitemap shards
+         */
+        public CmsCachedSitemap(String siteRoot, long dateLastModified, List<String> shards) {
+
+            m_siteRoot = CmsStringUtil.joinPaths(siteRoot, "/");
+            m_dateLastModified = dateLastModified;
+            m_shards = Collections.unmodifiableList(new ArrayList<String>(shards));
+            for (String shard : m_shards) {
+                m_size += shard.length();
+            }
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#addToLruCache()
+         */
+        public void addToLruCache() {
+
+            // nothing to do, the sitemap is added to the map of cached sitemaps before
+        }
+
+        /**
+         * Returns the date of last modification of the SEO configuration file.<p>
+         *
+         * @return the date of last modification of the SEO configuration file
+         */
+        public long getDateLastModified() {
+
+            return m_dateLastModified;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getLruCacheCosts()
+         */
+        public int getLruCacheCosts() {
+
+            return m_size;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getNextLruObject()
+         */
+        public I_CmsLruCacheObject getNextLruObject() {
+
+            return m_next;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getPreviousLruObject()
+         */
+        public I_CmsLruCacheObject getPreviousLruObject() {
+
+            return m_previous;
+        }
+
+        /**
+         * Returns the rendered sitemap shards.<p>
+         *
+         * @return the rendered sitemap shards
+         */
+        public List<String> getShards() {
+
+            return m_shards;
+        }
+
+        /**
+         * Returns the site root of the sitemap.<p>
+         *
+         * @return the site root of the sitemap
+         */
+        public String getSiteRoot() {
+
+            return m_siteRoot;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getValue()
+         */
+        public Object getValue() {
+
+            return m_shards;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
+         */
+        public void removeFromLruCache() {
+
+            if ((m_cacheMap != null) && (m_cacheMap.get(m_key) == this)) {
+                m_cacheMap.remove(m_key);
+            }
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setNextLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setNextLruObject(I_CmsLruCacheObject theNextObject) {
+
+            m_next = theNextObject;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setPreviousLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setPreviousLruObject(I_CmsLruCacheObject thePreviousObject) {
+
+            m_previous = thePreviousObject;
+        }
+
+        /**
+         * Sets the key and the map this sitemap is stored in, which are needed to remove it from the map
+         * when it is removed from the LRU cache.<p>
+         *
+         * @param key the key of this sitemap
+         * @param cacheMap the map of cached sitemaps
+         */
+        void setCacheData(String key, Map<String, CmsCachedSitemap> cacheMap) {
+
+            m_key = key;
+            m_cacheMap = cacheMap;
+        }
+    }
+
+    /** The default maximum number of characters of all cached sitemaps. */
+    public static final int DEFAULT_MAX_SIZE = 8 * 1024 * 1024;
+
+    /** Runtime property name for the maximum number of characters of all cached sitemaps. */
+    public static final String PARAM_MAX_SIZE = "xmlsitemap.cache.maxsize";
+
+    /** The logger instance for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsXmlSitemapCache.class);
+
+    /** The singleton instance. */
+    private static CmsXmlSitemapCache m_instance;
+
+    /** The cached sitemaps, by root path of the SEO configuration file. */
+    private Map<String, CmsCachedSitemap> m_cache;
+
+    /** The LRU list of the cached sitemaps, which limits the size of the cache. */
+    private CmsLruCache m_lruCache;
+
+    /**
+     * Creates a new sitemap cache.<p>
+     *
+     * @param maxSize the maximum number of characters of all cached sitemaps
+     */
+    CmsXmlSitemapCache(int maxSize) {
+
+        m_cache = Collections.synchronizedMap(new HashMap<String, CmsCachedSitemap>());
+        // remove the least recently used sitemaps until 3/4 of the maximum size are left
+        m_lruCache = new CmsLruCache(maxSize, (maxSize / 4) * 3, maxSize / 4);
+    }
+
+    /**
+     * Returns the sitemap cache, which is created and registered as event listener on first use.<p>
+     *
+     * @return the sitemap cache
+     */
+    public static synchronized CmsXmlSitemapCache getInstance() {
+
+        if (m_instance == null) {
+            int maxSize = CmsStringUtil.getIntValue(
+                (String)OpenCms.getRuntimeProperty(PARAM_MAX_SIZE),
+                DEFAULT_MAX_SIZE,
+                PARAM_MAX_SIZE);
+            m_instance = new CmsXmlSitemapCache(maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE);
+            OpenCms.getEventManager().addCmsEventListener(
+                m_instance,
+                new int[] {
+                    I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+                    I_CmsEventListener.EVENT_CLEAR_CACHES,
+                    I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES});
+            OpenCms.getMemoryMonitor().register(CmsXmlSitemapCache.class.getName() + ".m_cache", m_instance.m_cache);
+        }
+        return m_instance;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                String publishIdStr = (String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
+                if (publishIdStr == null) {
+                    clear();
+                } else {
+                    flush(new CmsUUID(publishIdStr));
+                }
+                break;
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
+                clear();
+                break;
+            default:
+                // ignore
+        }
+    }
+
+    /**
+     * Returns the cached sitemap for a SEO configuration file.<p>
+     *
+     * @param seoFile the SEO configuration file
+     *
+     * @return the cached sitemap, or <code>null</code> if the sitemap is not cached or the configuration has changed
+     */
+    public synchronized CmsCachedSitemap get(CmsResource seoFile) {
+
+        CmsCachedSitemap result = m_cache.get(seoFile.getRootPath());
+        if (result != null) {
+            if (result.getDateLastModified() != seoFile.getDateLastModified()) {
+                m_lruCache.remove(result);
+                result = null;
+            } else {
+                m_lruCache.touch(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of characters of a sitemap that can be cached.<p>
+     *
+     * @return the maximum number of characters of a cached sitemap
+     */
+    public int getMaxSitemapSize() {
+
+        return m_lruCache.getMaxObjectCosts();
+    }
+
+    /**
+     * Returns the number of characters of all cached sitemaps.<p>
+     *
+     * @return the number of characters of all cached sitemaps
+     */
+    public int getSize() {
+
+        return m_lruCache.getObjectCosts();
+    }
+
+    /**
+     * Caches a rendered sitemap for a SEO configuration file.<p>
+     *
+     * @param seoFile the SEO configuration file
+     * @param sitemap the rendered sitemap
+     *
+     * @return <code>true</code> if the sitemap has been cached, <code>false</code> if it is too large
+     */
+    public synchronized boolean put(CmsResource seoFile, CmsCachedSitemap sitemap) {
+
+        String key = seoFile.getRootPath();
+        CmsCachedSitemap previous = m_cache.get(key);
+        if (previous != null) {
+            m_lruCache.remove(previous);
+        }
+        sitemap.setCacheData(key, m_cache);
+        m_cache.put(key, sitemap);
+        if (!m_lruCache.add(sitemap)) {
+            m_cache.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes all cached sitemaps.<p>
+     */
+    private synchronized void clear() {
+
+        m_lruCache.clear();
+        m_cache.clear();
+    }
+
+    /**
+     * Removes the cached sitemaps affected by a publish job.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish job
+     */
+    private void flush(CmsUUID publishHistoryId) {
+
+        if (m_cache.isEmpty()) {
+            return;
+        }
+        List<CmsPublishedResource> publishedResources;
+        try {
+            CmsObject cms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+            publishedResources = cms.readPublishedResources(publishHistoryId);
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            clear();
+            return;
+        }
+        if (publishedResources.isEmpty()) {
+            clear();
+            return;
+        }
+        String shared = OpenCms.getSiteManager().getSharedFolder();
+        shared = (shared == null) ? null : CmsStringUtil.joinPaths(shared, "/");
+        for (CmsPublishedResource published : publishedResources) {
+            String rootPath = published.getRootPath();
+            if (rootPath.startsWith(CmsResource.VFS_FOLDER_SYSTEM + "/")
+                || ((shared != null) && rootPath.startsWith(shared))) {
+                clear();
+                return;
+            }
+        }
+        synchronized (this) {
+            List<CmsCachedSitemap> affected = new ArrayList<CmsCachedSitemap>();
+            for (CmsCachedSitemap sitemap : m_cache.values()) {
+                for (CmsPublishedResource published : publishedResources) {
+                    if (published.getRootPath().startsWith(sitemap.getSiteRoot())) {
+                        affected.add(sitemap);
+                        break;
+                    }
+                }
+            }
+            for (CmsCachedSitemap sitemap : affected) {
+                m_lruCache.remove(sitemap);
+            }
+        }
+    }
+}
@@ -29,6 +29,7 @@ package org.opencms.site.xmlsitemap;
 
 import org.opencms.ade.detailpage.CmsDetailPageInfo;
 import org.opencms.db.CmsAlias;
+import org.opencms.db.CmsDbEntryNotFoundException;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProperty;
 import org.opencms.file.CmsPropertyDefinition;
@@ -39,6 +40,7 @@ import org.opencms.file.CmsVfsResourceNotFoundException;
 import org.opencms.file.types.CmsResourceTypeXmlContainerPage;
 import org.opencms.file.types.I_CmsResourceType;
 import org.opencms.gwt.shared.alias.CmsAliasMode;
+import org.opencms.i18n.CmsEncoder;
 import org.opencms.jsp.CmsJspNavBuilder;
 import org.opencms.jsp.CmsJspNavElement;
 import org.opencms.loader.CmsLoaderException;
@@ -54,6 +56,9 @@ import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -73,6 +78,12 @@ import com.google.common.collect.Multimap;
 /**
  * Class for generating XML sitemaps for SEO purposes, as described in
  * <a href="http://www.sitemaps.org/protocol.html">http://www.sitemaps.org/protocol.html</a>.<p>
+ *
+ * Since a single sitemap may not contain more than {@link #MAX_URLS_PER_SITEMAP} URLs, the generated entries
+ * are split into several shards. Each shard can be written directly to the response with
+ * {@link #writeSitemapShard(Writer, List, int)}, and the shards are referenced from a sitemap index written
+ * by {@link #writeSitemapIndex(Writer, List)}. For caching, the shards can be rendered to strings with
+ * {@link #renderSitemapShards(List, int)}.<p>
  */
 public class CmsXmlSitemapGenerator {
 
@@ -131,9 +142,17 @@ public class CmsXmlSitemapGenerator {
     /** The default priority. */
     public static final double DEFAULT_PRIORITY = 0.5;
 
+    /** The maximum number of URLs in a single sitemap, as defined by the sitemap protocol. */
+    public static final int MAX_URLS_PER_SITEMAP = 50000;
+
     /** The logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsXmlSitemapGenerator.class);
 
+    /** The properties used for the sitemap entries. */
+    private static final String[] SITEMAP_PROPERTIES = {
+        CmsPropertyDefinition.PROPERTY_XMLSITEMAP_CHANGEFREQ,
+        CmsPropertyDefinition.PROPERTY_XMLSITEMAP_PRIORITY};
+
     /** The root path for the sitemap root folder. */
     protected String m_baseFolderRootPath;
 
@@ -158,6 +177,9 @@ public class CmsXmlSitemapGenerator {
     /** The include/exclude configuration used for choosing pages for the XML sitemap. */
     protected CmsPathIncludeExcludeSet m_includeExcludeSet = new CmsPathIncludeExcludeSet();
 
+    /** The maximum number of URLs in a single sitemap shard. */
+    protected int m_maxUrlsPerSitemap = MAX_URLS_PER_SITEMAP;
+
     /** A map from structure ids to page aliases below the base folder which point to the given structure id. */
     protected Multimap<CmsUUID, CmsAlias> m_pageAliasesBelowBaseFolderByStructureId = ArrayListMultimap.create();
 
@@ -170,6 +192,12 @@ public class CmsXmlSitemapGenerator {
     /** The site root of the base folder. */
     protected String m_siteRoot;
 
+    /** The root folders for which the sitemap properties have been read in bulk. */
+    protected List<String> m_sitemapPropertyRoots = new ArrayList<String>();
+
+    /** The values of the sitemap properties, by property name and root path of the resource they are set on. */
+    protected Map<String, Map<String, String>> m_sitemapPropertyValues = new HashMap<String, Map<String, String>>();
+
     /** A link to the site root. */
     protected String m_siteRootLink;
 
@@ -195,6 +223,26 @@ public class CmsXmlSitemapGenerator {
             m_siteGuestCms.getRequestContext().removeSiteRoot(m_baseFolderRootPath));
     }
 
+    /**
+     * Writes a sitemap index document referencing the given sitemap links.<p>
+     *
+     * @param out the writer to write the sitemap index to
+     * @param sitemapLinks the links of the sitemaps
+     *
+     * @throws IOException if writing fails
+     */
+    public static void writeSitemapIndex(Writer out, List<String> sitemapLinks) throws IOException {
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (String link : sitemapLinks) {
+            out.write("<sitemap><loc>");
+            out.write(CmsEncoder.escapeXml(link));
+            out.write("</loc></sitemap>\n");
+        }
+        out.write("</sitemapindex>");
+    }
+
     /**
      * Gets the change frequency for a sitemap entry from a list of properties.<p>
      *
@@ -266,7 +314,7 @@ public class CmsXmlSitemapGenerator {
         initializeFileData(baseSitePath);
         for (CmsResource resource : getDirectPages()) {
             String sitePath = m_siteGuestCms.getSitePath(resource);
-            List<CmsProperty> propertyList = m_siteGuestCms.readPropertyObjects(resource, true);
+            List<CmsProperty> propertyList = getSitemapProperties(resource);
             String onlineLink = OpenCms.getLinkManager().getOnlineLink(m_siteGuestCms, sitePath);
             boolean isContainerPage = CmsResourceTypeXmlContainerPage.isContainerPage(resource);
             long dateModified = resource.getDateLastModified();
@@ -320,16 +368,71 @@ public class CmsXmlSitemapGenerator {
      */
     public String renderSitemap() throws CmsException {
 
-        StringBuffer buffer = new StringBuffer();
-        List<CmsXmlSitemapUrlBean> urlBeans = generateSitemapBeans();
-        buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        buffer.append(getUrlSetOpenTag() + "\n");
-        for (CmsXmlSitemapUrlBean bean : urlBeans) {
-            buffer.append(getXmlForEntry(bean));
-            buffer.append("\n");
+        StringWriter writer = new StringWriter();
+        try {
+            writeSitemap(writer, generateSitemapBeans());
+        } catch (IOException e) {
+            // can not happen for a string writer
+            LOG.error(e.getLocalizedMessage(), e);
         }
-        buffer.append("</urlset>");
-        return buffer.toString();
+        return writer.toString();
+    }
+
+    /**
+     * Returns the number of sitemap shards needed for the given number of URLs.<p>
+     *
+     * @param urlCount the number of URLs
+     *
+     * @return the number of shards, which is at least 1
+     */
+    public int getShardCount(int urlCount) {
+
+        return Math.max(1, ((urlCount + m_maxUrlsPerSitemap) - 1) / m_maxUrlsPerSitemap);
+    }
+
+    /**
+     * Formats the given sitemap entries as a list of sitemap documents, each containing at most
+     * {@link #MAX_URLS_PER_SITEMAP} URLs.<p>
+     *
+     * The returned list always contains at least one sitemap document. Rendering stops as soon as the documents
+     * exceed the given number of characters, since such a sitemap is too large to be cached and should be written
+     * directly to the response with {@link #writeSitemapShard(Writer, List, int)} instead.<p>
+     *
+     * @param urlBeans the sitemap entries
+     * @param maxSize the maximum number of characters of all sitemap documents
+     *
+     * @return the sitemap XML documents, or <code>null</code> if they are larger than the given number of characters
+     */
+    public List<String> renderSitemapShards(List<CmsXmlSitemapUrlBean> urlBeans, int maxSize) {
+
+        List<String> result = new ArrayList<String>();
+        int size = 0;
+        int start = 0;
+        do {
+            int end = Math.min(start + m_maxUrlsPerSitemap, urlBeans.size());
+            StringWriter writer = new StringWriter();
+            StringBuffer buffer = writer.getBuffer();
+            try {
+                writeUrlSetStart(writer);
+                for (CmsXmlSitemapUrlBean bean : urlBeans.subList(start, end)) {
+                    writeUrlSetEntry(writer, bean);
+                    if ((size + buffer.length()) > maxSize) {
+                        return null;
+                    }
+                }
+                writeUrlSetEnd(writer);
+            } catch (IOException e) {
+                // can not happen for a string writer
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+            size += buffer.length();
+            if (size > maxSize) {
+                return null;
+            }
+            result.add(writer.toString());
+            start = end;
+        } while (start < urlBeans.size());
+        return result;
     }
 
     /**
@@ -342,6 +445,51 @@ public class CmsXmlSitemapGenerator {
         m_computeContainerPageDates = computeContainerPageDates;
     }
 
+    /**
+     * Sets the maximum number of URLs in a single sitemap shard.<p>
+     *
+     * The default is {@link #MAX_URLS_PER_SITEMAP}, the limit of the sitemap protocol.<p>
+     *
+     * @param maxUrlsPerSitemap the maximum number of URLs in a single sitemap shard
+     */
+    public void setMaxUrlsPerSitemap(int maxUrlsPerSitemap) {
+
+        m_maxUrlsPerSitemap = maxUrlsPerSitemap;
+    }
+
+    /**
+     * Writes a sitemap document for the given entries, one entry at a time.<p>
+     *
+     * @param out the writer to write the sitemap to
+     * @param urlBeans the sitemap entries
+     *
+     * @throws IOException if writing fails
+     */
+    public void writeSitemap(Writer out, List<CmsXmlSitemapUrlBean> urlBeans) throws IOException {
+
+        writeUrlSetStart(out);
+        for (CmsXmlSitemapUrlBean bean : urlBeans) {
+            writeUrlSetEntry(out, bean);
+        }
+        writeUrlSetEnd(out);
+    }
+
+    /**
+     * Writes a single shard of a sitemap split by {@link #getShardCount(int)}, one entry at a time.<p>
+     *
+     * @param out the writer to write the sitemap shard to
+     * @param urlBeans all sitemap entries
+     * @param shard the number of the shard, starting with 1
+     *
+     * @throws IOException if writing fails
+     */
+    public void writeSitemapShard(Writer out, List<CmsXmlSitemapUrlBean> urlBeans, int shard) throws IOException {
+
+        int start = Math.min((shard - 1) * m_maxUrlsPerSitemap, urlBeans.size());
+        int end = Math.min(start + m_maxUrlsPerSitemap, urlBeans.size());
+        writeSitemap(out, urlBeans.subList(start, end));
+    }
+
     /**
      * Adds an URL bean to the internal map of results, but only if there is no existing entry with higher internal priority
      * than the priority given as an argument.<p>
@@ -539,6 +687,47 @@ public class CmsXmlSitemapGenerator {
         return result;
     }
 
+    /**
+     * Gets the sitemap properties of a resource, including the values inherited from its parent folders.<p>
+     *
+     * The values are looked up in the property values read in bulk by {@link #readSitemapProperties(String)}.
+     * Only for resources outside of the folders read in bulk, the properties are read from the VFS.<p>
+     *
+     * @param resource the resource
+     *
+     * @return the sitemap properties of the resource
+     *
+     * @throws CmsException if something goes wrong
+     */
+    protected List<CmsProperty> getSitemapProperties(CmsResource resource) throws CmsException {
+
+        String rootPath = resource.getRootPath();
+        String propertyRoot = null;
+        for (String root : m_sitemapPropertyRoots) {
+            if (rootPath.startsWith(root)) {
+                propertyRoot = root;
+                break;
+            }
+        }
+        if (propertyRoot == null) {
+            return m_guestCms.readPropertyObjects(resource, true);
+        }
+        List<CmsProperty> result = new ArrayList<CmsProperty>(SITEMAP_PROPERTIES.length);
+        for (String name : SITEMAP_PROPERTIES) {
+            Map<String, String> values = m_sitemapPropertyValues.get(name);
+            String path = rootPath;
+            String value = values.get(path);
+            while ((value == null) && (path.length() > propertyRoot.length())) {
+                path = CmsResource.getParentFolder(path);
+                value = values.get(path);
+            }
+            if (value != null) {
+                result.add(new CmsProperty(name, value, null));
+            }
+        }
+        return result;
+    }
+
     /**
      * Gets the opening tag for the urlset element (can be overridden to add e.g. more namespaces.<p>
      *
@@ -565,6 +754,63 @@ public class CmsXmlSitemapGenerator {
         return buffer.toString();
     }
 
+    /**
+     * Reads the values of the sitemap properties for all resources in a folder tree with one query per property.<p>
+     *
+     * The values inherited by the folder itself are stored for the folder, so the values of all resources in the
+     * folder tree can be resolved by {@link #getSitemapProperties(CmsResource)} without reading from the VFS.<p>
+     *
+     * @param folderRootPath the root path of the folder
+     *
+     * @throws CmsException if something goes wrong
+     */
+    protected void readSitemapProperties(String folderRootPath) throws CmsException {
+
+        String folder = CmsStringUtil.joinPaths(folderRootPath, "/");
+        for (String root : m_sitemapPropertyRoots) {
+            if (folder.startsWith(root)) {
+                // already read
+                return;
+            }
+        }
+        CmsResource folderResource;
+        try {
+            folderResource = m_guestCms.readResource(folder, CmsResourceFilter.IGNORE_EXPIRATION);
+        } catch (CmsVfsResourceNotFoundException e) {
+            LOG.debug("Could not read sitemap properties of missing folder: " + folder);
+            return;
+        }
+        for (String name : SITEMAP_PROPERTIES) {
+            Map<String, String> values = m_sitemapPropertyValues.get(name);
+            if (values == null) {
+                values = new HashMap<String, String>();
+                m_sitemapPropertyValues.put(name, values);
+            }
+            CmsProperty inherited = m_guestCms.readPropertyObject(folderResource, name, true);
+            if (!inherited.isNullProperty()) {
+                values.put(folder, inherited.getValue());
+            }
+            List<CmsResource> resources;
+            try {
+                resources = m_guestCms.readResourcesWithProperty(folder, name, null, CmsResourceFilter.ALL);
+            } catch (CmsDbEntryNotFoundException e) {
+                // the property is not defined, so it is not set on any resource
+                continue;
+            }
+            for (CmsResource resource : resources) {
+                try {
+                    CmsProperty property = m_guestCms.readPropertyObject(resource, name, false);
+                    if (!property.isNullProperty()) {
+                        values.put(resource.getRootPath(), property.getValue());
+                    }
+                } catch (CmsException e) {
+                    LOG.warn("Could not read property " + name + " of " + resource.getRootPath(), e);
+                }
+            }
+        }
+        m_sitemapPropertyRoots.add(folder);
+    }
+
     /**
      * Checks whether the given alias is below the base folder.<p>
      *
@@ -587,7 +833,7 @@ public class CmsXmlSitemapGenerator {
 
         try {
             CmsResource aliasTarget = m_guestCms.readResource(aliasStructureId);
-            List<CmsProperty> properties = m_guestCms.readPropertyObjects(aliasTarget, true);
+            List<CmsProperty> properties = getSitemapProperties(aliasTarget);
             double priority = getPriority(properties);
             String changeFrequency = getChangeFrequency(properties);
             Collection<CmsAlias> aliases = m_pageAliasesBelowBaseFolderByStructureId.get(aliasStructureId);
@@ -619,7 +865,7 @@ public class CmsXmlSitemapGenerator {
                 if (!isValidDetailPageCombination(containerPage, locale, detailRes)) {
                     continue;
                 }
-                List<CmsProperty> detailProps = m_guestCms.readPropertyObjects(detailRes, true);
+                List<CmsProperty> detailProps = getSitemapProperties(detailRes);
                 String detailLink = getDetailLink(containerPage, detailRes, locale);
                 detailLink = CmsFileUtil.removeTrailingSeparator(detailLink);
                 CmsXmlSitemapUrlBean detailUrlBean = new CmsXmlSitemapUrlBean(
@@ -684,6 +930,13 @@ public class CmsXmlSitemapGenerator {
     private void initializeFileData(String baseSitePath) throws CmsException {
 
         m_resultMap.clear();
+        m_sitemapPropertyRoots.clear();
+        m_sitemapPropertyValues.clear();
+        readSitemapProperties(m_siteRoot);
+        String shared = OpenCms.getSiteManager().getSharedFolder();
+        if (shared != null) {
+            readSitemapProperties(shared);
+        }
         m_siteRootLink = OpenCms.getLinkManager().getOnlineLink(m_siteGuestCms, "/");
         m_siteRootLink = CmsFileUtil.removeTrailingSeparator(m_siteRootLink);
         m_detailPageInfos = OpenCms.getADEManager().getAllDetailPages(m_guestCms);
@@ -718,4 +971,43 @@ public class CmsXmlSitemapGenerator {
         return true;
     }
 
+    /**
+     * Writes the XML for a single sitemap entry.<p>
+     *
+     * @param out the writer to write to
+     * @param bean the sitemap entry
+     *
+     * @throws IOException if writing fails
+     */
+    private void writeUrlSetEntry(Writer out, CmsXmlSitemapUrlBean bean) throws IOException {
+
+        out.write(getXmlForEntry(bean));
+        out.write("\n");
+    }
+
+    /**
+     * Writes the end of a sitemap document.<p>
+     *
+     * @param out the writer to write to
+     *
+     * @throws IOException if writing fails
+     */
+    private void writeUrlSetEnd(Writer out) throws IOException {
+
+        out.write("</urlset>");
+    }
+
+    /**
+     * Writes the start of a sitemap document.<p>
+     *
+     * @param out the writer to write to
+     *
+     * @throws IOException if writing fails
+     */
+    private void writeUrlSetStart(Writer out) throws IOException {
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write(getUrlSetOpenTag() + "\n");
+    }
+
 }
@@ -27,14 +27,21 @@
 
 package org.opencms.util;
 
+import org.opencms.i18n.CmsEncoder;
+import org.opencms.json.JSONArray;
+import org.opencms.json.JSONException;
+import org.opencms.json.JSONObject;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.reflect.Modifier;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -48,6 +55,9 @@ import org.apache.commons.codec.binary.Base64;
  */
 public final class CmsDataTypeUtil {
 
+    /** The first two bytes of a serialized Java object. */
+    private static final byte[] SERIALIZATION_MAGIC = {(byte)0xAC, (byte)0xED};
+
     /**
      * Hides the public constructor.<p>
      */
@@ -77,6 +87,11 @@ public final class CmsDataTypeUtil {
             return parse(new String(data), clazz);
         }
 
+        if (!isSerialized(data)) {
+            // this is a compact encoded map or list
+            return parseCollection(new String(data, CmsEncoder.ENCODING_UTF_8), clazz);
+        }
+
         // this is a serialized object
         ByteArrayInputStream bin = new ByteArrayInputStream(data);
         ObjectInputStream oin = new ObjectInputStream(bin);
@@ -130,6 +145,9 @@ public final class CmsDataTypeUtil {
     /**
      * Serialize the given data.<p>
      *
+     * Maps with string keys and lists are encoded in a compact JSON format if all their values are parseable,
+     * all other objects which are not parseable are serialized with Java serialization.<p>
+     *
      * @param data the data to serialize
      *
      * @return byte[] the serailized data
@@ -142,6 +160,11 @@ public final class CmsDataTypeUtil {
             return format(data).getBytes();
         }
 
+        String compact = formatCollection(data);
+        if (compact != null) {
+            return compact.getBytes(CmsEncoder.ENCODING_UTF_8);
+        }
+
         // serialize the data
         ByteArrayOutputStream bout = new ByteArrayOutputStream();
         ObjectOutputStream oout = new ObjectOutputStream(bout);
@@ -322,6 +345,21 @@ public final class CmsDataTypeUtil {
         return parseable;
     }
 
+    /**
+     * Checks if the given data has been written with Java serialization.<p>
+     *
+     * @param data the data to check
+     *
+     * @return <code>true</code> if the given data has been written with Java serialization
+     */
+    public static boolean isSerialized(byte[] data) {
+
+        return (data != null)
+            && (data.length >= SERIALIZATION_MAGIC.length)
+            && (data[0] == SERIALIZATION_MAGIC[0])
+            && (data[1] == SERIALIZATION_MAGIC[1]);
+    }
+
     /**
      * Converts Number to int.<p>
      *
@@ -500,4 +538,179 @@ public final class CmsDataTypeUtil {
 
         return new CmsUUID(data);
     }
+
+    /**
+     * Returns the compact encoding of the given map or list.<p>
+     *
+     * Maps are encoded as JSON objects, lists as JSON arrays. String values are written as they are,
+     * other values as an array of their type and their formatted value. Only maps and lists which
+     * can be created again with their public default constructor are encoded this way.<p>
+     *
+     * @param data the map or list to encode
+     *
+     * @return the compact encoding, or <code>null</code> if the given data can not be encoded this way
+     */
+    private static String formatCollection(Object data) {
+
+        if (!isInstantiable(data.getClass())) {
+            // e.g. an unmodifiable or a singleton collection, keep the type by serializing it
+            return null;
+        }
+        try {
+            if (data instanceof Map) {
+                JSONObject json = new JSONObject();
+                for (Entry<?, ?> entry : ((Map<?, ?>)data).entrySet()) {
+                    if ((entry.getKey() == null) || (entry.getValue() == null)) {
+                        // null entries are dropped just like for serialized maps
+                        continue;
+                    }
+                    Object value = formatElement(entry.getValue());
+                    if (!(entry.getKey() instanceof String) || (value == null)) {
+                        return null;
+                    }
+                    json.put((String)entry.getKey(), value);
+                }
+                return json.toString();
+            }
+            if (data instanceof List) {
+                JSONArray json = new JSONArray();
+                for (Object element : (List<?>)data) {
+                    Object value = formatElement(element);
+                    if (value == null) {
+                        return null;
+                    }
+                    json.put(value);
+                }
+                return json.toString();
+            }
+        } catch (JSONException e) {
+            // fall back to serialization
+        }
+        return null;
+    }
+
+    /**
+     * Returns the compact encoding of a single value of a map or list.<p>
+     *
+     * @param value the value to encode
+     *
+     * @return the compact encoding, or <code>null</code> if the value is not parseable
+     */
+    private static Object formatElement(Object value) {
+
+        if ((value == null) || !isParseable(value.getClass())) {
+            return null;
+        }
+        if (value instanceof String) {
+            return value;
+        }
+        JSONArray typed = new JSONArray();
+        typed.put(value.getClass().getName());
+        typed.put(format(value));
+        return typed;
+    }
+
+    /**
+     * Checks if the given type of map or list can be created with its public default constructor.<p>
+     *
+     * @param clazz the type to check
+     *
+     * @return <code>true</code> if the given type can be created with its public default constructor
+     */
+    private static boolean isInstantiable(Class<?> clazz) {
+
+        if (Modifier.isAbstract(clazz.getModifiers()) || !Modifier.isPublic(clazz.getModifiers())) {
+            return false;
+        }
+        try {
+            return Modifier.isPublic(clazz.getConstructor().getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates an empty map or list of the given type.<p>
+     *
+     * @param clazz the type of the map or list
+     *
+     * @return the empty map or list
+     *
+     * @throws IOException if the type can not be created with its public default constructor
+     */
+    private static Object newCollection(Class<?> clazz) throws IOException {
+
+        if (!isInstantiable(clazz)) {
+            // such collections are never written in the compact encoding
+            throw new IOException(clazz.getName());
+        }
+        try {
+            return clazz.newInstance();
+        } catch (Exception e) {
+            throw new IOException(clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Decodes a map or list from its compact encoding.<p>
+     *
+     * @param data the compact encoding
+     * @param clazz the type of the encoded map or list
+     *
+     * @return the decoded map or list
+     *
+     * @throws IOException if the data is not a valid compact encoding
+     * @throws ClassNotFoundException if the type of a value is unknown
+     */
+    @SuppressWarnings("unchecked")
+    private static Object parseCollection(String data, Class<?> clazz) throws IOException, ClassNotFoundException {
+
+        try {
+            if (Map.class.isAssignableFrom(clazz)) {
+                JSONObject json = new JSONObject(data);
+                Map<String, Object> result = (Map<String, Object>)newCollection(clazz);
+                Iterator<String> keys = json.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    result.put(key, parseElement(json.get(key)));
+                }
+                return result;
+            }
+            if (List.class.isAssignableFrom(clazz)) {
+                JSONArray json = new JSONArray(data);
+                List<Object> result = (List<Object>)newCollection(clazz);
+                for (int i = 0; i < json.length(); i++) {
+                    result.add(parseElement(json.get(i)));
+                }
+                return result;
+            }
+        } catch (JSONException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        throw new IOException(clazz.getName());
+    }
+
+    /**
+     * Decodes a single value of a map or list from its compact encoding.<p>
+     *
+     * @param value the compact encoding of the value
+     *
+     * @return the decoded value
+     *
+     * @throws JSONException if the value is not a valid compact encoding
+     * @throws ClassNotFoundException if the type of the value is unknown
+     * @throws IOException if the type of the value is not parseable
+     */
+    private static Object parseElement(Object value) throws JSONException, ClassNotFoundException, IOException {
+
+        if (!(value instanceof JSONArray)) {
+            return value.toString();
+        }
+        JSONArray typed = (JSONArray)value;
+        Class<?> clazz = Class.forName(typed.getString(0));
+        if (!isParseable(clazz)) {
+            throw new IOException(clazz.getName());
+        }
+        return parse(typed.getString(1), clazz);
+    }
 }
@@ -48,6 +48,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -209,6 +210,38 @@ public final class CmsFileUtil {
         out.close();
     }
 
+    /**
+     * Checks if the content of the given input stream is equal to the given bytes.<p>
+     *
+     * The stream is read in blocks and the comparison stops at the first difference.
+     * The stream is not closed.<p>
+     *
+     * @param in the input stream to compare
+     * @param content the bytes to compare the stream with
+     *
+     * @return <code>true</code> if the stream contains exactly the given bytes
+     *
+     * @throws IOException in case of errors reading the stream
+     */
+    public static boolean equalsContent(InputStream in, byte[] content) throws IOException {
+
+        byte[] buffer = new byte[4096];
+        int pos = 0;
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            if ((pos + len) > content.length) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (buffer[i] != content[pos + i]) {
+                    return false;
+                }
+            }
+            pos += len;
+        }
+        return pos == content.length;
+    }
+
     /**
      * Returns the formatted filesize to Bytes, KB, MB or GB depending on the given value.<p>
      *
@@ -630,6 +663,14 @@ public final class CmsFileUtil {
             // content can be read in one pass
             return readFully(in, in.available(), closeInputStream);
         }
+        if (in instanceof FileInputStream) {
+            // the remaining size is known, so the content can be read without growing intermediate buffers
+            FileChannel channel = ((FileInputStream)in).getChannel();
+            long remaining = channel.size() - channel.position();
+            if (remaining <= Integer.MAX_VALUE) {
+                return readFully(in, (int)remaining, closeInputStream);
+            }
+        }
 
         // copy buffer
         byte[] xfer = new byte[2048];
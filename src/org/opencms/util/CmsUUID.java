@@ -35,6 +35,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.logging.Log;
 
@@ -56,7 +57,9 @@ import org.safehaus.uuid.UUIDGenerator;
  * (without using JNI), the MAC address has to be provided first
  * by using the static {@link #init(String)} method.<p>
  *
- * This class is just a facade wrapper for the "real" UUID implementation.<p>
+ * The "real" UUID implementation is only used to generate new UUIDs. The 128 bits of a UUID are kept
+ * in two primitive longs, so a UUID needs no further objects on the heap. String representation,
+ * ordering and hash code are the same as those of the "real" UUID implementation.<p>
  *
  * @since 6.0.0
  */
@@ -65,6 +68,19 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     /** A regular expression for matching UUIDs. */
     public static final String UUID_REGEX = "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}";
 
+    /** The shifts used to calculate the hash code, same as in the "real" UUID implementation. */
+    private static final int[] HASH_SHIFTS = {3, 7, 17, 21, 29, 4, 9};
+
+    /** The digits of the String representation. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** The number of slots in the cache of interned UUIDs, must be a power of 2. */
+    private static final int INTERN_CACHE_SIZE = 4096;
+
+    /** The cache of interned UUIDs. */
+    private static final AtomicReferenceArray<CmsUUID> INTERN_CACHE = new AtomicReferenceArray<CmsUUID>(
+        INTERN_CACHE_SIZE);
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsUUID.class);
 
@@ -77,13 +93,19 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         "www.opencms.org");
 
     /** Constant for the null UUID. */
-    private static final CmsUUID NULL_UUID = new CmsUUID(UUID.getNullUUID());
+    private static final CmsUUID NULL_UUID = new CmsUUID(0L, 0L);
+
+    /** Message for invalid UUID Strings. */
+    private static final String PARSE_ERROR = "UUID has to be represented by the standard 36-char representation";
 
     /** Serial version UID required for safe serialization. */
     private static final long serialVersionUID = 1736324454709298676L;
 
-    /** Internal UUID implementation. */
-    private transient UUID m_uuid;
+    /** The least significant 64 bits of the UUID. */
+    private transient long m_leastSigBits;
+
+    /** The most significant 64 bits of the UUID. */
+    private transient long m_mostSigBits;
 
     /**
      * Creates a new UUID.<p>
@@ -99,7 +121,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
             // since the empty constructor is called when the de-serialization takes place
             init(CmsStringUtil.getEthernetAddress());
         }
-        m_uuid = UUIDGenerator.getInstance().generateTimeBasedUUID(m_ethernetAddress);
+        setBytes(UUIDGenerator.getInstance().generateTimeBasedUUID(m_ethernetAddress).toByteArray());
     }
 
     /**
@@ -109,7 +131,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public CmsUUID(byte[] data) {
 
-        m_uuid = new UUID(data);
+        setBytes(data);
     }
 
     /**
@@ -121,17 +143,19 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     public CmsUUID(String uuid)
     throws NumberFormatException {
 
-        m_uuid = new UUID(uuid);
+        parse(uuid);
     }
 
     /**
-     * Create a new UUID based on another one (used internal for cloning).<p>
+     * Create a new UUID from its most and least significant bits.<p>
      *
-     * @param uuid the UUID to clone
+     * @param mostSigBits the most significant 64 bits of the UUID
+     * @param leastSigBits the least significant 64 bits of the UUID
      */
-    private CmsUUID(UUID uuid) {
+    private CmsUUID(long mostSigBits, long leastSigBits) {
 
-        m_uuid = uuid;
+        m_mostSigBits = mostSigBits;
+        m_leastSigBits = leastSigBits;
     }
 
     /**
@@ -161,7 +185,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public static CmsUUID getConstantUUID(String name) {
 
-        return new CmsUUID(UUIDGenerator.getInstance().generateNameBasedUUID(m_opencmsUUID, name));
+        return new CmsUUID(UUIDGenerator.getInstance().generateNameBasedUUID(m_opencmsUUID, name).toByteArray());
     }
 
     /**
@@ -193,7 +217,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public static CmsUUID getOpenCmsUUID() {
 
-        return new CmsUUID(m_opencmsUUID);
+        return new CmsUUID(m_opencmsUUID.toByteArray());
     }
 
     /**
@@ -215,6 +239,35 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         }
     }
 
+    /**
+     * Returns a shared instance of a UUID equal to the given one.<p>
+     *
+     * This is meant for ids that occur in a lot of objects, like the ids of users and projects in resources.
+     * The shared instances are kept in a small cache with a fixed number of slots, where a colliding id
+     * replaces the one in its slot. So interning never grows the heap, but equal ids are not guaranteed
+     * to be the same instance.<p>
+     *
+     * @param id the UUID to intern, may be <code>null</code>
+     *
+     * @return a shared instance equal to the given UUID, or the given UUID itself
+     */
+    public static CmsUUID intern(CmsUUID id) {
+
+        if (id == null) {
+            return null;
+        }
+        if (id.isNullUUID()) {
+            return NULL_UUID;
+        }
+        int slot = id.hashCode() & (INTERN_CACHE_SIZE - 1);
+        CmsUUID cached = INTERN_CACHE.get(slot);
+        if (id.equals(cached)) {
+            return cached;
+        }
+        INTERN_CACHE.set(slot, id);
+        return id;
+    }
+
     /**
      * Returns <code>true</code> if the given UUID is valid.<p>
      *
@@ -225,7 +278,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     public static boolean isValidUUID(String uuid) {
 
         try {
-            return (null != uuid) && (null != UUID.valueOf(uuid));
+            return (null != uuid) && (null != valueOf(uuid));
         } catch (NumberFormatException e) {
             // return false
         }
@@ -243,7 +296,30 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public static CmsUUID valueOf(String uuid) throws NumberFormatException {
 
-        return new CmsUUID(UUID.valueOf(uuid));
+        return new CmsUUID(uuid);
+    }
+
+    /**
+     * Returns the value of a hex digit.<p>
+     *
+     * @param c the hex digit
+     *
+     * @return the value of the hex digit
+     *
+     * @throws NumberFormatException in case the character is not a hex digit
+     */
+    private static int hexValue(char c) throws NumberFormatException {
+
+        if ((c >= '0') && (c <= '9')) {
+            return c - '0';
+        }
+        if ((c >= 'a') && (c <= 'f')) {
+            return (c - 'a') + 10;
+        }
+        if ((c >= 'A') && (c <= 'F')) {
+            return (c - 'A') + 10;
+        }
+        throw new NumberFormatException("Non-hex character '" + c + "'");
     }
 
     /**
@@ -257,15 +333,34 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         if (this == NULL_UUID) {
             return NULL_UUID;
         }
-        return new CmsUUID((UUID)m_uuid.clone());
+        return new CmsUUID(m_mostSigBits, m_leastSigBits);
     }
 
     /**
+     * Compares UUIDs like the "real" UUID implementation:
+     * by type first, time based UUIDs by their time stamp, then byte by byte.<p>
+     *
      * @see java.lang.Comparable#compareTo(Object)
      */
     public int compareTo(CmsUUID obj) {
 
-        return m_uuid.compareTo(obj.m_uuid);
+        int type = getType();
+        int otherType = obj.getType();
+        if (type != otherType) {
+            return (type > otherType) ? 1 : -1;
+        }
+        long high = m_mostSigBits;
+        long otherHigh = obj.m_mostSigBits;
+        if (type == 1) {
+            // time based UUIDs are compared by time stamp: high, middle and low bits of the time
+            high = (high << 48) | ((high & 0xFFFF0000L) << 16) | (high >>> 32);
+            otherHigh = (otherHigh << 48) | ((otherHigh & 0xFFFF0000L) << 16) | (otherHigh >>> 32);
+        }
+        int result = compareUnsigned(high, otherHigh);
+        if (result == 0) {
+            result = compareUnsigned(m_leastSigBits, obj.m_leastSigBits);
+        }
+        return result;
     }
 
     /**
@@ -278,7 +373,8 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
             return true;
         }
         if (obj instanceof CmsUUID) {
-            return ((CmsUUID)obj).m_uuid.equals(m_uuid);
+            CmsUUID other = (CmsUUID)obj;
+            return (other.m_leastSigBits == m_leastSigBits) && (other.m_mostSigBits == m_mostSigBits);
         }
         return false;
     }
@@ -298,12 +394,30 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     /**
      * Optimized hashCode implementation for UUID's.<p>
      *
+     * The hash code is the same as the one of the "real" UUID implementation.<p>
+     *
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
 
-        return m_uuid.hashCode();
+        int hash = getByte(0);
+        hash |= (hash << 16);
+        hash |= (hash << 8);
+        for (int i = 1; i < 15; i += 2) {
+            int value = (getByte(i) << 8) | getByte(i + 1);
+            int shift = HASH_SHIFTS[i >> 1];
+            if (shift > 16) {
+                hash ^= (value << shift) | (value >>> (32 - shift));
+            } else {
+                hash ^= (value << shift);
+            }
+        }
+        int last = getByte(15);
+        hash ^= (last << 3);
+        hash ^= (last << 13);
+        hash ^= (last << 27);
+        return (hash == 0) ? -1 : hash;
     }
 
     /**
@@ -316,7 +430,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         if (this == NULL_UUID) {
             return true;
         }
-        return m_uuid.equals(UUID.getNullUUID());
+        return (m_mostSigBits == 0L) && (m_leastSigBits == 0L);
     }
 
     /**
@@ -346,11 +460,8 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_READ_UUID_1, o));
             }
-            m_uuid = new UUID((String)o);
-        }
-
-        // log an error if the uuid could not be deserialized
-        if (m_uuid == null) {
+            parse((String)o);
+        } else {
             // UUID cannot be deserialized
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_READ_UUID_0));
@@ -365,7 +476,11 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public byte[] toByteArray() {
 
-        return m_uuid.toByteArray();
+        byte[] result = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            result[i] = (byte)getByte(i);
+        }
+        return result;
     }
 
     /**
@@ -374,7 +489,17 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     @Override
     public String toString() {
 
-        return m_uuid.toString();
+        char[] result = new char[36];
+        int pos = 0;
+        for (int i = 0; i < 16; i++) {
+            if ((i == 4) || (i == 6) || (i == 8) || (i == 10)) {
+                result[pos++] = '-';
+            }
+            int value = getByte(i);
+            result[pos++] = HEX_DIGITS[value >> 4];
+            result[pos++] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(result);
     }
 
     /**
@@ -388,4 +513,99 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         }
         out.writeObject(toString());
     }
-}
\ No newline at end of file
+
+    /**
+     * Compares two longs as unsigned values.<p>
+     *
+     * @param a the first value
+     * @param b the second value
+     *
+     * @return a negative value, zero or a positive value if the first value is less than, equal to or
+     *      greater than the second value
+     */
+    private int compareUnsigned(long a, long b) {
+
+        if (a == b) {
+            return 0;
+        }
+        return ((a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE)) ? -1 : 1;
+    }
+
+    /**
+     * Returns a byte of this UUID as unsigned value.<p>
+     *
+     * @param index the index of the byte, in network byte order
+     *
+     * @return the byte as value between 0 and 255
+     */
+    private int getByte(int index) {
+
+        if (index < 8) {
+            return (int)(m_mostSigBits >>> ((7 - index) * 8)) & 0xFF;
+        }
+        return (int)(m_leastSigBits >>> ((15 - index) * 8)) & 0xFF;
+    }
+
+    /**
+     * Returns the type of this UUID, as encoded in its version bits.<p>
+     *
+     * @return the type of this UUID
+     */
+    private int getType() {
+
+        return getByte(6) >> 4;
+    }
+
+    /**
+     * Sets the bits of this UUID from the String representation of a UUID.<p>
+     *
+     * @param uuid the String representation of a UUID
+     *
+     * @throws NumberFormatException in case the String is no valid UUID
+     */
+    private void parse(String uuid) throws NumberFormatException {
+
+        if (uuid.length() != 36) {
+            throw new NumberFormatException(PARSE_ERROR);
+        }
+        long mostSigBits = 0L;
+        long leastSigBits = 0L;
+        int digits = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = uuid.charAt(i);
+            if ((i == 8) || (i == 13) || (i == 18) || (i == 23)) {
+                if (c != '-') {
+                    throw new NumberFormatException(PARSE_ERROR);
+                }
+                continue;
+            }
+            if (digits < 16) {
+                mostSigBits = (mostSigBits << 4) | hexValue(c);
+            } else {
+                leastSigBits = (leastSigBits << 4) | hexValue(c);
+            }
+            digits++;
+        }
+        m_mostSigBits = mostSigBits;
+        m_leastSigBits = leastSigBits;
+    }
+
+    /**
+     * Sets the bits of this UUID from a binary data array.<p>
+     *
+     * @param data a binary data array with at least 16 bytes, representing a UUID in network byte order
+     */
+    private void setBytes(byte[] data) {
+
+        long mostSigBits = 0L;
+        long leastSigBits = 0L;
+        for (int i = 0; i < 8; i++) {
+            mostSigBits = (mostSigBits << 8) | (data[i] & 0xFF);
+        }
+        for (int i = 8; i < 16; i++) {
+            leastSigBits = (leastSigBits << 8) | (data[i] & 0xFF);
+        }
+        m_mostSigBits = mostSigBits;
+        m_leastSigBits = leastSigBits;
+    }
+}
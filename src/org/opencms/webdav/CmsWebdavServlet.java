@@ -65,6 +65,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -273,6 +274,9 @@ public class CmsWebdavServlet extends HttpServlet {
     /** The unique serial id for this class. */
     private static final long serialVersionUID = -122598983283724306L;
 
+    /** Uploaded contents larger than this size, or of unknown size, are written to a temporary file first. */
+    private static final int SPOOL_THRESHOLD = 64 * 1024;
+
     /** The name of the tag "activelock" in the WebDAV protocol. */
     private static final String TAG_ACTIVELOCK = "activelock";
 
@@ -351,6 +355,9 @@ public class CmsWebdavServlet extends HttpServlet {
     /** The name of the tag "timeout" in the WebDAV protocol. */
     private static final String TAG_TIMEOUT = "timeout";
 
+    /** The prefix of the temporary files used for uploaded contents. */
+    private static final String TEMP_FILE_PREFIX = "opencms-webdav";
+
     /** The text to send if the timeout is infinite. */
     private static final String TIMEOUT_INFINITE = "Infinite";
 
@@ -2053,6 +2060,10 @@ public class CmsWebdavServlet extends HttpServlet {
         if (range != null) {
             contentFile = executePartialPut(req, range, path);
             resourceInputStream = new FileInputStream(contentFile);
+        } else if ((req.getContentLength() < 0) || (req.getContentLength() > SPOOL_THRESHOLD)) {
+            // receive large uploads without holding memory, the content is read only when it is saved
+            contentFile = executeSpooledPut(req);
+            resourceInputStream = new FileInputStream(contentFile);
         } else {
             resourceInputStream = req.getInputStream();
         }
@@ -2080,6 +2091,7 @@ public class CmsWebdavServlet extends HttpServlet {
         // it's a memory leak, as noted in this Bugzilla issue.
         if (contentFile != null) {
             try {
+                resourceInputStream.close();
                 contentFile.delete();
             } catch (Exception e) {
                 if (LOG.isErrorEnabled()) {
@@ -2167,10 +2179,8 @@ public class CmsWebdavServlet extends HttpServlet {
         // perform this operation
         File tempDir = (File)getServletContext().getAttribute(ATT_SERVLET_TEMPDIR);
 
-        // Convert all '/' characters to '.' in resourcePath
-        String convertedResourcePath = path.replace('/', '.');
-        File contentFile = new File(tempDir, convertedResourcePath);
-        contentFile.createNewFile();
+        // use a unique file, concurrent uploads of the same resource must not share it
+        File contentFile = File.createTempFile(TEMP_FILE_PREFIX, null, tempDir);
 
         RandomAccessFile randAccessContentFile = new RandomAccessFile(contentFile, "rw");
 
@@ -2213,6 +2223,42 @@ public class CmsWebdavServlet extends HttpServlet {
         return contentFile;
     }
 
+    /**
+     * Writes the content of a PUT request to a temporary file.<p>
+     *
+     * @param req the servlet request we are processing
+     *
+     * @return the temporary file containing the uploaded content
+     *
+     * @throws IOException if an input/output error occurs
+     */
+    protected File executeSpooledPut(HttpServletRequest req) throws IOException {
+
+        File tempDir = (File)getServletContext().getAttribute(ATT_SERVLET_TEMPDIR);
+        File contentFile = File.createTempFile(TEMP_FILE_PREFIX, null, tempDir);
+        InputStream requestStream = req.getInputStream();
+        FileOutputStream contentStream = null;
+        try {
+            contentStream = new FileOutputStream(contentFile);
+            int numBytesRead;
+            byte[] transferBuffer = new byte[BUFFER_SIZE];
+            while ((numBytesRead = requestStream.read(transferBuffer)) != -1) {
+                contentStream.write(transferBuffer, 0, numBytesRead);
+            }
+            contentStream.close();
+            contentStream = null;
+        } catch (IOException e) {
+            if (contentStream != null) {
+                contentStream.close();
+            }
+            contentFile.delete();
+            throw e;
+        } finally {
+            requestStream.close();
+        }
+        return contentFile;
+    }
+
     /**
      * Get the ETag associated with a file.<p>
      *
@@ -29,7 +29,6 @@ package org.opencms.xml;
 
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
-import org.opencms.file.CmsResource;
 import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.CmsRuntimeException;
@@ -42,6 +41,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -49,6 +49,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.dom4j.Attribute;
 import org.dom4j.Document;
@@ -63,6 +65,19 @@ import org.xml.sax.EntityResolver;
  */
 public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
 
+    /** Orders Xpath elements like "Title[2]" by their name, and elements with the same name by their index. */
+    private static final Comparator<String> COMPARE_XPATH_ELEMENT = new Comparator<String>() {
+
+        public int compare(String e1, String e2) {
+
+            int result = CmsXmlUtils.removeXpathIndex(e1).compareTo(CmsXmlUtils.removeXpathIndex(e2));
+            if (result == 0) {
+                result = CmsXmlUtils.getXpathIndexInt(e1) - CmsXmlUtils.getXpathIndexInt(e2);
+            }
+            return result;
+        }
+    };
+
     /** The content conversion to use for this XML document. */
     protected String m_conversion;
 
@@ -84,6 +99,14 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
     /** Set of locales contained in this document. */
     protected Set<Locale> m_locales;
 
+    /**
+     * The values bookmarked directly below a bookmark, by the bookmark name of their parent.<p>
+     *
+     * This forms a tree of the bookmarks for each locale, the values of the top level elements of a locale
+     * are stored below the parent name <code>/locale</code>. The child values are ordered by their Xpath element.<p>
+     */
+    private Map<String, SortedMap<String, I_CmsXmlContentValue>> m_bookmarkChildren;
+
     /** Reference for named elements in the document. */
     private Map<String, I_CmsXmlContentValue> m_bookmarks;
 
@@ -94,6 +117,7 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
     protected A_CmsXmlDocument() {
 
         m_bookmarks = new HashMap<String, I_CmsXmlContentValue>();
+        m_bookmarkChildren = new HashMap<String, SortedMap<String, I_CmsXmlContentValue>>();
         m_locales = new HashSet<Locale>();
     }
 
@@ -473,16 +497,8 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
         String bookmark = getBookmarkName(CmsXmlUtils.createXpath(path, 1), locale);
         I_CmsXmlContentValue value = getBookmark(bookmark);
         if ((value != null) && !value.isSimpleType()) {
-            // calculate level of current bookmark
-            int depth = CmsResource.getPathLevel(bookmark) + 1;
-            Iterator<String> i = getBookmarks().iterator();
-            while (i.hasNext()) {
-                String bm = i.next();
-                if (bm.startsWith(bookmark) && (CmsResource.getPathLevel(bm) == depth)) {
-                    // add only values directly below the value
-                    result.add(getBookmark(bm));
-                }
-            }
+            // add only values directly below the value
+            result.addAll(getBookmarkedSubValues(bookmark));
         }
         return result;
     }
@@ -510,17 +526,8 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
 
         List<I_CmsXmlContentValue> result = new ArrayList<I_CmsXmlContentValue>();
 
-        // bookmarks are stored with the locale as first prefix
-        String prefix = '/' + locale.toString() + '/';
-
-        // it's better for performance to iterate through the list of bookmarks directly
-        Iterator<Map.Entry<String, I_CmsXmlContentValue>> i = m_bookmarks.entrySet().iterator();
-        while (i.hasNext()) {
-            Map.Entry<String, I_CmsXmlContentValue> entry = i.next();
-            if (entry.getKey().startsWith(prefix)) {
-                result.add(entry.getValue());
-            }
-        }
+        // bookmarks are stored with the locale as first prefix, so only the bookmark tree of the locale is visited
+        collectBookmarkedValues('/' + locale.toString(), result);
 
         // sort the result
         Collections.sort(result);
@@ -540,14 +547,7 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
             if (value.getContentDefinition().getChoiceMaxOccurs() > 1) {
                 // selected value belongs to a xsd:choice
                 String parent = CmsXmlUtils.removeLastXpathElement(bookmark);
-                int depth = CmsResource.getPathLevel(bookmark);
-                Iterator<String> i = getBookmarks().iterator();
-                while (i.hasNext()) {
-                    String bm = i.next();
-                    if (bm.startsWith(parent) && (CmsResource.getPathLevel(bm) == depth)) {
-                        result.add(getBookmark(bm));
-                    }
-                }
+                result.addAll(getBookmarkedSubValues(parent));
             } else {
                 // selected value belongs to a xsd:sequence
                 int index = 1;
@@ -720,7 +720,17 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
         addLocale(locale);
 
         // add a bookmark to the provided value
-        m_bookmarks.put(getBookmarkName(path, locale), value);
+        String bookmark = getBookmarkName(path, locale);
+        m_bookmarks.put(bookmark, value);
+        // add the value below its parent in the bookmark tree
+        int pos = bookmark.lastIndexOf('/');
+        String parent = bookmark.substring(0, pos);
+        SortedMap<String, I_CmsXmlContentValue> children = m_bookmarkChildren.get(parent);
+        if (children == null) {
+            children = new TreeMap<String, I_CmsXmlContentValue>(COMPARE_XPATH_ELEMENT);
+            m_bookmarkChildren.put(parent, children);
+        }
+        children.put(bookmark.substring(pos + 1), value);
 
         Set<Locale> sl;
         // update mapping of element name to locale
@@ -761,6 +771,7 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
     protected void clearBookmarks() {
 
         m_bookmarks.clear();
+        m_bookmarkChildren.clear();
     }
 
     /**
@@ -803,6 +814,25 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
         return m_bookmarks.get(getBookmarkName(path, locale));
     }
 
+    /**
+     * Returns the values bookmarked directly below the given bookmark,
+     * which must be a valid bookmark name.<p>
+     *
+     * The values are ordered by the name of their Xpath element, and values with the same name by their index.<p>
+     *
+     * @param bookmark the bookmark name of the parent value, or <code>/locale</code> for the top level values
+     *
+     * @return the values bookmarked directly below the given bookmark
+     */
+    protected List<I_CmsXmlContentValue> getBookmarkedSubValues(String bookmark) {
+
+        SortedMap<String, I_CmsXmlContentValue> children = m_bookmarkChildren.get(bookmark);
+        if (children == null) {
+            return new ArrayList<I_CmsXmlContentValue>();
+        }
+        return new ArrayList<I_CmsXmlContentValue>(children.values());
+    }
+
     /**
      * Returns the names of all bookmarked elements.<p>
      *
@@ -884,8 +914,19 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
         if (sn != null) {
             sn.remove(path);
         }
+        // remove the bookmark from the bookmark tree
+        String bookmark = getBookmarkName(path, locale);
+        int pos = bookmark.lastIndexOf('/');
+        String parent = bookmark.substring(0, pos);
+        SortedMap<String, I_CmsXmlContentValue> children = m_bookmarkChildren.get(parent);
+        if (children != null) {
+            children.remove(bookmark.substring(pos + 1));
+            if (children.isEmpty()) {
+                m_bookmarkChildren.remove(parent);
+            }
+        }
         // remove the bookmark and return the removed element
-        return m_bookmarks.remove(getBookmarkName(path, locale));
+        return m_bookmarks.remove(bookmark);
     }
 
     /**
@@ -923,6 +964,23 @@ public abstract class A_CmsXmlDocument implements I_CmsXmlDocument {
         }
     }
 
+    /**
+     * Collects all values bookmarked below the given bookmark, in depth first order.<p>
+     *
+     * @param bookmark the bookmark name of the parent value
+     * @param result the list to add the values to
+     */
+    private void collectBookmarkedValues(String bookmark, List<I_CmsXmlContentValue> result) {
+
+        SortedMap<String, I_CmsXmlContentValue> children = m_bookmarkChildren.get(bookmark);
+        if (children != null) {
+            for (Map.Entry<String, I_CmsXmlContentValue> entry : children.entrySet()) {
+                result.add(entry.getValue());
+                collectBookmarkedValues(bookmark + '/' + entry.getKey(), result);
+            }
+        }
+    }
+
     /**
      * Creates a partial deep element copy according to the set of element paths.<p>
      * Only elements contained in that set will be copied.
@@ -585,16 +585,8 @@ public class CmsXmlContent extends A_CmsXmlDocument {
     @Override
     public List<I_CmsXmlContentValue> getSubValues(String path, Locale locale) {
 
-        List<I_CmsXmlContentValue> result = new ArrayList<I_CmsXmlContentValue>();
         String bookmark = getBookmarkName(CmsXmlUtils.createXpath(path, 1), locale);
-        int depth = CmsResource.getPathLevel(bookmark) + 1;
-        Iterator<String> i = getBookmarks().iterator();
-        while (i.hasNext()) {
-            String bm = i.next();
-            if (bm.startsWith(bookmark) && (CmsResource.getPathLevel(bm) == depth)) {
-                result.add(getBookmark(bm));
-            }
-        }
+        List<I_CmsXmlContentValue> result = getBookmarkedSubValues(bookmark);
         if (result.size() > 0) {
             Collections.sort(result, COMPARE_INDEX);
         }
@@ -27,6 +27,7 @@
 
 package org.opencms.ade.configuration;
 
+import org.opencms.ade.configuration.formatters.CmsFormatterChangeSet;
 import org.opencms.ade.detailpage.CmsDetailPageInfo;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
@@ -671,6 +672,54 @@ public class TestConfig extends OpenCmsTestCase {
         assertEquals(typeConf3.getNamePattern(false), resourceTypeConfig.get(0).getNamePattern(false));
     }
 
+    /**
+     * Tests that updated configuration states are derived correctly from their previous state.<p>
+     *
+     * @throws Exception -
+     */
+    public void testIncrementalStateUpdate() throws Exception {
+
+        CmsObject cms = rootCms();
+        CmsDetailPageInfo a1 = new CmsDetailPageInfo(getId("/sites/default/a1"), "/sites/default/a1", "a");
+        CmsDetailPageInfo a3 = new CmsDetailPageInfo(getId("/sites/default/a3"), "/sites/default/a3", "a");
+        CmsDetailPageInfo b1 = new CmsDetailPageInfo(getId("/sites/default/b1"), "/sites/default/b1", "b");
+        CmsUUID parentId = new CmsUUID();
+        CmsUUID childId = new CmsUUID();
+        Map<CmsUUID, CmsADEConfigDataInternal> configs = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        configs.put(parentId, createSitemapConfig("/sites/default/", list(a1, b1)));
+        configs.put(childId, createSitemapConfig("/sites/default/foo/", list(a3)));
+        CmsADEConfigCacheState state = new CmsADEConfigCacheState(
+            cms,
+            configs,
+            new ArrayList<CmsADEConfigDataInternal>(),
+            new HashMap<CmsUUID, CmsElementView>());
+        assertEquals(set("a", "b"), state.getDetailPageTypes());
+        assertEquals(set(a1.getUri(), a3.getUri()), new HashSet<String>(state.getDetailPages("a")));
+        assertEquals("/sites/default/foo/", state.lookupConfiguration("/sites/default/foo/bar/x.html").getBasePath());
+        assertEquals("/sites/default/", state.lookupConfiguration("/sites/default/bar/x.html").getBasePath());
+
+        // replace the child configuration by one without detail pages
+        Map<CmsUUID, CmsADEConfigDataInternal> updates = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        updates.put(childId, createSitemapConfig("/sites/default/foo/", NO_DETAILPAGES));
+        CmsADEConfigCacheState state2 = state.createUpdatedCopy(updates, null, null, false);
+        assertEquals(set("a", "b"), state2.getDetailPageTypes());
+        assertEquals(set(a1.getUri()), new HashSet<String>(state2.getDetailPages("a")));
+        assertEquals(3, state.getAllDetailPages().size());
+        assertEquals(2, state2.getAllDetailPages().size());
+        // the previous state must not be changed by the update
+        assertEquals(set(a1.getUri(), a3.getUri()), new HashSet<String>(state.getDetailPages("a")));
+
+        // remove the parent configuration
+        updates = new HashMap<CmsUUID, CmsADEConfigDataInternal>();
+        updates.put(parentId, null);
+        CmsADEConfigCacheState state3 = state2.createUpdatedCopy(updates, null, null, false);
+        assertTrue(state3.getDetailPageTypes().isEmpty());
+        assertEquals(set("/sites/default/foo/"), state3.getSiteConfigurationPaths());
+        assertNull(state3.lookupConfiguration("/sites/default/bar/x.html").getBasePath());
+        assertEquals("/sites/default/foo/", state3.lookupConfiguration("/sites/default/foo/x.html").getBasePath());
+        assertEquals(set("/sites/default/", "/sites/default/foo/"), state2.getSiteConfigurationPaths());
+    }
+
     /**
      * Tests inheritance of folder names for resource types.<p>
      * @throws Exception -
@@ -1202,6 +1251,33 @@ public class TestConfig extends OpenCmsTestCase {
         return new CmsPropertyConfig(prop, false);
     }
 
+    /**
+     * Helper method for creating a sitemap configuration bean with only a base path and detail pages.<p>
+     *
+     * @param basePath the base path
+     * @param detailPages the detail pages
+     *
+     * @return the sitemap configuration bean
+     */
+    protected CmsADEConfigDataInternal createSitemapConfig(String basePath, List<CmsDetailPageInfo> detailPages) {
+
+        return new CmsADEConfigDataInternal(
+            null,
+            false,
+            basePath,
+            NO_TYPES,
+            false,
+            NO_PROPERTIES,
+            false,
+            detailPages,
+            NO_MODEL_PAGES,
+            new ArrayList<CmsFunctionReference>(),
+            false,
+            false,
+            false,
+            new CmsFormatterChangeSet());
+    }
+
     /**
      * Helper method for creating an XML content property with only a name and description.<p>
      *
@@ -0,0 +1,263 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.db.generic.CmsSqlManager;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.commons.dbcp.PoolingDriver;
+
+import junit.framework.Test;
+
+/**
+ * Tests the routing of online reads to replica database pools and the pool statistics.<p>
+ *
+ * The primary and the replica pool use two separate in-memory HSQLDB databases.<p>
+ *
+ * @since 9.5.0
+ */
+public class TestDbReplicaRouting extends OpenCmsTestCase {
+
+    /** The allowed replication lag used in the tests. */
+    private static final int REPLICA_LAG = 500;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestDbReplicaRouting(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+        return generateSetupTestWrapper(TestDbReplicaRouting.class, "simpletest", "/");
+    }
+
+    /**
+     * Tests the usage statistics of the database pools.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPoolStatistics() throws Exception {
+
+        org.opencms.db.CmsSqlManager sqlManager = OpenCms.getSqlManager();
+        CmsDbPoolStatistics before = sqlManager.getPoolStatistics(CmsDbPool.OPENCMS_DEFAULT_POOL_URL);
+        sqlManager.getConnection(CmsDbPool.OPENCMS_DEFAULT_POOL_NAME).close();
+        CmsDbPoolStatistics after = sqlManager.getPoolStatistics(CmsDbPool.OPENCMS_DEFAULT_POOL_URL);
+        assertTrue(after.getBorrowCount() > before.getBorrowCount());
+        assertEquals(before.getBorrowFailures(), after.getBorrowFailures());
+
+        // exhaust a pool with a single connection
+        createPool(new CmsParameterConfiguration(), "exhausted", 1, null);
+        Connection con = sqlManager.getConnection("exhausted");
+        try {
+            sqlManager.getConnection("exhausted");
+            fail("Borrowing a connection from an exhausted pool must fail");
+        } catch (SQLException e) {
+            // expected
+        }
+        CmsDbPoolStatistics statistics = sqlManager.getPoolStatistics(CmsDbPool.OPENCMS_URL_PREFIX + "exhausted");
+        assertEquals(1, statistics.getNumActive());
+        assertEquals(0, statistics.getNumIdle());
+        assertEquals(1, statistics.getBorrowFailures());
+        con.close();
+        statistics = sqlManager.getPoolStatistics(CmsDbPool.OPENCMS_URL_PREFIX + "exhausted");
+        assertEquals(0, statistics.getNumActive());
+        assertEquals(1, statistics.getNumIdle());
+        assertTrue(statistics.getMaxWaitTime() >= statistics.getAverageWaitTime());
+        new PoolingDriver().closePool(CmsDbPool.OPENCMS_URL_PREFIX + "exhausted");
+    }
+
+    /**
+     * Tests which pool the online and offline reads are routed to.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testReplicaRouting() throws Exception {
+
+        // the replica pools are configured in the same configuration as the primary pool
+        CmsParameterConfiguration config = new CmsParameterConfiguration();
+        createPool(config, "replica", 5, null);
+        createPool(config, "primary", 5, "replica");
+        CmsSqlManager sqlManager = CmsSqlManager.getInstance(org.opencms.db.hsqldb.CmsSqlManager.class.getName());
+        sqlManager.init(I_CmsVfsDriver.DRIVER_TYPE_ID, CmsDbPool.OPENCMS_URL_PREFIX + "primary");
+
+        CmsObject cms = getCmsObject();
+        CmsUUID offlineId = cms.getRequestContext().getCurrentProject().getUuid();
+        CmsDbContext dbc = new CmsDbContext(cms.getRequestContext());
+        Connection con = sqlManager.getConnection(dbc);
+        Statement stmt = con.createStatement();
+        stmt.execute("CREATE TABLE CMS_ONLINE_TEST (ID INT)");
+        stmt.execute("CREATE TABLE CMS_OFFLINE_TEST (ID INT)");
+        stmt.close();
+        con.close();
+
+        // offline project
+        assertReadPool("primary", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+        assertReadPool("primary", sqlManager, dbc, offlineId);
+
+        // online project
+        cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        dbc = new CmsDbContext(cms.getRequestContext());
+        assertReadPool("replica", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+        assertReadPool("primary", sqlManager, dbc, offlineId);
+        assertPool("primary", sqlManager.getConnection(dbc));
+
+        // publishing
+        dbc.setProjectId(offlineId);
+        assertReadPool("primary", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+        dbc.setProjectId(CmsUUID.getNullUUID());
+
+        // writing offline data does not affect the online reads
+        executeUpdate(sqlManager, dbc, "INSERT INTO CMS_OFFLINE_TEST VALUES (1)");
+        assertReadPool("replica", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+
+        // writing online data keeps the online reads on the primary pool within the allowed lag
+        executeUpdate(sqlManager, dbc, "INSERT INTO CMS_ONLINE_TEST VALUES (1)");
+        assertReadPool("primary", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+        Thread.sleep(REPLICA_LAG + 100);
+        assertReadPool("replica", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+
+        // the allowed lag starts again when the connection used for writing online data is released
+        con = sqlManager.getConnection(dbc);
+        PreparedStatement update = sqlManager.getPreparedStatementForSql(con, "INSERT INTO CMS_ONLINE_TEST VALUES (2)");
+        update.executeUpdate();
+        Thread.sleep(REPLICA_LAG + 100);
+        sqlManager.closeAll(dbc, con, update, null);
+        assertReadPool("primary", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+        Thread.sleep(REPLICA_LAG + 100);
+        assertReadPool("replica", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+
+        // if the replica is not available, the primary pool is used
+        new PoolingDriver().closePool(CmsDbPool.OPENCMS_URL_PREFIX + "replica");
+        assertReadPool("primary", sqlManager, dbc, CmsProject.ONLINE_PROJECT_ID);
+        new PoolingDriver().closePool(CmsDbPool.OPENCMS_URL_PREFIX + "primary");
+    }
+
+    /**
+     * Asserts that a connection belongs to the given in-memory database.<p>
+     *
+     * @param database the name of the expected database
+     * @param con the connection, which is closed by this method
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private void assertPool(String database, Connection con) throws SQLException {
+
+        try {
+            assertEquals("jdbc:hsqldb:mem:" + database, con.getMetaData().getURL());
+        } finally {
+            con.close();
+        }
+    }
+
+    /**
+     * Asserts that the data of a project is read from the given in-memory database.<p>
+     *
+     * @param database the name of the expected database
+     * @param sqlManager the SQL manager to get the connection from
+     * @param dbc the database context
+     * @param projectId the id of the project to read the data of
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private void assertReadPool(String database, CmsSqlManager sqlManager, CmsDbContext dbc, CmsUUID projectId)
+    throws SQLException {
+
+        assertPool(database, sqlManager.getReadConnection(dbc, projectId));
+    }
+
+    /**
+     * Creates a database pool for an in-memory database with the same name as the pool.<p>
+     *
+     * @param config the configuration to add the pool configuration to
+     * @param key the key of the pool
+     * @param maxActive the maximum number of active connections
+     * @param replicaKey the key of the replica pool, or <code>null</code>
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void createPool(CmsParameterConfiguration config, String key, int maxActive, String replicaKey)
+    throws Exception {
+
+        String prefix = CmsDbPool.KEY_DATABASE_POOL + '.' + key + '.';
+        config.add(prefix + CmsDbPool.KEY_JDBC_DRIVER, "org.hsqldb.jdbcDriver");
+        config.add(prefix + CmsDbPool.KEY_JDBC_URL, "jdbc:hsqldb:mem:" + key);
+        config.add(prefix + CmsDbPool.KEY_USERNAME, "sa");
+        config.add(prefix + CmsDbPool.KEY_PASSWORD, "");
+        config.add(prefix + CmsDbPool.KEY_POOL_URL, CmsDbPool.OPENCMS_URL_PREFIX + key);
+        config.add(prefix + CmsDbPool.KEY_MAX_ACTIVE, String.valueOf(maxActive));
+        config.add(prefix + CmsDbPool.KEY_WHEN_EXHAUSTED_ACTION, "fail");
+        if (replicaKey != null) {
+            config.add(prefix + CmsDbPool.KEY_REPLICAS, replicaKey);
+            config.add(prefix + CmsDbPool.KEY_REPLICA_LAG, String.valueOf(REPLICA_LAG));
+        }
+        CmsDbPool.createDriverManagerConnectionPool(config, key);
+    }
+
+    /**
+     * Executes an SQL update with a statement prepared by the given SQL manager.<p>
+     *
+     * @param sqlManager the SQL manager
+     * @param dbc the database context
+     * @param sql the SQL update
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private void executeUpdate(CmsSqlManager sqlManager, CmsDbContext dbc, String sql) throws SQLException {
+
+        Connection con = sqlManager.getConnection(dbc);
+        PreparedStatement stmt = null;
+        try {
+            stmt = sqlManager.getPreparedStatementForSql(con, sql);
+            stmt.executeUpdate();
+        } finally {
+            sqlManager.closeAll(dbc, con, stmt, null);
+        }
+    }
+}
@@ -76,6 +76,7 @@ public class TestSubscriptionManager extends OpenCmsTestCase {
         suite.addTest(new TestSubscriptionManager("testVisitResources"));
         suite.addTest(new TestSubscriptionManager("testSubscribeResources"));
         suite.addTest(new TestSubscriptionManager("testReadSubscribedResources"));
+        suite.addTest(new TestSubscriptionManager("testVisitBuffer"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -204,6 +205,51 @@ public class TestSubscriptionManager extends OpenCmsTestCase {
         assertEquals(0, subscribedUserResources.size());
     }
 
+    /**
+     * Test that buffered visits are combined, can be read and are written with their original date.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testVisitBuffer() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        CmsUser user = cms.getRequestContext().getCurrentUser();
+        echo("Testing the buffer of visited resources");
+
+        CmsSubscriptionManager subMan = OpenCms.getSubscriptionManager();
+        subMan.writeVisits();
+        assertEquals(0, subMan.getPendingVisitCount());
+
+        CmsVisitedByFilter filter = new CmsVisitedByFilter(cms);
+        filter.setParentPath(cms.getRequestContext().addSiteRoot("/folder2/"));
+        filter.setIncludeSubfolders(true);
+        assertEquals(0, subMan.readResourcesVisitedBy(cms, filter).size());
+
+        subMan.markResourceAsVisitedBy(cms, "/folder2/index.html", user);
+        Thread.sleep(WAIT_FOR_DB_MILLIS);
+        subMan.markResourceAsVisitedBy(cms, "/folder2/index.html", user);
+        long visitDate = subMan.getDateLastVisitedBy(cms, user, "/folder2/index.html");
+        assertTrue(visitDate > 0);
+
+        // the repeated visit is read only once
+        List<CmsResource> visitedUserResources = subMan.readResourcesVisitedBy(cms, filter);
+        assertEquals(1, visitedUserResources.size());
+        assertEquals("/folder2/index.html", cms.getSitePath(visitedUserResources.get(0)));
+
+        // visits outside the parent folder are not read
+        filter.setParentPath(cms.getRequestContext().addSiteRoot("/folder2/subfolder21/"));
+        assertEquals(0, subMan.readResourcesVisitedBy(cms, filter).size());
+
+        // the written visit keeps its date
+        subMan.writeVisits();
+        assertEquals(0, subMan.getPendingVisitCount());
+        assertEquals(visitDate, subMan.getDateLastVisitedBy(cms, user, "/folder2/index.html"));
+        filter.setParentPath(cms.getRequestContext().addSiteRoot("/folder2/"));
+        visitedUserResources = subMan.readResourcesVisitedBy(cms, filter);
+        assertEquals(1, visitedUserResources.size());
+        assertEquals("/folder2/index.html", cms.getSitePath(visitedUserResources.get(0)));
+    }
+
     /**
      * Test subscription of resources.<p>
      *
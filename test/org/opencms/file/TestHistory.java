@@ -40,8 +40,13 @@ import org.opencms.report.CmsShellReport;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.test.OpenCmsTestResourceConfigurableFilter;
+import org.opencms.util.CmsUUID;
 
 import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -94,6 +99,7 @@ public class TestHistory extends OpenCmsTestCase {
         suite.addTest(new TestHistory("testFileHistory"));
         suite.addTest(new TestHistory("testFileHistoryFileWithSibling"));
         suite.addTest(new TestHistory("testFileVersions"));
+        suite.addTest(new TestHistory("testContentDeduplication"));
         suite.addTest(new TestHistory("testVersioningLimit"));
         suite.addTest(new TestHistory("testSiblingsV7HistoryIssue"));
 
@@ -115,6 +121,64 @@ public class TestHistory extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests that versions of a file with unchanged content share a single historical content entry,
+     * and that such entries written separately are merged when deleting historical versions.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testContentDeduplication() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that versions with the same content share their content entry");
+
+        String filename = "/testContentDeduplication.txt";
+        String[] contents = {"content A", "content A", "content B", "content B", "content A"};
+
+        cms.createResource(filename, CmsResourceTypePlain.getStaticTypeId(), contents[0].getBytes(), null);
+        OpenCms.getPublishManager().publishResource(cms, filename);
+        OpenCms.getPublishManager().waitWhileRunning();
+        for (int i = 1; i < contents.length; i++) {
+            CmsFile file = cms.readFile(filename);
+            file.setContents(contents[i].getBytes());
+            cms.lockResource(filename);
+            cms.writeFile(file);
+            cms.unlockResource(filename);
+            OpenCms.getPublishManager().publishResource(cms, filename);
+            OpenCms.getPublishManager().waitWhileRunning();
+        }
+        CmsUUID resourceId = cms.readResource(filename).getResourceId();
+
+        // the republished unchanged content does not create new content entries
+        List<int[]> entries = readContentEntries(resourceId);
+        assertEquals(3, entries.size());
+        assertContentVersions(cms, filename, contents);
+
+        // split the entry of content B, like it was stored before content entries were shared
+        int[] entry = entries.get(1);
+        executeContentUpdate(
+            "UPDATE CMS_CONTENTS SET PUBLISH_TAG_TO=? WHERE RESOURCE_ID=? AND PUBLISH_TAG_FROM=?",
+            Integer.valueOf(entry[0]),
+            resourceId.toString(),
+            Integer.valueOf(entry[0]));
+        executeContentUpdate(
+            "INSERT INTO CMS_CONTENTS VALUES (?,?,?,?,0)",
+            resourceId.toString(),
+            contents[3].getBytes(),
+            Integer.valueOf(entry[1]),
+            Integer.valueOf(entry[1]));
+        assertEquals(4, readContentEntries(resourceId).size());
+        assertContentVersions(cms, filename, contents);
+
+        // deleting historical versions merges the entries again
+        cms.deleteHistoricalVersions(10, 10, -1, new CmsShellReport(cms.getRequestContext().getLocale()));
+        entries = readContentEntries(resourceId);
+        assertEquals(3, entries.size());
+        assertEquals(entry[0], entries.get(1)[0]);
+        assertEquals(entry[1], entries.get(1)[1]);
+        assertContentVersions(cms, filename, contents);
+    }
+
     /**
      * Creates and deletes a file n-times and tests if the historical data
      * are correct and if the content can be properly restored.<p>
@@ -2364,4 +2428,75 @@ public class TestHistory extends OpenCmsTestCase {
             return new String(content);
         }
     }
+
+    /**
+     * Checks the content of all historical versions of a file.<p>
+     *
+     * @param cms the current user's Cms object
+     * @param filename the name of the file
+     * @param contents the expected contents, indexed by version number minus one
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void assertContentVersions(CmsObject cms, String filename, String[] contents) throws Exception {
+
+        List<I_CmsHistoryResource> versions = cms.readAllAvailableVersions(filename);
+        assertEquals(contents.length, versions.size());
+        for (I_CmsHistoryResource histRes : versions) {
+            String content = new String(cms.readFile((CmsHistoryFile)histRes).getContents());
+            assertEquals(contents[histRes.getVersion() - 1], content);
+        }
+    }
+
+    /**
+     * Executes an update statement on the content table.<p>
+     *
+     * @param sql the update statement
+     * @param params the parameters of the statement
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void executeContentUpdate(String sql, Object... params) throws Exception {
+
+        Connection conn = OpenCms.getSqlManager().getConnection(OpenCms.getSqlManager().getDefaultDbPoolName());
+        try {
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            stmt.executeUpdate();
+            stmt.close();
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Reads the publish tag ranges of all content entries of a resource.<p>
+     *
+     * @param resourceId the resource id
+     *
+     * @return the first and the last publish tag of each entry, ordered by publish tag
+     *
+     * @throws Exception if something goes wrong
+     */
+    private List<int[]> readContentEntries(CmsUUID resourceId) throws Exception {
+
+        List<int[]> result = new ArrayList<int[]>();
+        Connection conn = OpenCms.getSqlManager().getConnection(OpenCms.getSqlManager().getDefaultDbPoolName());
+        try {
+            PreparedStatement stmt = conn.prepareStatement(
+                "SELECT PUBLISH_TAG_FROM, PUBLISH_TAG_TO FROM CMS_CONTENTS WHERE RESOURCE_ID=? ORDER BY PUBLISH_TAG_FROM");
+            stmt.setString(1, resourceId.toString());
+            ResultSet res = stmt.executeQuery();
+            while (res.next()) {
+                result.add(new int[] {res.getInt(1), res.getInt(2)});
+            }
+            res.close();
+            stmt.close();
+        } finally {
+            conn.close();
+        }
+        return result;
+    }
 }
@@ -27,6 +27,10 @@
 
 package org.opencms.file;
 
+import org.opencms.db.CmsDbContext;
+import org.opencms.db.CmsDriverManager;
+import org.opencms.db.CmsPublishList;
+import org.opencms.db.CmsSecurityManager;
 import org.opencms.file.history.I_CmsHistoryResource;
 import org.opencms.file.types.CmsResourceTypeBinary;
 import org.opencms.file.types.CmsResourceTypeFolder;
@@ -37,6 +41,8 @@ import org.opencms.main.OpenCms;
 import org.opencms.relations.CmsInternalLinksValidator;
 import org.opencms.relations.CmsRelation;
 import org.opencms.relations.CmsRelationFilter;
+import org.opencms.relations.CmsRelationGraph;
+import org.opencms.relations.CmsRelationSystemValidator;
 import org.opencms.relations.CmsRelationType;
 import org.opencms.report.CmsShellReport;
 import org.opencms.test.OpenCmsTestCase;
@@ -47,8 +53,10 @@ import org.opencms.xml.content.CmsXmlContentFactory;
 import org.opencms.xml.page.CmsXmlPage;
 import org.opencms.xml.page.CmsXmlPageFactory;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -148,6 +156,7 @@ public class TestLinkValidation extends OpenCmsTestCase {
         suite.addTest(new TestLinkValidation("testLinkValidationXmlContentsFileRef"));
         suite.addTest(new TestLinkValidation("testBrokenLinkFile"));
         suite.addTest(new TestLinkValidation("testBrokenLinkFolder"));
+        suite.addTest(new TestLinkValidation("testBulkLinkValidation"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -345,6 +354,88 @@ public class TestLinkValidation extends OpenCmsTestCase {
         assertRelation(expected, (CmsRelation)relations.get(0));
     }
 
+    /**
+     * Tests that the broken links found with the bulk read relation graph are the same
+     * as the ones found by reading the relations of each resource.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testBulkLinkValidation() throws Throwable {
+
+        echo("Testing bulk link validation against the link validation per resource");
+
+        CmsObject cms = getCmsObject();
+        CmsShellReport report = new CmsShellReport(cms.getRequestContext().getLocale());
+
+        String folderName = "/testBulkLinkValidation/";
+        cms.createResource(folderName, CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource(folderName + "a.html", CmsResourceTypeXmlPage.getStaticTypeId());
+        cms.createResource(folderName + "b.html", CmsResourceTypeXmlPage.getStaticTypeId());
+        cms.createResource(folderName + "c.html", CmsResourceTypeXmlPage.getStaticTypeId());
+        setContent(cms, folderName + "a.html", "<a href='b.html'>b</a><a href='missing.html'>missing</a>");
+        setContent(cms, folderName + "b.html", "<a href='a.html'>a</a>");
+        setContent(cms, folderName + "c.html", "<a href='b.html'>b</a><img src='missing.gif' >");
+        cms.unlockProject(cms.getRequestContext().getCurrentProject().getUuid());
+        OpenCms.getPublishManager().publishProject(cms, report);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        // delete a link target and create a new resource with a broken link
+        cms.lockResource(folderName + "b.html");
+        cms.deleteResource(folderName + "b.html", CmsResource.DELETE_PRESERVE_SIBLINGS);
+        cms.createResource(folderName + "d.html", CmsResourceTypeXmlPage.getStaticTypeId());
+        setContent(cms, folderName + "d.html", "<a href='e.html'>e</a><a href='a.html'>a</a>");
+        cms.unlockProject(cms.getRequestContext().getCurrentProject().getUuid());
+
+        Field field = CmsSecurityManager.class.getDeclaredField("m_driverManager");
+        field.setAccessible(true);
+        CmsDriverManager driverManager = (CmsDriverManager)field.get(cms.m_securityManager);
+        CmsRelationSystemValidator bulkValidator = new CmsRelationSystemValidator(driverManager);
+        CmsRelationSystemValidator singleValidator = new CmsRelationSystemValidator(driverManager) {
+
+            @Override
+            protected CmsRelationGraph readRelationGraph(
+                CmsDbContext dbc,
+                List<CmsResource> resources,
+                CmsProject project) {
+
+                // validate the links of each resource with its own queries
+                return null;
+            }
+        };
+
+        CmsPublishList publishList = OpenCms.getPublishManager().getPublishList(cms);
+        Map<String, List<CmsRelation>> bulk = bulkValidator.validateResources(
+            new CmsDbContext(cms.getRequestContext()),
+            publishList,
+            report);
+        Map<String, List<CmsRelation>> single = singleValidator.validateResources(
+            new CmsDbContext(cms.getRequestContext()),
+            publishList,
+            report);
+        assertEquals(2, bulk.size());
+        assertTrue(bulk.containsKey(cms.getRequestContext().addSiteRoot(folderName + "b.html")));
+        assertTrue(bulk.containsKey(cms.getRequestContext().addSiteRoot(folderName + "d.html")));
+        assertBrokenLinks(single, bulk);
+
+        // validate all resources of the current project
+        bulk = bulkValidator.validateResources(new CmsDbContext(cms.getRequestContext()), null, report);
+        single = singleValidator.validateResources(new CmsDbContext(cms.getRequestContext()), null, report);
+        assertTrue(bulk.containsKey(cms.getRequestContext().addSiteRoot(folderName + "a.html")));
+        assertTrue(bulk.containsKey(cms.getRequestContext().addSiteRoot(folderName + "c.html")));
+        assertBrokenLinks(single, bulk);
+
+        // the relations of the sub resources are read by path, like for a single resource
+        CmsDbContext dbc = new CmsDbContext(cms.getRequestContext());
+        CmsResource folder = cms.readResource(folderName);
+        CmsRelationFilter filter = CmsRelationFilter.TARGETS.filterIncludeChildren();
+        List<CmsRelation> relations = driverManager.getRelationsForResource(dbc, folder, filter);
+        assertFalse(relations.isEmpty());
+        assertEquals(
+            relations,
+            driverManager.getRelationsForResources(dbc, Collections.singletonList(folder), filter).get(
+                folder.getStructureId()));
+    }
+
     /**
      * Test link validation for xml contents with html and file references.<p>
      *
@@ -393,6 +484,23 @@ public class TestLinkValidation extends OpenCmsTestCase {
         testLinkValidation(MODE_XMLPAGE);
     }
 
+    /**
+     * Asserts that two link validations have found the same broken links.<p>
+     *
+     * @param expected the broken links found by the first validation, keyed by root path
+     * @param actual the broken links found by the second validation, keyed by root path
+     */
+    private void assertBrokenLinks(Map<String, List<CmsRelation>> expected, Map<String, List<CmsRelation>> actual) {
+
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, List<CmsRelation>> entry : expected.entrySet()) {
+            assertEquals(
+                entry.getKey(),
+                new HashSet<CmsRelation>(entry.getValue()),
+                new HashSet<CmsRelation>(actual.get(entry.getKey())));
+        }
+    }
+
     /**
      * Deletes a resource and publish it.<p>
      *
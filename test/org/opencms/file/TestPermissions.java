@@ -31,6 +31,7 @@ import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.file.types.CmsResourceTypeImage;
 import org.opencms.file.types.CmsResourceTypePlain;
 import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
 import org.opencms.report.CmsLogReport;
 import org.opencms.security.CmsAccessControlEntry;
 import org.opencms.security.CmsPermissionSet;
@@ -41,6 +42,7 @@ import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.util.CmsUUID;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -73,6 +75,8 @@ public class TestPermissions extends OpenCmsTestCase {
         suite.addTest(new TestPermissions("testVisiblePermission"));
         suite.addTest(new TestPermissions("testVisiblePermissionForFolder"));
         suite.addTest(new TestPermissions("testFilterForFolder"));
+        suite.addTest(new TestPermissions("testFilterReadable"));
+        suite.addTest(new TestPermissions("testAccessControlListCacheInvalidation"));
         suite.addTest(new TestPermissions("testDefaultPermissions"));
         suite.addTest(new TestPermissions("testPermissionOverwrite"));
         suite.addTest(new TestPermissions("testPermissionInheritance"));
@@ -106,6 +110,59 @@ public class TestPermissions extends OpenCmsTestCase {
         super(arg0);
     }
 
+    /**
+     * Tests that changed access control entries are used for the changed sub tree and all siblings.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testAccessControlListCacheInvalidation() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the access control list cache invalidation");
+
+        cms.createUser("testCacheUser", "secret", "", null);
+        cms.addUserToGroup("testCacheUser", OpenCms.getDefaultUsers().getGroupUsers());
+        String subFolder = "/folder2/subfolder21/";
+        String file = "/folder2/subfolder21/image1.gif";
+        String otherFile = "/folder2/index.html";
+        String source = "/folder2/page2.html";
+        String sibling = "/folder2/subfolder22/page2_sibling.html";
+        cms.lockResource(sibling.substring(0, sibling.lastIndexOf('/') + 1));
+        cms.createSibling(source, sibling, null);
+        cms.unlockResource(sibling.substring(0, sibling.lastIndexOf('/') + 1));
+
+        String[] paths = new String[] {subFolder, file, otherFile, source, sibling};
+        boolean[] readable = new boolean[] {true, true, true, true, true};
+        assertReadable(cms, "testCacheUser", paths, readable);
+
+        // deny read for the sub folder and its sub resources
+        cms.lockResource(subFolder);
+        cms.chacc(
+            subFolder,
+            I_CmsPrincipal.PRINCIPAL_USER,
+            "testCacheUser",
+            0,
+            CmsPermissionSet.PERMISSION_READ,
+            CmsAccessControlEntry.ACCESS_FLAGS_INHERIT);
+        cms.unlockResource(subFolder);
+        readable = new boolean[] {false, false, true, true, true};
+        assertReadable(cms, "testCacheUser", paths, readable);
+
+        // deny read for a file with a sibling
+        cms.lockResource(source);
+        cms.chacc(source, I_CmsPrincipal.PRINCIPAL_USER, "testCacheUser", 0, CmsPermissionSet.PERMISSION_READ, 0);
+        cms.unlockResource(source);
+        readable = new boolean[] {false, false, true, false, false};
+        assertReadable(cms, "testCacheUser", paths, readable);
+
+        // allow read again for the sub folder
+        cms.lockResource(subFolder);
+        cms.rmacc(subFolder, I_CmsPrincipal.PRINCIPAL_USER, "testCacheUser");
+        cms.unlockResource(subFolder);
+        readable = new boolean[] {true, true, true, false, false};
+        assertReadable(cms, "testCacheUser", paths, readable);
+    }
+
     /**
      * @throws Throwable if something goes wrong
      */
@@ -163,6 +220,76 @@ public class TestPermissions extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests that the permissions checked for a list of resources match the permissions checked for each resource.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testFilterReadable() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the permission check for a list of resources");
+
+        cms.createUser("testFilterUser", "secret", "", null);
+        cms.addUserToGroup("testFilterUser", OpenCms.getDefaultUsers().getGroupUsers());
+
+        String folder = "/folder1/";
+        cms.lockResource(folder);
+        // remove all "Users" group permissions on the folder and its sub resources
+        cms.chacc(
+            folder,
+            I_CmsPrincipal.PRINCIPAL_GROUP,
+            OpenCms.getDefaultUsers().getGroupUsers(),
+            0,
+            0,
+            CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE + CmsAccessControlEntry.ACCESS_FLAGS_INHERIT);
+        // allow read, but not view for the test user on the folder itself
+        cms.chacc(
+            folder,
+            I_CmsPrincipal.PRINCIPAL_USER,
+            "testFilterUser",
+            CmsPermissionSet.PERMISSION_READ,
+            0,
+            CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE);
+        cms.unlockResource(folder);
+        String subFolder = "/folder1/subfolder11/";
+        cms.lockResource(subFolder);
+        // allow read and view for the test user on the sub folder and its sub resources
+        cms.chacc(
+            subFolder,
+            I_CmsPrincipal.PRINCIPAL_USER,
+            "testFilterUser",
+            CmsPermissionSet.PERMISSION_READ + CmsPermissionSet.PERMISSION_VIEW,
+            0,
+            CmsAccessControlEntry.ACCESS_FLAGS_INHERIT);
+        cms.unlockResource(subFolder);
+
+        List<CmsResource> allResources = cms.readResources(folder, CmsResourceFilter.ALL);
+
+        cms.loginUser("testFilterUser", "secret");
+        cms.getRequestContext().setCurrentProject(cms.readProject("Offline"));
+
+        CmsResourceFilter[] filters = new CmsResourceFilter[] {CmsResourceFilter.ALL, CmsResourceFilter.ONLY_VISIBLE};
+        for (int i = 0; i < filters.length; i++) {
+            OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.ACL, CmsMemoryMonitor.CacheType.PERMISSION);
+            List<String> expected = new ArrayList<String>();
+            for (CmsResource resource : allResources) {
+                if (cms.hasPermissions(resource, CmsPermissionSet.ACCESS_READ, true, filters[i])) {
+                    expected.add(resource.getRootPath());
+                }
+            }
+            assertTrue(expected.size() > 0);
+            assertTrue(expected.size() < allResources.size());
+
+            OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.ACL, CmsMemoryMonitor.CacheType.PERMISSION);
+            List<String> filtered = new ArrayList<String>();
+            for (CmsResource resource : cms.readResources(folder, filters[i])) {
+                filtered.add(resource.getRootPath());
+            }
+            assertEquals(expected, filtered);
+        }
+    }
+
     /**
      * Test the lock status permissions.<p>
      *
@@ -726,4 +853,35 @@ public class TestPermissions extends OpenCmsTestCase {
             fail("There should be 6 visible resource in the folder, not " + resultList.size());
         }
     }
+
+    /**
+     * Asserts the read permissions of a user on a list of resources.<p>
+     *
+     * @param cms the current users OpenCms context, will be logged in as "Admin" again after the check
+     * @param user the name of the user to check the permissions for, the password must be "secret"
+     * @param paths the resource paths
+     * @param readable the expected read permissions, for each resource path
+     *
+     * @throws Throwable if something goes wrong
+     */
+    private void assertReadable(CmsObject cms, String user, String[] paths, boolean[] readable) throws Throwable {
+
+        List<CmsResource> resources = new ArrayList<CmsResource>();
+        for (int i = 0; i < paths.length; i++) {
+            resources.add(cms.readResource(paths[i], CmsResourceFilter.ALL));
+        }
+        cms.loginUser(user, "secret");
+        cms.getRequestContext().setCurrentProject(cms.readProject("Offline"));
+        try {
+            for (int i = 0; i < paths.length; i++) {
+                assertEquals(
+                    paths[i],
+                    readable[i],
+                    cms.hasPermissions(resources.get(i), CmsPermissionSet.ACCESS_READ, true, CmsResourceFilter.ALL));
+            }
+        } finally {
+            cms.loginUser("Admin", "admin");
+            cms.getRequestContext().setCurrentProject(cms.readProject("Offline"));
+        }
+    }
 }
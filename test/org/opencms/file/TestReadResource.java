@@ -33,6 +33,9 @@ import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.util.CmsUUID;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -73,6 +76,8 @@ public class TestReadResource extends OpenCmsTestCase {
         suite.addTest(new TestReadResource("testReadAfterExpirationDateIgnore"));
         suite.addTest(new TestReadResource("testReadWithResourceID"));
         suite.addTest(new TestReadResource("testReadWithWrongResourceID"));
+        suite.addTest(new TestReadResource("testReadResourcesByIds"));
+        suite.addTest(new TestReadResource("testReadResourcesByPaths"));
         suite.addTest(new TestReadResource("testReadFileWithResourceID"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -323,6 +328,68 @@ public class TestReadResource extends OpenCmsTestCase {
         assertEquals(resourceByPath.hashCode(), resourceById.hashCode());
     }
 
+    /**
+     * Test reading multiple resources by their structure ids.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testReadResourcesByIds() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing reading multiple resources by structure id");
+
+        CmsResource folder = cms.readResource("/folder1/");
+        CmsResource file1 = cms.readResource("/folder1/subfolder11/index.html");
+        CmsResource file2 = cms.readResource("/folder1/page4.html");
+        CmsUUID wrongId = new CmsUUID("a7b5d298-b3ab-11d8-b3e3-514d35713fed");
+
+        List<CmsUUID> ids = new ArrayList<CmsUUID>();
+        ids.add(file2.getStructureId());
+        ids.add(wrongId);
+        ids.add(folder.getStructureId());
+        ids.add(file1.getStructureId());
+        ids.add(file2.getStructureId());
+
+        List<CmsResource> resources = cms.readResources(ids, CmsResourceFilter.DEFAULT);
+        // the unknown id is ignored, duplicates are removed, the order is kept
+        assertEquals(3, resources.size());
+        assertEquals(file2, resources.get(0));
+        assertEquals(folder, resources.get(1));
+        assertEquals(file1, resources.get(2));
+        assertEquals(file1.getRootPath(), resources.get(2).getRootPath());
+        assertEquals(file1.getDateLastModified(), resources.get(2).getDateLastModified());
+
+        assertTrue(cms.readResources(new ArrayList<CmsUUID>(), CmsResourceFilter.DEFAULT).isEmpty());
+    }
+
+    /**
+     * Test reading multiple resources by their paths.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testReadResourcesByPaths() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing reading multiple resources by path");
+
+        List<String> paths = new ArrayList<String>();
+        paths.add("/folder1/page4.html");
+        paths.add("/folder1/doesnotexist.html");
+        // this resource is not yet released
+        paths.add("/folder1/page1.html");
+        paths.add("/folder1");
+        paths.add("/folder1/subfolder11/index.html/");
+        paths.add("/folder1/subfolder11/");
+
+        List<CmsResource> resources = cms.readResourcesByPaths(paths, CmsResourceFilter.DEFAULT);
+        // missing resources, resources not matching the filter and files with a trailing slash are ignored
+        assertEquals(3, resources.size());
+        assertEquals(cms.readResource("/folder1/page4.html"), resources.get(0));
+        assertEquals(cms.readResource("/folder1/"), resources.get(1));
+        assertEquals(cms.readResource("/folder1/subfolder11/"), resources.get(2));
+        assertEquals(cms.getRequestContext().addSiteRoot("/folder1/subfolder11/"), resources.get(2).getRootPath());
+    }
+
     /**
      * Test readResource whether an incorrect structureID throws an exception.<p>
      *
@@ -30,6 +30,8 @@ package org.opencms.file;
 import org.opencms.importexport.CmsExport;
 import org.opencms.importexport.CmsExportParameters;
 import org.opencms.importexport.CmsImportParameters;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.report.CmsShellReport;
 import org.opencms.test.OpenCmsTestCase;
@@ -74,6 +76,7 @@ public class TestUser extends OpenCmsTestCase {
 
         suite.addTest(new TestUser("testUserCreation"));
         suite.addTest(new TestUser("testUserInfo"));
+        suite.addTest(new TestUser("testUserInfoChanges"));
         suite.addTest(new TestUser("testUserExport"));
         suite.addTest(new TestUser("testUserSelfManagement"));
 
@@ -193,6 +196,51 @@ public class TestUser extends OpenCmsTestCase {
         assertEquals(new Double(45.23), user.getAdditionalInfo("double"));
     }
 
+    /**
+     * Test writing changes of single additional user infos.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testUserInfoChanges() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing changes of single additional user infos");
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("one", new Integer(1));
+        map.put("text", "text");
+
+        CmsUser user = cms.createUser("infotest", "test", "test", null);
+        user.setAdditionalInfo("map", map);
+        user.setAdditionalInfo("keep", "keep");
+        user.setAdditionalInfo("change", new Long(1));
+        user.setAdditionalInfo("remove", Boolean.TRUE);
+        cms.writeUser(user);
+
+        // change, remove and add single infos, and change the map in place
+        user = cms.readUser("infotest");
+        user.setAdditionalInfo("change", new Long(2));
+        user.deleteAdditionalInfo("remove");
+        user.setAdditionalInfo("add", "add");
+        map.put("one", new Integer(2));
+        user.setAdditionalInfo("map", map);
+        cms.writeUser(user);
+
+        // make sure the infos are read from the database again
+        OpenCms.fireCmsEvent(new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>()));
+        user = cms.readUser("infotest");
+        assertEquals("keep", user.getAdditionalInfo("keep"));
+        assertEquals(new Long(2), user.getAdditionalInfo("change"));
+        assertNull(user.getAdditionalInfo("remove"));
+        assertEquals("add", user.getAdditionalInfo("add"));
+        assertEquals(map, user.getAdditionalInfo("map"));
+
+        // writing the unchanged user must keep all infos
+        cms.writeUser(user);
+        OpenCms.fireCmsEvent(new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>()));
+        assertEquals(user.getAdditionalInfo(), cms.readUser("infotest").getAdditionalInfo());
+    }
+
     /**
      * Test user creation.<p>
      *
@@ -0,0 +1,377 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.cache.I_CmsLruCacheObject;
+import org.opencms.file.CmsObject;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.extensions.TestSetup;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the variation calculation of the {@link CmsFlexCacheKey}.<p>
+ *
+ * @since 9.5.0
+ */
+public class TestCmsFlexCacheKey extends OpenCmsTestCase {
+
+    /**
+     * An InvocationHandler which delegates to the methods of a stub object, without recording the invocations.<p>
+     *
+     * Unlike the {@link TestCmsFlexResponse.RecordingMock}, this does not allocate memory for each invocation
+     * by itself, so it does not distort the allocation measurement.<p>
+     */
+    public static class DelegatingMock implements InvocationHandler {
+
+        /** The methods of the stub object, keyed by the interface methods. */
+        Map<Method, Method> m_methods = new HashMap<Method, Method>();
+
+        /** The stub object to delegate to. */
+        Object m_stub;
+
+        /**
+         * Constructor with the 'stub' Object.<p>
+         *
+         * @param stub the stub Object to use
+         */
+        public DelegatingMock(Object stub) {
+
+            m_stub = stub;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            Method stubMethod;
+            if (m_methods.containsKey(method)) {
+                stubMethod = m_methods.get(method);
+            } else {
+                try {
+                    stubMethod = m_stub.getClass().getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException e) {
+                    stubMethod = null;
+                }
+                m_methods.put(method, stubMethod);
+            }
+            return (stubMethod != null) ? stubMethod.invoke(m_stub, args) : null;
+        }
+    }
+
+    /**
+     * A partial implementation of {@link HttpServletRequest} with attributes and parameters.<p>
+     */
+    public static class RequestStub extends TestCmsFlexResponse.RequestStub {
+
+        /** Parameter map. */
+        HashMap<String, String[]> m_parameters = new HashMap<String, String[]>();
+
+        /**
+         * Returns the parameter map.<p>
+         *
+         * @return the parameter map
+         */
+        public Map getParameterMap() {
+
+            return m_parameters;
+        }
+    }
+
+    /** The cache directives used by the tests. */
+    private static final String DIRECTIVES = "uri;user;params=(a,b);no-params=(c)";
+
+    /** The number of iterations used to measure the allocations. */
+    private static final int ITERATIONS = 10000;
+
+    /** Servlet request to use with the tests. */
+    private HttpServletRequest m_request;
+
+    /** Request stub backing the servlet request. */
+    private RequestStub m_stub;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsFlexCacheKey(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static TestSetup suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsFlexCacheKey.class.getName());
+
+        suite.addTest(new TestCmsFlexCacheKey("testVariationHash"));
+        suite.addTest(new TestCmsFlexCacheKey("testLastVariation"));
+        suite.addTest(new TestCmsFlexCacheKey("testHashCollision"));
+        suite.addTest(new TestCmsFlexCacheKey("testVariationAllocation"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the cache does not return the entry of another variation with the same hash.<p>
+     *
+     * A real collision of the 64 bit hash can not be constructed, so the entry of one variation
+     * is additionally stored under the hash of another variation.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testHashCollision() throws Exception {
+
+        CmsFlexCacheConfiguration configuration = new CmsFlexCacheConfiguration();
+        configuration.initialize("true", "true", "2000000", "1000000", "400000", "100");
+        CmsFlexCache cache = new CmsFlexCache(configuration);
+
+        CmsObject cms = CmsFlexController.getController(m_request).getCmsObject();
+        CmsFlexCacheKey cacheKey = new CmsFlexCacheKey(
+            cms.getRequestContext().addSiteRoot("/index.html"),
+            DIRECTIVES,
+            true);
+        CmsFlexRequestKey key = new CmsFlexRequestKey(m_request, "/index.html", true);
+        assertEquals(cacheKey.getResource(), key.getResource());
+        // the request key reads the parameters of the request, so the parameter selects the variation
+        m_stub.m_parameters.put("a", new String[] {"2"});
+        String variationB = cacheKey.matchRequestKey(key);
+        m_stub.m_parameters.put("a", new String[] {"1"});
+        String variationA = cacheKey.matchRequestKey(key);
+        assertFalse(variationA.equals(variationB));
+
+        CmsFlexCacheEntry entryA = new CmsFlexCacheEntry();
+        assertTrue(cache.put(cacheKey, entryA, variationA));
+        assertSame(entryA, cache.get(key));
+        m_stub.m_parameters.put("a", new String[] {"2"});
+        assertNull(cache.get(key));
+
+        // store the entry of variation A also under the hash of variation B, like a hash collision would
+        Field field = CmsFlexCache.class.getDeclaredField("m_keyCache");
+        field.setAccessible(true);
+        Map<?, ?> keyCache = (Map<?, ?>)field.get(cache);
+        Map<Long, I_CmsLruCacheObject> variations = ((CmsFlexCache.CmsFlexCacheVariation)keyCache.get(
+            cacheKey.getResource())).m_map;
+        variations.put(Long.valueOf(CmsFlexCacheKey.getVariationHash(variationB)), entryA);
+        assertNull("The entry of another variation with the same hash must not be returned", cache.get(key));
+        m_stub.m_parameters.put("a", new String[] {"1"});
+        assertSame(entryA, cache.get(key));
+
+        // adding the entry of variation B replaces the colliding entry
+        CmsFlexCacheEntry entryB = new CmsFlexCacheEntry();
+        assertTrue(cache.put(cacheKey, entryB, variationB));
+        assertEquals(variationB, entryB.getVariationKey());
+        m_stub.m_parameters.put("a", new String[] {"2"});
+        assertSame(entryB, cache.get(key));
+    }
+
+    /**
+     * Tests the check of a variation against the variation calculated for the hash.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testLastVariation() throws Exception {
+
+        CmsFlexCacheKey cacheKey = new CmsFlexCacheKey("/sites/default/index.html", DIRECTIVES, true);
+        m_stub.m_parameters.put("a", new String[] {"1"});
+        CmsFlexRequestKey key = new CmsFlexRequestKey(m_request, "/index.html", true);
+        String variation = cacheKey.matchRequestKey(key);
+
+        cacheKey.matchRequestKeyHash(key);
+        assertTrue(CmsFlexCacheKey.isLastVariation(variation));
+        assertFalse(CmsFlexCacheKey.isLastVariation(variation + "x"));
+        assertFalse(CmsFlexCacheKey.isLastVariation(variation.substring(0, variation.length() - 1)));
+
+        // a different parameter value results in a different variation
+        m_stub.m_parameters.put("a", new String[] {"2"});
+        key = new CmsFlexRequestKey(m_request, "/index.html", true);
+        cacheKey.matchRequestKeyHash(key);
+        assertFalse(CmsFlexCacheKey.isLastVariation(variation));
+        assertFalse(variation.equals(cacheKey.matchRequestKey(key)));
+
+        // a request with an excluding parameter is not cacheable
+        m_stub.m_parameters.put("c", new String[] {"3"});
+        key = new CmsFlexRequestKey(m_request, "/index.html", true);
+        assertNull(cacheKey.matchRequestKey(key));
+        assertEquals(CmsFlexCacheKey.NO_VARIATION, cacheKey.matchRequestKeyHash(key));
+        assertFalse(CmsFlexCacheKey.isLastVariation(variation));
+    }
+
+    /**
+     * Compares the memory allocated by building the variation string with the lookup by hash.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testVariationAllocation() throws Exception {
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            echo("Thread allocation measurement not supported by this VM, skipping test");
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+        long threadId = Thread.currentThread().getId();
+
+        CmsFlexCacheKey cacheKey = new CmsFlexCacheKey("/sites/default/index.html", DIRECTIVES, true);
+        m_stub.m_parameters.put("a", new String[] {"1"});
+        m_stub.m_parameters.put("b", new String[] {"a rather long parameter value"});
+        CmsFlexRequestKey key = new CmsFlexRequestKey(m_request, "/index.html", true);
+        String variation = cacheKey.matchRequestKey(key);
+
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            cacheKey.matchRequestKey(key);
+            cacheKey.matchRequestKeyHash(key);
+            CmsFlexCacheKey.isLastVariation(variation);
+        }
+
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            cacheKey.matchRequestKey(key);
+        }
+        long build = threads.getThreadAllocatedBytes(threadId) - start;
+
+        start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            cacheKey.matchRequestKeyHash(key);
+            CmsFlexCacheKey.isLastVariation(variation);
+        }
+        long lookup = threads.getThreadAllocatedBytes(threadId) - start;
+
+        echo(
+            "Bytes allocated per variation - building the string: "
+                + (build / ITERATIONS)
+                + ", lookup by hash: "
+                + (lookup / ITERATIONS));
+        assertTrue("Lookup by hash must allocate less than building the variation", lookup < build);
+    }
+
+    /**
+     * Tests that the variation hash is the hash of the variation string.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testVariationHash() throws Exception {
+
+        CmsFlexCacheKey cacheKey = new CmsFlexCacheKey("/sites/default/index.html", DIRECTIVES, true);
+        m_stub.m_parameters.put("a", new String[] {"1"});
+        m_stub.m_parameters.put("b", new String[] {"x", "y"});
+        CmsFlexRequestKey key = new CmsFlexRequestKey(m_request, "/index.html", true);
+
+        String variation = cacheKey.matchRequestKey(key);
+        assertNotNull(variation);
+        echo("Variation: " + variation);
+        assertEquals(CmsFlexCacheKey.getVariationHash(variation), cacheKey.matchRequestKeyHash(key));
+        assertTrue(CmsFlexCacheKey.NO_VARIATION != cacheKey.matchRequestKeyHash(key));
+
+        // the variation key is only calculated on request, so the same key results in the same variation
+        assertEquals(variation, cacheKey.matchRequestKey(key));
+        assertEquals(CmsFlexCacheKey.getVariationHash(variation), cacheKey.matchRequestKeyHash(key));
+    }
+
+    /**
+     * Initializes a flex controller and a mock servlet request used by the tests.<p>
+     *
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        CmsObject cms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+        cms.getRequestContext().setUri("/index.html");
+
+        m_stub = new RequestStub();
+        m_request = (HttpServletRequest)Proxy.newProxyInstance(
+            Thread.currentThread().getContextClassLoader(),
+            new Class[] {HttpServletRequest.class},
+            new DelegatingMock(m_stub));
+        HttpServletResponse response = (HttpServletResponse)Proxy.newProxyInstance(
+            Thread.currentThread().getContextClassLoader(),
+            new Class[] {HttpServletResponse.class},
+            new DelegatingMock(new Object()));
+
+        CmsFlexController controller = new CmsFlexController(
+            cms,
+            null,
+            CmsFlexDummyLoader.getFlexCache(),
+            m_request,
+            response,
+            false,
+            true);
+        CmsFlexController.setController(m_request, controller);
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        super.tearDown();
+        m_request = null;
+        m_stub = null;
+    }
+}
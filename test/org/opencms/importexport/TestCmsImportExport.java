@@ -27,9 +27,11 @@
 
 package org.opencms.importexport;
 
+import org.opencms.db.CmsDriverManager;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.types.CmsResourceTypeFolder;
@@ -41,7 +43,9 @@ import org.opencms.file.types.I_CmsResourceType;
 import org.opencms.i18n.CmsEncoder;
 import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.lock.CmsLockFilter;
+import org.opencms.main.CmsEvent;
 import org.opencms.main.CmsException;
+import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.relations.CmsCategory;
 import org.opencms.relations.CmsCategoryService;
@@ -58,6 +62,7 @@ import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.test.OpenCmsTestResourceConfigurableFilter;
 import org.opencms.test.OpenCmsTestResourceFilter;
 import org.opencms.util.CmsDateUtil;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsResourceTranslator;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.xml.CmsXmlEntityResolver;
@@ -69,9 +74,14 @@ import org.opencms.xml.page.CmsXmlPageFactory;
 import java.io.File;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -112,9 +122,12 @@ public class TestCmsImportExport extends OpenCmsTestCase {
         suite.addTest(new TestCmsImportExport("testImportWrongSite"));
         suite.addTest(new TestCmsImportExport("testSetup"));
         suite.addTest(new TestCmsImportExport("testImportExportFolder"));
+        suite.addTest(new TestCmsImportExport("testExportParallelRead"));
         suite.addTest(new TestCmsImportExport("testImportExportId"));
         suite.addTest(new TestCmsImportExport("testImportExportBrokenLinksHtml"));
         suite.addTest(new TestCmsImportExport("testImportExportBrokenLinksXml"));
+        suite.addTest(new TestCmsImportExport("testImportContentRelations"));
+        suite.addTest(new TestCmsImportExport("testImportXmlContentMappings"));
         suite.addTest(new TestCmsImportExport("testImportResourceTranslator"));
         suite.addTest(new TestCmsImportExport("testImportResourceTranslatorMultipleSite"));
         suite.addTest(new TestCmsImportExport("testImportRecreatedFile"));
@@ -143,6 +156,107 @@ public class TestCmsImportExport extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests that an export reading the file contents in the background is the same as a sequential export.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testExportParallelRead() throws Exception {
+
+        CmsObject cms = getCmsObject();
+
+        echo("Testing an export reading the file contents in the background.");
+        String filename = "/folder1/";
+        String sequentialFilename = OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+            "packages/testExportSequentialRead.zip");
+        String parallelFilename = OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+            "packages/testExportParallelRead.zip");
+
+        List<CmsResource> startResources = cms.readResources(filename, CmsResourceFilter.ALL, true);
+
+        try {
+            List<String> exportPaths = new ArrayList<String>(1);
+            exportPaths.add(filename);
+            CmsExportParameters params = new CmsExportParameters(
+                sequentialFilename,
+                null,
+                true,
+                false,
+                false,
+                exportPaths,
+                false,
+                true,
+                0,
+                true,
+                false);
+            params.setFetchThreads(0);
+            CmsVfsImportExportHandler vfsExportHandler = new CmsVfsImportExportHandler();
+            vfsExportHandler.setExportParams(params);
+            OpenCms.getImportExportManager().exportData(
+                cms,
+                vfsExportHandler,
+                new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            params = new CmsExportParameters(
+                parallelFilename,
+                null,
+                true,
+                false,
+                false,
+                exportPaths,
+                false,
+                true,
+                0,
+                true,
+                false);
+            params.setFetchThreads(3);
+            vfsExportHandler = new CmsVfsImportExportHandler();
+            vfsExportHandler.setExportParams(params);
+            OpenCms.getImportExportManager().exportData(
+                cms,
+                vfsExportHandler,
+                new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            // both exports must contain the same entries in the same order with the same content
+            ZipFile sequential = new ZipFile(sequentialFilename);
+            ZipFile parallel = new ZipFile(parallelFilename);
+            try {
+                assertEquals(sequential.size(), parallel.size());
+                assertTrue(sequential.size() > 10);
+                Enumeration<? extends ZipEntry> sequentialEntries = sequential.entries();
+                Enumeration<? extends ZipEntry> parallelEntries = parallel.entries();
+                while (sequentialEntries.hasMoreElements()) {
+                    ZipEntry sequentialEntry = sequentialEntries.nextElement();
+                    ZipEntry parallelEntry = parallelEntries.nextElement();
+                    assertEquals(sequentialEntry.getName(), parallelEntry.getName());
+                    assertEquals(sequentialEntry.getTime(), parallelEntry.getTime());
+                    byte[] sequentialContent = CmsFileUtil.readFully(sequential.getInputStream(sequentialEntry));
+                    byte[] parallelContent = CmsFileUtil.readFully(parallel.getInputStream(parallelEntry));
+                    if (sequentialEntry.getName().equals(CmsImportExportManager.EXPORT_MANIFEST)) {
+                        // the export info contains the export date, so compare the manifest without it
+                        assertEquals(removeExportInfo(sequentialContent), removeExportInfo(parallelContent));
+                    } else {
+                        assertTrue(sequentialEntry.getName(), Arrays.equals(sequentialContent, parallelContent));
+                    }
+                }
+            } finally {
+                sequential.close();
+                parallel.close();
+            }
+
+            // re-import the export read in the background
+            OpenCms.getImportExportManager().importData(
+                cms,
+                new CmsShellReport(cms.getRequestContext().getLocale()),
+                new CmsImportParameters(parallelFilename, "/", true));
+        } finally {
+            new File(sequentialFilename).delete();
+            new File(parallelFilename).delete();
+        }
+
+        assertResources(cms, filename, startResources);
+    }
+
     /**
      * Tests the import of a resource that has been edited.<p>
      *
@@ -360,6 +474,113 @@ public class TestCmsImportExport extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests that the relations defined in the content of imported files are the same as before the export,
+     * for links to files that are imported before, after or that already exist.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testImportContentRelations() throws Exception {
+
+        CmsObject cms = getCmsObject();
+
+        echo("Testing the relations of imported linked XmlPages.");
+        String filename1 = "/xmlpagerel1.html";
+        String filename2 = "/xmlpagerel2.html";
+        String existing = "/index.html";
+        String zipExportFilename = OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+            "packages/testImportContentRelations.zip");
+
+        String storedSiteRoot = cms.getRequestContext().getSiteRoot();
+        List relations1;
+        List relations2;
+        try {
+            cms.getRequestContext().setSiteRoot("/sites/default/");
+
+            // create files linking each other and an existing file
+            CmsResource res1 = cms.createResource(filename1, CmsResourceTypeXmlPage.getStaticTypeId());
+            CmsResource res2 = cms.createResource(filename2, CmsResourceTypeXmlPage.getStaticTypeId());
+            CmsFile file1 = cms.readFile(res1);
+            CmsXmlPage page1 = CmsXmlPageFactory.unmarshal(cms, file1, true);
+            page1.addValue("test", Locale.ENGLISH);
+            page1.setStringValue(
+                cms,
+                "test",
+                Locale.ENGLISH,
+                "<a href='" + filename2 + "'>test</a><a href='" + existing + "'>test</a>");
+            file1.setContents(page1.marshal());
+            cms.writeFile(file1);
+            CmsFile file2 = cms.readFile(res2);
+            CmsXmlPage page2 = CmsXmlPageFactory.unmarshal(cms, file2, true);
+            page2.addValue("test", Locale.ENGLISH);
+            page2.setStringValue(cms, "test", Locale.ENGLISH, "<a href='" + filename1 + "'>test</a>");
+            file2.setContents(page2.marshal());
+            cms.writeFile(file2);
+
+            relations1 = getContentRelations(cms, filename1);
+            relations2 = getContentRelations(cms, filename2);
+            assertEquals(2, relations1.size());
+            assertEquals(1, relations2.size());
+
+            // publish the files
+            cms.unlockProject(cms.getRequestContext().getCurrentProject().getUuid());
+            OpenCms.getPublishManager().publishProject(cms);
+            OpenCms.getPublishManager().waitWhileRunning();
+
+            // export the files
+            CmsVfsImportExportHandler vfsExportHandler = new CmsVfsImportExportHandler();
+            List exportPaths = new ArrayList(2);
+            exportPaths.add(filename1);
+            exportPaths.add(filename2);
+            CmsExportParameters params = new CmsExportParameters(
+                zipExportFilename,
+                null,
+                true,
+                false,
+                false,
+                exportPaths,
+                false,
+                true,
+                0,
+                true,
+                false);
+            vfsExportHandler.setExportParams(params);
+            OpenCms.getImportExportManager().exportData(
+                cms,
+                vfsExportHandler,
+                new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            // delete both files
+            cms.lockResource(filename1);
+            cms.lockResource(filename2);
+            cms.deleteResource(filename1, CmsResource.DELETE_REMOVE_SIBLINGS);
+            cms.deleteResource(filename2, CmsResource.DELETE_REMOVE_SIBLINGS);
+            cms.unlockProject(cms.getRequestContext().getCurrentProject().getUuid());
+            OpenCms.getPublishManager().publishProject(cms);
+            OpenCms.getPublishManager().waitWhileRunning();
+
+            // re-import the exported files
+            List<String> written = importDataWithContentWrites(cms, zipExportFilename);
+
+            assertEquals(relations1, getContentRelations(cms, filename1));
+            assertEquals(relations2, getContentRelations(cms, filename2));
+            // the forward reference is resolved without writing the content again
+            assertEquals(Collections.emptyList(), written);
+        } finally {
+            cms.getRequestContext().setSiteRoot(storedSiteRoot);
+            try {
+                if (zipExportFilename != null) {
+                    File file = new File(zipExportFilename);
+                    if (file.exists()) {
+                        file.delete();
+                    }
+                }
+            } catch (Throwable t) {
+                // intentionally left blank
+            }
+        }
+    }
+
     /**
      * Tests the import of linked XmlPages in a different site, so that the link paths get broken.<p>
      *
@@ -2027,6 +2248,99 @@ public class TestCmsImportExport extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests that the URL name mapping and the categories of an imported XmlContent are written.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testImportXmlContentMappings() throws Exception {
+
+        CmsObject cms = getCmsObject();
+
+        echo("Testing the import of an XmlContent with an URL name mapping and a category.");
+        String filename = "/xmlcontentmappings.html";
+        String zipExportFilename = OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(
+            "packages/testImportXmlContentMappings.zip");
+
+        String storedSiteRoot = cms.getRequestContext().getSiteRoot();
+        try {
+            cms.getRequestContext().setSiteRoot("/sites/default/");
+
+            // create a content mapping its title to the URL name and linking a category
+            CmsCategoryService catService = CmsCategoryService.getInstance();
+            CmsCategory cat = catService.createCategory(cms, null, "importmappings", "title", "description", null);
+            byte[] content = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<ImportMappingTests xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+                + "xsi:noNamespaceSchemaLocation=\"internal://org/opencms/importexport/importmappings.xsd\">\n"
+                + "  <ImportMappingTest language=\"en\">\n"
+                + "    <Title>importmappings</Title>\n"
+                + "    <Category>"
+                + cat.getRootPath()
+                + "</Category>\n"
+                + "  </ImportMappingTest>\n"
+                + "</ImportMappingTests>\n").getBytes(CmsEncoder.ENCODING_UTF_8);
+            CmsResource res = cms.createResource(filename, 7, content, new ArrayList<CmsProperty>());
+            CmsFile file = cms.readFile(res);
+            file.setContents(content);
+            cms.writeFile(file);
+
+            List<String> urlNames = cms.readUrlNamesForAllLocales(res.getStructureId());
+            assertEquals(1, urlNames.size());
+            assertEquals(1, catService.readResourceCategories(cms, res).size());
+
+            // export the file
+            CmsVfsImportExportHandler vfsExportHandler = new CmsVfsImportExportHandler();
+            List<String> exportPaths = new ArrayList<String>(1);
+            exportPaths.add(filename);
+            CmsExportParameters params = new CmsExportParameters(
+                zipExportFilename,
+                null,
+                true,
+                false,
+                false,
+                exportPaths,
+                false,
+                true,
+                0,
+                true,
+                false);
+            vfsExportHandler.setExportParams(params);
+            OpenCms.getImportExportManager().exportData(
+                cms,
+                vfsExportHandler,
+                new CmsShellReport(cms.getRequestContext().getLocale()));
+
+            // delete the file and map another URL name to it
+            cms.deleteResource(filename, CmsResource.DELETE_REMOVE_SIBLINGS);
+            cms.writeUrlNameMapping("importmappingsdeleted", res.getStructureId(), "en", false);
+            assertEquals(
+                Collections.singletonList("importmappingsdeleted"),
+                cms.readUrlNamesForAllLocales(res.getStructureId()));
+
+            // re-import the exported file
+            List<String> written = importDataWithContentWrites(cms, zipExportFilename);
+
+            // the content handler has been called when the file was imported, without writing the content again
+            assertEquals(Collections.emptyList(), written);
+            assertEquals(urlNames, cms.readUrlNamesForAllLocales(res.getStructureId()));
+            List<CmsCategory> categories = catService.readResourceCategories(cms, cms.readResource(filename));
+            assertEquals(1, categories.size());
+            assertEquals(cat.getRootPath(), categories.get(0).getRootPath());
+        } finally {
+            cms.getRequestContext().setSiteRoot(storedSiteRoot);
+            try {
+                if (zipExportFilename != null) {
+                    File file = new File(zipExportFilename);
+                    if (file.exists()) {
+                        file.delete();
+                    }
+                }
+            } catch (Throwable t) {
+                // intentionally left blank
+            }
+        }
+    }
+
     /**
      * Tests the import of resources during setup.<p>
      *
@@ -2099,4 +2413,82 @@ public class TestCmsImportExport extends OpenCmsTestCase {
         }
         return value;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the relations defined in the content of the given resource as sorted list of Strings.<p>
+     *
+     * @param cms the CMS context
+     * @param resourceName the resource to get the relations for
+     *
+     * @return the relations defined in the content of the resource
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private List getContentRelations(CmsObject cms, String resourceName) throws CmsException {
+
+        List result = new ArrayList();
+        Iterator it = cms.getRelationsForResource(
+            resourceName,
+            CmsRelationFilter.TARGETS.filterDefinedInContent()).iterator();
+        while (it.hasNext()) {
+            CmsRelation relation = (CmsRelation)it.next();
+            result.add(relation.getTargetPath() + ":" + relation.getTargetId() + ":" + relation.getType().getName());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Imports the given file and returns the root paths of the files whose content has been written
+     * after they were imported.<p>
+     *
+     * @param cms the CMS context
+     * @param zipFilename the file to import
+     *
+     * @return the root paths of the files whose content has been written again
+     *
+     * @throws Exception if something goes wrong
+     */
+    private List<String> importDataWithContentWrites(CmsObject cms, String zipFilename) throws Exception {
+
+        final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+        I_CmsEventListener listener = new I_CmsEventListener() {
+
+            public void cmsEvent(CmsEvent event) {
+
+                Object change = event.getData().get(I_CmsEventListener.KEY_CHANGE);
+                if ((change != null) && (((Integer)change).intValue() == CmsDriverManager.CHANGED_CONTENT)) {
+                    result.add(((CmsResource)event.getData().get(I_CmsEventListener.KEY_RESOURCE)).getRootPath());
+                }
+            }
+        };
+        OpenCms.addCmsEventListener(listener, new int[] {I_CmsEventListener.EVENT_RESOURCE_MODIFIED});
+        try {
+            OpenCms.getImportExportManager().importData(
+                cms,
+                new CmsShellReport(cms.getRequestContext().getLocale()),
+                new CmsImportParameters(zipFilename, "/", true));
+        } finally {
+            OpenCms.removeCmsEventListener(listener);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given manifest without the export info element.<p>
+     *
+     * @param manifest the manifest content
+     *
+     * @return the manifest without the export info element
+     *
+     * @throws Exception if something goes wrong
+     */
+    private String removeExportInfo(byte[] manifest) throws Exception {
+
+        String result = new String(manifest, OpenCms.getSystemInfo().getDefaultEncoding());
+        int start = result.indexOf("<" + CmsImportExportManager.N_INFO + ">");
+        int end = result.indexOf("</" + CmsImportExportManager.N_INFO + ">");
+        assertTrue((start > 0) && (end > start));
+        return result.substring(0, start) + result.substring(end);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jlan;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Tests the buffer holding the contents of files opened by the JLAN server.<p>
+ */
+public class TestCmsFileBuffer extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsFileBuffer(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that small contents are kept in memory.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testMemoryBuffer() throws Exception {
+
+        CmsFileBuffer buffer = new CmsFileBuffer(100);
+        buffer.init(createData(50, 1));
+        buffer.seek(50);
+        buffer.write(createData(20, 2));
+        assertFalse(buffer.isSpilled());
+        assertEquals(70, buffer.getLength());
+
+        byte[] result = new byte[100];
+        assertEquals(20, buffer.read(result, 100, 0, 50));
+        assertTrue(Arrays.equals(createData(20, 2), Arrays.copyOf(result, 20)));
+        assertEquals(-1, buffer.read(result, 100, 0, 70));
+        buffer.close();
+    }
+
+    /**
+     * Tests that the contents are moved to a temporary file once they grow beyond the memory limit.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSpillToFile() throws Exception {
+
+        CmsFileBuffer buffer = new CmsFileBuffer(100);
+        buffer.init(createData(80, 1));
+        assertFalse(buffer.isSpilled());
+
+        // write with a source offset across the memory limit
+        byte[] data = createData(60, 2);
+        buffer.seek(70);
+        buffer.write(data, 10, 50);
+        assertTrue(buffer.isSpilled());
+        File tempFile = buffer.m_tempFile;
+        assertTrue(tempFile.exists());
+        assertEquals(120, buffer.getLength());
+
+        byte[] expected = new byte[120];
+        System.arraycopy(createData(80, 1), 0, expected, 0, 80);
+        System.arraycopy(data, 10, expected, 70, 50);
+        assertTrue(Arrays.equals(expected, buffer.getContents()));
+
+        byte[] result = new byte[30];
+        assertEquals(20, buffer.read(result, 30, 10, 100));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(expected, 100, 120), Arrays.copyOfRange(result, 10, 30)));
+
+        // writing beyond the end fills the gap with zeros
+        buffer.seek(130);
+        buffer.write(createData(5, 3));
+        assertEquals(135, buffer.getLength());
+        assertEquals(0, buffer.getContents()[125]);
+
+        buffer.truncate(90);
+        assertEquals(90, buffer.getLength());
+        assertTrue(Arrays.equals(Arrays.copyOf(expected, 90), buffer.getContents()));
+
+        buffer.close();
+        assertFalse(tempFile.exists());
+        assertFalse(buffer.isSpilled());
+        assertEquals(0, buffer.getLength());
+    }
+
+    /**
+     * Creates test data.<p>
+     *
+     * @param length the length of the data
+     * @param seed the value added to each byte
+     *
+     * @return the test data
+     */
+    private byte[] createData(int length, int seed) {
+
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte)(i + seed);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jsp;
+
+import org.opencms.flex.CmsFlexResponse;
+import org.opencms.jsp.CmsJspParallelElementRenderer.CmsIsolatedRequest;
+import org.opencms.jsp.CmsJspParallelElementRenderer.CmsIsolatedResponse;
+import org.opencms.jsp.CmsJspParallelElementRenderer.RenderResult;
+import org.opencms.main.CmsException;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestServletRequest;
+import org.opencms.test.OpenCmsTestServletResponse;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.http.Cookie;
+
+/**
+ * Test cases for the {@link CmsJspParallelElementRenderer}.<p>
+ *
+ * The test servlet request and response throw an exception for every call,
+ * so any call passed through the isolating wrappers makes the tests fail.<p>
+ *
+ * @since 9.5.0
+ */
+public class TestCmsJspParallelElementRenderer extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsJspParallelElementRenderer(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that an exception thrown during rendering is passed to the waiting thread.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testRenderFailure() throws Exception {
+
+        final CmsException failure = new CmsException(Messages.get().container(Messages.ERR_PROCESS_TAG_1, "test"));
+        FutureTask<RenderResult> future = new FutureTask<RenderResult>(new Callable<RenderResult>() {
+
+            public RenderResult call() throws Exception {
+
+                throw failure;
+            }
+        });
+        future.run();
+        try {
+            CmsJspParallelElementRenderer.waitFor(future, System.currentTimeMillis() + 1000);
+            fail("The render failure was not passed to the waiting thread");
+        } catch (CmsException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    /**
+     * Tests that the request attributes of an element are kept away from the shared request.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testRequestIsolation() throws Exception {
+
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put("shared", "value");
+        CmsIsolatedRequest req = new CmsIsolatedRequest(new OpenCmsTestServletRequest(), attributes);
+
+        assertEquals("value", req.getAttribute("shared"));
+        req.setAttribute("element", "element value");
+        req.setAttribute("shared", "changed");
+        assertEquals("element value", req.getAttribute("element"));
+        assertEquals("changed", req.getAttribute("shared"));
+        List<String> names = Collections.list(req.getAttributeNames());
+        Collections.sort(names);
+        assertEquals("[element, shared]", names.toString());
+
+        req.setAttribute("element", null);
+        req.removeAttribute("shared");
+        assertNull(req.getAttribute("element"));
+        assertNull(req.getAttribute("shared"));
+        assertFalse(req.getAttributeNames().hasMoreElements());
+    }
+
+    /**
+     * Tests that the output, headers and status of an element are kept away from the shared response.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    @SuppressWarnings("deprecation")
+    public void testResponseIsolation() throws Exception {
+
+        CmsIsolatedResponse res = new CmsIsolatedResponse(new OpenCmsTestServletResponse(), "UTF-8");
+
+        // none of these calls must reach the shared response
+        res.setStatus(404);
+        res.setStatus(500, "error");
+        res.sendError(500);
+        res.sendError(500, "error");
+        res.sendRedirect("/elsewhere");
+        res.setContentType("application/json");
+        res.setContentLength(10);
+        res.setLocale(Locale.GERMAN);
+        res.setBufferSize(10);
+        res.addCookie(new Cookie("name", "value"));
+        res.flushBuffer();
+        assertFalse(res.isCommitted());
+
+        res.setHeader("X-Set", "old");
+        res.setHeader("X-Set", "new");
+        res.addHeader("X-Add", "1");
+        res.addIntHeader("X-Add", 2);
+        res.setIntHeader("X-Int", 3);
+        Map<String, List<String>> headers = res.getHeaders();
+        assertEquals("[X-Set, X-Add, X-Int]", headers.keySet().toString());
+        assertEquals("[" + CmsFlexResponse.SET_HEADER + "new]", headers.get("X-Set").toString());
+        assertEquals("[1, 2]", headers.get("X-Add").toString());
+        assertEquals("[" + CmsFlexResponse.SET_HEADER + "3]", headers.get("X-Int").toString());
+
+        res.getWriter().print("discarded");
+        res.resetBuffer();
+        res.getWriter().print("\u00e4\u00f6\u00fc");
+        assertEquals("\u00e4\u00f6\u00fc", res.getContent());
+
+        res.reset();
+        assertEquals("", res.getContent());
+        assertTrue(res.getHeaders().isEmpty());
+        res.getOutputStream().write("bytes".getBytes("UTF-8"));
+        assertEquals("bytes", res.getContent());
+    }
+
+    /**
+     * Tests that rendering is cancelled when the result is not available in time.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testTimeout() throws Exception {
+
+        // the task is never run, like an element blocked in a render thread
+        FutureTask<RenderResult> future = new FutureTask<RenderResult>(new Callable<RenderResult>() {
+
+            public RenderResult call() {
+
+                return null;
+            }
+        });
+        OpenCms.setRuntimeProperty(CmsJspParallelElementRenderer.PARAM_TIMEOUT, "100");
+        try {
+            long start = System.currentTimeMillis();
+            try {
+                CmsJspParallelElementRenderer.waitFor(future, start + CmsJspParallelElementRenderer.getTimeout());
+                fail("No timeout for an element that is not rendered");
+            } catch (TimeoutException e) {
+                // expected
+            }
+            assertTrue(System.currentTimeMillis() - start >= 100);
+            assertTrue(future.isCancelled());
+
+            // a deadline in the past still returns a result which is already available
+            RenderResult result = new RenderResult("content", 1, 2, new HashMap<String, List<String>>());
+            FutureTask<RenderResult> done = new FutureTask<RenderResult>(new Runnable() {
+
+                public void run() {
+
+                    // noop
+                }
+            }, result);
+            done.run();
+            assertSame(result, CmsJspParallelElementRenderer.waitFor(done, start - 1000));
+        } finally {
+            OpenCms.setRuntimeProperty(CmsJspParallelElementRenderer.PARAM_TIMEOUT, "");
+        }
+    }
+
+    /**
+     * Tests reading the timeout from the runtime properties.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testTimeoutConfiguration() throws Exception {
+
+        try {
+            OpenCms.setRuntimeProperty(CmsJspParallelElementRenderer.PARAM_TIMEOUT, "5000");
+            assertEquals(5000, CmsJspParallelElementRenderer.getTimeout());
+            OpenCms.setRuntimeProperty(CmsJspParallelElementRenderer.PARAM_TIMEOUT, "0");
+            assertEquals(CmsJspParallelElementRenderer.DEFAULT_TIMEOUT, CmsJspParallelElementRenderer.getTimeout());
+            OpenCms.setRuntimeProperty(CmsJspParallelElementRenderer.PARAM_TIMEOUT, "invalid");
+            assertEquals(CmsJspParallelElementRenderer.DEFAULT_TIMEOUT, CmsJspParallelElementRenderer.getTimeout());
+        } finally {
+            OpenCms.setRuntimeProperty(CmsJspParallelElementRenderer.PARAM_TIMEOUT, "");
+        }
+    }
+}
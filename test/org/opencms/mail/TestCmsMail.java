@@ -30,6 +30,12 @@ package org.opencms.mail;
 import org.opencms.main.OpenCms;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.mail.Address;
 import javax.mail.SendFailedException;
@@ -54,6 +60,12 @@ public class TestCmsMail extends OpenCmsTestCase {
      */
     private static final int SMTP_PORT = 2525;
 
+    /** Port of the SMTP server which is started separately by the delivery service tests. */
+    private static final int SMTP_PORT_DELIVERY = 2526;
+
+    /** The maximum time to wait for the SMTP server to start in milliseconds. */
+    private static final long SMTP_START_TIMEOUT = 10000;
+
     /**
      * Default JUnit constructor.<p>
      *
@@ -79,6 +91,11 @@ public class TestCmsMail extends OpenCmsTestCase {
         suite.addTest(new TestCmsMail("testCmsSendSimpleMail"));
         suite.addTest(new TestCmsMail("testCmsSendHtmlMail"));
         suite.addTest(new TestCmsMail("testCmsInvalidMailAddress"));
+        suite.addTest(new TestCmsMail("testDeliveryService"));
+        suite.addTest(new TestCmsMail("testDeliveryServiceThrottle"));
+        suite.addTest(new TestCmsMail("testDeliveryServiceRetry"));
+        suite.addTest(new TestCmsMail("testDeliveryServiceSpool"));
+        suite.addTest(new TestCmsMail("testDeliveryServiceSpoolOnSubmit"));
         TestSetup wrapper = new TestSetup(suite) {
 
             // SMTP Server running locally (c.f. library dumbster-1.6.jar)
@@ -89,7 +106,7 @@ public class TestCmsMail extends OpenCmsTestCase {
 
                 setupOpenCms("simpletest", "/");
                 // start SMTP server
-                m_server = SimpleSmtpServer.start(SMTP_PORT);
+                m_server = startSmtpServer(SMTP_PORT);
 
             }
 
@@ -105,6 +122,37 @@ public class TestCmsMail extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Starts a SMTP server, waiting at most {@link #SMTP_START_TIMEOUT} milliseconds for it.<p>
+     *
+     * <code>SimpleSmtpServer.start(int)</code> can miss the notification of the started server
+     * and then waits forever, so the server thread is started while holding the server monitor here.<p>
+     *
+     * @param port the port to listen to
+     *
+     * @return the started server
+     */
+    protected static SimpleSmtpServer startSmtpServer(int port) {
+
+        SimpleSmtpServer server = new SimpleSmtpServer(port);
+        Thread thread = new Thread(server, "SimpleSmtpServer-" + port);
+        thread.setDaemon(true);
+        synchronized (server) {
+            thread.start();
+            try {
+                // the server notifies after it has opened its socket, which needs the monitor
+                server.wait(SMTP_START_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (server.isStopped() || !thread.isAlive()) {
+            server.stop();
+            fail("SMTP server on port " + port + " could not be started");
+        }
+        return server;
+    }
+
     /**
      * Tests sending mails to invalid email address.<p>
      */
@@ -188,4 +236,245 @@ public class TestCmsMail extends OpenCmsTestCase {
 
         echo("Plain text mail was sent successfully.");
     }
+
+    /**
+     * Tests sending a number of mails with the pooled delivery service.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testDeliveryService() throws Throwable {
+
+        echo("Trying to send mails with the delivery service ...");
+
+        SimpleSmtpServer server = startSmtpServer(SMTP_PORT_DELIVERY);
+        CmsMailDeliveryService service = new CmsMailDeliveryService(createDeliverySettings("2", "0", "100"), null);
+        try {
+            List<CmsMailDelivery> deliveries = new ArrayList<CmsMailDelivery>();
+            for (int i = 0; i < 10; i++) {
+                deliveries.add(service.submit(createDeliveryMail("OpenCms TestCase Delivery Mail " + i)));
+            }
+            for (CmsMailDelivery delivery : deliveries) {
+                assertTrue(delivery.waitFor(10000));
+                assertEquals(CmsMailDelivery.State.SENT, delivery.getState());
+                assertEquals(1, delivery.getAttempts());
+            }
+            assertEquals(10, service.getSentCount());
+            assertEquals(0, service.getFailedCount());
+            assertTrue(service.getPendingDeliveries().isEmpty());
+        } finally {
+            service.shutDown();
+            server.stop();
+        }
+        assertEquals(10, server.getReceivedEmailSize());
+
+        echo("Mails were sent successfully with the delivery service.");
+    }
+
+    /**
+     * Tests that a delivery is repeated if the mail host is not available.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testDeliveryServiceRetry() throws Throwable {
+
+        echo("Trying to send a mail while the mail host is not available ...");
+
+        CmsMailDeliveryService service = new CmsMailDeliveryService(createDeliverySettings("1", "0", "200"), null);
+        SimpleSmtpServer server = null;
+        try {
+            CmsMailDelivery delivery = service.submit(createDeliveryMail("OpenCms TestCase Retry Mail"));
+            waitForAttempt(delivery);
+            assertEquals(CmsMailDelivery.State.RETRY, delivery.getState());
+            assertNotNull(delivery.getError());
+            assertEquals(1, service.getPendingDeliveries().size());
+
+            server = startSmtpServer(SMTP_PORT_DELIVERY);
+            assertTrue(delivery.waitFor(10000));
+            assertEquals(CmsMailDelivery.State.SENT, delivery.getState());
+            assertTrue(delivery.getAttempts() > 1);
+        } finally {
+            service.shutDown();
+            if (server != null) {
+                server.stop();
+            }
+        }
+        assertEquals(1, server.getReceivedEmailSize());
+
+        echo("Mail was sent successfully after the mail host became available.");
+    }
+
+    /**
+     * Tests that deliveries waiting for another attempt are spooled on shutdown and sent after a restart.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testDeliveryServiceSpool() throws Throwable {
+
+        echo("Trying to restore spooled mails ...");
+
+        File spoolFolder = new File(System.getProperty("java.io.tmpdir"), "opencms-mailspool-" + new CmsUUID());
+        CmsMailDeliveryService service = new CmsMailDeliveryService(
+            createDeliverySettings("1", "0", "1000"),
+            spoolFolder);
+        SimpleSmtpServer server = null;
+        try {
+            CmsMailDelivery delivery = service.submit(createDeliveryMail("OpenCms TestCase Spooled Mail"));
+            waitForAttempt(delivery);
+            service.shutDown();
+            assertFalse(delivery.isDone());
+            assertEquals(2, spoolFolder.list().length);
+
+            server = startSmtpServer(SMTP_PORT_DELIVERY);
+            service = new CmsMailDeliveryService(createDeliverySettings("1", "0", "1000"), spoolFolder);
+            List<CmsMailDelivery> restored = service.getPendingDeliveries();
+            assertEquals(1, restored.size());
+            assertEquals(delivery.getId(), restored.get(0).getId());
+            assertEquals(1, restored.get(0).getAttempts());
+            assertTrue(restored.get(0).waitFor(10000));
+            assertEquals(CmsMailDelivery.State.SENT, restored.get(0).getState());
+            assertEquals(0, spoolFolder.list().length);
+        } finally {
+            service.shutDown();
+            if (server != null) {
+                server.stop();
+            }
+            CmsFileUtil.purgeDirectory(spoolFolder);
+        }
+        assertEquals(1, server.getReceivedEmailSize());
+
+        echo("Spooled mail was sent successfully.");
+    }
+
+    /**
+     * Tests that mails are spooled when they are submitted, also after the delivery service has been shut down.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testDeliveryServiceSpoolOnSubmit() throws Throwable {
+
+        echo("Trying to spool mails on submit ...");
+
+        File spoolFolder = new File(System.getProperty("java.io.tmpdir"), "opencms-mailspool-" + new CmsUUID());
+        CmsMailDeliveryService service = new CmsMailDeliveryService(
+            createDeliverySettings("1", "0", "1000"),
+            spoolFolder);
+        SimpleSmtpServer server = null;
+        try {
+            CmsMailDelivery delivery = service.submit(createDeliveryMail("OpenCms TestCase Submitted Mail"));
+            assertEquals(2, spoolFolder.list().length);
+            waitForAttempt(delivery);
+            service.shutDown();
+
+            CmsMailDelivery late = service.submit(createDeliveryMail("OpenCms TestCase Late Mail"));
+            assertFalse(late.isDone());
+            assertEquals(0, late.getAttempts());
+            assertEquals(4, spoolFolder.list().length);
+
+            server = startSmtpServer(SMTP_PORT_DELIVERY);
+            service = new CmsMailDeliveryService(createDeliverySettings("1", "0", "1000"), spoolFolder);
+            // the restored mails may already have been sent, so wait for the sent count
+            long deadline = System.currentTimeMillis() + 10000;
+            while ((service.getSentCount() < 2) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, service.getSentCount());
+            assertEquals(0, service.getFailedCount());
+            assertEquals(0, spoolFolder.list().length);
+        } finally {
+            service.shutDown();
+            if (server != null) {
+                server.stop();
+            }
+            CmsFileUtil.purgeDirectory(spoolFolder);
+        }
+        assertEquals(2, server.getReceivedEmailSize());
+
+        echo("Mails spooled on submit were sent successfully.");
+    }
+
+    /**
+     * Tests limiting the number of mails sent per second by the delivery service.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testDeliveryServiceThrottle() throws Throwable {
+
+        echo("Trying to send throttled mails with the delivery service ...");
+
+        SimpleSmtpServer server = startSmtpServer(SMTP_PORT_DELIVERY);
+        CmsMailDeliveryService service = new CmsMailDeliveryService(createDeliverySettings("2", "10", "100"), null);
+        try {
+            long start = System.currentTimeMillis();
+            List<CmsMailDelivery> deliveries = new ArrayList<CmsMailDelivery>();
+            for (int i = 0; i < 6; i++) {
+                deliveries.add(service.submit(createDeliveryMail("OpenCms TestCase Throttled Mail " + i)));
+            }
+            for (CmsMailDelivery delivery : deliveries) {
+                assertTrue(delivery.waitFor(10000));
+                assertEquals(CmsMailDelivery.State.SENT, delivery.getState());
+            }
+            long duration = System.currentTimeMillis() - start;
+            echo("Sending 6 mails limited to 10 mails per second took " + duration + " ms");
+            // the first mail is sent immediately, the 5 others with 100 ms in between
+            assertTrue(duration >= 500);
+        } finally {
+            service.shutDown();
+            server.stop();
+        }
+        assertEquals(6, server.getReceivedEmailSize());
+
+        echo("Throttled mails were sent successfully.");
+    }
+
+    /**
+     * Creates a plain text mail for the delivery service tests.<p>
+     *
+     * @param subject the subject of the mail
+     *
+     * @return the mail
+     *
+     * @throws EmailException if something goes wrong
+     */
+    private CmsSimpleMail createDeliveryMail(String subject) throws EmailException {
+
+        CmsSimpleMail mail = new CmsSimpleMail();
+        mail.setMsg("This is only a test mail for the mail delivery service.");
+        mail.addTo(OpenCms.getSystemInfo().getMailSettings().getMailFromDefault());
+        mail.setSubject(subject);
+        mail.setSmtpPort(SMTP_PORT_DELIVERY);
+        return mail;
+    }
+
+    /**
+     * Creates mail settings for the delivery service tests.<p>
+     *
+     * @param threads the number of delivery threads
+     * @param maxPerSecond the maximum number of mails sent per second
+     * @param retryDelay the delay before the first retry in milliseconds
+     *
+     * @return the mail settings
+     */
+    private CmsMailSettings createDeliverySettings(String threads, String maxPerSecond, String retryDelay) {
+
+        CmsMailSettings settings = new CmsMailSettings();
+        settings.addMailHost("localhost", String.valueOf(SMTP_PORT_DELIVERY), "10", "smtp", null, null);
+        settings.setDelivery(threads, maxPerSecond, "5", retryDelay);
+        return settings;
+    }
+
+    /**
+     * Waits until the first attempt to send a mail has failed.<p>
+     *
+     * @param delivery the delivery of the mail
+     *
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    private void waitForAttempt(CmsMailDelivery delivery) throws InterruptedException {
+
+        long end = System.currentTimeMillis() + 10000;
+        while ((delivery.getAttempts() == 0) && (System.currentTimeMillis() < end)) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, delivery.getAttempts());
+    }
 }
@@ -0,0 +1,242 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.main.CmsInitTaskGraph.I_CmsInitTask;
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for the {@link CmsInitTaskGraph}.<p>
+ *
+ * @since 9.5.0
+ */
+public class TestCmsInitTaskGraph extends OpenCmsTestCase {
+
+    /**
+     * A task which records when it is started and finished.<p>
+     */
+    private static class CmsRecordingTask implements I_CmsInitTask {
+
+        /** The events of all tasks. */
+        private List<String> m_events;
+
+        /** The exception to throw, or <code>null</code>. */
+        private Exception m_failure;
+
+        /** The latch to count down and wait for before finishing, or <code>null</code>. */
+        private CountDownLatch m_latch;
+
+        /** The name of the task. */
+        private String m_name;
+
+        /** The thread which has run the task. */
+        private Thread m_thread;
+
+        /**
+         * Creates a new recording task.<p>
+         *
+         * @param name the name of the task
+         * @param events the events of all tasks
+         * @param latch the latch to count down and wait for before finishing, or <code>null</code>
+         * @param failure the exception to throw, or <code>null</code>
+         */
+        CmsRecordingTask(String name, List<String> events, CountDownLatch latch, Exception failure) {
+
+            m_name = name;
+            m_events = events;
+            m_latch = latch;
+            m_failure = failure;
+        }
+
+        /**
+         * @see org.opencms.main.CmsInitTaskGraph.I_CmsInitTask#run()
+         */
+        public void run() throws Exception {
+
+            m_thread = Thread.currentThread();
+            m_events.add("start:" + m_name);
+            if (m_latch != null) {
+                m_latch.countDown();
+                if (!m_latch.await(10, TimeUnit.SECONDS)) {
+                    throw new Exception("Task " + m_name + " has not run concurrently");
+                }
+            }
+            if (m_failure != null) {
+                throw m_failure;
+            }
+            m_events.add("end:" + m_name);
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsInitTaskGraph(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that tasks are started after their prerequisites, and independent tasks run concurrently.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testDependencyOrder() throws Exception {
+
+        List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        // b and c only finish if both of them run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        CmsInitTaskGraph graph = new CmsInitTaskGraph();
+        graph.addTask("a", new CmsRecordingTask("a", events, null, null));
+        graph.addTask("b", new CmsRecordingTask("b", events, latch, null), "a");
+        graph.addTask("c", new CmsRecordingTask("c", events, latch, null), "a");
+        graph.addTask("d", new CmsRecordingTask("d", events, null, null), "b", "c");
+        graph.run(4);
+
+        assertEquals(8, events.size());
+        assertTrue(events.indexOf("end:a") < events.indexOf("start:b"));
+        assertTrue(events.indexOf("end:a") < events.indexOf("start:c"));
+        assertTrue(events.indexOf("end:b") < events.indexOf("start:d"));
+        assertTrue(events.indexOf("end:c") < events.indexOf("start:d"));
+        assertEquals("end:d", events.get(7));
+    }
+
+    /**
+     * Tests that a failed task is reported, its dependents are not started, and running tasks are finished.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testFailure() throws Exception {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final Exception failure = new Exception("Task a failed");
+        CmsInitTaskGraph graph = new CmsInitTaskGraph();
+        graph.addTask("a", new I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                started.countDown();
+                throw failure;
+            }
+        });
+        graph.addTask("b", new I_CmsInitTask() {
+
+            public void run() throws Exception {
+
+                // b is still running when the failure of a is reported
+                started.await(10, TimeUnit.SECONDS);
+                Thread.sleep(200);
+                events.add("end:b");
+            }
+        });
+        graph.addTask("c", new CmsRecordingTask("c", events, null, null), "a");
+        graph.addTask("d", new CmsRecordingTask("d", events, null, null), "b");
+        try {
+            graph.run(2);
+            fail("The failure of task a was not reported");
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+        assertTrue(events.contains("end:b"));
+        assertFalse(events.contains("end:a"));
+        assertFalse(events.contains("start:c"));
+        assertFalse(events.contains("start:d"));
+    }
+
+    /**
+     * Tests that tasks with unknown prerequisites or duplicate names are rejected.<p>
+     */
+    public void testInvalidTasks() {
+
+        List<String> events = new ArrayList<String>();
+        CmsInitTaskGraph graph = new CmsInitTaskGraph();
+        graph.addTask("a", new CmsRecordingTask("a", events, null, null));
+        try {
+            graph.addTask("a", new CmsRecordingTask("a", events, null, null));
+            fail("A duplicate task was accepted");
+        } catch (CmsIllegalArgumentException e) {
+            // expected
+        }
+        try {
+            graph.addTask("b", new CmsRecordingTask("b", events, null, null), "c");
+            fail("A task with an unknown prerequisite was accepted");
+        } catch (CmsIllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that a single thread runs the tasks in the calling thread in the order they have been added.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testSequential() throws Exception {
+
+        List<String> events = new ArrayList<String>();
+        CmsRecordingTask a = new CmsRecordingTask("a", events, null, null);
+        CmsRecordingTask b = new CmsRecordingTask("b", events, null, null);
+        CmsRecordingTask c = new CmsRecordingTask("c", events, null, null);
+        CmsInitTaskGraph graph = new CmsInitTaskGraph();
+        graph.addTask("a", a);
+        graph.addTask("b", b);
+        graph.addTask("c", c, "a");
+        graph.run(1);
+
+        assertEquals(6, events.size());
+        assertEquals("start:a", events.get(0));
+        assertEquals("start:b", events.get(2));
+        assertEquals("start:c", events.get(4));
+        assertSame(Thread.currentThread(), a.m_thread);
+        assertSame(Thread.currentThread(), b.m_thread);
+        assertSame(Thread.currentThread(), c.m_thread);
+
+        // a failure stops the sequential run
+        events.clear();
+        Exception failure = new Exception("Task b failed");
+        graph = new CmsInitTaskGraph();
+        graph.addTask("a", new CmsRecordingTask("a", events, null, null));
+        graph.addTask("b", new CmsRecordingTask("b", events, null, failure));
+        graph.addTask("c", new CmsRecordingTask("c", events, null, null));
+        try {
+            graph.run(1);
+            fail("The failure of task b was not reported");
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+        assertFalse(events.contains("start:c"));
+    }
+}
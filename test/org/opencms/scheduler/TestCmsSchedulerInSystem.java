@@ -27,11 +27,20 @@
 
 package org.opencms.scheduler;
 
+import org.opencms.db.CmsSecurityManager;
 import org.opencms.main.CmsContextInfo;
 import org.opencms.main.OpenCms;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.quartz.CronExpression;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -65,6 +74,8 @@ public class TestCmsSchedulerInSystem extends OpenCmsTestCase {
 
         suite.addTest(new TestCmsSchedulerInSystem("testDefaultConfiguration"));
         suite.addTest(new TestCmsSchedulerInSystem("testAccessToCmsObject"));
+        suite.addTest(new TestCmsSchedulerInSystem("testPersistentSchedulerCluster"));
+        suite.addTest(new TestCmsSchedulerInSystem("testPersistentSchedulerMisfire"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -166,4 +177,168 @@ public class TestCmsSchedulerInSystem extends OpenCmsTestCase {
             fail("CmsObject in scheduled job was null!");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that two persistent schedule managers sharing the same database execute each firing of a job only once.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPersistentSchedulerCluster() throws Exception {
+
+        System.out.println("Trying to run a job with two persistent schedulers sharing the same database.");
+        TestScheduledJob.m_runCount = 0;
+
+        CmsScheduledJobInfo jobInfo1 = createPersistentJobInfo("Clustered test job", "0/1 * * * * ?");
+        CmsScheduledJobInfo jobInfo2 = createPersistentJobInfo("Clustered test job", "0/1 * * * * ?");
+        assertEquals(jobInfo1.getJobKey(), jobInfo2.getJobKey());
+
+        CmsScheduleManager manager1 = createPersistentScheduleManager(Collections.singletonList(jobInfo1));
+        CmsScheduleManager manager2 = createPersistentScheduleManager(Collections.singletonList(jobInfo2));
+        try {
+            int seconds = 0;
+            do {
+                Thread.sleep(1000);
+                seconds++;
+            } while ((seconds < TestCmsScheduler.SECONDS_TO_WAIT) && (TestScheduledJob.m_runCount < 5));
+
+            List<CmsScheduledJobExecution> history = manager1.getJobExecutions(getCmsObject(), jobInfo1.getId(), 100);
+            assertFalse("No job executions recorded", history.isEmpty());
+            assertEquals(jobInfo1.getJobKey(), history.get(0).getJobKey());
+
+            manager1.unscheduleJob(getCmsObject(), jobInfo1.getId());
+            manager2.unscheduleJob(getCmsObject(), jobInfo2.getId());
+            // wait for a running job to finish
+            Thread.sleep(1000);
+        } finally {
+            manager1.shutDown();
+            manager2.shutDown();
+        }
+
+        List<CmsScheduledJobExecution> executions = getSecurityManager().readScheduledJobExecutions(
+            getCmsObject().getRequestContext(),
+            jobInfo1.getJobKey(),
+            1000);
+        Set<Long> fireTimes = new HashSet<Long>();
+        for (CmsScheduledJobExecution execution : executions) {
+            assertEquals(CmsScheduledJobExecution.State.SUCCEEDED, execution.getState());
+            assertTrue(execution.getDateFinished() >= execution.getDateStarted());
+            fireTimes.add(Long.valueOf(execution.getFireTime()));
+        }
+        assertTrue("Test job was not run 5 times", TestScheduledJob.m_runCount >= 5);
+        // every firing must have been executed by exactly one of the schedulers
+        assertEquals(TestScheduledJob.m_runCount, executions.size());
+        assertEquals(executions.size(), fireTimes.size());
+    }
+
+    /**
+     * Tests that a persistent schedule manager executes a job with a missed execution once on startup.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPersistentSchedulerMisfire() throws Exception {
+
+        System.out.println("Trying to run a missed job execution with a persistent scheduler.");
+        TestScheduledJob.m_runCount = 0;
+
+        CmsScheduledJobInfo jobInfo = createPersistentJobInfo("Misfire test job", "0 0 * * * ?");
+        jobInfo.setMisfirePolicy(CmsScheduledJobInfo.MISFIRE_POLICY_FIRE_ONCE);
+
+        // record an execution three hours ago, so the later executions have been missed
+        long lastFireTime = System.currentTimeMillis() - (3 * 60 * 60 * 1000);
+        CmsScheduledJobExecution lastExecution = new CmsScheduledJobExecution(
+            jobInfo.getJobKey(),
+            lastFireTime,
+            jobInfo.getJobName(),
+            "OtherServer",
+            lastFireTime,
+            lastFireTime,
+            CmsScheduledJobExecution.State.SUCCEEDED,
+            null);
+        assertTrue(getSecurityManager().createScheduledJobExecution(getCmsObject().getRequestContext(), lastExecution));
+        assertFalse(getSecurityManager().createScheduledJobExecution(getCmsObject().getRequestContext(), lastExecution));
+
+        CmsScheduleManager manager = createPersistentScheduleManager(Collections.singletonList(jobInfo));
+        try {
+            int seconds = 0;
+            do {
+                Thread.sleep(1000);
+                seconds++;
+            } while ((seconds < TestCmsScheduler.SECONDS_TO_WAIT) && (TestScheduledJob.m_runCount < 1));
+            // give the job time to record its result
+            Thread.sleep(1000);
+
+            List<CmsScheduledJobExecution> executions = manager.getJobExecutions(getCmsObject(), jobInfo.getId(), 10);
+            assertEquals(2, executions.size());
+            CmsScheduledJobExecution execution = executions.get(0);
+            assertEquals(CmsScheduledJobExecution.State.SUCCEEDED, execution.getState());
+            assertTrue(execution.getFireTime() > lastFireTime);
+            assertTrue(execution.getFireTime() < execution.getDateStarted());
+            // the execution must have been made for the latest missed fire time
+            Date next = new CronExpression(jobInfo.getCronExpression()).getNextValidTimeAfter(
+                new Date(execution.getFireTime()));
+            assertTrue(next.getTime() > execution.getDateStarted());
+        } finally {
+            manager.shutDown();
+        }
+        assertEquals(1, TestScheduledJob.m_runCount);
+
+        // another start must not execute the job again
+        CmsScheduledJobInfo jobInfo2 = createPersistentJobInfo("Misfire test job", "0 0 * * * ?");
+        jobInfo2.setMisfirePolicy(CmsScheduledJobInfo.MISFIRE_POLICY_FIRE_ONCE);
+        manager = createPersistentScheduleManager(Collections.singletonList(jobInfo2));
+        try {
+            Thread.sleep(2000);
+        } finally {
+            manager.shutDown();
+        }
+        assertEquals(1, TestScheduledJob.m_runCount);
+    }
+
+    /**
+     * Creates a job description for the persistent scheduler tests.<p>
+     *
+     * @param jobName the name of the job
+     * @param cronExpression the cron expression of the job
+     *
+     * @return the job description
+     */
+    private CmsScheduledJobInfo createPersistentJobInfo(String jobName, String cronExpression) {
+
+        CmsScheduledJobInfo jobInfo = new CmsScheduledJobInfo();
+        jobInfo.setContextInfo(new CmsContextInfo(OpenCms.getDefaultUsers().getUserAdmin()));
+        jobInfo.setJobName(jobName);
+        jobInfo.setClassName(TestScheduledJob.class.getName());
+        jobInfo.setReuseInstance(false);
+        jobInfo.setCronExpression(cronExpression);
+        return jobInfo;
+    }
+
+    /**
+     * Creates and initializes a persistent schedule manager that uses the database of the test system.<p>
+     *
+     * @param jobs the jobs to schedule
+     *
+     * @return the initialized schedule manager
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsScheduleManager createPersistentScheduleManager(List<CmsScheduledJobInfo> jobs) throws Exception {
+
+        CmsScheduleManager manager = new CmsScheduleManager(jobs);
+        manager.setPersistent(true);
+        manager.setSecurityManager(getSecurityManager());
+        manager.initialize(getCmsObject());
+        manager.executeMisfiredJobs();
+        return manager;
+    }
+
+    /**
+     * Returns the security manager of the test system.<p>
+     *
+     * @return the security manager of the test system
+     */
+    private CmsSecurityManager getSecurityManager() {
+
+        return OpenCms.getScheduleManager().getSecurityManager();
+    }
+}
@@ -39,8 +39,14 @@ import org.opencms.report.I_CmsReport;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -77,6 +83,8 @@ public class TestCmsSearchOffline extends OpenCmsTestCase {
         suite.setName(TestCmsSearchOffline.class.getName());
 
         suite.addTest(new TestCmsSearchOffline("testSearchIndexSetup"));
+        suite.addTest(new TestCmsSearchOffline("testSearcherReleaseAfterReopen"));
+        suite.addTest(new TestCmsSearchOffline("testSearchDuringRebuild"));
         suite.addTest(new TestCmsSearchOffline("testIndexUpdateOnModification"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -252,4 +260,103 @@ public class TestCmsSearchOffline extends OpenCmsTestCase {
 
         echo("Move Test - end");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that searches are not affected by concurrent reopening and rebuilding of the index.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testSearchDuringRebuild() throws Exception {
+
+        echo("Testing searches during index rebuild");
+
+        final CmsObject cms = getCmsObject();
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CmsSearchIndex index = OpenCms.getSearchManager().getIndex(INDEX_SPECIAL);
+        final AtomicBoolean running = new AtomicBoolean(true);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+
+                    while (running.get()) {
+                        try {
+                            CmsSearch searchBean = new CmsSearch();
+                            searchBean.init(OpenCms.initCmsObject(cms));
+                            searchBean.setIndex(INDEX_SPECIAL);
+                            searchBean.setQuery(">>SearchEgg1<<");
+                            searchBean.getSearchResult();
+                            if (searchBean.getLastException() != null) {
+                                errors.add(searchBean.getLastException());
+                            }
+                            IndexSearcher searcher = index.acquireSearcher();
+                            try {
+                                searcher.search(new MatchAllDocsQuery(), 10);
+                            } finally {
+                                index.releaseSearcher(searcher);
+                            }
+                        } catch (Throwable t) {
+                            errors.add(t);
+                        }
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+
+        try {
+            for (int i = 0; i < 20; i++) {
+                index.indexSearcherOpen(index.getPath());
+            }
+            OpenCms.getSearchManager().rebuildIndex(INDEX_SPECIAL, new CmsShellReport(Locale.ENGLISH));
+            for (int i = 0; i < 20; i++) {
+                index.indexSearcherOpen(index.getPath());
+            }
+        } finally {
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            fail(errors.get(0).toString());
+        }
+        // only the reader of the current searcher must remain open
+        assertEquals(1, index.getOpenReaderCount());
+    }
+
+    /**
+     * Tests that the reader of an acquired searcher stays open until it is released.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testSearcherReleaseAfterReopen() throws Exception {
+
+        echo("Testing the release of a replaced index searcher");
+
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(INDEX_SPECIAL);
+        IndexSearcher searcher = index.acquireSearcher();
+        assertNotNull(searcher);
+        int openReaders = index.getOpenReaderCount();
+
+        // replace the searcher
+        index.indexSearcherOpen(index.getPath());
+        assertNotSame(searcher, index.getSearcher());
+        assertEquals(openReaders + 1, index.getOpenReaderCount());
+        assertTrue(index.getSearcherAge() >= 0);
+
+        // the replaced searcher can still be used
+        assertTrue(searcher.search(new MatchAllDocsQuery(), 10).totalHits > 0);
+        assertEquals(1, searcher.getIndexReader().getRefCount());
+
+        // releasing the searcher closes its reader
+        index.releaseSearcher(searcher);
+        assertEquals(0, searcher.getIndexReader().getRefCount());
+        assertEquals(openReaders, index.getOpenReaderCount());
+    }
+}
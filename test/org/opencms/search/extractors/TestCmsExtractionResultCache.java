@@ -0,0 +1,190 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.extractors;
+
+import org.opencms.search.documents.CmsExtractionResultCache;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tests the extraction result encoding and the segment based extraction result cache.<p>
+ */
+public class TestCmsExtractionResultCache extends OpenCmsTestCase {
+
+    /** The temporary folder used for the cache. */
+    private File m_tempFolder;
+
+    /**
+     * Tests that entries are found again after the cache has been reopened, and that cleanup compacts the segments.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCacheReopenAndCleanup() throws Exception {
+
+        String base = m_tempFolder.getAbsolutePath();
+        // use small segments so that several segments are created
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(base, "/extractCache", 1024);
+        for (int i = 0; i < 50; i++) {
+            String key = cache.getCacheName(("content " + i).getBytes(), null, "pdf");
+            cache.saveCacheObject(key, new CmsExtractionResult("Extracted text number " + i));
+        }
+        assertEquals(50, cache.getCacheSize());
+        assertTrue(cache.getSegmentCount() > 1);
+        cache.close();
+
+        cache = new CmsExtractionResultCache(base, "/extractCache", 1024);
+        assertEquals(50, cache.getCacheSize());
+        String key = cache.getCacheName("content 7".getBytes(), null, "pdf");
+        assertEquals("Extracted text number 7", cache.getCacheObject(key).getContent());
+
+        // nothing is expired
+        assertEquals(0, cache.cleanCache(1.0f));
+        assertEquals(50, cache.getCacheSize());
+
+        // everything is expired, all sealed segments are removed
+        Thread.sleep(5);
+        assertEquals(50, cache.cleanCache(0.0f));
+        assertEquals(0, cache.getCacheSize());
+        assertEquals(1, cache.getSegmentCount());
+        assertNull(cache.getCacheObject(key));
+        cache.close();
+    }
+
+    /**
+     * Tests that reopening the cache continues the last segment and keeps the last access times.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCacheReopenKeepsState() throws Exception {
+
+        String base = m_tempFolder.getAbsolutePath();
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(base, "/reopenCache");
+        String used = cache.getCacheName("used".getBytes(), null, "pdf");
+        String unused = cache.getCacheName("unused".getBytes(), null, "pdf");
+        cache.saveCacheObject(used, new CmsExtractionResult("used"));
+        cache.saveCacheObject(unused, new CmsExtractionResult("unused"));
+        assertEquals(1, cache.getSegmentCount());
+        cache.close();
+
+        // no new segment is started on every start
+        cache = new CmsExtractionResultCache(base, "/reopenCache");
+        assertEquals(2, cache.getCacheSize());
+        assertEquals(1, cache.getSegmentCount());
+        cache.close();
+        File[] segments = new File(cache.getRepositoryPath()).listFiles();
+        assertEquals(1, segments.length);
+
+        // the access time of a read entry is kept when the cache is closed
+        Thread.sleep(500);
+        cache = new CmsExtractionResultCache(base, "/reopenCache");
+        assertNotNull(cache.getCacheObject(used));
+        cache.close();
+        cache = new CmsExtractionResultCache(base, "/reopenCache");
+        // expire all entries which have not been accessed in the last 250 ms
+        assertEquals(1, cache.cleanCache(0.25f / 3600));
+        assertNotNull(cache.getCacheObject(used));
+        assertNull(cache.getCacheObject(unused));
+        cache.close();
+    }
+
+    /**
+     * Tests that the cache is content addressed.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testContentAddressedKeys() throws Exception {
+
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(m_tempFolder.getAbsolutePath(), "/keys");
+        byte[] content = "Some document content".getBytes();
+        String key = cache.getCacheName(content, Locale.ENGLISH, "xmlcontent");
+        // an identical copy of the content must produce the same key
+        assertEquals(key, cache.getCacheName(content.clone(), Locale.ENGLISH, "xmlcontent"));
+        assertFalse(key.equals(cache.getCacheName(content, Locale.GERMAN, "xmlcontent")));
+        assertFalse(key.equals(cache.getCacheName("Other content".getBytes(), Locale.ENGLISH, "xmlcontent")));
+
+        cache.saveCacheObject(key, new CmsExtractionResult("Some document content"));
+        I_CmsExtractionResult result = cache.getCacheObject(
+            cache.getCacheName(content.clone(), Locale.ENGLISH, "xmlcontent"));
+        assertNotNull(result);
+        assertEquals("Some document content", result.getContent());
+        cache.close();
+    }
+
+    /**
+     * Tests the compact encoding of extraction results and the fallback for Java serialized results.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testEncoding() throws Exception {
+
+        Map<String, String> items = new HashMap<String, String>();
+        items.put(I_CmsExtractionResult.ITEM_TITLE, "Title \u00e4\u00f6\u00fc\u20ac");
+        items.put(I_CmsExtractionResult.ITEM_AUTHOR, null);
+        CmsExtractionResult result = new CmsExtractionResult("The content", items);
+
+        CmsExtractionResult decoded = CmsExtractionResult.fromBytes(result.getBytes());
+        assertEquals(result.getContentItems(), decoded.getContentItems());
+
+        // results stored by older versions used Java serialization
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectOutputStream oout = new ObjectOutputStream(out);
+        oout.writeObject(new CmsExtractionResult("Legacy content"));
+        oout.close();
+        decoded = CmsExtractionResult.fromBytes(out.toByteArray());
+        assertEquals("Legacy content", decoded.getContent());
+
+        assertNull(CmsExtractionResult.fromBytes(new byte[] {1, 2, 3}));
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        m_tempFolder = File.createTempFile("extract", "cache");
+        m_tempFolder.delete();
+        m_tempFolder.mkdirs();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        CmsFileUtil.purgeDirectory(m_tempFolder);
+    }
+}
@@ -50,6 +50,7 @@ import org.opencms.search.extractors.CmsExtractionResult;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -100,6 +101,7 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         // suite.addTest(new TestSolrConfiguration("testMultipleLanguages"));
         suite.addTest(new TestSolrConfiguration("testReindexPublishedSiblings"));
         suite.addTest(new TestSolrConfiguration("testPostProcessor"));
+        suite.addTest(new TestSolrConfiguration("testCommitModes"));
         suite.addTest(new TestSolrConfiguration("testShutDown"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -129,6 +131,73 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests the commit modes with a stream of single resource publish jobs,
+     * reporting the publish throughput and the time until the changes are visible.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testCommitModes() throws Throwable {
+
+        echo("Testing the commit modes of the Solr index");
+        CmsObject cms = getCmsObject();
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        String folder = "/commitModes/";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        int count = 5;
+        String[] suffixes = {"alpha", "beta", "gamma", "delta", "epsilon"};
+        for (CmsSolrIndex.CommitMode mode : CmsSolrIndex.CommitMode.values()) {
+            index.addConfigurationParameter(CmsSolrIndex.COMMIT_MODE, mode.name().toLowerCase());
+            assertEquals(mode, index.getCommitMode());
+            long publishTime = 0;
+            long visibilityTime = 0;
+            for (int i = 0; i < count; i++) {
+                String word = "commitmode" + mode.name().toLowerCase() + suffixes[i];
+                String path = folder + word + ".txt";
+                cms.createResource(path, CmsResourceTypePlain.getStaticTypeId(), word.getBytes(), null);
+                long start = System.currentTimeMillis();
+                CmsUUID publishId = OpenCms.getPublishManager().publishResource(cms, path);
+                OpenCms.getPublishManager().waitWhileRunning();
+                long published = System.currentTimeMillis();
+                assertTrue(index.waitForVisibility(publishId, 10000));
+                long visible = System.currentTimeMillis();
+                publishTime += published - start;
+                visibilityTime += visible - published;
+
+                CmsSolrQuery query = new CmsSolrQuery(cms, null);
+                query.setQuery(word);
+                List<Locale> locales = Collections.emptyList();
+                query.setLocales(locales);
+                query.setSearchRoots("/");
+                CmsSolrResultList results = index.search(cms, query);
+                assertEquals("The published resource must be visible", 1, results.size());
+                assertEquals(cms.getRequestContext().addSiteRoot(path), results.get(0).getRootPath());
+            }
+            echo(
+                "Commit mode "
+                    + mode
+                    + ": "
+                    + count
+                    + " publish jobs in "
+                    + publishTime
+                    + " ms, changes visible "
+                    + (visibilityTime / count)
+                    + " ms after publishing on average");
+        }
+        index.addConfigurationParameter(CmsSolrIndex.COMMIT_MODE, CmsSolrIndex.CommitMode.HARD.name());
+
+        // an index which is not updated for publish jobs never reports the changes as visible
+        CmsSolrIndex offlineIndex = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_OFFLINE);
+        String path = folder + "commitmodeoffline.txt";
+        cms.createResource(path, CmsResourceTypePlain.getStaticTypeId(), "commitmodeoffline".getBytes(), null);
+        CmsUUID publishId = OpenCms.getPublishManager().publishResource(cms, path);
+        OpenCms.getPublishManager().waitWhileRunning();
+        assertFalse(offlineIndex.waitForVisibility(publishId, 1000));
+    }
+
     /**
      * @throws Throwable
      */
@@ -147,7 +216,10 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
             CmsSolrDocumentXmlContent.TYPE_XMLCONTENT_SOLR,
             "text/html");
         CmsExtractionResultCache cache = factory.getCache();
-        String cacheName = cache.getCacheName(res, Locale.ENGLISH, CmsSolrDocumentXmlContent.TYPE_XMLCONTENT_SOLR);
+        String cacheName = cache.getCacheName(
+            cms.readFile(res).getContents(),
+            Locale.ENGLISH,
+            CmsSolrDocumentXmlContent.TYPE_XMLCONTENT_SOLR);
         CmsExtractionResult result = cache.getCacheObject(cacheName);
         assertNotNull(result);
     }
@@ -31,14 +31,22 @@ import static com.lambdaworks.codec.Base64.decode;
 import static org.junit.Assert.assertNotEquals;
 
 import org.opencms.db.CmsLoginMessage;
+import org.opencms.db.CmsLoginVerificationGate;
+import org.opencms.db.generic.CmsUserDriver;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsUser;
 import org.opencms.i18n.CmsEncoder;
 import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import com.lambdaworks.crypto.SCryptUtil;
 
 import junit.extensions.TestSetup;
@@ -71,6 +79,8 @@ public class TestLoginAndPasswordHandler extends OpenCmsTestCase {
         suite.addTest(new TestLoginAndPasswordHandler("testPasswordConvesion"));
         suite.addTest(new TestLoginAndPasswordHandler("testLoginUser"));
         suite.addTest(new TestLoginAndPasswordHandler("testLoginMessage"));
+        suite.addTest(new TestLoginAndPasswordHandler("testLoginVerificationGate"));
+        suite.addTest(new TestLoginAndPasswordHandler("testPasswordRehash"));
         suite.addTest(new TestLoginAndPasswordHandler("testPasswordValidation"));
         suite.addTest(new TestLoginAndPasswordHandler("testSetResetPassword"));
 
@@ -296,6 +306,69 @@ public class TestLoginAndPasswordHandler extends OpenCmsTestCase {
         assertEquals(test1User, cms.getRequestContext().getCurrentUser().getName());
     }
 
+    /**
+     * Tests the limit of password verifications running at the same time.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testLoginVerificationGate() throws Throwable {
+
+        echo("Testing the limit of password verifications running at the same time");
+        final CmsLoginVerificationGate gate = new CmsLoginVerificationGate(1, 3, 2, 10000);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        assertTrue(gate.acquire("a"));
+
+        List<Thread> threads = new ArrayList<Thread>();
+        String[][] logins = {{"a", "a1"}, {"a", "a2"}, {"b", "b1"}};
+        for (int i = 0; i < logins.length; i++) {
+            final String source = logins[i][0];
+            final String name = logins[i][1];
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+
+                    if (gate.acquire(source)) {
+                        order.add(name);
+                        gate.release();
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+            // wait until the login is queued, so the queue order is known
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((gate.getQueuedCount() <= i) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(5);
+            }
+            assertEquals(i + 1, gate.getQueuedCount());
+        }
+
+        // the queue of source "a" is full, and so is the total queue
+        long start = System.currentTimeMillis();
+        assertFalse(gate.acquire("a"));
+        assertFalse(gate.acquire("c"));
+        assertTrue("Rejected logins must not wait", (System.currentTimeMillis() - start) < 5000);
+
+        gate.release();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        // the waiting sources are served in turn
+        assertEquals(Arrays.asList("a1", "b1", "a2"), order);
+        assertEquals(0, gate.getActiveCount());
+        assertEquals(0, gate.getQueuedCount());
+
+        // a login that does not get a slot in time is rejected
+        CmsLoginVerificationGate busyGate = new CmsLoginVerificationGate(1, 3, 2, 50);
+        assertTrue(busyGate.acquire("a"));
+        assertFalse(busyGate.acquire("b"));
+        assertEquals(0, busyGate.getQueuedCount());
+        busyGate.release();
+        assertTrue(busyGate.acquire("b"));
+        busyGate.release();
+    }
+
     /**
      * Tests if the password is automatically converted from the old to the new hash algorithm.<p>
      *
@@ -329,6 +402,52 @@ public class TestLoginAndPasswordHandler extends OpenCmsTestCase {
             OpenCms.getPasswordHandler().checkPassword(testData, testUser.getPassword(), false));
     }
 
+    /**
+     * Tests if a password digest created with other scrypt cost parameters is replaced during the login.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPasswordRehash() throws Throwable {
+
+        echo("Testing if a password digest with other scrypt cost parameters is replaced during the login");
+        CmsObject cms = getCmsObject();
+        CmsDefaultPasswordHandler handler = (CmsDefaultPasswordHandler)OpenCms.getPasswordHandler();
+        String userName = "rehashUser";
+        String password = "rehash01";
+        cms.createUser(userName, password, "Test user for password rehashing", null);
+        assertTrue(handler.isCurrentDigest(cms.readUser(userName).getPassword()));
+
+        // store a digest with the scrypt default cost parameters, the test configuration uses other parameters
+        String oldDigest = SCryptUtil.scrypt(password, 16384, 8, 1);
+        assertFalse(handler.isCurrentDigest(oldDigest));
+        assertFalse(handler.isCurrentDigest(OpenCms.getPasswordHandler().digest(
+            password,
+            I_CmsPasswordHandler.DIGEST_TYPE_MD5,
+            CmsEncoder.ENCODING_UTF_8)));
+        CmsObject rawCms = OpenCms.initCmsObject(cms);
+        rawCms.getRequestContext().setAttribute(CmsUserDriver.REQ_ATTR_DONT_DIGEST_PASSWORD, Boolean.TRUE);
+        rawCms.setPassword(userName, oldDigest);
+        // the raw digest is written without flushing the user cache
+        OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.USER);
+        assertEquals(oldDigest, cms.readUser(userName).getPassword());
+
+        // the login replaces the digest with one created with the configured cost parameters
+        CmsObject userCms = OpenCms.initCmsObject(cms);
+        userCms.loginUser(userName, password);
+        OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.USER);
+        String newDigest = cms.readUser(userName).getPassword();
+        echo("Old stored password hash: " + oldDigest);
+        echo("New stored password hash: " + newDigest);
+        assertFalse(oldDigest.equals(newDigest));
+        assertTrue(handler.isCurrentDigest(newDigest));
+        assertTrue(handler.checkPassword(password, newDigest, false));
+
+        // a current digest is kept
+        userCms.loginUser(userName, password);
+        OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.USER);
+        assertEquals(newDigest, cms.readUser(userName).getPassword());
+    }
+
     /**
      * Tests the static "validatePassword" method of the password handler.<p>
      *
@@ -0,0 +1,334 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.site.xmlsitemap;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.site.xmlsitemap.CmsXmlSitemapCache.CmsCachedSitemap;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the sharding and caching of XML sitemaps.<p>
+ *
+ * @since 9.5.0
+ */
+public class TestCmsXmlSitemap extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsXmlSitemap(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsXmlSitemap.class.getName());
+
+        suite.addTest(new TestCmsXmlSitemap("testShardCount"));
+        suite.addTest(new TestCmsXmlSitemap("testShardSplit"));
+        suite.addTest(new TestCmsXmlSitemap("testSitemapIndex"));
+        suite.addTest(new TestCmsXmlSitemap("testCacheSize"));
+        suite.addTest(new TestCmsXmlSitemap("testCacheInvalidation"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that cached sitemaps are removed when a resource in their site is published.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCacheInvalidation() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the invalidation of the sitemap cache");
+
+        List<CmsResource> files = cms.readResources("/", CmsResourceFilter.DEFAULT_FILES);
+        CmsResource defaultSeoFile = files.get(0);
+        CmsResource otherSeoFile = files.get(1);
+        CmsXmlSitemapCache cache = CmsXmlSitemapCache.getInstance();
+        CmsCachedSitemap defaultSitemap = new CmsCachedSitemap(
+            cms.getRequestContext().getSiteRoot(),
+            defaultSeoFile.getDateLastModified(),
+            Collections.singletonList("default"));
+        CmsCachedSitemap otherSitemap = new CmsCachedSitemap(
+            "/sites/other",
+            otherSeoFile.getDateLastModified(),
+            Collections.singletonList("other"));
+        assertTrue(cache.put(defaultSeoFile, defaultSitemap));
+        assertTrue(cache.put(otherSeoFile, otherSitemap));
+        assertSame(defaultSitemap, cache.get(defaultSeoFile));
+        assertSame(otherSitemap, cache.get(otherSeoFile));
+
+        // publishing a resource in the site only removes the sitemaps of that site
+        String path = cms.getSitePath(files.get(2));
+        cms.lockResource(path);
+        cms.writePropertyObject(path, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "changed", null));
+        OpenCms.getPublishManager().publishResource(cms, path);
+        OpenCms.getPublishManager().waitWhileRunning();
+        assertNull(cache.get(defaultSeoFile));
+        assertSame(otherSitemap, cache.get(otherSeoFile));
+
+        // clearing the caches removes all sitemaps
+        OpenCms.fireCmsEvent(
+            new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, Collections.<String, Object> emptyMap()));
+        assertNull(cache.get(otherSeoFile));
+        assertEquals(0, cache.getSize());
+
+        // a changed SEO configuration file invalidates its sitemap
+        CmsCachedSitemap outdated = new CmsCachedSitemap(
+            cms.getRequestContext().getSiteRoot(),
+            defaultSeoFile.getDateLastModified() - 1,
+            Collections.singletonList("outdated"));
+        assertTrue(cache.put(defaultSeoFile, outdated));
+        assertNull(cache.get(defaultSeoFile));
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Tests that the sitemap cache is bounded by the size of the cached sitemaps.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCacheSize() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the size limit of the sitemap cache");
+
+        List<CmsResource> files = cms.readResources("/", CmsResourceFilter.DEFAULT_FILES);
+        String siteRoot = cms.getRequestContext().getSiteRoot();
+        CmsXmlSitemapCache cache = new CmsXmlSitemapCache(100);
+        assertEquals(25, cache.getMaxSitemapSize());
+
+        // a sitemap larger than a quarter of the cache is not cached
+        CmsResource seoFile = files.get(0);
+        CmsCachedSitemap large = new CmsCachedSitemap(
+            siteRoot,
+            seoFile.getDateLastModified(),
+            Arrays.asList("0123456789", "0123456789", "012345"));
+        assertFalse(cache.put(seoFile, large));
+        assertNull(cache.get(seoFile));
+        assertEquals(0, cache.getSize());
+
+        // the cache is full with 5 sitemaps of 20 characters
+        CmsCachedSitemap[] sitemaps = new CmsCachedSitemap[6];
+        for (int i = 0; i < sitemaps.length; i++) {
+            sitemaps[i] = new CmsCachedSitemap(
+                siteRoot,
+                files.get(i).getDateLastModified(),
+                Arrays.asList("0123456789", "0123456789"));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.put(files.get(i), sitemaps[i]));
+        }
+        assertEquals(100, cache.getSize());
+
+        // the least recently used sitemaps are removed until 3/4 of the cache size are left
+        assertSame(sitemaps[0], cache.get(files.get(0)));
+        assertTrue(cache.put(files.get(5), sitemaps[5]));
+        assertEquals(60, cache.getSize());
+        assertSame(sitemaps[0], cache.get(files.get(0)));
+        assertNull(cache.get(files.get(1)));
+        assertNull(cache.get(files.get(2)));
+        assertNull(cache.get(files.get(3)));
+        assertSame(sitemaps[4], cache.get(files.get(4)));
+        assertSame(sitemaps[5], cache.get(files.get(5)));
+
+        // replacing a sitemap releases the size of the old one
+        CmsCachedSitemap replacement = new CmsCachedSitemap(
+            siteRoot,
+            files.get(0).getDateLastModified(),
+            Collections.singletonList("0123456789"));
+        assertTrue(cache.put(files.get(0), replacement));
+        assertSame(replacement, cache.get(files.get(0)));
+        assertEquals(50, cache.getSize());
+    }
+
+    /**
+     * Tests the number of shards needed for the URL limit of the sitemap protocol.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testShardCount() throws Exception {
+
+        echo("Testing the number of sitemap shards");
+
+        CmsXmlSitemapGenerator generator = new CmsXmlSitemapGenerator("/sites/default");
+        assertEquals(1, generator.getShardCount(0));
+        assertEquals(1, generator.getShardCount(1));
+        assertEquals(1, generator.getShardCount(CmsXmlSitemapGenerator.MAX_URLS_PER_SITEMAP));
+        assertEquals(2, generator.getShardCount(CmsXmlSitemapGenerator.MAX_URLS_PER_SITEMAP + 1));
+        assertEquals(2, generator.getShardCount(2 * CmsXmlSitemapGenerator.MAX_URLS_PER_SITEMAP));
+        assertEquals(3, generator.getShardCount((2 * CmsXmlSitemapGenerator.MAX_URLS_PER_SITEMAP) + 1));
+    }
+
+    /**
+     * Tests splitting the sitemap entries into shards, both rendered for the cache and written directly.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testShardSplit() throws Exception {
+
+        echo("Testing the split of the sitemap into shards");
+
+        CmsXmlSitemapGenerator generator = new CmsXmlSitemapGenerator("/sites/default");
+        generator.getIncludeExcludeSet().addInclude("/sites/default/");
+        List<CmsXmlSitemapUrlBean> urlBeans = generator.generateSitemapBeans();
+        assertTrue("Expected more than 3 sitemap entries but found " + urlBeans.size(), urlBeans.size() > 3);
+        generator.setMaxUrlsPerSitemap(3);
+        int shardCount = generator.getShardCount(urlBeans.size());
+        assertEquals((urlBeans.size() + 2) / 3, shardCount);
+
+        List<String> shards = generator.renderSitemapShards(urlBeans, Integer.MAX_VALUE);
+        assertEquals(shardCount, shards.size());
+        int urlCount = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            String shard = shards.get(i);
+            int shardUrls = countOccurrences(shard, "<url>");
+            assertTrue(shardUrls > 0);
+            assertTrue(shardUrls <= 3);
+            urlCount += shardUrls;
+            assertTrue(shard.startsWith("<?xml"));
+            assertTrue(shard.endsWith("</urlset>"));
+
+            // writing a shard directly produces the same document
+            StringWriter writer = new StringWriter();
+            generator.writeSitemapShard(writer, urlBeans, i + 1);
+            assertEquals(shard, writer.toString());
+        }
+        assertEquals(urlBeans.size(), urlCount);
+
+        // the entries of all shards are the entries of the complete sitemap
+        StringWriter complete = new StringWriter();
+        generator.writeSitemap(complete, urlBeans);
+        assertEquals(urlBeans.size(), countOccurrences(complete.toString(), "<url>"));
+        for (CmsXmlSitemapUrlBean bean : urlBeans) {
+            assertTrue(complete.toString().contains(generator.getXmlForEntry(bean)));
+        }
+
+        // a shard behind the last one is empty
+        StringWriter empty = new StringWriter();
+        generator.writeSitemapShard(empty, urlBeans, shardCount + 1);
+        assertEquals(0, countOccurrences(empty.toString(), "<url>"));
+
+        // shards larger than the given size are not rendered
+        assertNull(generator.renderSitemapShards(urlBeans, shards.get(0).length()));
+        int totalSize = 0;
+        for (String shard : shards) {
+            totalSize += shard.length();
+        }
+        assertEquals(shards, generator.renderSitemapShards(urlBeans, totalSize));
+        assertNull(generator.renderSitemapShards(urlBeans, totalSize - 1));
+    }
+
+    /**
+     * Tests writing the sitemap index.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSitemapIndex() throws Exception {
+
+        echo("Testing the sitemap index");
+
+        StringWriter writer = new StringWriter();
+        CmsXmlSitemapGenerator.writeSitemapIndex(
+            writer,
+            Arrays.asList(
+                "http://localhost:8080/sitemap.xml?shard=1",
+                "http://localhost:8080/sitemap.xml?a=b&shard=2"));
+        String index = writer.toString();
+        assertTrue(index.startsWith("<?xml"));
+        assertTrue(index.contains("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"));
+        assertEquals(2, countOccurrences(index, "<sitemap>"));
+        assertTrue(index.contains("<sitemap><loc>http://localhost:8080/sitemap.xml?shard=1</loc></sitemap>"));
+        assertTrue(index.contains("<sitemap><loc>http://localhost:8080/sitemap.xml?a=b&amp;shard=2</loc></sitemap>"));
+        assertTrue(index.endsWith("</sitemapindex>"));
+    }
+
+    /**
+     * Counts the occurrences of a string in a text.<p>
+     *
+     * @param text the text
+     * @param search the string to count
+     *
+     * @return the number of occurrences
+     */
+    private int countOccurrences(String text, String search) {
+
+        int result = 0;
+        int pos = text.indexOf(search);
+        while (pos >= 0) {
+            result++;
+            pos = text.indexOf(search, pos + search.length());
+        }
+        return result;
+    }
+}
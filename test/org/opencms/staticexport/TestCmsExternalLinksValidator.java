@@ -28,12 +28,26 @@
 package org.opencms.staticexport;
 
 import org.opencms.file.CmsObject;
+import org.opencms.file.types.CmsResourceTypePointer;
+import org.opencms.main.OpenCms;
+import org.opencms.relations.CmsExternalLinksChecker;
 import org.opencms.relations.CmsExternalLinksValidator;
+import org.opencms.report.CmsShellReport;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.util.CmsUriSplitter;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -45,6 +59,9 @@ import junit.framework.TestSuite;
  */
 public class TestCmsExternalLinksValidator extends OpenCmsTestCase {
 
+    /** The response time of the "slow" URL of the test server in milliseconds. */
+    static final int SLOW_RESPONSE_TIME = 500;
+
     /**
      * Default JUnit constructor.<p>
      *
@@ -65,6 +82,8 @@ public class TestCmsExternalLinksValidator extends OpenCmsTestCase {
         TestSuite suite = new TestSuite();
         suite.setName(TestCmsExternalLinksValidator.class.getName());
         suite.addTest(new TestCmsExternalLinksValidator("testExternalLinksOutside"));
+        suite.addTest(new TestCmsExternalLinksValidator("testLinkChecker"));
+        suite.addTest(new TestCmsExternalLinksValidator("testValidateLinksConcurrently"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -115,4 +134,132 @@ public class TestCmsExternalLinksValidator extends OpenCmsTestCase {
             assertTrue("External link check failed:" + url, CmsExternalLinksValidator.checkUrl(cms, url));
         }
     }
+
+    /**
+     * Tests the link checker against a local HTTP server.<p>
+     *
+     * @throws Exception if test fails
+     */
+    public void testLinkChecker() throws Exception {
+
+        HttpServer server = startServer();
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort();
+            CmsExternalLinksChecker checker = new CmsExternalLinksChecker(2000, 2000, 0);
+
+            echo("Checking status codes");
+            assertTrue(checker.checkUrl(new URL(base + "/ok")));
+            assertFalse(checker.checkUrl(new URL(base + "/missing")));
+            // HEAD is not allowed, a GET request is sent instead
+            assertTrue(checker.checkUrl(new URL(base + "/nohead")));
+            assertEquals(4, checker.getRequestCount());
+
+            echo("Checking that results are cached");
+            assertTrue(checker.checkUrl(new URL(base + "/ok")));
+            assertFalse(checker.checkUrl(new URL(base + "/missing")));
+            assertEquals(4, checker.getRequestCount());
+
+            echo("Checking the read timeout");
+            CmsExternalLinksChecker timeoutChecker = new CmsExternalLinksChecker(2000, 100, 0);
+            assertFalse(timeoutChecker.checkUrl(new URL(base + "/slow")));
+
+            echo("Checking the interval between requests to the same host");
+            CmsExternalLinksChecker slowChecker = new CmsExternalLinksChecker(2000, 2000, 300);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 3; i++) {
+                assertTrue(slowChecker.checkUrl(new URL(base + "/ok?i=" + i)));
+            }
+            assertTrue(System.currentTimeMillis() - start >= 600);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Tests the concurrent validation of pointer resources.<p>
+     *
+     * @throws Exception if test fails
+     */
+    public void testValidateLinksConcurrently() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        HttpServer server = startServer();
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort();
+            int count = 8;
+            for (int i = 0; i < count; i++) {
+                cms.createResource(
+                    "/pointer_slow_" + i + ".html",
+                    CmsResourceTypePointer.getStaticTypeId(),
+                    (base + "/slow?i=" + i).getBytes(),
+                    null);
+            }
+            cms.createResource(
+                "/pointer_missing.html",
+                CmsResourceTypePointer.getStaticTypeId(),
+                (base + "/missing").getBytes(),
+                null);
+            cms.createResource(
+                "/pointer_vfs.html",
+                CmsResourceTypePointer.getStaticTypeId(),
+                "/index.html".getBytes(),
+                null);
+
+            CmsExternalLinksValidator validator = new CmsExternalLinksValidator();
+            validator.setReport(new CmsShellReport(Locale.ENGLISH));
+            validator.setChecker(new CmsExternalLinksChecker(5000, 5000, 0));
+            validator.setThreads(count);
+            long start = System.currentTimeMillis();
+            validator.validateLinks(cms);
+            long duration = System.currentTimeMillis() - start;
+
+            // the slow links are checked at the same time
+            assertTrue("Validation took " + duration + " ms", duration < (count * SLOW_RESPONSE_TIME));
+            // the test data contains other pointers to external sites, which may not be reachable
+            Map<String, String> brokenLinks = OpenCms.getLinkManager().getPointerLinkValidationResult().getBrokenLinks();
+            assertEquals(base + "/missing", brokenLinks.get("/sites/default/pointer_missing.html"));
+            assertFalse(brokenLinks.containsKey("/sites/default/pointer_vfs.html"));
+            for (int i = 0; i < count; i++) {
+                assertFalse(brokenLinks.containsKey("/sites/default/pointer_slow_" + i + ".html"));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Starts a local HTTP server for testing the link checks.<p>
+     *
+     * @return the started server
+     *
+     * @throws IOException if the server could not be started
+     */
+    private HttpServer startServer() throws IOException {
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+
+                String path = exchange.getRequestURI().getPath();
+                int status = 200;
+                if (path.equals("/missing")) {
+                    status = 404;
+                } else if (path.equals("/nohead") && exchange.getRequestMethod().equals("HEAD")) {
+                    status = 405;
+                } else if (path.equals("/slow")) {
+                    try {
+                        Thread.sleep(SLOW_RESPONSE_TIME);
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.util;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the data type utilities.<p>
+ */
+public class TestCmsDataTypeUtil extends OpenCmsTestCase {
+
+    /**
+     * Tests that maps and lists with parseable values are encoded without Java serialization.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testCompactEncoding() throws Exception {
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("string", "a \"quoted\" value \u00e4");
+        map.put("int", new Integer(1));
+        map.put("long", new Long(2));
+        map.put("boolean", Boolean.TRUE);
+        map.put("date", new Date(1234567890L));
+        map.put("uuid", new CmsUUID());
+
+        byte[] data = CmsDataTypeUtil.dataSerialize(map);
+        assertFalse(CmsDataTypeUtil.isSerialized(data));
+        Object result = CmsDataTypeUtil.dataDeserialize(data, map.getClass().getName());
+        assertEquals(HashMap.class, result.getClass());
+        assertEquals(map, result);
+
+        List<Object> list = new ArrayList<Object>();
+        list.add("one");
+        list.add(new Double(2.5));
+        data = CmsDataTypeUtil.dataSerialize(list);
+        assertFalse(CmsDataTypeUtil.isSerialized(data));
+        assertEquals(list, CmsDataTypeUtil.dataDeserialize(data, list.getClass().getName()));
+    }
+
+    /**
+     * Tests that values which can not be encoded in the compact format are still serialized.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSerializedFallback() throws Exception {
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("nested", new ArrayList<Object>());
+        byte[] data = CmsDataTypeUtil.dataSerialize(map);
+        assertTrue(CmsDataTypeUtil.isSerialized(data));
+        assertEquals(map, CmsDataTypeUtil.dataDeserialize(data, map.getClass().getName()));
+
+        Map<Object, Object> numberKeys = new HashMap<Object, Object>();
+        numberKeys.put(new Integer(1), "one");
+        data = CmsDataTypeUtil.dataSerialize(numberKeys);
+        assertTrue(CmsDataTypeUtil.isSerialized(data));
+        assertEquals(numberKeys, CmsDataTypeUtil.dataDeserialize(data, numberKeys.getClass().getName()));
+
+        // collections without a public default constructor keep their type
+        Map<String, Object> unmodifiable = Collections.unmodifiableMap(Collections.<String, Object> singletonMap(
+            "one",
+            "1"));
+        data = CmsDataTypeUtil.dataSerialize(unmodifiable);
+        assertTrue(CmsDataTypeUtil.isSerialized(data));
+        assertEquals(unmodifiable, CmsDataTypeUtil.dataDeserialize(data, unmodifiable.getClass().getName()));
+        List<String> singleton = Collections.singletonList("one");
+        data = CmsDataTypeUtil.dataSerialize(singleton);
+        assertTrue(CmsDataTypeUtil.isSerialized(data));
+        Object result = CmsDataTypeUtil.dataDeserialize(data, singleton.getClass().getName());
+        assertEquals(singleton.getClass(), result.getClass());
+        assertEquals(singleton, result);
+    }
+
+    /**
+     * Tests that data written with Java serialization by earlier versions can still be read.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSerializedLegacyData() throws Exception {
+
+        Hashtable<String, Object> map = new Hashtable<String, Object>();
+        map.put("one", new Integer(1));
+        map.put("two", "2");
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream oout = new ObjectOutputStream(bout);
+        oout.writeObject(map);
+        oout.close();
+
+        byte[] data = bout.toByteArray();
+        assertTrue(CmsDataTypeUtil.isSerialized(data));
+        assertEquals(map, CmsDataTypeUtil.dataDeserialize(data, HashMap.class.getName()));
+    }
+}
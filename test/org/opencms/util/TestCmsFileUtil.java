@@ -30,6 +30,9 @@ package org.opencms.util;
 import org.opencms.test.OpenCmsTestCase;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -135,6 +138,29 @@ public class TestCmsFileUtil extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests comparing the content of a stream with {@link CmsFileUtil#equalsContent(InputStream, byte[])}.<p>
+     *
+     * @throws IOException in case the test fails
+     */
+    public void testEqualsContent() throws IOException {
+
+        byte[] content = new byte[10000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte)i;
+        }
+        assertTrue(CmsFileUtil.equalsContent(new ByteArrayInputStream(content), content.clone()));
+        assertTrue(CmsFileUtil.equalsContent(new ByteArrayInputStream(new byte[0]), new byte[0]));
+
+        byte[] changed = content.clone();
+        changed[9999]++;
+        assertFalse(CmsFileUtil.equalsContent(new ByteArrayInputStream(content), changed));
+        assertFalse(
+            CmsFileUtil.equalsContent(new ByteArrayInputStream(content), Arrays.copyOf(content, content.length - 1)));
+        assertFalse(
+            CmsFileUtil.equalsContent(new ByteArrayInputStream(Arrays.copyOf(content, content.length - 1)), content));
+    }
+
     /**
      * Test the behavior of {@link CmsFileUtil#readFully(InputStream)}
      * when the read takes more than one iteration to complete.<p>
@@ -161,4 +187,33 @@ public class TestCmsFileUtil extends OpenCmsTestCase {
 
         assertTrue("input stream was closed", is.isClosed());
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests reading the remaining content of a file input stream with {@link CmsFileUtil#readFully(InputStream)}.<p>
+     *
+     * @throws IOException in case the test fails
+     */
+    public void testReadFullyFromFile() throws IOException {
+
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte)i;
+        }
+        File file = File.createTempFile("opencms-test", null);
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(content);
+            out.close();
+
+            assertTrue(Arrays.equals(content, CmsFileUtil.readFully(new FileInputStream(file))));
+
+            // only the remaining content is read if the stream has already been read partially
+            FileInputStream in = new FileInputStream(file);
+            assertEquals(1000, in.skip(1000));
+            byte[] data = CmsFileUtil.readFully(in);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(content, 1000, content.length), data));
+        } finally {
+            file.delete();
+        }
+    }
+}
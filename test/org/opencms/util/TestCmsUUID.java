@@ -27,6 +27,7 @@
 
 package org.opencms.util;
 
+import org.opencms.file.CmsResource;
 import org.opencms.test.OpenCmsTestCase;
 
 import java.io.ByteArrayInputStream;
@@ -36,7 +37,10 @@ import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -49,6 +53,25 @@ import org.safehaus.uuid.UUID;
  */
 public class TestCmsUUID extends OpenCmsTestCase {
 
+    /**
+     * Holds a UUID the way CmsUUID did before it was backed by primitive values.<p>
+     */
+    private static class LegacyId {
+
+        /** The wrapped UUID. */
+        protected UUID m_uuid;
+
+        /**
+         * Creates a new legacy id.<p>
+         *
+         * @param uuid the String representation of the UUID
+         */
+        protected LegacyId(String uuid) {
+
+            m_uuid = new UUID(uuid);
+        }
+    }
+
     /** Map to store serialized objects with a name. */
     private Map m_serializedMap = new HashMap();
 
@@ -62,6 +85,30 @@ public class TestCmsUUID extends OpenCmsTestCase {
         super(arg0);
     }
 
+    /**
+     * Tests the shared instances returned by {@link CmsUUID#intern(CmsUUID)}.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testInternUUID() throws Exception {
+
+        CmsUUID id1 = new CmsUUID("c300ba5c-01e8-3727-b305-5dcc9ccae1ee");
+        CmsUUID id2 = new CmsUUID("c300ba5c-01e8-3727-b305-5dcc9ccae1ee");
+        assertNotSame(id1, id2);
+        CmsUUID interned = CmsUUID.intern(id1);
+        assertEquals(id1, interned);
+        assertSame(interned, CmsUUID.intern(id2));
+        assertNull(CmsUUID.intern(null));
+        assertSame(CmsUUID.getNullUUID(), CmsUUID.intern(new CmsUUID("00000000-0000-0000-0000-000000000000")));
+
+        // resources share the ids of users and projects
+        CmsResource res1 = createResource(id1);
+        CmsResource res2 = createResource(id2);
+        assertSame(res1.getUserCreated(), res2.getUserCreated());
+        assertSame(res1.getUserLastModified(), res2.getUserLastModified());
+        assertSame(res1.getProjectLastModified(), res2.getProjectLastModified());
+    }
+
     /**
      * Tests UUID generation.<p>
      *
@@ -191,6 +238,54 @@ public class TestCmsUUID extends OpenCmsTestCase {
         System.out.println("Time for UUID equals() implementation for " + testSize + " UUIDs : " + time1);
     }
 
+    /**
+     * Tests that String representation, hash code and ordering are the same as those of the JUG UUID.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUUIDCompatibility() throws Exception {
+
+        CmsUUID.init(CmsUUID.getDummyEthernetAddress());
+        Random r = new Random(42);
+        List<CmsUUID> ids = new ArrayList<CmsUUID>();
+        for (int i = 0; i < 500; i++) {
+            ids.add(new CmsUUID());
+            ids.add(CmsUUID.getConstantUUID("name" + i));
+            byte[] data = new byte[16];
+            r.nextBytes(data);
+            ids.add(new CmsUUID(data));
+        }
+        ids.add(CmsUUID.getNullUUID());
+        ids.add(CmsUUID.getOpenCmsUUID());
+        ids.add(new CmsUUID("FFFFFFFF-FFFF-1FFF-FFFF-FFFFFFFFFFFF"));
+
+        for (int i = 0; i < ids.size(); i++) {
+            CmsUUID id = ids.get(i);
+            UUID uuid = new UUID(id.toString());
+            assertEquals(uuid.toString(), id.toString());
+            assertEquals(uuid.hashCode(), id.hashCode());
+            assertTrue(Arrays.equals(uuid.toByteArray(), id.toByteArray()));
+            assertEquals(id, new CmsUUID(uuid.toString().toUpperCase()));
+            assertEquals(id, new CmsUUID(uuid.toByteArray()));
+            CmsUUID other = ids.get(r.nextInt(ids.size()));
+            UUID otherUuid = new UUID(other.toString());
+            assertEquals(Integer.signum(uuid.compareTo(otherUuid)), Integer.signum(id.compareTo(other)));
+        }
+
+        String[] invalid = {
+            "c300ba5c-01e8-3727-b305-5dcc9ccae1e",
+            "c300ba5c-01e8-3727-b305+5dcc9ccae1ee",
+            "c300ba5c-01e8-3727-b305-5dcc9ccae1eg"};
+        for (int i = 0; i < invalid.length; i++) {
+            try {
+                new CmsUUID(invalid[i]);
+                fail("Invalid UUID accepted: " + invalid[i]);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
     /**
      * Tests the {@link CmsUUID#isValidUUID(String)} method.<p>
      *
@@ -207,6 +302,70 @@ public class TestCmsUUID extends OpenCmsTestCase {
         assertFalse(CmsUUID.isValidUUID("kaputt"));
     }
 
+    /**
+     * Tests that a UUID needs less than half of the heap than it did when it was wrapping a JUG UUID.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUUIDMemory() throws Exception {
+
+        int count = 200000;
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = new CmsUUID().toString();
+        }
+        LegacyId[] legacyIds = new LegacyId[count];
+        CmsUUID[] ids = new CmsUUID[count];
+
+        long before = getUsedMemory();
+        for (int i = 0; i < count; i++) {
+            legacyIds[i] = new LegacyId(values[i]);
+        }
+        long legacySize = getUsedMemory() - before;
+
+        before = getUsedMemory();
+        for (int i = 0; i < count; i++) {
+            ids[i] = new CmsUUID(values[i]);
+        }
+        long size = getUsedMemory() - before;
+
+        System.out.println(
+            "Heap used by " + count + " UUIDs: " + size + " bytes, formerly " + legacySize + " bytes");
+        assertEquals(legacyIds[count - 1].m_uuid.toString(), ids[count - 1].toString());
+        assertTrue(size > 0);
+        assertTrue((2 * size) <= legacySize);
+    }
+
+    /**
+     * Creates a resource with the given id as id of the users and the project.<p>
+     *
+     * @param id the id of the users and the project
+     *
+     * @return the resource
+     */
+    protected CmsResource createResource(CmsUUID id) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            "/test.txt",
+            1,
+            false,
+            0,
+            id,
+            CmsResource.STATE_NEW,
+            0,
+            id,
+            0,
+            id,
+            0,
+            Long.MAX_VALUE,
+            1,
+            0,
+            0,
+            0);
+    }
+
     /**
      * De-Serializes an object with the given name from the internal Map.<p>
      *
@@ -239,6 +398,23 @@ public class TestCmsUUID extends OpenCmsTestCase {
         return oin.readObject();
     }
 
+    /**
+     * Returns the used heap memory after a garbage collection.<p>
+     *
+     * @return the used heap memory in bytes
+     *
+     * @throws Exception if something goes wrong
+     */
+    protected long getUsedMemory() throws Exception {
+
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     /**
      * Serializes an object and stores the result into an internal Map using the given name.<p>
      *
@@ -38,6 +38,7 @@ import org.opencms.xml.types.CmsXmlLocaleValue;
 import org.opencms.xml.types.CmsXmlStringValue;
 import org.opencms.xml.types.I_CmsXmlContentValue;
 
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -49,6 +50,12 @@ public class TestCmsXmlContent extends OpenCmsTestCase {
     /** The schema id. */
     private static final String SCHEMA_SYSTEM_ID_1 = "http://www.opencms.org/test1.xsd";
 
+    /** The schema id of the nested group schema. */
+    private static final String SCHEMA_SYSTEM_ID_15 = "http://www.opencms.org/test15.xsd";
+
+    /** The schema id of the nesting test schema. */
+    private static final String SCHEMA_SYSTEM_ID_16 = "http://www.opencms.org/test16.xsd";
+
     /**
      * Default JUnit constructor.<p>
      *
@@ -131,6 +138,90 @@ public class TestCmsXmlContent extends OpenCmsTestCase {
         assertEquals(node4, checkValue.getStringValue(null));
     }
 
+    /**
+     * Tests the value access methods on a content with thousands of nested values,
+     * and reports the time needed to iterate the nested values.<p>
+     *
+     * @throws Exception in case the test fails
+     */
+    public void testNestedValuesBenchmark() throws Exception {
+
+        int groups = 200;
+        int items = 20;
+
+        CmsXmlEntityResolver resolver = new CmsXmlEntityResolver(null);
+        String content;
+        // store the content definitions in the entitiy resolver
+        content = CmsFileUtil.readFile(
+            "org/opencms/xml/content/xmlcontent-definition-15.xsd",
+            CmsEncoder.ENCODING_UTF_8);
+        CmsXmlEntityResolver.cacheSystemId(SCHEMA_SYSTEM_ID_15, content.getBytes(CmsEncoder.ENCODING_UTF_8));
+        content = CmsFileUtil.readFile(
+            "org/opencms/xml/content/xmlcontent-definition-16.xsd",
+            CmsEncoder.ENCODING_UTF_8);
+        CmsXmlEntityResolver.cacheSystemId(SCHEMA_SYSTEM_ID_16, content.getBytes(CmsEncoder.ENCODING_UTF_8));
+
+        // generate a content with many groups in the english locale and a single group in the german locale
+        StringBuffer xml = new StringBuffer(groups * items * 64);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<Nestingtests xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" ");
+        xml.append("xsi:noNamespaceSchemaLocation=\"" + SCHEMA_SYSTEM_ID_16 + "\">\n");
+        xml.append("<Nestingtest language=\"en\">\n");
+        for (int g = 1; g <= groups; g++) {
+            xml.append("<Group><Title><![CDATA[Group " + g + "]]></Title>");
+            for (int i = 1; i <= items; i++) {
+                xml.append("<Item><![CDATA[Item " + g + "." + i + "]]></Item>");
+            }
+            xml.append("</Group>\n");
+        }
+        xml.append("</Nestingtest>\n");
+        xml.append("<Nestingtest language=\"de\">\n");
+        xml.append("<Group><Title><![CDATA[Gruppe 1]]></Title><Item><![CDATA[Eintrag 1.1]]></Item></Group>\n");
+        xml.append("</Nestingtest>\n");
+        xml.append("</Nestingtests>\n");
+
+        long start = System.currentTimeMillis();
+        CmsXmlContent xmlcontent = CmsXmlContentFactory.unmarshal(xml.toString(), CmsEncoder.ENCODING_UTF_8, resolver);
+        System.out.println("Unmarshalled content with " + (groups * (items + 2)) + " values in "
+            + (System.currentTimeMillis() - start) + " ms");
+
+        // all values of a locale, but none of the other locale
+        assertEquals(groups * (items + 2), xmlcontent.getValues(Locale.ENGLISH).size());
+        assertEquals(3, xmlcontent.getValues(Locale.GERMAN).size());
+        assertEquals(groups, xmlcontent.getValues("Group", Locale.ENGLISH).size());
+        assertEquals(groups, xmlcontent.getIndexCount("Group", Locale.ENGLISH));
+
+        start = System.currentTimeMillis();
+        int count = 0;
+        for (int g = 1; g <= groups; g++) {
+            String groupPath = "Group[" + g + "]";
+            List<I_CmsXmlContentValue> subValues = xmlcontent.getSubValues(groupPath, Locale.ENGLISH);
+            assertEquals(items + 1, subValues.size());
+            // the sub values are ordered by their index
+            int lastIndex = -1;
+            for (I_CmsXmlContentValue subValue : subValues) {
+                assertTrue(subValue.getPath().startsWith(groupPath + "/"));
+                assertTrue(subValue.getIndex() >= lastIndex);
+                lastIndex = subValue.getIndex();
+                count++;
+            }
+            assertEquals(items, xmlcontent.getIndexCount(groupPath + "/Item", Locale.ENGLISH));
+            assertEquals(
+                "Item " + g + "." + items,
+                xmlcontent.getStringValue(null, groupPath + "/Item", Locale.ENGLISH, items - 1));
+        }
+        System.out.println("Iterated " + count + " nested values in " + (System.currentTimeMillis() - start) + " ms");
+
+        // simple values have no sub values
+        assertTrue(xmlcontent.getSubValues("Group[1]/Title", Locale.ENGLISH).isEmpty());
+
+        // the index must follow removed values
+        xmlcontent.removeValue("Group[1]/Item", Locale.ENGLISH, 0);
+        assertEquals(items, xmlcontent.getSubValues("Group[1]", Locale.ENGLISH).size());
+        assertEquals("Item 1.2", xmlcontent.getStringValue(null, "Group[1]/Item", Locale.ENGLISH, 0));
+        assertEquals(groups * (items + 2) - 1, xmlcontent.getValues(Locale.ENGLISH).size());
+    }
+
     /**
      * Test unmarshalling an XML content from a String.<p>
      *
@@ -852,4 +852,7 @@ CREATE TABLE CMS_REWRITES -- CmsDAORewriteAlias
     (ID VARCHAR(36) NOT NULL, ALIAS_MODE INTEGER NOT NULL, PATTERN VARCHAR(255) NOT NULL, REPLACEMENT VARCHAR(255) NOT NULL, SITE_ROOT VARCHAR(64) NOT NULL, PRIMARY KEY (ID));
 
 CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT);
-    
\ No newline at end of file
+
+CREATE TABLE CMS_SCHEDULER_EXECUTIONS -- CmsDAOScheduledJobExecutions
+    (JOB_KEY VARCHAR(36) NOT NULL, FIRE_TIME BIGINT NOT NULL, JOB_NAME VARCHAR(255) NOT NULL, SERVER_NAME VARCHAR(64) NOT NULL, DATE_STARTED BIGINT NOT NULL, DATE_FINISHED BIGINT NOT NULL, EXECUTION_STATE VARCHAR(16) NOT NULL, EXECUTION_RESULT VARCHAR(1024), PRIMARY KEY (JOB_KEY, FIRE_TIME));
+    
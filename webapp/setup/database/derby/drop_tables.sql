@@ -40,4 +40,5 @@ DROP TABLE CMS_ALIASES ;
  
 
 DROP TABLE CMS_REWRITES;
+DROP TABLE CMS_SCHEDULER_EXECUTIONS;
 DROP TABLE CMS_USER_PUBLISH_LIST;
\ No newline at end of file
@@ -380,4 +380,6 @@ CREATE INDEX CMS_USERPUBLIST_IDX_01 ON CMS_USER_PUBLISH_LIST (USER_ID);
 CREATE INDEX CMS_USERPUBLIST_IDX_02 ON CMS_USER_PUBLISH_LIST (STRUCTURE_ID);
 
 CREATE TABLE CMS_REWRITES (ID CHARACTER(36) NOT NULL, ALIAS_MODE INTEGER NOT NULL, PATTERN CHARACTER(255) NOT NULL, REPLACEMENT CHARACTER(255) NOT NULL, SITE_ROOT CHARACTER(64) NOT NULL, PRIMARY KEY (ID));
-CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT);
\ No newline at end of file
+CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT);
+
+CREATE TABLE CMS_SCHEDULER_EXECUTIONS (JOB_KEY CHARACTER(36) NOT NULL, FIRE_TIME DECIMAL(38) NOT NULL, JOB_NAME CHARACTER(255) NOT NULL, SERVER_NAME CHARACTER(64) NOT NULL, DATE_STARTED DECIMAL(38) NOT NULL, DATE_FINISHED DECIMAL(38) NOT NULL, EXECUTION_STATE CHARACTER(16) NOT NULL, EXECUTION_RESULT CHARACTER(1024), PRIMARY KEY (JOB_KEY, FIRE_TIME));
@@ -45,4 +45,5 @@ DROP TABLE CMS_OFFLINE_URLNAME_MAPPINGS ;
 DROP TABLE CMS_COUNTERS ; 
 DROP TABLE CMS_ALIASES ; 
 DROP TABLE CMS_REWRITES;
+DROP TABLE CMS_SCHEDULER_EXECUTIONS;
 DROP TABLE CMS_USER_PUBLISH_LIST;
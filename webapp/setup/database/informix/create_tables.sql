@@ -387,3 +387,5 @@ CREATE INDEX CMS_USERPUBLIST_IDX_02 ON CMS_USER_PUBLISH_LIST (STRUCTURE_ID);
 
 CREATE TABLE CMS_REWRITES (ID VARCHAR(36) NOT NULL, ALIAS_MODE INTEGER NOT NULL, PATTERN VARCHAR(255) NOT NULL, REPLACEMENT VARCHAR(255) NOT NULL, SITE_ROOT VARCHAR(64) NOT NULL, PRIMARY KEY (ID)) LOCK MODE ROW;
 CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT);
+
+CREATE TABLE CMS_SCHEDULER_EXECUTIONS (JOB_KEY VARCHAR(36) NOT NULL, FIRE_TIME NUMERIC(32,0) NOT NULL, JOB_NAME VARCHAR(255) NOT NULL, SERVER_NAME VARCHAR(64) NOT NULL, DATE_STARTED NUMERIC(32,0) NOT NULL, DATE_FINISHED NUMERIC(32,0) NOT NULL, EXECUTION_STATE VARCHAR(16) NOT NULL, EXECUTION_RESULT LVARCHAR(1024), PRIMARY KEY (JOB_KEY, FIRE_TIME)) LOCK MODE ROW;
@@ -694,4 +694,6 @@ CREATE NONCLUSTERED INDEX CMS_USERPUBLIST_IDX_02 ON CMS_USER_PUBLISH_LIST(STRUCT
 CREATE TABLE CMS_REWRITES (ID NVARCHAR(36) NOT NULL, ALIAS_MODE INT NOT NULL, PATTERN NVARCHAR(255) NOT NULL, REPLACEMENT VARCHAR(255) NOT NULL, SITE_ROOT NVARCHAR(64) NOT NULL, PRIMARY KEY (ID));
 CREATE NONCLUSTERED INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT);
 
+CREATE TABLE CMS_SCHEDULER_EXECUTIONS (JOB_KEY NVARCHAR(36) NOT NULL, FIRE_TIME BIGINT NOT NULL, JOB_NAME NVARCHAR(255) NOT NULL, SERVER_NAME NVARCHAR(64) NOT NULL, DATE_STARTED BIGINT NOT NULL, DATE_FINISHED BIGINT NOT NULL, EXECUTION_STATE NVARCHAR(16) NOT NULL, EXECUTION_RESULT NVARCHAR(511), PRIMARY KEY (JOB_KEY, FIRE_TIME));
+
 
@@ -524,4 +524,18 @@ CREATE TABLE CMS_REWRITES
   )
 ENGINE = MYISAM CHARACTER SET UTF8;
 
-CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT); 
\ No newline at end of file
+CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT); 
+
+CREATE TABLE CMS_SCHEDULER_EXECUTIONS
+  (
+     JOB_KEY            VARCHAR(36) NOT NULL,
+     FIRE_TIME          BIGINT NOT NULL,
+     JOB_NAME           VARCHAR(255) NOT NULL,
+     SERVER_NAME        VARCHAR(64) NOT NULL,
+     DATE_STARTED       BIGINT NOT NULL,
+     DATE_FINISHED      BIGINT NOT NULL,
+     EXECUTION_STATE    VARCHAR(16) NOT NULL,
+     EXECUTION_RESULT   VARCHAR(1024),
+     PRIMARY KEY (JOB_KEY, FIRE_TIME)
+  )
+ENGINE = MYISAM CHARACTER SET UTF8;
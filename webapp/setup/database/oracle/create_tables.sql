@@ -837,4 +837,6 @@ CREATE INDEX CMS_USERPUBLIST_IDX_01 ON CMS_USER_PUBLISH_LIST (USER_ID) TABLESPAC
 CREATE INDEX CMS_USERPUBLIST_IDX_02 ON CMS_USER_PUBLISH_LIST (STRUCTURE_ID) TABLESPACE ${indexTablespace};
 
 CREATE TABLE CMS_REWRITES (ID VARCHAR2(36) NOT NULL, ALIAS_MODE NUMBER NOT NULL, PATTERN VARCHAR2(255) NOT NULL, REPLACEMENT VARCHAR2(255) NOT NULL, SITE_ROOT VARCHAR2(64) NOT NULL, PRIMARY KEY (ID));
-CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT) TABLESPACE ${indexTablespace};
\ No newline at end of file
+CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT) TABLESPACE ${indexTablespace};
+
+CREATE TABLE CMS_SCHEDULER_EXECUTIONS (JOB_KEY VARCHAR2(36) NOT NULL, FIRE_TIME NUMBER NOT NULL, JOB_NAME VARCHAR2(255) NOT NULL, SERVER_NAME VARCHAR2(64) NOT NULL, DATE_STARTED NUMBER NOT NULL, DATE_FINISHED NUMBER NOT NULL, EXECUTION_STATE VARCHAR2(16) NOT NULL, EXECUTION_RESULT VARCHAR2(1024), PRIMARY KEY (JOB_KEY, FIRE_TIME));